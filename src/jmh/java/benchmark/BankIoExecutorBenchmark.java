@@ -0,0 +1,86 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package benchmark;
+
+import com.j2020.ExecutorConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A burst of {@code calls} blocking bank calls of {@link #BANK_LATENCY_MILLIS} each, run on the bank I/O
+ * executor in either mode. The pool caps the calls in flight at its size, so the burst takes
+ * calls / {@link #POOL_SIZE} round trips; virtual threads keep every call in flight at once.
+ * The peak number of calls in flight and of OS threads alive (each with its own native stack) is printed per
+ * trial; virtual thread stacks live on the heap and show up in the {@code -prof gc} allocation rate instead.
+ * The virtual mode needs Java 21, on older JVMs its trials fail in setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BankIoExecutorBenchmark {
+    private static final long BANK_LATENCY_MILLIS = 20;
+    private static final int POOL_SIZE = 200;
+
+    @Param({"pool", "virtual"})
+    private String mode;
+
+    @Param({"200", "2000", "10000"})
+    private int calls;
+
+    private ExecutorService executor;
+    private ThreadMXBean threads;
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicInteger peakPlatformThreads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = "virtual".equals(mode)
+                ? ExecutorConfiguration.newVirtualThreadExecutor()
+                        .orElseThrow(() -> new IllegalStateException("Virtual threads need Java 21"))
+                : ExecutorConfiguration.newBoundedPool("benchmark-io-", POOL_SIZE, calls);
+        threads = ManagementFactory.getThreadMXBean();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        // peaks rather than averages, so they're printed once per trial instead of reported as secondary results
+        System.out.println(mode + " with " + calls + " calls: at most " + peakInFlight.get() + " in flight on "
+                + peakPlatformThreads.get() + " platform threads");
+    }
+
+    @Benchmark
+    public int blockingCalls() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(calls);
+        AtomicInteger inFlight = new AtomicInteger();
+
+        for (int call = 0; call < calls; call++) {
+            executor.execute(() -> {
+                int current = inFlight.incrementAndGet();
+                if (current > peakInFlight.get()) {
+                    peakInFlight.accumulateAndGet(current, Math::max);
+                    peakPlatformThreads.accumulateAndGet(threads.getThreadCount(), Math::max);
+                }
+                try {
+                    Thread.sleep(BANK_LATENCY_MILLIS);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+        return inFlight.get();
+    }
+}
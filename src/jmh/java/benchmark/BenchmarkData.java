@@ -0,0 +1,86 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package benchmark;
+
+import com.j2020.Constants;
+import com.j2020.model.*;
+import com.j2020.model.deutsche.*;
+import com.j2020.model.revolut.RevolutAccount;
+import com.j2020.model.revolut.RevolutPayment;
+import com.j2020.model.revolut.RevolutTransaction;
+import com.j2020.service.deutsche.DeutscheMapperService;
+import com.j2020.service.revolut.RevolutMapperService;
+import helper.TestDataHelper;
+
+public class BenchmarkData {
+    private BenchmarkData() {
+    }
+
+    public static Object dataTransferObject(String name) {
+        RevolutMapperService revolutMapper = new RevolutMapperService();
+        DeutscheMapperService deutscheMapper = new DeutscheMapperService();
+
+        switch (name) {
+            case "BatchOfPayments":
+                BatchOfPayments batch = new BatchOfPayments();
+                batch.setId(1L);
+                batch.setCountOfAllPayments(100);
+                batch.setCountOfProcessedPayments(42);
+                return batch;
+            case "BatchOfPaymentsMessage":
+                BatchOfPaymentsMessage message = new BatchOfPaymentsMessage();
+                message.setBatchId(1L);
+                message.setText("Payments are being processed. Check their status with the following batch id.");
+                return message;
+            case "GeneralAccount":
+                return revolutMapper.toGeneralAccount((RevolutAccount) TestDataHelper.generateRevolutAccounts().get(0));
+            case "GeneralPayment":
+                return TestDataHelper.generateValidGeneralPaymentForRevolut();
+            case "GeneralTransaction":
+                return revolutMapper.toGeneralTransaction((RevolutTransaction) TestDataHelper.generateRevolutTransactions().get(0));
+            case "TransactionStatusCheck":
+                return TestDataHelper.generateTransactionStatusChecks().get(0);
+            case "DeutscheAccount":
+                return TestDataHelper.generateDeutscheAccounts().get(0);
+            case "DeutscheOneTimePassword":
+                return new DeutscheOneTimePassword("123456");
+            case "DeutschePayment":
+                return deutscheMapper.toDeutschePayment(TestDataHelper.generateValidGeneralPaymentForDeutsche());
+            case "DeutschePaymentResponse":
+                return TestDataHelper.generateDeutschePaymentResponse();
+            case "DeutschePhototanChallengeResponse":
+                return new DeutschePhototanChallengeResponse("123456");
+            case "DeutschePhototanResponse":
+                DeutschePhototanChallenge challenge = new DeutschePhototanChallenge();
+                challenge.setType("PHOTOTAN");
+                challenge.setImageBase64("iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==");
+                DeutschePhototanResponse phototan = new DeutschePhototanResponse();
+                phototan.setId("ab5b9ff9-0c85-4b68-b3b5-2d8d4b8bf66a");
+                phototan.setMethod(Constants.DEUTSCHE_SEPA_PAYMENT_REQUEST_METHOD);
+                phototan.setChallenge(challenge);
+                return phototan;
+            case "DeutscheSepaPaymentRequest":
+                return new DeutscheSepaPaymentRequest(Constants.TEST_DEUTSCHE_DUMMY_SOURCE_IBAN, Money.parse("10.5", Constants.TEST_CURRENCY_CODE));
+            case "DeutscheTokenRenewalResponse":
+                return TestDataHelper.generateExpiredDeutscheTokenResponse();
+            case "DeutscheTransaction":
+                return TestDataHelper.generateDeutscheTransactions().get(0);
+            case "RevolutAccount":
+                return TestDataHelper.generateRevolutAccounts().get(0);
+            case "RevolutPayment":
+                RevolutPayment payment = revolutMapper.toRevolutPayment(TestDataHelper.generateValidGeneralPaymentForRevolut());
+                payment.setRequestId("3b9f2d1c7a8e4f5b6c0d9e8f7a6b5c4d3e2f1a0b");
+                return payment;
+            case "RevolutPaymentResponse":
+                return TestDataHelper.generateRevolutPaymentResponse();
+            case "RevolutTokenRenewalResponse":
+                return TestDataHelper.generateExpiredRevolutTokenResponse();
+            case "RevolutTransaction":
+                return TestDataHelper.generateRevolutTransactions().get(0);
+            default:
+                throw new IllegalArgumentException("No benchmark data for " + name);
+        }
+    }
+}
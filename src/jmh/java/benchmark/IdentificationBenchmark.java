@@ -0,0 +1,54 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package benchmark;
+
+import com.j2020.service.PaymentIdentificationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IdentificationBenchmark {
+    private static final int LENGTH = 40;
+
+    private PaymentIdentificationService identificationService;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        identificationService = new PaymentIdentificationService();
+        setField(identificationService, "maxReqIdLength", LENGTH);
+        setField(identificationService, "nodeId", "1");
+        identificationService.init();
+        random = new Random();
+    }
+
+    @Benchmark
+    public String generateIdentification() {
+        return identificationService.generateIdentification();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateIdentificationContended() {
+        return identificationService.generateIdentification();
+    }
+
+    /** The previous shared-{@link Random} implementation, kept as a baseline. */
+    @Benchmark
+    @Threads(4)
+    public String sharedRandomBaseline() {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < LENGTH) {
+            builder.append(Integer.toHexString(random.nextInt()));
+        }
+        return builder.toString().substring(0, LENGTH);
+    }
+}
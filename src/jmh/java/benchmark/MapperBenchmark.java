@@ -0,0 +1,60 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package benchmark;
+
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.GeneralTransaction;
+import com.j2020.model.deutsche.DeutschePayment;
+import com.j2020.model.deutsche.DeutscheTransaction;
+import com.j2020.model.revolut.RevolutPayment;
+import com.j2020.model.revolut.RevolutTransaction;
+import com.j2020.service.deutsche.DeutscheMapperService;
+import com.j2020.service.revolut.RevolutMapperService;
+import helper.TestDataHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MapperBenchmark {
+    private RevolutMapperService revolutMapper;
+    private DeutscheMapperService deutscheMapper;
+    private RevolutTransaction revolutTransaction;
+    private DeutscheTransaction deutscheTransaction;
+    private GeneralPayment revolutPayment;
+    private GeneralPayment deutschePayment;
+
+    @Setup
+    public void setUp() {
+        revolutMapper = new RevolutMapperService();
+        deutscheMapper = new DeutscheMapperService();
+        revolutTransaction = (RevolutTransaction) TestDataHelper.generateRevolutTransactions().get(0);
+        deutscheTransaction = (DeutscheTransaction) TestDataHelper.generateDeutscheTransactions().get(0);
+        revolutPayment = TestDataHelper.generateValidGeneralPaymentForRevolut();
+        deutschePayment = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+    }
+
+    @Benchmark
+    public GeneralTransaction revolutToGeneralTransaction() {
+        return revolutMapper.toGeneralTransaction(revolutTransaction);
+    }
+
+    @Benchmark
+    public RevolutPayment revolutToRevolutPayment() {
+        return revolutMapper.toRevolutPayment(revolutPayment);
+    }
+
+    @Benchmark
+    public GeneralTransaction deutscheToGeneralTransaction() {
+        return deutscheMapper.toGeneralTransaction(deutscheTransaction);
+    }
+
+    @Benchmark
+    public DeutschePayment deutscheToDeutschePayment() {
+        return deutscheMapper.toDeutschePayment(deutschePayment);
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.j2020.model.Bank;
+import com.j2020.model.GeneralPayment;
+import com.j2020.service.jms.GeneralPaymentCodec;
+import helper.TestDataHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding one queued payment as the JSON text message body or as the {@link GeneralPaymentCodec}
+ * bytes. The body size of either format is printed once per trial, as it doesn't change between iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentCodecBenchmark {
+    @Param({"json", "binary"})
+    private String format;
+
+    @Param({"REVOLUT", "DEUTSCHE"})
+    private String bank;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private GeneralPayment payment;
+    private String json;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        payment = Bank.REVOLUT.name().equals(bank)
+                ? TestDataHelper.generateValidGeneralPaymentForRevolut()
+                : TestDataHelper.generateValidGeneralPaymentForDeutsche();
+        payment.setBank(Bank.valueOf(bank));
+        payment.setBatchId(123456L);
+        payment.setSequence(4321);
+
+        json = mapper.writeValueAsString(payment);
+        binary = GeneralPaymentCodec.encode(payment);
+        System.out.println(bank + " payment body: " + json.getBytes(StandardCharsets.UTF_8).length + " bytes as JSON, "
+                + binary.length + " bytes binary");
+    }
+
+    @Benchmark
+    public Object encode() throws IOException {
+        return "json".equals(format) ? mapper.writeValueAsString(payment) : GeneralPaymentCodec.encode(payment);
+    }
+
+    @Benchmark
+    public GeneralPayment decode() throws IOException {
+        return "json".equals(format) ? mapper.readValue(json, GeneralPayment.class) : GeneralPaymentCodec.decode(binary);
+    }
+}
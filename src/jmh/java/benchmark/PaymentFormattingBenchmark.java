@@ -0,0 +1,54 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package benchmark;
+
+import com.j2020.Constants;
+import com.j2020.model.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PaymentFormattingBenchmark {
+    @Param({"10.0", "1250.50", "0.99", "100"})
+    private String value;
+
+    private Float floatAmount;
+    private Money amount;
+
+    @Setup
+    public void setUp() {
+        floatAmount = Float.valueOf(value);
+        amount = Money.parse(value, Constants.TEST_CURRENCY_CODE);
+    }
+
+    // The Float.toString and trailing zero trimming path the Deutsche mapper used before Money
+    @Benchmark
+    public String floatBaseline() {
+        StringBuilder builder = new StringBuilder(floatAmount.toString());
+
+        if (builder.indexOf(".") > 0) {
+            while (builder.substring(builder.length() - 1).equals("0")) {
+                builder = builder.deleteCharAt(builder.length() - 1);
+            }
+            if (builder.substring(builder.length() - 1).equals(".")) {
+                builder = builder.deleteCharAt(builder.length() - 1);
+            }
+        }
+        return builder.toString();
+    }
+
+    @Benchmark
+    public String compactString() {
+        return amount.toCompactString();
+    }
+
+    @Benchmark
+    public String plainString() {
+        return amount.toPlainString();
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SerializationBenchmark {
+    @Param({
+            "BatchOfPayments",
+            "BatchOfPaymentsMessage",
+            "GeneralAccount",
+            "GeneralPayment",
+            "GeneralTransaction",
+            "TransactionStatusCheck",
+            "DeutscheAccount",
+            "DeutscheOneTimePassword",
+            "DeutschePayment",
+            "DeutschePaymentResponse",
+            "DeutschePhototanChallengeResponse",
+            "DeutschePhototanResponse",
+            "DeutscheSepaPaymentRequest",
+            "DeutscheTokenRenewalResponse",
+            "DeutscheTransaction",
+            "RevolutAccount",
+            "RevolutPayment",
+            "RevolutPaymentResponse",
+            "RevolutTokenRenewalResponse",
+            "RevolutTransaction"})
+    private String dto;
+
+    private ObjectMapper mapper;
+    private Object instance;
+    private Class<?> type;
+    private String json;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        instance = BenchmarkData.dataTransferObject(dto);
+        type = instance.getClass();
+        json = mapper.writeValueAsString(instance);
+    }
+
+    @Benchmark
+    public String serialize() throws JsonProcessingException {
+        return mapper.writeValueAsString(instance);
+    }
+
+    @Benchmark
+    public Object deserialize() throws JsonProcessingException {
+        return mapper.readValue(json, type);
+    }
+
+    // Mirrors the retrieval services, which build a new ObjectMapper for every response they parse
+    @Benchmark
+    public Object deserializeWithFreshMapper() throws JsonProcessingException {
+        return new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .readValue(json, type);
+    }
+}
@@ -7,8 +7,17 @@ package com.j2020;
 public class Constants {
     public static final String DISPLAY_FAILED_PAYMENT_ID = "[Not processed]";
     public static final String DISPLAY_FAILED_PAYMENT_STATUS = "[FAILED]";
+    public static final String DISPLAY_UNKNOWN_PAYMENT_ID = "[Not answered]";
+    public static final String DISPLAY_UNKNOWN_PAYMENT_STATUS = "[UNKNOWN]";
+    public static final String DISPLAY_BATCH_ACCEPTED_TEXT = "Payments are being processed. Check their status with the following batch id.";
+    public static final String DISPLAY_PAYMENTS_REJECTED_TEXT = "None of the payments are valid, nothing was submitted.";
 
     public static final String JMS_TRANSACTION_QUEUE = "MainTransactionQueue";
+    public static final String JMS_URGENT_TRANSACTION_QUEUE = "UrgentTransactionQueue";
+    public static final String JMS_BULK_TRANSACTION_QUEUE = "BulkTransactionQueue";
+    public static final String JMS_REVOLUT_WEBHOOK_QUEUE = "RevolutWebhookQueue";
+    public static final String JMS_BATCH_PROGRESS_TOPIC = "BatchProgressTopic";
+    public static final String JMS_TYPE_ID_PROPERTY = "_type";
 
     public static final String DEUTSCHE_SEPA_PAYMENT_REQUEST_METHOD = "PHOTOTAN";
     public static final String DEUTSCHE_SEPA_PAYMENT_REQUEST_TYPE = "INSTANT_SEPA_CREDIT_TRANSFERS";
@@ -28,6 +37,8 @@ public class Constants {
     public static final String REVOLUT_PAYMENT_URL = "https://sandbox-b2b.revolut.com/api/1.0/pay";
     public static final String REVOLUT_ACCOUNT_URL = "https://sandbox-b2b.revolut.com/api/1.0/accounts";
     public static final String REVOLUT_TRANSACTION_URL = "https://sandbox-b2b.revolut.com/api/1.0/transactions";
+    public static final String REVOLUT_WEBHOOK_SIGNATURE_HEADER = "Revolut-Signature";
+    public static final String REVOLUT_WEBHOOK_TIMESTAMP_HEADER = "Revolut-Request-Timestamp";
 
     public static final String DEUTSCHE_OAUTHTOKEN = "";
     public static final String DEUTSCHE_CLIENT_SECRET = "";
@@ -0,0 +1,144 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.*;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for blocking bank I/O. With {@code bankIo.virtualThreads=true} on a JVM that has virtual threads
+ * (Java 21+), bank calls, Tomcat requests and JMS listeners each get a virtual thread, so the number of
+ * calls waiting on a bank is no longer capped by a thread pool. Otherwise bank calls share a pool of
+ * {@code bankIo.poolSize} platform threads, and Tomcat and JMS keep their own pools.
+ * Every executor made here is a bean, so it is shut down with the context.
+ * Virtual threads are looked up reflectively because the code is still compiled for Java 8.
+ */
+@Configuration
+public class ExecutorConfiguration {
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorConfiguration.class);
+
+    @Value("${bankIo.virtualThreads}")
+    private boolean virtualThreads;
+
+    @Value("${bankIo.poolSize}")
+    private int poolSize;
+
+    @Value("${bankIo.queueCapacity}")
+    private int queueCapacity;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService bankIoExecutor() {
+        if (virtualThreads) {
+            Optional<ExecutorService> executor = newVirtualThreadExecutor();
+            if (executor.isPresent()) {
+                logger.info("Running bank I/O on virtual threads");
+                return executor.get();
+            }
+            logger.warn("Virtual threads need Java 21, running bank I/O on {} platform threads", poolSize);
+        }
+
+        return newBoundedPool("bank-io-", poolSize, queueCapacity);
+    }
+
+    // Tomcat doesn't shut down an executor it was given; requests still in flight are left to finish
+    @Bean(destroyMethod = "shutdown")
+    @Conditional(VirtualThreadsEnabled.class)
+    public ExecutorService tomcatExecutor() {
+        return newVirtualThreadExecutor().get();
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @Conditional(VirtualThreadsEnabled.class)
+    public ExecutorService jmsListenerExecutor() {
+        return newVirtualThreadExecutor().get();
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer(
+            @Qualifier("tomcatExecutor") ObjectProvider<ExecutorService> tomcatExecutor) {
+        return factory -> tomcatExecutor.ifAvailable(executor ->
+                factory.addProtocolHandlerCustomizers(handler -> handler.setExecutor(executor)));
+    }
+
+    public static Optional<ExecutorService> newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of((ExecutorService) factory.invoke(null));
+        } catch (ReflectiveOperationException exception) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Runs a blocking bank call on the executor and waits for it, throwing what the call threw.
+     */
+    public static <T> T callOn(ExecutorService executor, Callable<T> call) throws JsonProcessingException {
+        try {
+            return executor.submit(call).get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting on a bank", exception);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof JsonProcessingException) {
+                throw (JsonProcessingException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Fixed number of daemon threads; once the queue is full the caller runs the task itself,
+     * which slows the producer down instead of failing the call.
+     */
+    public static ExecutorService newBoundedPool(String namePrefix, int threads, int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    static class VirtualThreadsEnabled implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            if (!context.getEnvironment().getProperty("bankIo.virtualThreads", Boolean.class, false)) {
+                return false;
+            }
+            try {
+                Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return true;
+            } catch (NoSuchMethodException exception) {
+                return false;
+            }
+        }
+    }
+}
@@ -6,8 +6,10 @@ package com.j2020;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class J2020Application {
     public static void main(String[] args) {
         SpringApplication.run(J2020Application.class, args);
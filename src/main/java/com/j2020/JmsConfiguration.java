@@ -4,34 +4,83 @@
 
 package com.j2020;
 
+import com.j2020.service.jms.PaymentMessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.jms.DefaultJmsListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.jms.activemq.ActiveMQConnectionFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jms.annotation.EnableJms;
 import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.core.JmsTemplate;
 import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
 import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.jms.support.converter.MessageType;
 
 import javax.jms.ConnectionFactory;
+import java.util.concurrent.ExecutorService;
 
 @Configuration
 @EnableJms
 public class JmsConfiguration {
     @Bean
     public DefaultJmsListenerContainerFactory jmsListenerContainerFactory(ConnectionFactory connectionFactory,
-                                                                          DefaultJmsListenerContainerFactoryConfigurer configurer) {
+                                                                          DefaultJmsListenerContainerFactoryConfigurer configurer,
+                                                                          @Qualifier("jmsListenerExecutor") ObjectProvider<ExecutorService> listenerExecutor) {
         DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
         configurer.configure(factory, connectionFactory);
+        // each consumer spends most of its time waiting on a bank, see ExecutorConfiguration
+        listenerExecutor.ifAvailable(factory::setTaskExecutor);
         return factory;
     }
 
+    // one consumer per node, every node sees every progress notice
+    @Bean
+    public DefaultJmsListenerContainerFactory progressListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                              DefaultJmsListenerContainerFactoryConfigurer configurer) {
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setPubSubDomain(true);
+        factory.setConcurrency("1");
+        return factory;
+    }
+
+    // a message rolled back for the last time goes to the dead letter queue, so the consumer gives up on it first
+    @Bean
+    public ActiveMQConnectionFactoryCustomizer redeliveryCustomizer(@Value("${jms.maxDeliveries}") int maxDeliveries) {
+        return factory -> factory.getRedeliveryPolicy().setMaximumRedeliveries(maxDeliveries - 1);
+    }
+
     @Bean
     public MessageConverter jmsConverter() {
         MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
         converter.setTargetType(MessageType.TEXT);
-        converter.setTypeIdPropertyName("_type");
+        converter.setTypeIdPropertyName(Constants.JMS_TYPE_ID_PROPERTY);
+
+        // reads binary payments too, whatever jms.binaryPayloads is set to on the node that relayed them
+        return new PaymentMessageConverter(converter);
+    }
+
+    @Bean
+    public JmsTemplate outboxJmsTemplate(ConnectionFactory connectionFactory, MessageConverter jmsConverter) {
+        JmsTemplate template = new JmsTemplate(connectionFactory);
+        template.setMessageConverter(jmsConverter);
+        template.setSessionTransacted(true);
+
+        return template;
+    }
+
+    @Bean
+    public JmsTemplate progressJmsTemplate(ConnectionFactory connectionFactory, MessageConverter jmsConverter) {
+        JmsTemplate template = new JmsTemplate(connectionFactory);
+        template.setMessageConverter(jmsConverter);
+        template.setPubSubDomain(true);
+        // progress is only worth anything to whoever listens now
+        template.setExplicitQosEnabled(true);
+        template.setDeliveryPersistent(false);
 
-        return converter;
+        return template;
     }
 }
@@ -4,8 +4,10 @@
 
 package com.j2020.controller;
 
+import com.j2020.model.BalanceSummary;
 import com.j2020.model.GeneralAccount;
 import com.j2020.service.PersistenceManagerService;
+import com.j2020.service.SummaryService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -20,9 +22,11 @@ import static org.springframework.http.ResponseEntity.ok;
 @RequestMapping("/accounts")
 public class AccountController {
     private final PersistenceManagerService persistence;
+    private final SummaryService summaries;
 
-    public AccountController(PersistenceManagerService persistence) {
+    public AccountController(PersistenceManagerService persistence, SummaryService summaries) {
         this.persistence = persistence;
+        this.summaries = summaries;
     }
 
     @GetMapping
@@ -31,4 +35,9 @@ public class AccountController {
 
         return ok(outcome);
     }
+
+    @GetMapping("/summary")
+    public ResponseEntity<Map<String, List<BalanceSummary>>> readBalanceSummary() {
+        return ok(summaries.getBalanceSummary());
+    }
 }
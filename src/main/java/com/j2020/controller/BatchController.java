@@ -4,12 +4,17 @@
 
 package com.j2020.controller;
 
+import com.j2020.model.BatchStatusPage;
+import com.j2020.service.BatchProgressService;
 import com.j2020.service.BatchRetrievalService;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Map;
 
@@ -21,9 +26,11 @@ public class BatchController {
     private String readmeLink;
 
     private BatchRetrievalService batchService;
+    private BatchProgressService progressService;
 
-    public BatchController(BatchRetrievalService batchService) {
+    public BatchController(BatchRetrievalService batchService, BatchProgressService progressService) {
         this.batchService = batchService;
+        this.progressService = progressService;
     }
 
     @GetMapping("/")
@@ -35,4 +42,17 @@ public class BatchController {
     public ResponseEntity<Map<String, Object>> getBatchInfo(@PathVariable String batchId) {
         return batchService.getBatchData(Long.valueOf(batchId));
     }
+
+    @GetMapping("/statuses/{batchId}/page")
+    public ResponseEntity<BatchStatusPage> getBatchPage(@PathVariable String batchId,
+                                                        @RequestParam(defaultValue = "0") Long since,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        @RequestParam(defaultValue = "false") boolean summary) {
+        return ok(batchService.getBatchPage(Long.valueOf(batchId), since, limit, summary));
+    }
+
+    @GetMapping(value = "/statuses/{batchId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBatchInfo(@PathVariable String batchId) {
+        return progressService.subscribe(Long.valueOf(batchId));
+    }
 }
@@ -0,0 +1,31 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.controller;
+
+import com.j2020.model.BankSyncStatus;
+import com.j2020.service.BankSyncService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+import static org.springframework.http.ResponseEntity.ok;
+
+@RestController
+@RequestMapping("/sync")
+public class SyncController {
+    private final BankSyncService syncService;
+
+    public SyncController(BankSyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, BankSyncStatus>> readSyncStatuses() {
+        return ok(syncService.getSyncStatuses());
+    }
+}
@@ -4,15 +4,29 @@
 
 package com.j2020.controller;
 
+import com.j2020.model.Bank;
 import com.j2020.model.BatchOfPaymentsMessage;
+import com.j2020.model.DailyFlowSummary;
 import com.j2020.model.GeneralPayment;
 import com.j2020.model.GeneralTransaction;
+import com.j2020.model.PaymentLaneStatus;
+import com.j2020.model.PaymentPriority;
+import com.j2020.model.PaymentSubmissionReport;
 import com.j2020.service.PersistenceManagerService;
+import com.j2020.service.SummaryService;
+import com.j2020.service.jms.LaneLatencyService;
+import com.j2020.service.upload.PaymentFileService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Map;
 
@@ -23,22 +37,67 @@ import static org.springframework.http.ResponseEntity.ok;
 public class TransactionController {
     private static final Logger logger = LoggerFactory.getLogger(TransactionController.class);
     private final PersistenceManagerService persistence;
+    private final SummaryService summaries;
+    private final PaymentFileService paymentFiles;
+    private final LaneLatencyService laneLatency;
 
-    public TransactionController(PersistenceManagerService persistence) {
+    @Value("${transactionSummary.defaultDays}")
+    private int defaultSummaryDays;
+
+    public TransactionController(PersistenceManagerService persistence,
+                                 SummaryService summaries,
+                                 PaymentFileService paymentFiles,
+                                 LaneLatencyService laneLatency) {
         this.persistence = persistence;
+        this.summaries = summaries;
+        this.paymentFiles = paymentFiles;
+        this.laneLatency = laneLatency;
     }
 
     @GetMapping
-    public ResponseEntity<Map<String, List<GeneralTransaction>>> readTransactions() {
-        Map<String, List<GeneralTransaction>> outcome = persistence.returnTransactions();
+    public ResponseEntity<Map<String, List<GeneralTransaction>>> readTransactions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        Map<String, List<GeneralTransaction>> outcome = persistence.returnTransactions(from, to);
 
         return ok(outcome);
     }
 
+    @GetMapping("/summary")
+    public ResponseEntity<Map<String, List<DailyFlowSummary>>> readTransactionSummary(
+            @RequestParam(required = false) String accountId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate until = to == null ? LocalDate.now(ZoneOffset.UTC) : to;
+        LocalDate since = from == null ? until.minusDays(defaultSummaryDays) : from;
+
+        return ok(summaries.getDailyFlows(accountId, since, until));
+    }
+
+    @GetMapping("/lanes")
+    public ResponseEntity<Map<String, PaymentLaneStatus>> readLaneStatuses() {
+        return ok(laneLatency.getLaneStatuses());
+    }
+
     @PostMapping
-    public ResponseEntity<BatchOfPaymentsMessage> createPayments(@RequestBody Map<String, List<GeneralPayment>> params) {
+    public ResponseEntity<BatchOfPaymentsMessage> createPayments(@RequestBody Map<String, List<GeneralPayment>> params,
+                                                                 @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         logger.info("Creating payments for {}", params.keySet());
-        BatchOfPaymentsMessage outcome = persistence.processAndUpdateTransactions(params);
+        BatchOfPaymentsMessage outcome = persistence.processAndUpdateTransactions(params, idempotencyKey);
+        if (outcome.getBatchId() == null) {
+            // none of the payments is valid, the report says why
+            return ResponseEntity.badRequest().body(outcome);
+        }
+
+        return ok(outcome);
+    }
+
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<PaymentSubmissionReport> uploadPayments(@RequestParam MultipartFile file,
+                                                            @RequestParam(required = false) Bank bank,
+                                                            @RequestParam(required = false) PaymentPriority priority) {
+        logger.info("Creating payments from file {}", file.getOriginalFilename());
+        PaymentSubmissionReport outcome = paymentFiles.submitFile(file, bank, priority);
 
         return ok(outcome);
     }
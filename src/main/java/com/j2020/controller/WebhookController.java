@@ -0,0 +1,31 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.controller;
+
+import com.j2020.Constants;
+import com.j2020.service.revolut.RevolutWebhookService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import static org.springframework.http.ResponseEntity.ok;
+
+@RestController
+@RequestMapping("/webhooks")
+public class WebhookController {
+    private final RevolutWebhookService revolutWebhooks;
+
+    public WebhookController(RevolutWebhookService revolutWebhooks) {
+        this.revolutWebhooks = revolutWebhooks;
+    }
+
+    @PostMapping("/revolut")
+    public ResponseEntity<Void> receiveRevolutEvent(
+            @RequestBody byte[] body,
+            @RequestHeader(name = Constants.REVOLUT_WEBHOOK_TIMESTAMP_HEADER, required = false) String timestamp,
+            @RequestHeader(name = Constants.REVOLUT_WEBHOOK_SIGNATURE_HEADER, required = false) String signature) {
+        revolutWebhooks.receive(body, timestamp, signature);
+        return ok().build();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+
+/**
+ * Running total of account balances per bank and currency, kept up to date as accounts are saved.
+ */
+@Entity
+@IdClass(BalanceSummaryKey.class)
+public class BalanceSummary {
+    @Id
+    private Bank bank;
+
+    @Id
+    private String currency;
+
+    @JsonIgnore
+    private long totalMinorUnits;
+
+    private long accountCount;
+
+    public BalanceSummary() {
+    }
+
+    public BalanceSummary(BalanceSummaryKey key, long totalMinorUnits, long accountCount) {
+        this.bank = key.getBank();
+        this.currency = key.getCurrency();
+        this.totalMinorUnits = totalMinorUnits;
+        this.accountCount = accountCount;
+    }
+
+    public Bank getBank() {
+        return bank;
+    }
+
+    public void setBank(Bank bank) {
+        this.bank = bank;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public long getTotalMinorUnits() {
+        return totalMinorUnits;
+    }
+
+    public void setTotalMinorUnits(long totalMinorUnits) {
+        this.totalMinorUnits = totalMinorUnits;
+    }
+
+    public Money getTotal() {
+        return Money.ofMinor(totalMinorUnits, currency);
+    }
+
+    public long getAccountCount() {
+        return accountCount;
+    }
+
+    public void setAccountCount(long accountCount) {
+        this.accountCount = accountCount;
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceSummary{" +
+                "bank=" + bank +
+                ", currency='" + currency + '\'' +
+                ", totalMinorUnits=" + totalMinorUnits +
+                ", accountCount=" + accountCount +
+                '}';
+    }
+}
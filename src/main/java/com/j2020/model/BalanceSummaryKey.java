@@ -0,0 +1,49 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+public class BalanceSummaryKey implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Bank bank;
+    private String currency;
+
+    public BalanceSummaryKey() {
+    }
+
+    public BalanceSummaryKey(Bank bank, String currency) {
+        this.bank = bank;
+        this.currency = currency;
+    }
+
+    public Bank getBank() {
+        return bank;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof BalanceSummaryKey)) {
+            return false;
+        }
+        BalanceSummaryKey that = (BalanceSummaryKey) other;
+        return bank == that.bank &&
+                currency.equals(that.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bank, currency);
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+public class BankSyncStatus {
+    private Bank bank;
+    private Long lastStartedAt;
+    private Long lastCompletedAt;
+    private Long lastSuccessAt;
+    private String lastError;
+    private Integer accounts;
+    private Integer transactions;
+    private Long nextSyncAt;
+
+    public BankSyncStatus() {
+    }
+
+    public BankSyncStatus(Bank bank) {
+        this.bank = bank;
+    }
+
+    public Bank getBank() {
+        return bank;
+    }
+
+    public void setBank(Bank bank) {
+        this.bank = bank;
+    }
+
+    public Long getLastStartedAt() {
+        return lastStartedAt;
+    }
+
+    public void setLastStartedAt(Long lastStartedAt) {
+        this.lastStartedAt = lastStartedAt;
+    }
+
+    public Long getLastCompletedAt() {
+        return lastCompletedAt;
+    }
+
+    public void setLastCompletedAt(Long lastCompletedAt) {
+        this.lastCompletedAt = lastCompletedAt;
+    }
+
+    public Long getLastSuccessAt() {
+        return lastSuccessAt;
+    }
+
+    public void setLastSuccessAt(Long lastSuccessAt) {
+        this.lastSuccessAt = lastSuccessAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Integer getAccounts() {
+        return accounts;
+    }
+
+    public void setAccounts(Integer accounts) {
+        this.accounts = accounts;
+    }
+
+    public Integer getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(Integer transactions) {
+        this.transactions = transactions;
+    }
+
+    public Long getNextSyncAt() {
+        return nextSyncAt;
+    }
+
+    public void setNextSyncAt(Long nextSyncAt) {
+        this.nextSyncAt = nextSyncAt;
+    }
+
+    @Override
+    public String toString() {
+        return "BankSyncStatus{" +
+                "bank=" + bank +
+                ", lastStartedAt=" + lastStartedAt +
+                ", lastCompletedAt=" + lastCompletedAt +
+                ", lastSuccessAt=" + lastSuccessAt +
+                ", lastError='" + lastError + '\'' +
+                ", accounts=" + accounts +
+                ", transactions=" + transactions +
+                ", nextSyncAt=" + nextSyncAt +
+                '}';
+    }
+}
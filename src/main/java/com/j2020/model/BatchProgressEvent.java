@@ -0,0 +1,76 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import java.util.List;
+
+public class BatchProgressEvent {
+    private Long batchId;
+    private Integer totalPayments;
+    private Integer processedPayments;
+    private Long failedPayments;
+    private boolean complete;
+    private List<TransactionStatusCheck> statuses;
+
+    public Long getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(Long batchId) {
+        this.batchId = batchId;
+    }
+
+    public Integer getTotalPayments() {
+        return totalPayments;
+    }
+
+    public void setTotalPayments(Integer totalPayments) {
+        this.totalPayments = totalPayments;
+    }
+
+    public Integer getProcessedPayments() {
+        return processedPayments;
+    }
+
+    public void setProcessedPayments(Integer processedPayments) {
+        this.processedPayments = processedPayments;
+    }
+
+    public Long getFailedPayments() {
+        return failedPayments;
+    }
+
+    public void setFailedPayments(Long failedPayments) {
+        this.failedPayments = failedPayments;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public List<TransactionStatusCheck> getStatuses() {
+        return statuses;
+    }
+
+    public void setStatuses(List<TransactionStatusCheck> statuses) {
+        this.statuses = statuses;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchProgressEvent{" +
+                "batchId=" + batchId +
+                ", totalPayments=" + totalPayments +
+                ", processedPayments=" + processedPayments +
+                ", failedPayments=" + failedPayments +
+                ", complete=" + complete +
+                ", statuses=" + statuses +
+                '}';
+    }
+}
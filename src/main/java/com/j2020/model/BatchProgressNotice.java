@@ -0,0 +1,31 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import java.util.List;
+
+/**
+ * Sent to every node when a batch made progress; the nodes with subscribers read the rest from the database.
+ */
+public class BatchProgressNotice {
+    private Long batchId;
+    private List<String> paymentIds;
+
+    public Long getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(Long batchId) {
+        this.batchId = batchId;
+    }
+
+    public List<String> getPaymentIds() {
+        return paymentIds;
+    }
+
+    public void setPaymentIds(List<String> paymentIds) {
+        this.paymentIds = paymentIds;
+    }
+}
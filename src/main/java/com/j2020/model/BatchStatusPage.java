@@ -0,0 +1,86 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import java.util.List;
+
+public class BatchStatusPage {
+    private Long batchId;
+    private Integer totalPayments;
+    private Integer processedPayments;
+    private Long failedPayments;
+    private List<TransactionStatusCheck> statuses;
+    private Long nextSince;
+    private boolean hasMore;
+
+    public Long getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(Long batchId) {
+        this.batchId = batchId;
+    }
+
+    public Integer getTotalPayments() {
+        return totalPayments;
+    }
+
+    public void setTotalPayments(Integer totalPayments) {
+        this.totalPayments = totalPayments;
+    }
+
+    public Integer getProcessedPayments() {
+        return processedPayments;
+    }
+
+    public void setProcessedPayments(Integer processedPayments) {
+        this.processedPayments = processedPayments;
+    }
+
+    public Long getFailedPayments() {
+        return failedPayments;
+    }
+
+    public void setFailedPayments(Long failedPayments) {
+        this.failedPayments = failedPayments;
+    }
+
+    public List<TransactionStatusCheck> getStatuses() {
+        return statuses;
+    }
+
+    public void setStatuses(List<TransactionStatusCheck> statuses) {
+        this.statuses = statuses;
+    }
+
+    public Long getNextSince() {
+        return nextSince;
+    }
+
+    public void setNextSince(Long nextSince) {
+        this.nextSince = nextSince;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchStatusPage{" +
+                "batchId=" + batchId +
+                ", totalPayments=" + totalPayments +
+                ", processedPayments=" + processedPayments +
+                ", failedPayments=" + failedPayments +
+                ", statuses=" + statuses +
+                ", nextSince=" + nextSince +
+                ", hasMore=" + hasMore +
+                '}';
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * The last number handed out to changed rows of one table, see {@link com.j2020.service.ChangeSequenceService}.
+ */
+@Entity
+public class ChangeSequence {
+    @Id
+    private String name;
+
+    private Long lastStamped;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getLastStamped() {
+        return lastStamped;
+    }
+
+    public void setLastStamped(Long lastStamped) {
+        this.lastStamped = lastStamped;
+    }
+}
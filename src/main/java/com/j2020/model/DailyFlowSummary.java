@@ -0,0 +1,119 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Money moved in and out of one account on one (UTC) day, kept up to date as transactions are saved.
+ */
+@Entity
+@IdClass(DailyFlowSummaryKey.class)
+@Table(indexes = @Index(columnList = "day"))
+public class DailyFlowSummary {
+    @Id
+    private String accountId;
+
+    @Id
+    private LocalDate day;
+
+    @Id
+    private String currency;
+
+    @JsonIgnore
+    private long inflowMinorUnits;
+
+    @JsonIgnore
+    private long outflowMinorUnits;
+
+    private long transactionCount;
+
+    public DailyFlowSummary() {
+    }
+
+    public DailyFlowSummary(DailyFlowSummaryKey key, long inflowMinorUnits, long outflowMinorUnits, long transactionCount) {
+        this.accountId = key.getAccountId();
+        this.day = key.getDay();
+        this.currency = key.getCurrency();
+        this.inflowMinorUnits = inflowMinorUnits;
+        this.outflowMinorUnits = outflowMinorUnits;
+        this.transactionCount = transactionCount;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(String accountId) {
+        this.accountId = accountId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public long getInflowMinorUnits() {
+        return inflowMinorUnits;
+    }
+
+    public void setInflowMinorUnits(long inflowMinorUnits) {
+        this.inflowMinorUnits = inflowMinorUnits;
+    }
+
+    public long getOutflowMinorUnits() {
+        return outflowMinorUnits;
+    }
+
+    public void setOutflowMinorUnits(long outflowMinorUnits) {
+        this.outflowMinorUnits = outflowMinorUnits;
+    }
+
+    public Money getInflow() {
+        return Money.ofMinor(inflowMinorUnits, currency);
+    }
+
+    public Money getOutflow() {
+        return Money.ofMinor(outflowMinorUnits, currency);
+    }
+
+    public Money getNet() {
+        return Money.ofMinor(inflowMinorUnits - outflowMinorUnits, currency);
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    @Override
+    public String toString() {
+        return "DailyFlowSummary{" +
+                "accountId='" + accountId + '\'' +
+                ", day=" + day +
+                ", currency='" + currency + '\'' +
+                ", inflowMinorUnits=" + inflowMinorUnits +
+                ", outflowMinorUnits=" + outflowMinorUnits +
+                ", transactionCount=" + transactionCount +
+                '}';
+    }
+}
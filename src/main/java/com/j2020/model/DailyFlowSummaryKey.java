@@ -0,0 +1,57 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+public class DailyFlowSummaryKey implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String accountId;
+    private LocalDate day;
+    private String currency;
+
+    public DailyFlowSummaryKey() {
+    }
+
+    public DailyFlowSummaryKey(String accountId, LocalDate day, String currency) {
+        this.accountId = accountId;
+        this.day = day;
+        this.currency = currency;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof DailyFlowSummaryKey)) {
+            return false;
+        }
+        DailyFlowSummaryKey that = (DailyFlowSummaryKey) other;
+        return accountId.equals(that.accountId) &&
+                day.equals(that.day) &&
+                currency.equals(that.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(accountId, day, currency);
+    }
+}
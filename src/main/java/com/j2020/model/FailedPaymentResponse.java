@@ -0,0 +1,36 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import com.j2020.Constants;
+
+import java.util.UUID;
+
+/**
+ * Stands in for the answer of a bank that turned a payment down, so that every payment pushed gets a response.
+ */
+public class FailedPaymentResponse implements PaymentResponse {
+    private String paymentId;
+    private String reason;
+
+    public FailedPaymentResponse(String reason) {
+        this.paymentId = Constants.DISPLAY_FAILED_PAYMENT_ID + UUID.randomUUID();
+        this.reason = reason;
+    }
+
+    @Override
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    @Override
+    public String getStatus() {
+        return Constants.DISPLAY_FAILED_PAYMENT_STATUS;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
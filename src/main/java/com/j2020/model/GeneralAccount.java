@@ -4,8 +4,11 @@
 
 package com.j2020.model;
 
-import javax.persistence.Entity;
-import javax.persistence.Id;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
 import java.util.Objects;
 
 @Entity
@@ -13,12 +16,26 @@ public class GeneralAccount {
     @Id
     private String accountId;
 
-    private Float balance;
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "minorUnits", column = @Column(name = "balanceMinorUnits")),
+            @AttributeOverride(name = "currency", column = @Column(name = "balanceCurrency"))})
+    private Money balance;
+
     private String currency;
     private String type;
     private String description;
     private Bank bank;
 
+    public GeneralAccount() {
+    }
+
+    @JsonCreator
+    public GeneralAccount(@JsonProperty("balance") BigDecimal balance, @JsonProperty("currency") String currency) {
+        this.balance = Money.ofNullable(balance, currency);
+        this.currency = currency;
+    }
+
     public Bank getBank() {
         return bank;
     }
@@ -35,11 +52,11 @@ public class GeneralAccount {
         this.accountId = accountId;
     }
 
-    public Float getBalance() {
+    public Money getBalance() {
         return balance;
     }
 
-    public void setBalance(Float balance) {
+    public void setBalance(Money balance) {
         this.balance = balance;
     }
 
@@ -89,8 +106,8 @@ public class GeneralAccount {
         }
         GeneralAccount that = (GeneralAccount) other;
         return accountId.equals(that.accountId) &&
-                balance.equals(that.balance) &&
-                currency.equals(that.currency) &&
+                Objects.equals(balance, that.balance) &&
+                Objects.equals(currency, that.currency) &&
                 bank == that.bank;
     }
 
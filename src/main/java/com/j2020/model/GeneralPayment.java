@@ -4,16 +4,37 @@
 
 package com.j2020.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
 
 public class GeneralPayment {
     private String sourceAccount;
     private String destinationAccount;
     private String currency;
-    private Float amount;
+    private Money amount;
     private Map<String, String> additionalInfo;
     private Long batchId;
     private Bank bank;
+    private Integer sequence;
+    private PaymentPriority priority;
+    private List<GeneralPayment> nettedPayments;
+
+    public GeneralPayment() {
+    }
+
+    /**
+     * The decimal amount is only meaningful together with its currency, so both are bound at once.
+     * An amount without a currency is left unset and reported by the bank mappers.
+     */
+    @JsonCreator
+    public GeneralPayment(@JsonProperty("amount") BigDecimal amount, @JsonProperty("currency") String currency) {
+        this.currency = currency;
+        this.amount = Money.ofNullable(amount, currency);
+    }
 
     public Long getBatchId() {
         return batchId;
@@ -31,6 +52,37 @@ public class GeneralPayment {
         this.bank = bank;
     }
 
+    public Integer getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Integer sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Null for payments that didn't ask for a lane, which go through {@link PaymentPriority#NORMAL}.
+     */
+    public PaymentPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(PaymentPriority priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * The payments of the same route this one was merged from, each still reported with its own status.
+     * Only set by {@link com.j2020.service.PaymentNettingService}, null for a payment that is sent as it is.
+     */
+    public List<GeneralPayment> getNettedPayments() {
+        return nettedPayments;
+    }
+
+    public void setNettedPayments(List<GeneralPayment> nettedPayments) {
+        this.nettedPayments = nettedPayments;
+    }
+
     public String getSourceAccount() {
         return sourceAccount;
     }
@@ -55,12 +107,15 @@ public class GeneralPayment {
         this.currency = currency;
     }
 
-    public Float getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(Float amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
+        if (amount != null) {
+            currency = amount.getCurrencyCode();
+        }
     }
 
     public Map<String, String> getAdditionalInfo() {
@@ -81,6 +136,9 @@ public class GeneralPayment {
                 ", additionalInfo=" + additionalInfo +
                 ", batchId=" + batchId +
                 ", bank=" + bank +
+                ", sequence=" + sequence +
+                ", priority=" + priority +
+                ", nettedPayments=" + (nettedPayments == null ? null : nettedPayments.size()) +
                 '}';
     }
 }
@@ -4,18 +4,28 @@
 
 package com.j2020.model;
 
-import javax.persistence.Entity;
-import javax.persistence.Id;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
 import java.util.Objects;
 
 @Entity
+@Table(indexes = @Index(columnList = "bank, createdAt"))
 public class GeneralTransaction {
     @Id
     private String transactionId;
 
     private String origin;
     private String creditor;
-    private Float amount;
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "minorUnits", column = @Column(name = "amountMinorUnits")),
+            @AttributeOverride(name = "currency", column = @Column(name = "amountCurrency"))})
+    private Money amount;
+
     private String type;
     private String state;
     private String requestId;
@@ -23,6 +33,14 @@ public class GeneralTransaction {
     private String createdAt;
     private Bank bank;
 
+    public GeneralTransaction() {
+    }
+
+    @JsonCreator
+    public GeneralTransaction(@JsonProperty("amount") BigDecimal amount, @JsonProperty("currency") String currency) {
+        this.amount = Money.ofNullable(amount, currency);
+    }
+
     public String getTransactionId() {
         return transactionId;
     }
@@ -47,14 +65,18 @@ public class GeneralTransaction {
         this.creditor = creditor;
     }
 
-    public Float getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(Float amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
+    public String getCurrency() {
+        return amount == null ? null : amount.getCurrencyCode();
+    }
+
     public String getType() {
         return type;
     }
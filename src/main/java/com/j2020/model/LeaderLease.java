@@ -0,0 +1,50 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+@Entity
+public class LeaderLease {
+    @Id
+    private String name;
+
+    private String holder;
+    private Long expiresAt;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getHolder() {
+        return holder;
+    }
+
+    public void setHolder(String holder) {
+        this.holder = holder;
+    }
+
+    public Long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "LeaderLease{" +
+                "name='" + name + '\'' +
+                ", holder='" + holder + '\'' +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
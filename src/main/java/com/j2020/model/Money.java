@@ -0,0 +1,216 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import javax.persistence.Embeddable;
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * Exact amount of money: a count of the currency's minor units (cents for EUR) and the ISO 4217 currency.
+ * {@link Currency} instances are canonical, so every amount in a given currency shares the same one.
+ * Amounts serialize to JSON as a plain decimal number with the currency's full scale.
+ */
+@Embeddable
+@JsonSerialize(using = Money.DecimalSerializer.class)
+public final class Money implements Serializable, Comparable<Money> {
+    private static final long serialVersionUID = 1L;
+
+    private long minorUnits;
+    private Currency currency;
+
+    protected Money() {
+    }
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits, String currencyCode) {
+        return new Money(minorUnits, Currency.getInstance(currencyCode));
+    }
+
+    public static Money of(BigDecimal amount, String currencyCode) {
+        Currency currency = Currency.getInstance(currencyCode);
+        try {
+            return new Money(amount.movePointRight(scaleOf(currency)).longValueExact(), currency);
+        } catch (ArithmeticException exception) {
+            throw new IllegalArgumentException(amount + " is not an exact amount of " + currencyCode);
+        }
+    }
+
+    /**
+     * For amounts reported by a bank, where one odd row must not fail the whole response: a missing amount or a
+     * currency that is not ISO 4217 gives null, and digits finer than the currency are rounded half-even.
+     */
+    public static Money ofReported(BigDecimal amount, String currencyCode) {
+        if (amount == null || currencyCode == null) {
+            return null;
+        }
+
+        Currency currency;
+        try {
+            currency = Currency.getInstance(currencyCode);
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+
+        try {
+            return new Money(amount.setScale(scaleOf(currency), RoundingMode.HALF_EVEN).unscaledValue().longValueExact(), currency);
+        } catch (ArithmeticException exception) {
+            // beyond the range of a long
+            return null;
+        }
+    }
+
+    public static Money parse(String amount, String currencyCode) {
+        return of(new BigDecimal(amount), currencyCode);
+    }
+
+    /**
+     * For JSON creators, where a decimal without its currency can't be turned into an exact amount.
+     */
+    public static Money ofNullable(BigDecimal amount, String currencyCode) {
+        return amount == null || currencyCode == null ? null : of(amount, currencyCode);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public String getCurrencyCode() {
+        return currency.getCurrencyCode();
+    }
+
+    public int getScale() {
+        return scaleOf(currency);
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(minorUnits), currency);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, getScale());
+    }
+
+    /**
+     * Decimal with the currency's full scale, e.g. {@code 10.00}, as Revolut expects it.
+     */
+    public String toPlainString() {
+        return format(false);
+    }
+
+    /**
+     * Decimal without trailing zeros in the fraction, e.g. {@code 10} or {@code 10.5}, as Deutsche Bank SEPA
+     * requests expect it.
+     */
+    public String toCompactString() {
+        return format(true);
+    }
+
+    private String format(boolean dropTrailingZeros) {
+        char[] buffer = new char[24];
+        int position = buffer.length;
+        // digits are taken off a non-positive value so that Long.MIN_VALUE needs no special case
+        long remaining = minorUnits > 0 ? -minorUnits : minorUnits;
+
+        boolean significant = !dropTrailingZeros;
+        for (int digit = getScale(); digit > 0; digit--) {
+            int value = (int) -(remaining % 10);
+            remaining /= 10;
+            if (significant || value != 0) {
+                buffer[--position] = (char) ('0' + value);
+                significant = true;
+            }
+        }
+
+        if (position < buffer.length) {
+            buffer[--position] = '.';
+        }
+
+        do {
+            buffer[--position] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+
+        if (minorUnits < 0) {
+            buffer[--position] = '-';
+        }
+
+        return new String(buffer, position, buffer.length - position);
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (currency != other.currency) {
+            throw new IllegalArgumentException("Cannot combine " + this + " with " + other);
+        }
+    }
+
+    private static int scaleOf(Currency currency) {
+        // currencies without minor units (e.g. XAU) report -1
+        return Math.max(currency.getDefaultFractionDigits(), 0);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Money)) {
+            return false;
+        }
+        Money that = (Money) other;
+        return minorUnits == that.minorUnits &&
+                currency == that.currency;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minorUnits, currency);
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString() + " " + getCurrencyCode();
+    }
+
+    public static class DecimalSerializer extends JsonSerializer<Money> {
+        @Override
+        public void serialize(Money value, JsonGenerator generator, SerializerProvider serializers) throws IOException {
+            generator.writeNumber(value.toPlainString());
+        }
+    }
+}
@@ -5,7 +5,7 @@
 package com.j2020.model;
 
 public interface Payment {
-    Float getAmount();
+    Money getAmount();
 
     void setIdentifyingInformation(String info);
 }
@@ -0,0 +1,53 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import javax.persistence.*;
+
+@Entity
+@Table(indexes = @Index(columnList = "createdAt"))
+public class PaymentFingerprint {
+    @Id
+    private String fingerprint;
+
+    private Long batchId;
+    private Long createdAt;
+
+    // a message the outbox relay sent twice claims the same entry again
+    @Column(unique = true)
+    private Long outboxEntryId;
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public Long getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(Long batchId) {
+        this.batchId = batchId;
+    }
+
+    public Long getOutboxEntryId() {
+        return outboxEntryId;
+    }
+
+    public void setOutboxEntryId(Long outboxEntryId) {
+        this.outboxEntryId = outboxEntryId;
+    }
+
+    public Long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Long createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+public class PaymentLaneStatus {
+    private PaymentPriority lane;
+    private Long sloMillis;
+    private Long payments;
+    private Long sloBreaches;
+    private Integer sampledPayments;
+    private Long p50Millis;
+    private Long p95Millis;
+    private Long p99Millis;
+    private Long maxMillis;
+
+    public PaymentLaneStatus() {
+    }
+
+    public PaymentLaneStatus(PaymentPriority lane, Long sloMillis) {
+        this.lane = lane;
+        this.sloMillis = sloMillis;
+    }
+
+    public PaymentPriority getLane() {
+        return lane;
+    }
+
+    public void setLane(PaymentPriority lane) {
+        this.lane = lane;
+    }
+
+    public Long getSloMillis() {
+        return sloMillis;
+    }
+
+    public void setSloMillis(Long sloMillis) {
+        this.sloMillis = sloMillis;
+    }
+
+    public Long getPayments() {
+        return payments;
+    }
+
+    public void setPayments(Long payments) {
+        this.payments = payments;
+    }
+
+    public Long getSloBreaches() {
+        return sloBreaches;
+    }
+
+    public void setSloBreaches(Long sloBreaches) {
+        this.sloBreaches = sloBreaches;
+    }
+
+    public Integer getSampledPayments() {
+        return sampledPayments;
+    }
+
+    public void setSampledPayments(Integer sampledPayments) {
+        this.sampledPayments = sampledPayments;
+    }
+
+    public Long getP50Millis() {
+        return p50Millis;
+    }
+
+    public void setP50Millis(Long p50Millis) {
+        this.p50Millis = p50Millis;
+    }
+
+    public Long getP95Millis() {
+        return p95Millis;
+    }
+
+    public void setP95Millis(Long p95Millis) {
+        this.p95Millis = p95Millis;
+    }
+
+    public Long getP99Millis() {
+        return p99Millis;
+    }
+
+    public void setP99Millis(Long p99Millis) {
+        this.p99Millis = p99Millis;
+    }
+
+    public Long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public void setMaxMillis(Long maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentLaneStatus{" +
+                "lane=" + lane +
+                ", sloMillis=" + sloMillis +
+                ", payments=" + payments +
+                ", sloBreaches=" + sloBreaches +
+                ", sampledPayments=" + sampledPayments +
+                ", p50Millis=" + p50Millis +
+                ", p95Millis=" + p95Millis +
+                ", p99Millis=" + p99Millis +
+                ", maxMillis=" + maxMillis +
+                '}';
+    }
+}
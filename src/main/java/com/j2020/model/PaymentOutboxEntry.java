@@ -0,0 +1,95 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import javax.persistence.*;
+
+@Entity
+@Table(indexes = @Index(columnList = "dispatched, priority, id"))
+public class PaymentOutboxEntry {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private Long batchId;
+
+    // the lane, and so the queue, the payment is relayed to
+    private PaymentPriority priority;
+
+    @Lob
+    private String payload;
+
+    // set instead of the JSON payload when payments are relayed in the binary format
+    @Lob
+    private byte[] binaryPayload;
+
+    private boolean dispatched;
+    private Long createdAt;
+    private Long dispatchedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(Long batchId) {
+        this.batchId = batchId;
+    }
+
+    public PaymentPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(PaymentPriority priority) {
+        this.priority = priority;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public byte[] getBinaryPayload() {
+        return binaryPayload;
+    }
+
+    public void setBinaryPayload(byte[] binaryPayload) {
+        this.binaryPayload = binaryPayload;
+    }
+
+    public boolean isDispatched() {
+        return dispatched;
+    }
+
+    public void setDispatched(boolean dispatched) {
+        this.dispatched = dispatched;
+    }
+
+    public Long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Long getDispatchedAt() {
+        return dispatchedAt;
+    }
+
+    public void setDispatchedAt(Long dispatchedAt) {
+        this.dispatchedAt = dispatchedAt;
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import com.j2020.Constants;
+
+/**
+ * The lane a payment is queued in. Each lane has its own queue and consumers, so a bulk run never sits in front of
+ * an urgent transfer. Declared from most to least urgent; the outbox relays in this order.
+ */
+public enum PaymentPriority {
+    URGENT(Constants.JMS_URGENT_TRANSACTION_QUEUE),
+    NORMAL(Constants.JMS_TRANSACTION_QUEUE),
+    BULK(Constants.JMS_BULK_TRANSACTION_QUEUE);
+
+    private final String queue;
+
+    PaymentPriority(String queue) {
+        this.queue = queue;
+    }
+
+    public String getQueue() {
+        return queue;
+    }
+
+    public static PaymentPriority orNormal(PaymentPriority priority) {
+        return priority == null ? NORMAL : priority;
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+/**
+ * A rejected payment: its row in the file, or its position in the request's list for {@code bank}.
+ */
+public class PaymentRowError {
+    private Bank bank;
+    private long row;
+    private String message;
+
+    public PaymentRowError() {
+    }
+
+    public PaymentRowError(Bank bank, long row, String message) {
+        this.bank = bank;
+        this.row = row;
+        this.message = message;
+    }
+
+    public Bank getBank() {
+        return bank;
+    }
+
+    public void setBank(Bank bank) {
+        this.bank = bank;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public void setRow(long row) {
+        this.row = row;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentRowError{" +
+                "bank=" + bank +
+                ", row=" + row +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
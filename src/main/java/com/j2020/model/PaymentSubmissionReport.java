@@ -0,0 +1,42 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of submitting payments, of which only the valid ones were enqueued. Only the first rejected rows are
+ * listed, {@code rejectedPayments} counts all of them.
+ */
+public class PaymentSubmissionReport extends BatchOfPaymentsMessage {
+    private long acceptedPayments;
+    private long rejectedPayments;
+    private List<PaymentRowError> errors = new ArrayList<>();
+
+    public long getAcceptedPayments() {
+        return acceptedPayments;
+    }
+
+    public void setAcceptedPayments(long acceptedPayments) {
+        this.acceptedPayments = acceptedPayments;
+    }
+
+    public long getRejectedPayments() {
+        return rejectedPayments;
+    }
+
+    public void setRejectedPayments(long rejectedPayments) {
+        this.rejectedPayments = rejectedPayments;
+    }
+
+    public List<PaymentRowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<PaymentRowError> errors) {
+        this.errors = errors;
+    }
+}
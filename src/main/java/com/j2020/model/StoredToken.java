@@ -0,0 +1,62 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+public class StoredToken {
+    private String accessToken;
+    private Long expiresAt;
+    private String refreshToken;
+    private String configuredTokenHash;
+
+    public StoredToken() {
+    }
+
+    public StoredToken(String accessToken, Long expiresAt, String refreshToken) {
+        this.accessToken = accessToken;
+        this.expiresAt = expiresAt;
+        this.refreshToken = refreshToken;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public void setAccessToken(String accessToken) {
+        this.accessToken = accessToken;
+    }
+
+    public Long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    public String getConfiguredTokenHash() {
+        return configuredTokenHash;
+    }
+
+    public void setConfiguredTokenHash(String configuredTokenHash) {
+        this.configuredTokenHash = configuredTokenHash;
+    }
+
+    @Override
+    public String toString() {
+        // the tokens themselves are secrets
+        return "StoredToken{" +
+                "expiresAt=" + expiresAt +
+                ", configuredTokenHash='" + configuredTokenHash + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"bank", "day"}))
+public class TransactionArchiveChunk {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private Bank bank;
+    private LocalDate day;
+    private Integer transactionCount;
+    private Long archivedAt;
+
+    // gzip compressed JSON array of the day's transactions
+    @Lob
+    private byte[] payload;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Bank getBank() {
+        return bank;
+    }
+
+    public void setBank(Bank bank) {
+        this.bank = bank;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public Integer getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(Integer transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public Long getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(Long archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionArchiveChunk{" +
+                "id=" + id +
+                ", bank=" + bank +
+                ", day=" + day +
+                ", transactionCount=" + transactionCount +
+                ", archivedAt=" + archivedAt +
+                '}';
+    }
+}
@@ -5,12 +5,21 @@
 package com.j2020.model;
 
 import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
-import javax.persistence.Entity;
-import javax.persistence.Id;
+import javax.persistence.*;
+import java.math.BigDecimal;
 
 @Entity
+@Table(indexes = {
+        @Index(columnList = "batchId, changeSequence"),
+        @Index(columnList = "changeSequence"),
+        @Index(columnList = "reconciledTransactionId, submittedAt"),
+        @Index(columnList = "requestId"),
+        @Index(columnList = "nettedPaymentId"),
+        @Index(columnList = "bank, nextPollAt")})
 public class TransactionStatusCheck {
     @Id
     @JsonAlias(value = "id")
@@ -20,21 +29,62 @@ public class TransactionStatusCheck {
     private String transactionStatus;
 
     private Bank bank;
-    private Float amount;
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "minorUnits", column = @Column(name = "amountMinorUnits")),
+            @AttributeOverride(name = "currency", column = @Column(name = "amountCurrency"))})
+    private Money amount;
+
     private String sourceAccount;
     private String destinationAccount;
 
     @JsonIgnore
     private Long batchId;
 
-    public Float getAmount() {
+    private Long changeSequence;
+
+    private String requestId;
+    private Long submittedAt;
+    private String reconciledTransactionId;
+
+    // the bank's id of the transfer this payment was merged into; its own id is derived from that one
+    private String nettedPaymentId;
+
+    // when the bank is next asked about the payment; null once it settled or polling gave up
+    @JsonIgnore
+    private Long nextPollAt;
+
+    @JsonIgnore
+    private Integer pollAttempts;
+
+    public TransactionStatusCheck() {
+    }
+
+    @JsonCreator
+    public TransactionStatusCheck(@JsonProperty("amount") BigDecimal amount, @JsonProperty("currency") String currency) {
+        this.amount = Money.ofNullable(amount, currency);
+    }
+
+    // numbered once committed, see ChangeSequenceService; until then the row is left out of delta reads
+    @PrePersist
+    @PreUpdate
+    private void clearChangeSequence() {
+        changeSequence = null;
+    }
+
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(Float amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
+    public String getCurrency() {
+        return amount == null ? null : amount.getCurrencyCode();
+    }
+
     public Bank getBank() {
         return bank;
     }
@@ -67,6 +117,62 @@ public class TransactionStatusCheck {
         this.batchId = batchId;
     }
 
+    public Long getChangeSequence() {
+        return changeSequence;
+    }
+
+    public void setChangeSequence(Long changeSequence) {
+        this.changeSequence = changeSequence;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public Long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(Long submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public String getReconciledTransactionId() {
+        return reconciledTransactionId;
+    }
+
+    public void setReconciledTransactionId(String reconciledTransactionId) {
+        this.reconciledTransactionId = reconciledTransactionId;
+    }
+
+    public String getNettedPaymentId() {
+        return nettedPaymentId;
+    }
+
+    public void setNettedPaymentId(String nettedPaymentId) {
+        this.nettedPaymentId = nettedPaymentId;
+    }
+
+    public Long getNextPollAt() {
+        return nextPollAt;
+    }
+
+    public void setNextPollAt(Long nextPollAt) {
+        this.nextPollAt = nextPollAt;
+    }
+
+    public Integer getPollAttempts() {
+        return pollAttempts;
+    }
+
+    public void setPollAttempts(Integer pollAttempts) {
+        this.pollAttempts = pollAttempts;
+    }
+
     public String getPaymentId() {
         return paymentId;
     }
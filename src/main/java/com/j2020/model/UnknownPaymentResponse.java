@@ -0,0 +1,37 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import com.j2020.Constants;
+
+import java.util.UUID;
+
+/**
+ * Stands in for the answer to a payment that was sent but never answered, e.g. after a timeout. The bank may or may
+ * not have the payment, so it must not be sent again; a sync finds it by its request id if the bank booked it.
+ */
+public class UnknownPaymentResponse implements PaymentResponse {
+    private String paymentId;
+    private String reason;
+
+    public UnknownPaymentResponse(String reason) {
+        this.paymentId = Constants.DISPLAY_UNKNOWN_PAYMENT_ID + UUID.randomUUID();
+        this.reason = reason;
+    }
+
+    @Override
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    @Override
+    public String getStatus() {
+        return Constants.DISPLAY_UNKNOWN_PAYMENT_STATUS;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model;
+
+import javax.persistence.*;
+
+@Entity
+@Table(indexes = {@Index(columnList = "transactionId, eventAt"), @Index(columnList = "receivedAt")})
+public class WebhookEvent {
+    @Id
+    private String eventId;
+
+    private String transactionId;
+    private Long eventAt;
+    private Long receivedAt;
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public Long getEventAt() {
+        return eventAt;
+    }
+
+    public void setEventAt(Long eventAt) {
+        this.eventAt = eventAt;
+    }
+
+    public Long getReceivedAt() {
+        return receivedAt;
+    }
+
+    public void setReceivedAt(Long receivedAt) {
+        this.receivedAt = receivedAt;
+    }
+}
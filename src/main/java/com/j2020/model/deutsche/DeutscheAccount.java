@@ -9,6 +9,7 @@ import com.j2020.model.Account;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import java.math.BigDecimal;
 import java.util.Objects;
 
 @Entity
@@ -20,7 +21,7 @@ public class DeutscheAccount implements Account {
     private String currencyCode;
     private String bic;
     private String accountType;
-    private Float currentBalance;
+    private BigDecimal currentBalance;
     private String productDescription;
 
     @Override
@@ -56,11 +57,11 @@ public class DeutscheAccount implements Account {
         this.accountType = accountType;
     }
 
-    public Float getCurrentBalance() {
+    public BigDecimal getCurrentBalance() {
         return currentBalance;
     }
 
-    public void setCurrentBalance(Float currentBalance) {
+    public void setCurrentBalance(BigDecimal currentBalance) {
         this.currentBalance = currentBalance;
     }
 
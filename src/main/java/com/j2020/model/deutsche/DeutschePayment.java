@@ -4,6 +4,8 @@
 
 package com.j2020.model.deutsche;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.j2020.model.Money;
 import com.j2020.model.Payment;
 
 public class DeutschePayment implements Payment {
@@ -11,15 +13,18 @@ public class DeutschePayment implements Payment {
     private DeutscheSepaPaymentAmount instructedAmount;
     private String creditorName;
     private DeutscheSepaPaymentAccount creditorAccount;
+    // comes back as the e2eReference of the booked transaction
+    private String endToEndIdentification;
 
     @Override
-    public Float getAmount() {
-        return Float.valueOf(instructedAmount.getAmount());
+    @JsonIgnore
+    public Money getAmount() {
+        return instructedAmount.getValue();
     }
 
     @Override
     public void setIdentifyingInformation(String info) {
-        creditorName = info;
+        endToEndIdentification = info;
     }
 
     public DeutscheSepaPaymentAccount getDebtorAccount() {
@@ -54,6 +59,14 @@ public class DeutschePayment implements Payment {
         this.creditorAccount = creditorAccount;
     }
 
+    public String getEndToEndIdentification() {
+        return endToEndIdentification;
+    }
+
+    public void setEndToEndIdentification(String endToEndIdentification) {
+        this.endToEndIdentification = endToEndIdentification;
+    }
+
     @Override
     public String toString() {
         return "DeutschePayment{" +
@@ -61,6 +74,7 @@ public class DeutschePayment implements Payment {
                 ", instructedAmount=" + instructedAmount +
                 ", creditorName='" + creditorName + '\'' +
                 ", creditorAccount=" + creditorAccount +
+                ", endToEndIdentification='" + endToEndIdentification + '\'' +
                 '}';
     }
 }
@@ -4,32 +4,48 @@
 
 package com.j2020.model.deutsche;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.j2020.model.Money;
+
 public class DeutscheSepaPaymentAmount {
-    private String amount;
-    private String currencyCode;
+    private Money value;
 
     public DeutscheSepaPaymentAmount() {
 
     }
 
-    public DeutscheSepaPaymentAmount(String amount, String currencyCode) {
-        this.amount = amount;
-        this.currencyCode = currencyCode;
+    public DeutscheSepaPaymentAmount(Money value) {
+        this.value = value;
     }
 
-    public String getAmount() {
-        return amount;
+    @JsonCreator
+    public DeutscheSepaPaymentAmount(@JsonProperty("amount") String amount, @JsonProperty("currencyCode") String currencyCode) {
+        this.value = amount == null ? null : Money.parse(amount, currencyCode);
+    }
+
+    @JsonIgnore
+    public Money getValue() {
+        return value;
     }
 
-    public void setAmount(String amount) {
-        this.amount = amount;
+    public void setValue(Money value) {
+        this.value = value;
+    }
+
+    public String getAmount() {
+        return value.toCompactString();
     }
 
     public String getCurrencyCode() {
-        return currencyCode;
+        return value.getCurrencyCode();
     }
 
-    public void setCurrencyCode(String currencyCode) {
-        this.currencyCode = currencyCode;
+    @Override
+    public String toString() {
+        return "DeutscheSepaPaymentAmount{" +
+                "value=" + value +
+                '}';
     }
 }
@@ -5,6 +5,7 @@
 package com.j2020.model.deutsche;
 
 import com.j2020.Constants;
+import com.j2020.model.Money;
 
 public class DeutscheSepaPaymentRequest {
     private String method = Constants.DEUTSCHE_SEPA_PAYMENT_REQUEST_METHOD;
@@ -16,8 +17,8 @@ public class DeutscheSepaPaymentRequest {
 
     }
 
-    public DeutscheSepaPaymentRequest(String iban, String currency, String amount) {
-        requestData = new DeutscheSepaPaymentRequestData(iban, currency, amount);
+    public DeutscheSepaPaymentRequest(String iban, Money amount) {
+        requestData = new DeutscheSepaPaymentRequestData(iban, amount);
     }
 
     public String getMethod() {
@@ -5,6 +5,7 @@
 package com.j2020.model.deutsche;
 
 import com.j2020.Constants;
+import com.j2020.model.Money;
 
 public class DeutscheSepaPaymentRequestData {
     private String type = Constants.DEUTSCHE_SEPA_PAYMENT_REQUEST_DATA_TYPE;
@@ -15,24 +16,10 @@ public class DeutscheSepaPaymentRequestData {
     public DeutscheSepaPaymentRequestData() {
     }
 
-    public DeutscheSepaPaymentRequestData(String targetIban, String amountCurrency, String amountValue) {
+    public DeutscheSepaPaymentRequestData(String targetIban, Money amount) {
         this.targetIban = targetIban;
-        this.amountCurrency = amountCurrency;
-        this.amountValue = formatValue(amountValue);
-    }
-
-    public static String formatValue(String value) {
-        StringBuilder builder = new StringBuilder(value);
-
-        if (builder.indexOf(".") > 0) {
-            while (builder.substring(builder.length() - 1).equals("0")) {
-                builder = builder.deleteCharAt(builder.length() - 1);
-            }
-            if (builder.substring(builder.length() - 1).equals(".")) {
-                builder = builder.deleteCharAt(builder.length() - 1);
-            }
-        }
-        return builder.toString();
+        this.amountCurrency = amount.getCurrencyCode();
+        this.amountValue = amount.toCompactString();
     }
 
     public String getType() {
@@ -64,6 +51,6 @@ public class DeutscheSepaPaymentRequestData {
     }
 
     public void setAmountValue(String amountValue) {
-        this.amountValue = formatValue(amountValue);
+        this.amountValue = amountValue;
     }
 }
@@ -6,11 +6,12 @@ package com.j2020.model.deutsche;
 
 import com.j2020.model.Transaction;
 
+import java.math.BigDecimal;
 import java.util.Objects;
 
 public class DeutscheTransaction implements Transaction {
     private String originIban;
-    private Float amount;
+    private BigDecimal amount;
     private String counterPartyName;
     private String counterPartyIban;
     private String paymentReference;
@@ -34,11 +35,11 @@ public class DeutscheTransaction implements Transaction {
         this.originIban = originIban;
     }
 
-    public Float getAmount() {
+    public BigDecimal getAmount() {
         return amount;
     }
 
-    public void setAmount(Float amount) {
+    public void setAmount(BigDecimal amount) {
         this.amount = amount;
     }
 
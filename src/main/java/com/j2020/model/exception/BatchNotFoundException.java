@@ -0,0 +1,15 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class BatchNotFoundException extends RuntimeException {
+    public BatchNotFoundException(String message) {
+        super(message);
+    }
+}
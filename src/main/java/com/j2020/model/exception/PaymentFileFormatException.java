@@ -0,0 +1,15 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class PaymentFileFormatException extends RuntimeException {
+    public PaymentFileFormatException(String message) {
+        super(message);
+    }
+}
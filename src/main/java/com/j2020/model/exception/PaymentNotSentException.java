@@ -0,0 +1,15 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model.exception;
+
+/**
+ * Thrown when payments could not be pushed at all, e.g. because no token could be fetched. None of them reached the
+ * bank, so they may safely be sent again.
+ */
+public class PaymentNotSentException extends RuntimeException {
+    public PaymentNotSentException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
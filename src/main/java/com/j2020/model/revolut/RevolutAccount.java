@@ -7,6 +7,7 @@ package com.j2020.model.revolut;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.j2020.model.Account;
 
+import java.math.BigDecimal;
 import java.util.Objects;
 
 public class RevolutAccount implements Account {
@@ -14,7 +15,7 @@ public class RevolutAccount implements Account {
     private String accountId;
 
     private String name;
-    private Float balance;
+    private BigDecimal balance;
     private String currency;
     private String state;
 
@@ -44,11 +45,11 @@ public class RevolutAccount implements Account {
         this.name = name;
     }
 
-    public Float getBalance() {
+    public BigDecimal getBalance() {
         return balance;
     }
 
-    public void setBalance(Float balance) {
+    public void setBalance(BigDecimal balance) {
         this.balance = balance;
     }
 
@@ -4,9 +4,13 @@
 
 package com.j2020.model.revolut;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.j2020.model.Money;
 import com.j2020.model.Payment;
 
+import java.math.BigDecimal;
+
 public class RevolutPayment implements Payment {
     @JsonProperty(value = "request_id")
     private String requestId;
@@ -15,10 +19,19 @@ public class RevolutPayment implements Payment {
     private String accountId;
 
     private RevolutTransactionLegCounterparty receiver;
-    private Float amount;
+    private Money amount;
     private String currency;
     private String reference;
 
+    public RevolutPayment() {
+    }
+
+    @JsonCreator
+    public RevolutPayment(@JsonProperty("amount") BigDecimal amount, @JsonProperty("currency") String currency) {
+        this.amount = Money.ofNullable(amount, currency);
+        this.currency = currency;
+    }
+
     public String getRequestId() {
         return requestId;
     }
@@ -44,7 +57,7 @@ public class RevolutPayment implements Payment {
     }
 
     @Override
-    public Float getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
@@ -53,7 +66,7 @@ public class RevolutPayment implements Payment {
         this.requestId = info;
     }
 
-    public void setAmount(Float amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
@@ -6,6 +6,8 @@ package com.j2020.model.revolut;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.math.BigDecimal;
+
 public class RevolutTransactionLeg {
     @JsonProperty(value = "leg_id")
     private String legId;
@@ -14,17 +16,17 @@ public class RevolutTransactionLeg {
     private String accountId;
 
     private RevolutTransactionLegCounterparty counterparty;
-    private Float amount;
+    private BigDecimal amount;
     private String currency;
 
     @JsonProperty(value = "bill_amount")
-    private Float billAmount;
+    private BigDecimal billAmount;
 
     @JsonProperty(value = "bill_currency")
     private String billCurrency;
 
     private String description;
-    private Float balance;
+    private BigDecimal balance;
 
     public String getLegId() {
         return legId;
@@ -50,11 +52,11 @@ public class RevolutTransactionLeg {
         this.counterparty = counterparty;
     }
 
-    public Float getAmount() {
+    public BigDecimal getAmount() {
         return amount;
     }
 
-    public void setAmount(Float amount) {
+    public void setAmount(BigDecimal amount) {
         this.amount = amount;
     }
 
@@ -74,19 +76,19 @@ public class RevolutTransactionLeg {
         this.description = description;
     }
 
-    public Float getBalance() {
+    public BigDecimal getBalance() {
         return balance;
     }
 
-    public void setBalance(Float balance) {
+    public void setBalance(BigDecimal balance) {
         this.balance = balance;
     }
 
-    public Float getBillAmount() {
+    public BigDecimal getBillAmount() {
         return billAmount;
     }
 
-    public void setBillAmount(Float billAmount) {
+    public void setBillAmount(BigDecimal billAmount) {
         this.billAmount = billAmount;
     }
 
@@ -0,0 +1,47 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model.revolut;
+
+/**
+ * A call of a Revolut webhook. {@code TransactionCreated} events carry the whole transaction,
+ * {@code TransactionStateChanged} events only its id, request id and the old and new state.
+ */
+public class RevolutWebhookEvent {
+    public static final String TRANSACTION_CREATED = "TransactionCreated";
+    public static final String TRANSACTION_STATE_CHANGED = "TransactionStateChanged";
+
+    private String event;
+    private String timestamp;
+    private RevolutWebhookTransaction data;
+
+    public String getEvent() {
+        return event;
+    }
+
+    public void setEvent(String event) {
+        this.event = event;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(String timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public RevolutWebhookTransaction getData() {
+        return data;
+    }
+
+    public void setData(RevolutWebhookTransaction data) {
+        this.data = data;
+    }
+
+    @Override
+    public String toString() {
+        return event + " of " + (data == null ? null : data.getId()) + " at " + timestamp;
+    }
+}
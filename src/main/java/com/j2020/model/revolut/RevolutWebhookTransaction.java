@@ -0,0 +1,31 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.model.revolut;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class RevolutWebhookTransaction extends RevolutTransaction {
+    @JsonProperty(value = "old_state")
+    private String oldState;
+
+    @JsonProperty(value = "new_state")
+    private String newState;
+
+    public String getOldState() {
+        return oldState;
+    }
+
+    public void setOldState(String oldState) {
+        this.oldState = oldState;
+    }
+
+    public String getNewState() {
+        return newState;
+    }
+
+    public void setNewState(String newState) {
+        this.newState = newState;
+    }
+}
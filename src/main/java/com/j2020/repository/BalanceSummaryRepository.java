@@ -0,0 +1,32 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.repository;
+
+import com.j2020.model.BalanceSummary;
+import com.j2020.model.BalanceSummaryKey;
+import com.j2020.model.Bank;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface BalanceSummaryRepository extends JpaRepository<BalanceSummary, BalanceSummaryKey> {
+    List<BalanceSummary> findByBankOrderByCurrencyAsc(Bank bank);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BalanceSummary summary set summary.totalMinorUnits = summary.totalMinorUnits + :total, " +
+            "summary.accountCount = summary.accountCount + :accounts " +
+            "where summary.bank = :bank and summary.currency = :currency")
+    int addToSummary(@Param("bank") Bank bank,
+                     @Param("currency") String currency,
+                     @Param("total") long total,
+                     @Param("accounts") long accounts);
+}
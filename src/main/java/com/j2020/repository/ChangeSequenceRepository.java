@@ -0,0 +1,35 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.repository;
+
+import com.j2020.model.ChangeSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+@Repository
+public interface ChangeSequenceRepository extends JpaRepository<ChangeSequence, String> {
+    // held until the numbering transaction ends, so only one node numbers rows at a time
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select sequence from ChangeSequence sequence where sequence.name = :name")
+    Optional<ChangeSequence> lock(@Param("name") String name);
+
+    @Transactional
+    @Modifying
+    @Query(value = "insert into change_sequence (name, last_stamped) values (:name, :lastStamped)", nativeQuery = true)
+    int create(@Param("name") String name, @Param("lastStamped") Long lastStamped);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ChangeSequence sequence set sequence.lastStamped = :lastStamped where sequence.name = :name")
+    int advance(@Param("name") String name, @Param("lastStamped") Long lastStamped);
+}
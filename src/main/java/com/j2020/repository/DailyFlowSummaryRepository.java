@@ -0,0 +1,37 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.repository;
+
+import com.j2020.model.DailyFlowSummary;
+import com.j2020.model.DailyFlowSummaryKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyFlowSummaryRepository extends JpaRepository<DailyFlowSummary, DailyFlowSummaryKey> {
+    List<DailyFlowSummary> findByDayBetweenOrderByAccountIdAscDayAsc(LocalDate from, LocalDate to);
+
+    List<DailyFlowSummary> findByAccountIdAndDayBetweenOrderByDayAsc(String accountId, LocalDate from, LocalDate to);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update DailyFlowSummary summary set summary.inflowMinorUnits = summary.inflowMinorUnits + :inflow, " +
+            "summary.outflowMinorUnits = summary.outflowMinorUnits + :outflow, " +
+            "summary.transactionCount = summary.transactionCount + :transactions " +
+            "where summary.accountId = :accountId and summary.day = :day and summary.currency = :currency")
+    int addToSummary(@Param("accountId") String accountId,
+                     @Param("day") LocalDate day,
+                     @Param("currency") String currency,
+                     @Param("inflow") long inflow,
+                     @Param("outflow") long outflow,
+                     @Param("transactions") long transactions);
+}
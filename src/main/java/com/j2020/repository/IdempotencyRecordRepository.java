@@ -0,0 +1,21 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.repository;
+
+import com.j2020.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from IdempotencyRecord record where record.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Long before);
+}
@@ -0,0 +1,34 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.repository;
+
+import com.j2020.model.LeaderLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface LeaderLeaseRepository extends JpaRepository<LeaderLease, String> {
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update LeaderLease lease set lease.holder = :holder, lease.expiresAt = :expiresAt " +
+            "where lease.name = :name and (lease.holder = :holder or lease.expiresAt < :now)")
+    int claim(@Param("name") String name, @Param("holder") String holder,
+              @Param("now") Long now, @Param("expiresAt") Long expiresAt);
+
+    // a plain insert, so that a node creating the lease can never overwrite one created concurrently
+    @Transactional
+    @Modifying
+    @Query(value = "insert into leader_lease (name, holder, expires_at) values (:name, :holder, :expiresAt)", nativeQuery = true)
+    int create(@Param("name") String name, @Param("holder") String holder, @Param("expiresAt") Long expiresAt);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update LeaderLease lease set lease.expiresAt = 0 where lease.name = :name and lease.holder = :holder")
+    int release(@Param("name") String name, @Param("holder") String holder);
+}
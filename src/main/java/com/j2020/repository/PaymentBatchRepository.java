@@ -6,8 +6,21 @@ package com.j2020.repository;
 
 import com.j2020.model.BatchOfPayments;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface PaymentBatchRepository extends JpaRepository<BatchOfPayments, Long> {
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update BatchOfPayments batch set batch.countOfAllPayments = :count where batch.id = :id")
+    int updateCountOfAllPayments(@Param("id") Long id, @Param("count") Integer count);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update BatchOfPayments batch set batch.countOfProcessedPayments = :count where batch.id = :id")
+    int updateCountOfProcessedPayments(@Param("id") Long id, @Param("count") Integer count);
 }
@@ -0,0 +1,42 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.repository;
+
+import com.j2020.model.PaymentFingerprint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface PaymentFingerprintRepository extends JpaRepository<PaymentFingerprint, String> {
+    @Query("select entry.fingerprint from PaymentFingerprint entry where entry.createdAt >= :since")
+    List<String> findFingerprintsCreatedSince(@Param("since") Long since);
+
+    // a plain insert, so that of two nodes claiming one payment or outbox entry the second fails instead of overwriting
+    @Transactional
+    @Modifying
+    @Query(value = "insert into payment_fingerprint (fingerprint, batch_id, outbox_entry_id, created_at) "
+            + "values (:fingerprint, :batchId, :outboxEntryId, :createdAt)",
+            nativeQuery = true)
+    int claim(@Param("fingerprint") String fingerprint,
+              @Param("batchId") Long batchId,
+              @Param("outboxEntryId") Long outboxEntryId,
+              @Param("createdAt") Long createdAt);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from PaymentFingerprint entry where entry.fingerprint = :fingerprint")
+    int release(@Param("fingerprint") String fingerprint);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from PaymentFingerprint entry where entry.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Long before);
+}
@@ -0,0 +1,32 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.repository;
+
+import com.j2020.model.PaymentOutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface PaymentOutboxRepository extends JpaRepository<PaymentOutboxEntry, Long> {
+    // the most urgent lane first, so a queued bulk run doesn't hold up an urgent payment written after it
+    List<PaymentOutboxEntry> findByDispatchedFalseOrderByPriorityAscIdAsc(Pageable pageable);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update PaymentOutboxEntry entry set entry.dispatched = true, entry.dispatchedAt = :dispatchedAt where entry.id in :ids")
+    int markDispatched(@Param("ids") List<Long> ids, @Param("dispatchedAt") Long dispatchedAt);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from PaymentOutboxEntry entry where entry.dispatched = true and entry.dispatchedAt < :before")
+    int deleteDispatchedBefore(@Param("before") Long before);
+}
@@ -0,0 +1,28 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.repository;
+
+import com.j2020.model.Bank;
+import com.j2020.model.TransactionArchiveChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TransactionArchiveRepository extends JpaRepository<TransactionArchiveChunk, Long> {
+    Optional<TransactionArchiveChunk> findByBankAndDay(Bank bank, LocalDate day);
+
+    List<TransactionArchiveChunk> findByBankAndDayLessThanEqualOrderByDayAsc(Bank bank, LocalDate to);
+
+    List<TransactionArchiveChunk> findByBankAndDayBetweenOrderByDayAsc(Bank bank, LocalDate from, LocalDate to);
+
+    @Query("select max(chunk.day) from TransactionArchiveChunk chunk where chunk.bank = :bank")
+    LocalDate findLastArchivedDay(@Param("bank") Bank bank);
+}
@@ -7,6 +7,8 @@ package com.j2020.repository;
 import com.j2020.model.Bank;
 import com.j2020.model.GeneralTransaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +16,11 @@ import java.util.List;
 @Repository
 public interface TransactionRepository extends JpaRepository<GeneralTransaction, String> {
     List<GeneralTransaction> findByBank(Bank bank);
+
+    // createdAt starts with the ISO date for both banks, so a date string bounds it
+    List<GeneralTransaction> findByBankAndCreatedAtGreaterThanEqualAndCreatedAtLessThan(Bank bank, String from, String before);
+
+    @Query("select min(transaction.createdAt) from GeneralTransaction transaction " +
+            "where transaction.bank = :bank and transaction.createdAt < :before")
+    String findFirstCreatedAtBefore(@Param("bank") Bank bank, @Param("before") String before);
 }
@@ -4,13 +4,65 @@
 
 package com.j2020.repository;
 
+import com.j2020.model.Bank;
 import com.j2020.model.TransactionStatusCheck;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TransactionsForBatchRepository extends JpaRepository<TransactionStatusCheck, String> {
     List<TransactionStatusCheck> findAllByBatchId(Long batchId);
+
+    List<TransactionStatusCheck> findByBatchIdAndChangeSequenceGreaterThanOrderByChangeSequenceAsc(Long batchId,
+                                                                                     Long since,
+                                                                                     Pageable pageable);
+
+    @Query("select status.paymentId from TransactionStatusCheck status where status.changeSequence is null")
+    List<String> findUnstampedPaymentIds(Pageable pageable);
+
+    @Query("select max(status.changeSequence) from TransactionStatusCheck status")
+    Long findLastChangeSequence();
+
+    // a write that committed meanwhile cleared the number again and is numbered in a later round
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update TransactionStatusCheck status set status.changeSequence = :changeSequence " +
+            "where status.paymentId = :paymentId and status.changeSequence is null")
+    int stamp(@Param("paymentId") String paymentId, @Param("changeSequence") Long changeSequence);
+
+    // only the columns the poller owns, and only while unreconciled, so a reconcile committed during the lookups is
+    // kept; a bulk update skips @PreUpdate, so the change sequence is cleared here
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update TransactionStatusCheck status set status.transactionStatus = :transactionStatus, " +
+            "status.nextPollAt = :nextPollAt, status.pollAttempts = :pollAttempts, status.changeSequence = null " +
+            "where status.paymentId = :paymentId and status.reconciledTransactionId is null")
+    int recordPoll(@Param("paymentId") String paymentId,
+                   @Param("transactionStatus") String transactionStatus,
+                   @Param("nextPollAt") Long nextPollAt,
+                   @Param("pollAttempts") Integer pollAttempts);
+
+    long countByBatchId(Long batchId);
+
+    long countByBatchIdAndTransactionStatus(Long batchId, String transactionStatus);
+
+    List<TransactionStatusCheck> findByReconciledTransactionIdIsNullAndSubmittedAtGreaterThanEqual(Long since);
+
+    List<TransactionStatusCheck> findByReconciledTransactionIdIsNullAndRequestIdIn(Collection<String> requestIds);
+
+    List<TransactionStatusCheck> findByReconciledTransactionIdIn(Collection<String> transactionIds);
+
+    List<TransactionStatusCheck> findByReconciledTransactionIdIsNullAndNettedPaymentIdIn(Collection<String> paymentIds);
+
+    List<TransactionStatusCheck> findByNettedPaymentIdIn(Collection<String> paymentIds);
+
+    List<TransactionStatusCheck> findByBankAndNextPollAtLessThanEqualOrderByNextPollAtAsc(Bank bank, Long now, Pageable pageable);
 }
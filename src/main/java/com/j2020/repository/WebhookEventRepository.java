@@ -0,0 +1,23 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.repository;
+
+import com.j2020.model.WebhookEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, String> {
+    boolean existsByTransactionIdAndEventAtGreaterThan(String transactionId, Long eventAt);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from WebhookEvent event where event.receivedAt < :before")
+    int deleteReceivedBefore(@Param("before") Long before);
+}
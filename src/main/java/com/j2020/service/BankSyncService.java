@@ -0,0 +1,170 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.j2020.model.Bank;
+import com.j2020.model.BankSyncStatus;
+import com.j2020.model.GeneralAccount;
+import com.j2020.model.GeneralTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the mirrored accounts and transactions of every bank fresh on the bank's own interval.
+ * At most one sync per bank is in flight; a request arriving while one runs is handed the running one
+ * instead of starting another. The next sync is planned from when the previous one finished, spread by
+ * {@code sync.jitterRatio} so the banks aren't hit in lockstep. Only the leader node syncs, see
+ * {@link LeaderElectionService}; before its first sync it also converts the float amounts and builds the summaries
+ * of a database that predates them.
+ */
+@Service
+public class BankSyncService {
+    private static final Logger logger = LoggerFactory.getLogger(BankSyncService.class);
+
+    private final BankingServiceFactory bankingService;
+    private final SummaryService summaries;
+    private final ReconciliationService reconciliation;
+    private final LeaderElectionService leadership;
+    private final TransactionArchiveService archive;
+    private final LegacyAmountMigrationService legacyAmounts;
+
+    private final Map<Bank, CompletableFuture<BankSyncStatus>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Bank, BankSyncStatus> statuses = new ConcurrentHashMap<>();
+    private volatile boolean summariesChecked;
+    private final ExecutorService executor = Executors.newFixedThreadPool(Bank.values().length, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "bank-sync-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @Value("#{${sync.intervalMillis}}")
+    private Map<String, Long> intervalMillis;
+
+    @Value("${sync.jitterRatio}")
+    private double jitterRatio;
+
+    public BankSyncService(BankingServiceFactory bankingService,
+                           SummaryService summaries,
+                           ReconciliationService reconciliation,
+                           LeaderElectionService leadership,
+                           TransactionArchiveService archive,
+                           LegacyAmountMigrationService legacyAmounts) {
+        this.bankingService = bankingService;
+        this.summaries = summaries;
+        this.reconciliation = reconciliation;
+        this.leadership = leadership;
+        this.archive = archive;
+        this.legacyAmounts = legacyAmounts;
+        Stream.of(Bank.values()).forEach(bank -> statuses.put(bank, new BankSyncStatus(bank)));
+    }
+
+    @Scheduled(fixedDelayString = "${sync.tickMillis}")
+    public void syncDueBanks() {
+        if (!leadership.isLeader()) {
+            return;
+        }
+        if (!summariesChecked) {
+            // the summaries are built from the converted amounts
+            legacyAmounts.migrateLegacyAmounts();
+            summaries.buildMissingSummaries();
+            summariesChecked = true;
+        }
+
+        long now = System.currentTimeMillis();
+        statuses.values().stream()
+                .filter(status -> !inFlight.containsKey(status.getBank()))
+                .filter(status -> status.getNextSyncAt() == null || status.getNextSyncAt() <= now)
+                .forEach(status -> requestSync(status.getBank()));
+    }
+
+    public CompletableFuture<BankSyncStatus> requestSync(Bank bank) {
+        if (!leadership.isLeader()) {
+            logger.debug("Leaving the {} sync to the leader node", bank);
+            return CompletableFuture.completedFuture(statuses.get(bank));
+        }
+
+        CompletableFuture<BankSyncStatus> created = new CompletableFuture<>();
+        CompletableFuture<BankSyncStatus> running = inFlight.putIfAbsent(bank, created);
+        if (running != null) {
+            logger.info("{} sync already in flight, joining it", bank);
+            return running;
+        }
+
+        try {
+            executor.execute(() -> {
+                BankSyncStatus outcome = syncBank(bank);
+                // leave the map first so that nobody joins a sync that has already finished
+                inFlight.remove(bank, created);
+                created.complete(outcome);
+            });
+        } catch (RejectedExecutionException exception) {
+            inFlight.remove(bank, created);
+            created.completeExceptionally(exception);
+        }
+
+        return created;
+    }
+
+    public Map<String, BankSyncStatus> getSyncStatuses() {
+        Map<String, BankSyncStatus> outcome = new HashMap<>();
+        statuses.forEach((bank, status) -> outcome.put(bank.toString(), status));
+        return outcome;
+    }
+
+    private BankSyncStatus syncBank(Bank bank) {
+        BankSyncStatus status = new BankSyncStatus(bank);
+        status.setLastStartedAt(System.currentTimeMillis());
+        status.setLastSuccessAt(statuses.get(bank).getLastSuccessAt());
+        logger.info("Syncing {} accounts and transactions", bank);
+
+        try {
+            List<GeneralAccount> accounts = bankingService.retrieveAccountService(bank).retrieveAccountData();
+            summaries.saveAccounts(accounts);
+
+            List<GeneralTransaction> transactions = bankingService.retrieveTransactionService(bank).retrieveTransactionData(
+                    accounts.stream().map(GeneralAccount::getAccountId).collect(Collectors.toList()));
+            reconciliation.reconcile(summaries.saveTransactions(archive.withoutArchived(bank, transactions)));
+
+            status.setAccounts(accounts.size());
+            status.setTransactions(transactions.size());
+            status.setLastSuccessAt(System.currentTimeMillis());
+        } catch (JsonProcessingException | RuntimeException exception) {
+            logger.error("{} sync failed", bank, exception);
+            status.setLastError(exception.getMessage());
+        }
+
+        status.setLastCompletedAt(System.currentTimeMillis());
+        status.setNextSyncAt(status.getLastCompletedAt() + jittered(intervalMillis.get(bank.toString())));
+        statuses.put(bank, status);
+
+        return status;
+    }
+
+    private long jittered(long interval) {
+        double spread = jitterRatio * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Math.max(0, Math.round(interval * (1 + spread)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
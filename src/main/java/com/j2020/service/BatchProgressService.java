@@ -0,0 +1,171 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import com.j2020.Constants;
+import com.j2020.model.BatchOfPayments;
+import com.j2020.model.BatchProgressEvent;
+import com.j2020.model.BatchProgressNotice;
+import com.j2020.model.TransactionStatusCheck;
+import com.j2020.model.exception.BatchNotFoundException;
+import com.j2020.repository.PaymentBatchRepository;
+import com.j2020.repository.TransactionsForBatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.JmsException;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Pushes batch progress to subscribed clients as the JMS consumers process payments. A client can be subscribed on
+ * any node and the payment consumed on another, so progress goes out as a notice on a JMS topic every node listens
+ * to. The notice only names the batch and the payments whose status changed; just the nodes with subscribers for
+ * the batch read them from the database, so batches nobody watches cost a small message and nothing more.
+ */
+@Service
+public class BatchProgressService {
+    private static final Logger logger = LoggerFactory.getLogger(BatchProgressService.class);
+    private final Map<Long, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final Map<Long, Queue<String>> pendingPaymentIds = new ConcurrentHashMap<>();
+    private PaymentBatchRepository batchRepository;
+    private TransactionsForBatchRepository transactions;
+    private JmsTemplate jmsTemplate;
+
+    @Value("${batchProgress.emitterTimeoutMillis}")
+    private long emitterTimeoutMillis;
+
+    public BatchProgressService(PaymentBatchRepository batchRepository,
+                                TransactionsForBatchRepository transactions,
+                                @Qualifier("progressJmsTemplate") JmsTemplate jmsTemplate) {
+        this.batchRepository = batchRepository;
+        this.transactions = transactions;
+        this.jmsTemplate = jmsTemplate;
+    }
+
+    public SseEmitter subscribe(Long batchId) {
+        if (!batchRepository.existsById(batchId)) {
+            throw new BatchNotFoundException("Batch " + batchId + " doesn't exist");
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        emitters.computeIfAbsent(batchId, key -> new CopyOnWriteArrayList<>()).add(emitter);
+        emitter.onCompletion(() -> unsubscribe(batchId, emitter));
+        emitter.onTimeout(() -> unsubscribe(batchId, emitter));
+        emitter.onError(error -> unsubscribe(batchId, emitter));
+
+        // registered before reading the snapshot so a batch finishing in between still completes the emitter
+        batchRepository.findById(batchId).ifPresent(batch -> {
+            BatchProgressEvent snapshot = toEvent(batch, new ArrayList<>());
+            send(batchId, emitter, snapshot);
+            if (snapshot.isComplete()) {
+                emitter.complete();
+            }
+        });
+
+        return emitter;
+    }
+
+    /**
+     * Buffers the change until the next {@link #publish} of its batch, which follows right after on the same node.
+     */
+    public void recordStatus(TransactionStatusCheck status) {
+        if (status.getBatchId() == null || status.getPaymentId() == null) {
+            return;
+        }
+
+        pendingPaymentIds.computeIfAbsent(status.getBatchId(), key -> new ConcurrentLinkedQueue<>()).add(status.getPaymentId());
+    }
+
+    public void publish(BatchOfPayments batch) {
+        List<String> delta = new ArrayList<>();
+        Queue<String> pending = pendingPaymentIds.remove(batch.getId());
+        String paymentId;
+        while (pending != null && (paymentId = pending.poll()) != null) {
+            delta.add(paymentId);
+        }
+
+        BatchProgressNotice notice = new BatchProgressNotice();
+        notice.setBatchId(batch.getId());
+        notice.setPaymentIds(delta);
+        try {
+            jmsTemplate.convertAndSend(Constants.JMS_BATCH_PROGRESS_TOPIC, notice);
+        } catch (JmsException exception) {
+            // the payments are through either way, subscribers catch up with the next notice
+            logger.warn("Could not publish the progress of batch {}: {}", batch.getId(), exception.getMessage());
+        }
+    }
+
+    @JmsListener(destination = Constants.JMS_BATCH_PROGRESS_TOPIC, containerFactory = "progressListenerContainerFactory")
+    public void onProgress(BatchProgressNotice notice) {
+        List<SseEmitter> listeners = emitters.get(notice.getBatchId());
+        if (listeners == null || listeners.isEmpty()) {
+            return;
+        }
+
+        Optional<BatchOfPayments> batch = batchRepository.findById(notice.getBatchId());
+        if (!batch.isPresent()) {
+            return;
+        }
+
+        List<TransactionStatusCheck> delta = notice.getPaymentIds() == null || notice.getPaymentIds().isEmpty()
+                ? new ArrayList<>() : transactions.findAllById(notice.getPaymentIds());
+        BatchProgressEvent event = toEvent(batch.get(), delta);
+        logger.info("Publishing progress of batch {} to {} subscribers", notice.getBatchId(), listeners.size());
+
+        for (SseEmitter emitter : listeners) {
+            send(notice.getBatchId(), emitter, event);
+            if (event.isComplete()) {
+                emitter.complete();
+            }
+        }
+
+        if (event.isComplete()) {
+            emitters.remove(notice.getBatchId());
+        }
+    }
+
+    private BatchProgressEvent toEvent(BatchOfPayments batch, List<TransactionStatusCheck> delta) {
+        BatchProgressEvent event = new BatchProgressEvent();
+        event.setBatchId(batch.getId());
+        event.setTotalPayments(batch.getCountOfAllPayments());
+        event.setProcessedPayments(batch.getCountOfProcessedPayments());
+        event.setFailedPayments(transactions.countByBatchIdAndTransactionStatus(batch.getId(),
+                Constants.DISPLAY_FAILED_PAYMENT_STATUS));
+        event.setComplete(batch.getCountOfProcessedPayments() != null && batch.getCountOfAllPayments() != null
+                && batch.getCountOfProcessedPayments() >= batch.getCountOfAllPayments());
+        event.setStatuses(delta);
+        return event;
+    }
+
+    private void send(Long batchId, SseEmitter emitter, BatchProgressEvent event) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(event));
+        } catch (IOException | IllegalStateException exception) {
+            logger.warn("Dropping a subscriber of batch {}: {}", batchId, exception.getMessage());
+            unsubscribe(batchId, emitter);
+        }
+    }
+
+    private void unsubscribe(Long batchId, SseEmitter emitter) {
+        List<SseEmitter> listeners = emitters.get(batchId);
+        if (listeners != null) {
+            listeners.remove(emitter);
+        }
+    }
+}
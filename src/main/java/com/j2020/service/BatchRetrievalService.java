@@ -4,10 +4,15 @@
 
 package com.j2020.service;
 
+import com.j2020.Constants;
 import com.j2020.model.BatchOfPayments;
+import com.j2020.model.BatchStatusPage;
 import com.j2020.model.TransactionStatusCheck;
+import com.j2020.model.exception.BatchNotFoundException;
 import com.j2020.repository.PaymentBatchRepository;
 import com.j2020.repository.TransactionsForBatchRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -21,6 +26,9 @@ public class BatchRetrievalService {
     private PaymentBatchRepository batchRepository;
     private TransactionsForBatchRepository transactions;
 
+    @Value("${batchStatus.maxPageSize}")
+    private int maxPageSize;
+
     public BatchRetrievalService(PaymentBatchRepository batchRepository, TransactionsForBatchRepository transactions) {
         this.batchRepository = batchRepository;
         this.transactions = transactions;
@@ -41,4 +49,35 @@ public class BatchRetrievalService {
         outcome.put("The bach doesn't exist.", "Verify the id is correct");
         return new ResponseEntity<>(outcome, HttpStatus.NOT_FOUND);
     }
+
+    public BatchStatusPage getBatchPage(Long batchId, Long since, Integer limit, boolean summary) {
+        BatchOfPayments batch = batchRepository.findById(batchId)
+                .orElseThrow(() -> new BatchNotFoundException("Batch " + batchId + " doesn't exist"));
+
+        BatchStatusPage page = new BatchStatusPage();
+        page.setBatchId(batchId);
+        page.setTotalPayments(batch.getCountOfAllPayments());
+        page.setProcessedPayments(batch.getCountOfProcessedPayments());
+        page.setFailedPayments(transactions.countByBatchIdAndTransactionStatus(batchId, Constants.DISPLAY_FAILED_PAYMENT_STATUS));
+        page.setNextSince(since);
+
+        if (summary) {
+            page.setStatuses(new ArrayList<>());
+            return page;
+        }
+
+        int size = limit == null ? maxPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        // one row more than requested tells whether another page follows without a count query
+        List<TransactionStatusCheck> statuses = transactions.findByBatchIdAndChangeSequenceGreaterThanOrderByChangeSequenceAsc(
+                batchId, since, PageRequest.of(0, size + 1));
+
+        page.setHasMore(statuses.size() > size);
+        page.setStatuses(page.isHasMore() ? statuses.subList(0, size) : statuses);
+        if (!page.getStatuses().isEmpty()) {
+            page.setNextSince(page.getStatuses().get(page.getStatuses().size() - 1).getChangeSequence());
+        }
+
+        return page;
+    }
 }
@@ -0,0 +1,61 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over pre-hashed keys. Callers supply two independent 64-bit hashes per key and the
+ * k probe positions are derived from them by double hashing, so no hashing happens in here.
+ */
+public class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (bits + 63) >>> 6);
+
+        this.words = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    public void put(long firstHash, long secondHash) {
+        for (int index = 0; index < hashCount; index++) {
+            long bit = position(firstHash, secondHash, index);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+
+            long current;
+            do {
+                current = words.get(word);
+            } while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(long firstHash, long secondHash) {
+        for (int index = 0; index < hashCount; index++) {
+            long bit = position(firstHash, secondHash, index);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    private long position(long firstHash, long secondHash, int index) {
+        return ((firstHash + index * secondHash) & Long.MAX_VALUE) % bitCount;
+    }
+}
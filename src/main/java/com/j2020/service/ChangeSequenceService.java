@@ -0,0 +1,94 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import com.j2020.model.ChangeSequence;
+import com.j2020.repository.ChangeSequenceRepository;
+import com.j2020.repository.TransactionsForBatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Numbers changed status rows in the order they become readable, so that a client asking for the rows changed
+ * after the last number it saw never misses one. Writers only clear the number of a row; the committed rows without
+ * one are numbered here every {@code batchStatus.stampIntervalMillis}, under a lock on the counter row, so no two
+ * nodes number at the same time and a number is only handed out once every lower one can be read. Rows written
+ * before the numbering existed have no number either and are numbered the same way.
+ */
+@Service
+public class ChangeSequenceService {
+    public static final String STATUS_SEQUENCE = "TransactionStatusCheck";
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeSequenceService.class);
+
+    private final ChangeSequenceRepository sequences;
+    private final TransactionsForBatchRepository statuses;
+    private final LeaderElectionService leadership;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${batchStatus.stampChunkSize}")
+    private int chunkSize;
+
+    public ChangeSequenceService(ChangeSequenceRepository sequences,
+                                 TransactionsForBatchRepository statuses,
+                                 LeaderElectionService leadership,
+                                 PlatformTransactionManager transactionManager) {
+        this.sequences = sequences;
+        this.statuses = statuses;
+        this.leadership = leadership;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${batchStatus.stampIntervalMillis}")
+    public void stampChanges() {
+        if (!leadership.isLeader()) {
+            return;
+        }
+
+        try {
+            int stamped;
+            do {
+                stamped = stamp();
+            } while (stamped == chunkSize);
+        } catch (DataAccessException exception) {
+            logger.warn("Numbering changed payment statuses failed, retrying next round: {}", exception.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of rows numbered, at most {@code batchStatus.stampChunkSize}
+     */
+    public int stamp() {
+        Integer stamped = transactionTemplate.execute(transaction -> {
+            ChangeSequence counter = sequences.lock(STATUS_SEQUENCE).orElse(null);
+            if (counter == null) {
+                // numbers handed out before the counter existed stay valid watermarks for clients
+                Long last = statuses.findLastChangeSequence();
+                sequences.create(STATUS_SEQUENCE, last == null ? 0 : last);
+                counter = sequences.lock(STATUS_SEQUENCE).get();
+            }
+
+            List<String> unstamped = statuses.findUnstampedPaymentIds(PageRequest.of(0, chunkSize));
+            long next = counter.getLastStamped();
+            for (String paymentId : unstamped) {
+                statuses.stamp(paymentId, ++next);
+            }
+            sequences.advance(STATUS_SEQUENCE, next);
+
+            return unstamped.size();
+        });
+
+        return stamped == null ? 0 : stamped;
+    }
+}
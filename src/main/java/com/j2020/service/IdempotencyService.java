@@ -0,0 +1,178 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.j2020.Constants;
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.IdempotencyRecord;
+import com.j2020.model.PaymentSubmissionReport;
+import com.j2020.model.exception.IdempotencyConflictException;
+import com.j2020.model.exception.IdempotencyKeyReusedException;
+import com.j2020.model.exception.JsonProcessingExceptionLambdaWrapper;
+import com.j2020.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Remembers the response an {@code Idempotency-Key} was answered with, so that a repeated request gets the same one.
+ * Records live in an indexed table with a small access-ordered LRU in front of it, and expire after the retention
+ * window.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private final ObjectMapper canonicalMapper = new ObjectMapper().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    private final ObjectMapper responseMapper = new ObjectMapper();
+    private final Map<String, IdempotencyRecord> recentRecords = new LinkedHashMap<String, IdempotencyRecord>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+            return size() > cacheSize;
+        }
+    };
+    private IdempotencyRecordRepository records;
+    private LeaderElectionService leadership;
+
+    @Value("${idempotency.retentionHours}")
+    private long retentionHours;
+
+    @Value("${idempotency.cacheSize}")
+    private int cacheSize;
+
+    public IdempotencyService(IdempotencyRecordRepository records, LeaderElectionService leadership) {
+        this.records = records;
+        this.leadership = leadership;
+    }
+
+    public String hashRequest(Map<String, List<GeneralPayment>> params) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonicalMapper.writeValueAsBytes(params));
+            char[] hex = new char[digest.length * 2];
+            for (int index = 0; index < digest.length; index++) {
+                hex[index * 2] = HEX_DIGITS[(digest[index] >> 4) & 0xF];
+                hex[index * 2 + 1] = HEX_DIGITS[digest[index] & 0xF];
+            }
+            return new String(hex);
+        } catch (JsonProcessingException exception) {
+            throw new JsonProcessingExceptionLambdaWrapper(exception.getMessage());
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public Optional<PaymentSubmissionReport> findResponse(String idempotencyKey, String requestHash) {
+        IdempotencyRecord record;
+        synchronized (recentRecords) {
+            record = recentRecords.get(idempotencyKey);
+        }
+
+        if (record == null) {
+            record = records.findById(idempotencyKey).orElse(null);
+        }
+
+        if (record == null || record.getCreatedAt() < expiryThreshold()) {
+            return Optional.empty();
+        }
+
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReusedException("Idempotency key " + idempotencyKey + " was already used for a different request");
+        }
+
+        cache(record);
+        logger.info("Replaying batch {} for idempotency key {}", record.getBatchId(), idempotencyKey);
+        return Optional.of(responseOf(record));
+    }
+
+    public void remember(String idempotencyKey, String requestHash, PaymentSubmissionReport response) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setIdempotencyKey(idempotencyKey);
+        record.setRequestHash(requestHash);
+        record.setBatchId(response.getBatchId());
+        record.setCreatedAt(Instant.now().toEpochMilli());
+        try {
+            record.setResponse(responseMapper.writeValueAsString(response));
+        } catch (JsonProcessingException exception) {
+            throw new JsonProcessingExceptionLambdaWrapper(exception.getMessage());
+        }
+
+        try {
+            // flushed right away so a concurrent request with the same key fails here and rolls its batch back
+            records.saveAndFlush(record);
+        } catch (DataAccessException exception) {
+            throw new IdempotencyConflictException("A request with idempotency key " + idempotencyKey + " is already being processed");
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache(record);
+                }
+            });
+        } else {
+            cache(record);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanupIntervalMillis}")
+    public void removeExpired() {
+        long threshold = expiryThreshold();
+        // every node trims its own cache, the table is shared
+        int removed = leadership.isLeader() ? records.deleteCreatedBefore(threshold) : 0;
+
+        synchronized (recentRecords) {
+            recentRecords.values().removeIf(record -> record.getCreatedAt() < threshold);
+        }
+
+        if (removed > 0) {
+            logger.info("Removed {} expired idempotency keys", removed);
+        }
+    }
+
+    private PaymentSubmissionReport responseOf(IdempotencyRecord record) {
+        if (record.getResponse() == null) {
+            // remembered before responses were kept; only the batch is known
+            PaymentSubmissionReport response = new PaymentSubmissionReport();
+            response.setText(Constants.DISPLAY_BATCH_ACCEPTED_TEXT);
+            response.setBatchId(record.getBatchId());
+            return response;
+        }
+
+        try {
+            // read anew every time, so the caller can't change what later replays return
+            return responseMapper.readValue(record.getResponse(), PaymentSubmissionReport.class);
+        } catch (JsonProcessingException exception) {
+            throw new JsonProcessingExceptionLambdaWrapper(exception.getMessage());
+        }
+    }
+
+    private void cache(IdempotencyRecord record) {
+        synchronized (recentRecords) {
+            recentRecords.put(record.getIdempotencyKey(), record);
+        }
+    }
+
+    private long expiryThreshold() {
+        return Instant.now().minus(retentionHours, ChronoUnit.HOURS).toEpochMilli();
+    }
+}
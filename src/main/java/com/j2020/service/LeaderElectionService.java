@@ -0,0 +1,111 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import com.j2020.repository.LeaderLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+/**
+ * Picks the one node that runs the singleton jobs (bank syncs, the outbox relay and table cleanups) when several
+ * nodes share the database. Leadership is a lease row in the shared database: a node takes it when it has
+ * expired and keeps it by renewing it every {@code leader.renewIntervalMillis}. A node only trusts its
+ * leadership until one renewal interval before the lease runs out, which leaves that much room for a slow
+ * renewal and for clock skew between the nodes. With {@code leader.enabled=false} the node is always the leader.
+ */
+@Service
+public class LeaderElectionService {
+    public static final String SCHEDULER_LEASE = "scheduler";
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderElectionService.class);
+
+    private final String nodeName = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+    private LeaderLeaseRepository leases;
+    private volatile long leaderUntil;
+
+    @Value("${leader.enabled}")
+    private boolean enabled;
+
+    @Value("${leader.leaseMillis}")
+    private long leaseMillis;
+
+    @Value("${leader.renewIntervalMillis}")
+    private long renewIntervalMillis;
+
+    public LeaderElectionService(LeaderLeaseRepository leases) {
+        this.leases = leases;
+    }
+
+    public boolean isLeader() {
+        return !enabled || System.currentTimeMillis() < leaderUntil;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    @Scheduled(fixedDelayString = "${leader.renewIntervalMillis}")
+    public void renew() {
+        if (!enabled) {
+            return;
+        }
+
+        boolean wasLeader = isLeader();
+        long startedAt = System.currentTimeMillis();
+        try {
+            if (claim(startedAt)) {
+                leaderUntil = startedAt + leaseMillis - renewIntervalMillis;
+            } else {
+                leaderUntil = 0;
+            }
+        } catch (DataAccessException exception) {
+            // keep whatever is left of the lease, it runs out on its own if the database stays away
+            logger.error("Could not renew the leader lease", exception);
+        }
+
+        if (isLeader() != wasLeader) {
+            logger.info("Node {} {} the leader", nodeName, wasLeader ? "is no longer" : "became");
+        }
+    }
+
+    private boolean claim(long now) {
+        if (leases.claim(SCHEDULER_LEASE, nodeName, now, now + leaseMillis) > 0) {
+            return true;
+        }
+        if (leases.existsById(SCHEDULER_LEASE)) {
+            return false;
+        }
+
+        try {
+            return leases.create(SCHEDULER_LEASE, nodeName, now + leaseMillis) > 0;
+        } catch (DataIntegrityViolationException exception) {
+            // another node created the lease first
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        if (enabled && isLeader()) {
+            leaderUntil = 0;
+            try {
+                // lets another node take over right away instead of waiting for the lease to run out
+                leases.release(SCHEDULER_LEASE, nodeName);
+                logger.info("Node {} released the leader lease", nodeName);
+            } catch (DataAccessException exception) {
+                logger.warn("Could not release the leader lease", exception);
+            }
+        }
+    }
+}
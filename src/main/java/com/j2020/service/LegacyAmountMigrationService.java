@@ -0,0 +1,113 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import com.j2020.model.Bank;
+import com.j2020.model.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fills the {@link Money} columns of rows saved while amounts were still floats. Those floats stay in the old
+ * {@code balance} and {@code amount} columns, which ddl-auto never drops, so a row whose new columns are empty is
+ * converted from them once. Transactions and payment statuses had no currency of their own and take the one of
+ * their account; a Deutsche Bank row of an unknown account is EUR, its transfers being SEPA. The old columns are
+ * left as they are and no longer read.
+ */
+@Service
+public class LegacyAmountMigrationService {
+    private static final Logger logger = LoggerFactory.getLogger(LegacyAmountMigrationService.class);
+    private static final String DEUTSCHE_CURRENCY = "EUR";
+
+    private EntityManager entityManager;
+
+    public LegacyAmountMigrationService(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Transactional
+    public void migrateLegacyAmounts() {
+        Set<String> legacyColumns = legacyColumns();
+        if (legacyColumns.contains("GENERAL_ACCOUNT.BALANCE")) {
+            migrate("accounts",
+                    "select account_id, balance, currency, bank from general_account "
+                            + "where balance is not null and balance_minor_units is null",
+                    "update general_account set balance_minor_units = :minorUnits, balance_currency = :currency "
+                            + "where account_id = :id");
+        }
+        if (legacyColumns.contains("GENERAL_TRANSACTION.AMOUNT")) {
+            migrate("transactions",
+                    "select entry.transaction_id, entry.amount, account.currency, entry.bank from general_transaction entry "
+                            + "left join general_account account on account.account_id = entry.origin "
+                            + "where entry.amount is not null and entry.amount_minor_units is null",
+                    "update general_transaction set amount_minor_units = :minorUnits, amount_currency = :currency "
+                            + "where transaction_id = :id");
+        }
+        if (legacyColumns.contains("TRANSACTION_STATUS_CHECK.AMOUNT")) {
+            migrate("payment statuses",
+                    "select status.payment_id, status.amount, account.currency, status.bank from transaction_status_check status "
+                            + "left join general_account account on account.account_id = status.source_account "
+                            + "where status.amount is not null and status.amount_minor_units is null",
+                    "update transaction_status_check set amount_minor_units = :minorUnits, amount_currency = :currency "
+                            + "where payment_id = :id");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> legacyColumns() {
+        List<Object[]> columns = entityManager.createNativeQuery("select table_name, column_name from information_schema.columns "
+                + "where upper(table_name) in ('GENERAL_ACCOUNT', 'GENERAL_TRANSACTION', 'TRANSACTION_STATUS_CHECK') "
+                + "and upper(column_name) in ('BALANCE', 'AMOUNT')").getResultList();
+        Set<String> names = new HashSet<>();
+        columns.forEach(column -> names.add((column[0] + "." + column[1]).toUpperCase()));
+        return names;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void migrate(String rows, String select, String update) {
+        List<Object[]> legacy = entityManager.createNativeQuery(select).getResultList();
+        int skipped = 0;
+        for (Object[] row : legacy) {
+            Money amount = toMoney(((Number) row[1]).floatValue(), (String) row[2], (Number) row[3]);
+            if (amount == null) {
+                skipped++;
+                continue;
+            }
+
+            entityManager.createNativeQuery(update)
+                    .setParameter("minorUnits", amount.getMinorUnits())
+                    .setParameter("currency", amount.getCurrencyCode())
+                    .setParameter("id", row[0])
+                    .executeUpdate();
+        }
+
+        if (!legacy.isEmpty()) {
+            logger.info("Converted the float amounts of {} {}", legacy.size() - skipped, rows);
+        }
+        if (skipped > 0) {
+            logger.warn("{} {} have a float amount without a known currency and are left without an amount", skipped, rows);
+        }
+    }
+
+    private Money toMoney(float amount, String currency, Number bank) {
+        if (!Float.isFinite(amount)) {
+            return null;
+        }
+        if (currency == null && bank != null && bank.intValue() == Bank.DEUTSCHE.ordinal()) {
+            currency = DEUTSCHE_CURRENCY;
+        }
+
+        // the columns were written from floats, whose shortest decimal form is the amount that was meant
+        return Money.ofReported(new BigDecimal(Float.toString(amount)), currency);
+    }
+}
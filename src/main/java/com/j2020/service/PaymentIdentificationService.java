@@ -0,0 +1,80 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates request identifiers for outgoing payments. Layout (hex): 12 digits of epoch millis, 4 digits of
+ * node id, 8 digits of a per-node sequence and the remainder filled from {@link ThreadLocalRandom}.
+ * The first 24 digits are unique as long as every node is configured with its own node id,
+ * so the identifier is safe to use as an idempotency key. A node without a valid node id does not start.
+ */
+@Service
+public class PaymentIdentificationService {
+    public static final int UNIQUE_PREFIX_LENGTH = 24;
+
+    private static final int MAX_NODE_ID = 0xFFFF;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final AtomicInteger sequence = new AtomicInteger(ThreadLocalRandom.current().nextInt());
+    private final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[this.maxReqIdLength]);
+
+    @Value("${revolutTransaction.maxReqIdLength}")
+    private int maxReqIdLength;
+
+    @Value("${requestIdentification.nodeId:}")
+    private String nodeId;
+
+    private int node;
+
+    @PostConstruct
+    public void init() {
+        if (maxReqIdLength < UNIQUE_PREFIX_LENGTH) {
+            throw new IllegalStateException("Request identifiers need at least " + UNIQUE_PREFIX_LENGTH + " characters");
+        }
+
+        if (nodeId == null || nodeId.trim().isEmpty()) {
+            throw new IllegalStateException("requestIdentification.nodeId is not set, give every node its own id");
+        }
+
+        try {
+            node = Integer.parseInt(nodeId.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalStateException("requestIdentification.nodeId " + nodeId + " is not a number");
+        }
+        // a wider id would be cut to four digits and could repeat another node's
+        if (node < 0 || node > MAX_NODE_ID) {
+            throw new IllegalStateException("requestIdentification.nodeId must be between 0 and " + MAX_NODE_ID + ", not " + node);
+        }
+    }
+
+    public String generateIdentification() {
+        char[] buffer = buffers.get();
+
+        writeHex(buffer, 0, System.currentTimeMillis(), 12);
+        writeHex(buffer, 12, node, 4);
+        writeHex(buffer, 16, sequence.getAndIncrement(), 8);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int offset = UNIQUE_PREFIX_LENGTH; offset < buffer.length; offset += 16) {
+            writeHex(buffer, offset, random.nextLong(), Math.min(16, buffer.length - offset));
+        }
+
+        return new String(buffer);
+    }
+
+    private static void writeHex(char[] buffer, int offset, long value, int digits) {
+        for (int index = offset + digits - 1; index >= offset; index--) {
+            buffer[index] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
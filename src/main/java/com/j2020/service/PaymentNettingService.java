@@ -0,0 +1,131 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.Money;
+import com.j2020.model.PaymentPriority;
+import com.j2020.model.TransactionStatusCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Merges payments of the same route (bank, lane, accounts, currency and beneficiary) into one transfer before they
+ * are enqueued, so that {@code netting.minPayments} small payments cost one bank call instead of one each. The merged
+ * transfer keeps its payments, and once the bank answers every one of them gets its own status row linked to the
+ * bank's id of the transfer. Off unless {@code netting.enabled}.
+ */
+@Service
+public class PaymentNettingService {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentNettingService.class);
+    private static final String REFERENCE = "reference";
+    private static final String COUNTERPARTY = "counterparty";
+    private static final String CREDITOR_NAME = "creditorName";
+
+    @Value("${netting.enabled}")
+    private boolean enabled;
+
+    @Value("${netting.minPayments}")
+    private int minPayments;
+
+    /**
+     * @param payments valid payments; the result has the merged transfers where their first payment was
+     */
+    public List<GeneralPayment> net(List<GeneralPayment> payments) {
+        if (!enabled || payments.size() < minPayments) {
+            return payments;
+        }
+
+        Map<String, List<GeneralPayment>> routes = new LinkedHashMap<>();
+        for (GeneralPayment payment : payments) {
+            routes.computeIfAbsent(routeOf(payment), key -> new ArrayList<>()).add(payment);
+        }
+        if (routes.size() == payments.size()) {
+            return payments;
+        }
+
+        List<GeneralPayment> netted = new ArrayList<>(routes.size());
+        for (List<GeneralPayment> route : routes.values()) {
+            if (route.size() < minPayments) {
+                netted.addAll(route);
+            } else {
+                netted.add(merge(route));
+            }
+        }
+
+        logger.info("Netted {} payments into {} transfers", payments.size(), netted.size());
+        return netted;
+    }
+
+    /**
+     * @param status what the bank answered for the transfer that was sent
+     * @return the status of every payment the transfer stands for
+     */
+    public static List<TransactionStatusCheck> statusesOf(TransactionStatusCheck status, GeneralPayment sent) {
+        if (sent.getNettedPayments() == null) {
+            return Collections.singletonList(status);
+        }
+
+        List<TransactionStatusCheck> statuses = new ArrayList<>(sent.getNettedPayments().size());
+        for (int index = 0; index < sent.getNettedPayments().size(); index++) {
+            GeneralPayment netted = sent.getNettedPayments().get(index);
+
+            TransactionStatusCheck nettedStatus = new TransactionStatusCheck();
+            nettedStatus.setPaymentId(status.getPaymentId() + "." + (index + 1));
+            nettedStatus.setNettedPaymentId(status.getPaymentId());
+            nettedStatus.setTransactionStatus(status.getTransactionStatus());
+            nettedStatus.setBatchId(status.getBatchId());
+            nettedStatus.setBank(status.getBank());
+            nettedStatus.setSourceAccount(netted.getSourceAccount());
+            nettedStatus.setDestinationAccount(netted.getDestinationAccount());
+            nettedStatus.setAmount(netted.getAmount());
+            nettedStatus.setRequestId(status.getRequestId());
+            nettedStatus.setSubmittedAt(status.getSubmittedAt());
+            nettedStatus.setNextPollAt(status.getNextPollAt());
+            statuses.add(nettedStatus);
+        }
+        return statuses;
+    }
+
+    private static GeneralPayment merge(List<GeneralPayment> route) {
+        GeneralPayment first = route.get(0);
+        Money total = first.getAmount();
+        Map<String, String> additionalInfo = first.getAdditionalInfo() == null
+                ? new HashMap<>() : new HashMap<>(first.getAdditionalInfo());
+
+        for (GeneralPayment payment : route.subList(1, route.size())) {
+            total = total.plus(payment.getAmount());
+            // only what every payment agrees on describes the transfer
+            Map<String, String> other = payment.getAdditionalInfo() == null ? Collections.emptyMap() : payment.getAdditionalInfo();
+            additionalInfo.entrySet().removeIf(entry -> !Objects.equals(entry.getValue(), other.get(entry.getKey())));
+        }
+        if (first.getAdditionalInfo() != null && first.getAdditionalInfo().get(REFERENCE) != null) {
+            additionalInfo.putIfAbsent(REFERENCE, route.size() + " payments");
+        }
+
+        GeneralPayment merged = new GeneralPayment();
+        merged.setBank(first.getBank());
+        merged.setPriority(first.getPriority());
+        merged.setSourceAccount(first.getSourceAccount());
+        merged.setDestinationAccount(first.getDestinationAccount());
+        merged.setAmount(total);
+        merged.setCurrency(first.getCurrency());
+        merged.setAdditionalInfo(additionalInfo);
+        merged.setNettedPayments(new ArrayList<>(route));
+        return merged;
+    }
+
+    private static String routeOf(GeneralPayment payment) {
+        Map<String, String> additionalInfo = payment.getAdditionalInfo() == null
+                ? Collections.emptyMap() : payment.getAdditionalInfo();
+        return payment.getBank() + "|" + PaymentPriority.orNormal(payment.getPriority()) + "|" + payment.getSourceAccount()
+                + "|" + payment.getDestinationAccount() + "|" + payment.getCurrency() + "|" + payment.getAmount().getCurrencyCode()
+                + "|" + additionalInfo.get(COUNTERPARTY) + "|" + additionalInfo.get(CREDITOR_NAME);
+    }
+}
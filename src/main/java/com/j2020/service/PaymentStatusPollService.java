@@ -0,0 +1,198 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.j2020.model.Bank;
+import com.j2020.model.TransactionStatusCheck;
+import com.j2020.repository.PaymentBatchRepository;
+import com.j2020.repository.TransactionsForBatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asks the banks how the payments they haven't settled are doing, so batch statuses don't stay at what the bank
+ * answered on submission. A payment is due {@code statusPoll.firstDelayMillis} after it was pushed and then after
+ * its age times {@code statusPoll.ageRatio}, so young payments are looked up often and old ones rarely. It is no
+ * longer polled once its status is final, once it was reconciled or after {@code statusPoll.maxAttempts} lookups.
+ * Neither bank can look up several payments in one call, so a round sends at most
+ * {@code statusPoll.lookupsPerRound} lookups per bank one after another; payments netted into one transfer are looked
+ * up once. Only the leader node polls, see {@link LeaderElectionService}.
+ */
+@Service
+public class PaymentStatusPollService {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentStatusPollService.class);
+
+    private final BankingServiceFactory bankingService;
+    private final TransactionsForBatchRepository statuses;
+    private final PaymentBatchRepository batchRepository;
+    private final BatchProgressService progress;
+    private final LeaderElectionService leadership;
+
+    private final Set<Bank> inFlight = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newFixedThreadPool(Bank.values().length, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "status-poll-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @Value("#{${statusPoll.lookupsPerRound}}")
+    private Map<String, Integer> lookupsPerRound;
+
+    @Value("${statusPoll.ageRatio}")
+    private double ageRatio;
+
+    @Value("${statusPoll.minDelayMillis}")
+    private long minDelayMillis;
+
+    @Value("${statusPoll.maxDelayMillis}")
+    private long maxDelayMillis;
+
+    @Value("${statusPoll.maxAttempts}")
+    private int maxAttempts;
+
+    @Value("${statusPoll.finalStatuses}")
+    private String[] finalStatuses;
+
+    public PaymentStatusPollService(BankingServiceFactory bankingService,
+                                    TransactionsForBatchRepository statuses,
+                                    PaymentBatchRepository batchRepository,
+                                    BatchProgressService progress,
+                                    LeaderElectionService leadership) {
+        this.bankingService = bankingService;
+        this.statuses = statuses;
+        this.batchRepository = batchRepository;
+        this.progress = progress;
+        this.leadership = leadership;
+    }
+
+    @Scheduled(fixedDelayString = "${statusPoll.tickMillis}")
+    public void pollDueStatuses() {
+        if (!leadership.isLeader()) {
+            return;
+        }
+
+        for (Bank bank : Bank.values()) {
+            // a bank still answering the previous round is skipped rather than asked twice as much
+            if (!inFlight.add(bank)) {
+                continue;
+            }
+
+            try {
+                executor.execute(() -> {
+                    try {
+                        poll(bank);
+                    } catch (RuntimeException exception) {
+                        logger.error("Polling {} payment statuses failed", bank, exception);
+                    } finally {
+                        inFlight.remove(bank);
+                    }
+                });
+            } catch (RejectedExecutionException exception) {
+                inFlight.remove(bank);
+            }
+        }
+    }
+
+    /**
+     * @return the statuses that changed
+     */
+    public List<TransactionStatusCheck> poll(Bank bank) {
+        long now = System.currentTimeMillis();
+        List<TransactionStatusCheck> due = statuses.findByBankAndNextPollAtLessThanEqualOrderByNextPollAtAsc(bank, now,
+                PageRequest.of(0, lookupsPerRound.get(bank.toString())));
+        if (due.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<String> bankPaymentIds = new LinkedHashSet<>();
+        due.forEach(status -> bankPaymentIds.add(bankPaymentIdOf(status)));
+
+        TransactionService service = bankingService.retrieveTransactionService(bank);
+        Map<String, String> answers = new HashMap<>();
+        for (String bankPaymentId : bankPaymentIds) {
+            try {
+                answers.put(bankPaymentId, service.retrievePaymentStatus(bankPaymentId));
+            } catch (JsonProcessingException | RuntimeException exception) {
+                logger.warn("Could not look up {} payment {}: {}", bank, bankPaymentId, exception.getMessage());
+                answers.put(bankPaymentId, null);
+            }
+        }
+
+        return apply(bank, answers, System.currentTimeMillis());
+    }
+
+    private List<TransactionStatusCheck> apply(Bank bank, Map<String, String> answers, long now) {
+        // read again after the lookups, the rows they were picked from may be stale by now
+        Set<String> ids = answers.keySet();
+        Map<String, TransactionStatusCheck> polled = new LinkedHashMap<>();
+        statuses.findAllById(ids).forEach(status -> polled.put(status.getPaymentId(), status));
+        statuses.findByNettedPaymentIdIn(ids).forEach(status -> polled.put(status.getPaymentId(), status));
+
+        List<TransactionStatusCheck> changed = new ArrayList<>();
+        for (TransactionStatusCheck status : polled.values()) {
+            String answer = answers.get(bankPaymentIdOf(status));
+            boolean answerChanged = answer != null && !answer.equals(status.getTransactionStatus());
+            if (answerChanged) {
+                status.setTransactionStatus(answer);
+            }
+            reschedule(status, now);
+
+            // a sync or webhook that reconciled the payment since it was read has the last word
+            int recorded = statuses.recordPoll(status.getPaymentId(), status.getTransactionStatus(),
+                    status.getNextPollAt(), status.getPollAttempts());
+            if (recorded > 0 && answerChanged) {
+                changed.add(status);
+            }
+        }
+
+        changed.forEach(progress::recordStatus);
+        changed.stream()
+                .map(TransactionStatusCheck::getBatchId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(batchId -> batchRepository.findById(batchId).ifPresent(progress::publish));
+
+        logger.info("Looked up {} {} payments, {} statuses changed", answers.size(), bank, changed.size());
+        return changed;
+    }
+
+    private void reschedule(TransactionStatusCheck status, long now) {
+        int attempts = status.getPollAttempts() == null ? 1 : status.getPollAttempts() + 1;
+        status.setPollAttempts(attempts);
+
+        if (status.getReconciledTransactionId() != null || attempts >= maxAttempts
+                || Arrays.asList(finalStatuses).contains(status.getTransactionStatus())) {
+            status.setNextPollAt(null);
+            return;
+        }
+
+        long age = status.getSubmittedAt() == null ? 0 : now - status.getSubmittedAt();
+        status.setNextPollAt(now + Math.min(maxDelayMillis, Math.max(minDelayMillis, Math.round(age * ageRatio))));
+    }
+
+    private static String bankPaymentIdOf(TransactionStatusCheck status) {
+        return status.getNettedPaymentId() == null ? status.getPaymentId() : status.getNettedPaymentId();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import com.j2020.model.Bank;
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.PaymentRowError;
+import com.j2020.model.PaymentSubmissionReport;
+import com.j2020.service.deutsche.DeutscheMapperService;
+import com.j2020.service.revolut.RevolutMapperService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Checks payments against the rules of their bank's mapper before anything is enqueued, so the consumers only get
+ * payments they can send to the bank right away. Lists of {@code paymentValidation.parallelThreshold} payments or
+ * more are checked on the common fork-join pool.
+ */
+@Service
+public class PaymentValidationService {
+    private RevolutMapperService revolutMapper;
+    private DeutscheMapperService deutscheMapper;
+
+    @Value("${paymentValidation.parallelThreshold}")
+    private int parallelThreshold;
+
+    @Value("${paymentValidation.maxReportedErrors}")
+    private int maxReportedErrors;
+
+    public PaymentValidationService(RevolutMapperService revolutMapper, DeutscheMapperService deutscheMapper) {
+        this.revolutMapper = revolutMapper;
+        this.deutscheMapper = deutscheMapper;
+    }
+
+    /**
+     * @return what the payment lacks, empty if the bank can be sent it
+     */
+    public List<String> validate(Bank bank, GeneralPayment payment) {
+        if (payment == null) {
+            return Collections.singletonList("no payment specified");
+        }
+        if (payment.getNettedPayments() != null) {
+            return Collections.singletonList("nettedPayments can't be specified, payments are netted after they are checked");
+        }
+        return bank == Bank.REVOLUT ? revolutMapper.validate(payment) : deutscheMapper.validate(payment);
+    }
+
+    /**
+     * @return an error for every invalid payment, in the order of the list
+     */
+    public List<PaymentRowError> validateAll(Bank bank, List<GeneralPayment> payments) {
+        IntStream rows = IntStream.range(0, payments.size());
+        if (payments.size() >= parallelThreshold) {
+            rows = rows.parallel();
+        }
+
+        return rows
+                .mapToObj(row -> {
+                    List<String> problems = validate(bank, payments.get(row));
+                    return problems.isEmpty() ? null : new PaymentRowError(bank, row, String.join(", ", problems));
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public void reject(PaymentSubmissionReport report, PaymentRowError error) {
+        report.setRejectedPayments(report.getRejectedPayments() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(error);
+        }
+    }
+}
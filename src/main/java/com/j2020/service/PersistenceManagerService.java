@@ -14,28 +14,35 @@ import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import javax.annotation.PostConstruct;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 @Service
 public class PersistenceManagerService {
     private static final Logger logger = LoggerFactory.getLogger(PersistenceManagerService.class);
     private final TransactionProcessingService transactionService;
-    private final AccountProcessingService accountService;
     private AccountRepository accountRepository;
     private TransactionRepository transactionRepository;
+    private IdempotencyService idempotency;
+    private BankSyncService syncService;
+    private TransactionArchiveService archive;
 
     public PersistenceManagerService(TransactionProcessingService transactionService,
-                                     AccountProcessingService accountService,
                                      AccountRepository accountRepository,
-                                     TransactionRepository transactionRepository) {
+                                     TransactionRepository transactionRepository,
+                                     IdempotencyService idempotency,
+                                     BankSyncService syncService,
+                                     TransactionArchiveService archive) {
         this.transactionService = transactionService;
-        this.accountService = accountService;
         this.accountRepository = accountRepository;
         this.transactionRepository = transactionRepository;
+        this.idempotency = idempotency;
+        this.syncService = syncService;
+        this.archive = archive;
     }
 
     public Map<String, List<GeneralAccount>> returnAccounts() {
@@ -46,40 +53,43 @@ public class PersistenceManagerService {
         return outcome;
     }
 
-    public Map<String, List<GeneralTransaction>> returnTransactions() {
-        logger.info("Getting all transactions from repository");
-
+    public Map<String, List<GeneralTransaction>> returnTransactions(LocalDate from, LocalDate to) {
         Map<String, List<GeneralTransaction>> outcome = new HashMap<>();
-        Stream.of(Bank.values()).forEach(bank -> outcome.put(bank.toString(), transactionRepository.findByBank(bank)));
+        if (from == null && to == null) {
+            logger.info("Getting all unarchived transactions from repository");
+            Stream.of(Bank.values()).forEach(bank -> outcome.put(bank.toString(), transactionRepository.findByBank(bank)));
+        } else {
+            logger.info("Getting transactions from {} to {}", from, to);
+            Stream.of(Bank.values()).forEach(bank -> outcome.put(bank.toString(), archive.findBetween(bank, from, to)));
+        }
         return outcome;
     }
 
     @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = Isolation.READ_COMMITTED)
-    public BatchOfPaymentsMessage processAndUpdateTransactions(Map<String, List<GeneralPayment>> params) {
-        params.forEach((bank, generalPayments) -> generalPayments.forEach(payment -> payment.setBank(Bank.valueOf(bank))));
-
-        BatchOfPaymentsMessage response = transactionService.initiatePaymentRequests(params);
-
-        logger.info("Updating transaction repositories");
-        Map<String, List<GeneralTransaction>> transactions = transactionService.collectTransactionResponse();
-        params.forEach((bank, generalPayments) -> transactionRepository.saveAll(transactions.get(bank)));
-
-        updateAccounts();
+    public BatchOfPaymentsMessage processAndUpdateTransactions(Map<String, List<GeneralPayment>> params, String idempotencyKey) {
+        String requestHash = null;
+        if (idempotencyKey != null) {
+            requestHash = idempotency.hashRequest(params);
+            Optional<PaymentSubmissionReport> previousResponse = idempotency.findResponse(idempotencyKey, requestHash);
+            if (previousResponse.isPresent()) {
+                return previousResponse.get();
+            }
+        }
+
+        PaymentSubmissionReport response = transactionService.initiatePaymentRequests(params);
+        // a request with nothing valid in it created no batch to replay, nor paid anything to sync
+        if (response.getBatchId() == null) {
+            return response;
+        }
+
+        if (idempotencyKey != null) {
+            idempotency.remember(idempotencyKey, requestHash, response);
+        }
+
+        // the response doesn't wait for the banks; a sync already running for a bank absorbs this request
+        logger.info("Requesting a sync of the banks paid through");
+        params.keySet().forEach(bank -> syncService.requestSync(Bank.valueOf(bank)));
 
         return response;
     }
-
-    private void updateAccounts() {
-        logger.info("Fetching accounts for account repositories");
-
-        Map<String, List<GeneralAccount>> accounts = accountService.collectAccountResponse();
-        Stream.of(Bank.values()).forEach(bank -> accountRepository.saveAll(accounts.get(bank.toString())));
-    }
-
-    @PostConstruct
-    private void init() {
-        updateAccounts();
-        Map<String, List<GeneralTransaction>> transactions = transactionService.collectTransactionResponse();
-        Stream.of(Bank.values()).forEach(bank -> transactionRepository.saveAll(transactions.get(bank.toString())));
-    }
 }
@@ -0,0 +1,203 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import com.j2020.Constants;
+import com.j2020.model.Bank;
+import com.j2020.model.GeneralTransaction;
+import com.j2020.model.TransactionStatusCheck;
+import com.j2020.repository.TransactionsForBatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects submitted payments to the transactions the banks later report for them. Each sync hands over only
+ * the transactions that are new or changed; those are hashed by id, request id and by (bank, accounts, amount),
+ * and the unreconciled status rows that could match them are probed against the tables in a single pass.
+ * A status is matched by the bank's payment id first, then by our request id (Revolut's request_id,
+ * Deutsche Bank's e2eReference), and only then by accounts and amount booked within the match window.
+ * Payments netted into one transfer are matched as that transfer, all of them to the same transaction.
+ */
+@Service
+public class ReconciliationService {
+    private static final Logger logger = LoggerFactory.getLogger(ReconciliationService.class);
+    private static final int ISO_DATE_LENGTH = 10;
+
+    private TransactionsForBatchRepository statuses;
+
+    @Value("${reconciliation.matchWindowHours}")
+    private long matchWindowHours;
+
+    public ReconciliationService(TransactionsForBatchRepository statuses) {
+        this.statuses = statuses;
+    }
+
+    /**
+     * @return the status rows that were reconciled or whose state changed
+     */
+    @Transactional
+    public List<TransactionStatusCheck> reconcile(List<GeneralTransaction> synced) {
+        return reconcile(synced, true);
+    }
+
+    /**
+     * Matches by payment id and request id only, for transactions the bank reports one at a time under the id it
+     * answered the payment with, e.g. in a webhook. Skips reading every unreconciled status of the match window.
+     *
+     * @return the status rows that were reconciled or whose state changed
+     */
+    @Transactional
+    public List<TransactionStatusCheck> reconcileByIdentity(List<GeneralTransaction> reported) {
+        return reconcile(reported, false);
+    }
+
+    private List<TransactionStatusCheck> reconcile(List<GeneralTransaction> synced, boolean byAccounts) {
+        if (synced == null || synced.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, GeneralTransaction> byId = new HashMap<>();
+        Map<String, GeneralTransaction> byRequestId = new HashMap<>();
+        Map<String, List<GeneralTransaction>> byRoute = new HashMap<>();
+        for (GeneralTransaction transaction : synced) {
+            byId.put(transaction.getTransactionId(), transaction);
+            if (transaction.getRequestId() != null) {
+                byRequestId.put(transaction.getRequestId(), transaction);
+            }
+            if (byAccounts && transaction.getAmount() != null) {
+                byRoute.computeIfAbsent(routeOf(transaction.getBank(), transaction.getOrigin(), transaction.getCreditor(),
+                        Math.abs(transaction.getAmount().getMinorUnits()), transaction.getCurrency()),
+                        key -> new ArrayList<>()).add(transaction);
+            }
+        }
+
+        long window = TimeUnit.HOURS.toMillis(matchWindowHours);
+        Map<String, TransactionStatusCheck> candidates = new LinkedHashMap<>();
+        statuses.findAllById(byId.keySet()).forEach(status -> candidates.put(status.getPaymentId(), status));
+        statuses.findByReconciledTransactionIdIsNullAndNettedPaymentIdIn(byId.keySet())
+                .forEach(status -> candidates.put(status.getPaymentId(), status));
+        if (!byRequestId.isEmpty()) {
+            statuses.findByReconciledTransactionIdIsNullAndRequestIdIn(byRequestId.keySet())
+                    .forEach(status -> candidates.putIfAbsent(status.getPaymentId(), status));
+        }
+        if (!byRoute.isEmpty()) {
+            statuses.findByReconciledTransactionIdIsNullAndSubmittedAtGreaterThanEqual(System.currentTimeMillis() - window)
+                    .forEach(status -> candidates.putIfAbsent(status.getPaymentId(), status));
+        }
+
+        // transaction id to the bank payment that claimed it; the payments netted into one transfer share its match
+        Map<String, String> claimed = new HashMap<>();
+        List<TransactionStatusCheck> updated = new ArrayList<>();
+        for (TransactionStatusCheck status : statuses.findByReconciledTransactionIdIn(byId.keySet())) {
+            // already reconciled earlier, only the bank's state may have moved on
+            claimed.put(status.getReconciledTransactionId(), bankPaymentIdOf(status));
+            String state = byId.get(status.getReconciledTransactionId()).getState();
+            if (state != null && !state.equals(status.getTransactionStatus())) {
+                status.setTransactionStatus(state);
+                updated.add(status);
+            }
+        }
+
+        int reconciled = 0;
+        for (TransactionStatusCheck status : candidates.values()) {
+            if (status.getReconciledTransactionId() != null
+                    || Constants.DISPLAY_FAILED_PAYMENT_STATUS.equals(status.getTransactionStatus())) {
+                continue;
+            }
+
+            String bankPaymentId = bankPaymentIdOf(status);
+            GeneralTransaction match = byId.get(bankPaymentId);
+            if (match == null && status.getRequestId() != null) {
+                match = byRequestId.get(status.getRequestId());
+            }
+            // a netted payment's own amount was never booked, only the transfer's
+            if (match == null && status.getNettedPaymentId() == null && status.getAmount() != null && status.getSubmittedAt() != null) {
+                match = closestBooked(status, byRoute.get(routeOf(status.getBank(), status.getSourceAccount(),
+                        status.getDestinationAccount(), Math.abs(status.getAmount().getMinorUnits()), status.getCurrency())), claimed, window);
+            }
+            if (match == null || !bankPaymentId.equals(claimed.computeIfAbsent(match.getTransactionId(), key -> bankPaymentId))) {
+                continue;
+            }
+
+            status.setReconciledTransactionId(match.getTransactionId());
+            // booked, later changes come with the syncs
+            status.setNextPollAt(null);
+            if (match.getState() != null) {
+                status.setTransactionStatus(match.getState());
+            }
+            updated.add(status);
+            reconciled++;
+        }
+
+        if (!updated.isEmpty()) {
+            logger.info("Reconciled {} payments against {} synced transactions, {} statuses updated",
+                    reconciled, synced.size(), updated.size());
+            statuses.saveAll(updated);
+        }
+
+        return updated;
+    }
+
+    private static GeneralTransaction closestBooked(TransactionStatusCheck status,
+                                                    List<GeneralTransaction> booked,
+                                                    Map<String, String> claimed,
+                                                    long window) {
+        if (booked == null) {
+            return null;
+        }
+
+        GeneralTransaction closest = null;
+        long closestDistance = Long.MAX_VALUE;
+        for (GeneralTransaction transaction : booked) {
+            if (claimed.containsKey(transaction.getTransactionId())) {
+                continue;
+            }
+
+            long distance = distance(status.getSubmittedAt(), transaction.getCreatedAt());
+            if (distance <= window && distance < closestDistance) {
+                closest = transaction;
+                closestDistance = distance;
+            }
+        }
+
+        return closest;
+    }
+
+    private static long distance(long submittedAt, String createdAt) {
+        if (createdAt == null) {
+            return Long.MAX_VALUE;
+        }
+
+        try {
+            if (createdAt.length() == ISO_DATE_LENGTH) {
+                // Deutsche Bank only reports a booking date, so anything booked on the submission day is at distance 0
+                long dayStart = LocalDate.parse(createdAt).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+                long dayEnd = dayStart + TimeUnit.DAYS.toMillis(1);
+                return submittedAt < dayStart ? dayStart - submittedAt : Math.max(submittedAt - dayEnd, 0);
+            }
+            return Math.abs(Instant.parse(createdAt).toEpochMilli() - submittedAt);
+        } catch (DateTimeParseException exception) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static String bankPaymentIdOf(TransactionStatusCheck status) {
+        return status.getNettedPaymentId() == null ? status.getPaymentId() : status.getNettedPaymentId();
+    }
+
+    private static String routeOf(Bank bank, String source, String destination, long minorUnits, String currency) {
+        return bank + "|" + source + "|" + destination + "|" + minorUnits + "|" + currency;
+    }
+}
@@ -0,0 +1,218 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import com.j2020.model.*;
+import com.j2020.repository.AccountRepository;
+import com.j2020.repository.BalanceSummaryRepository;
+import com.j2020.repository.DailyFlowSummaryRepository;
+import com.j2020.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Saves accounts and transactions while keeping the balance and daily flow summaries in step with them.
+ * The old contribution of a changed row is taken out of the summary and the new one added, so a summary row
+ * is only ever touched by the difference and never recomputed. Only changed rows are re-read under a write
+ * lock; the bank data is mostly unchanged between fetches and concurrent refreshes shouldn't queue on it. New rows
+ * are inserted before they are counted, so a row saved by two refreshes at once is only counted by one of them.
+ */
+@Service
+public class SummaryService {
+    private static final Logger logger = LoggerFactory.getLogger(SummaryService.class);
+    private static final int ISO_DATE_LENGTH = 10;
+
+    private AccountRepository accounts;
+    private TransactionRepository transactions;
+    private BalanceSummaryRepository balances;
+    private DailyFlowSummaryRepository flows;
+    private EntityManager entityManager;
+
+    public SummaryService(AccountRepository accounts,
+                          TransactionRepository transactions,
+                          BalanceSummaryRepository balances,
+                          DailyFlowSummaryRepository flows,
+                          EntityManager entityManager) {
+        this.accounts = accounts;
+        this.transactions = transactions;
+        this.balances = balances;
+        this.flows = flows;
+        this.entityManager = entityManager;
+    }
+
+    @Transactional
+    public void buildMissingSummaries() {
+        // databases created before the summaries existed are summarised once
+        if (balances.count() == 0 && accounts.count() > 0) {
+            Map<BalanceSummaryKey, long[]> deltas = new HashMap<>();
+            accounts.findAll().forEach(account -> addBalance(deltas, account, 1));
+            deltas.forEach((key, delta) -> balances.save(new BalanceSummary(key, delta[0], delta[1])));
+            logger.info("Built {} balance summaries from existing accounts", deltas.size());
+        }
+
+        if (flows.count() == 0 && transactions.count() > 0) {
+            Map<DailyFlowSummaryKey, long[]> deltas = new HashMap<>();
+            transactions.findAll().forEach(transaction -> addFlow(deltas, transaction, 1));
+            deltas.forEach((key, delta) -> flows.save(new DailyFlowSummary(key, delta[0], delta[1], delta[2])));
+            logger.info("Built {} daily flow summaries from existing transactions", deltas.size());
+        }
+    }
+
+    @Transactional
+    public void saveAccounts(List<GeneralAccount> updated) {
+        if (updated == null || updated.isEmpty()) {
+            return;
+        }
+
+        Map<BalanceSummaryKey, long[]> deltas = new HashMap<>();
+        Map<String, GeneralAccount> incoming = updated.stream()
+                .collect(Collectors.toMap(GeneralAccount::getAccountId, Function.identity(), (first, second) -> second));
+        Map<String, GeneralAccount> created = new HashMap<>(incoming);
+
+        for (GeneralAccount previous : accounts.findAllById(new ArrayList<>(incoming.keySet()))) {
+            created.remove(previous.getAccountId());
+            if (Objects.equals(previous.getBalance(), incoming.get(previous.getAccountId()).getBalance())
+                    && previous.getBank() == incoming.get(previous.getAccountId()).getBank()) {
+                incoming.remove(previous.getAccountId());
+                continue;
+            }
+            entityManager.refresh(previous, LockModeType.PESSIMISTIC_WRITE);
+            addBalance(deltas, previous, -1);
+        }
+
+        insert(created.values());
+        accounts.saveAll(updated);
+        incoming.values().forEach(account -> addBalance(deltas, account, 1));
+
+        deltas.forEach((key, delta) -> {
+            if ((delta[0] != 0 || delta[1] != 0)
+                    && balances.addToSummary(key.getBank(), key.getCurrency(), delta[0], delta[1]) == 0) {
+                balances.save(new BalanceSummary(key, delta[0], delta[1]));
+            }
+        });
+    }
+
+    /**
+     * @return the transactions that were new or changed, i.e. the delta of this sync
+     */
+    @Transactional
+    public List<GeneralTransaction> saveTransactions(List<GeneralTransaction> updated) {
+        if (updated == null || updated.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<DailyFlowSummaryKey, long[]> deltas = new HashMap<>();
+        Map<String, GeneralTransaction> incoming = updated.stream()
+                .collect(Collectors.toMap(GeneralTransaction::getTransactionId, Function.identity(), (first, second) -> second));
+
+        Map<String, GeneralTransaction> created = new HashMap<>(incoming);
+
+        for (GeneralTransaction previous : transactions.findAllById(new ArrayList<>(incoming.keySet()))) {
+            created.remove(previous.getTransactionId());
+            GeneralTransaction next = incoming.get(previous.getTransactionId());
+            if (Objects.equals(previous.getAmount(), next.getAmount())
+                    && Objects.equals(previous.getOrigin(), next.getOrigin())
+                    && Objects.equals(dayOf(previous), dayOf(next))
+                    // no change to the summaries, but the payment reconciled against the transaction follows its state
+                    && Objects.equals(previous.getState(), next.getState())) {
+                incoming.remove(previous.getTransactionId());
+                continue;
+            }
+            entityManager.refresh(previous, LockModeType.PESSIMISTIC_WRITE);
+            addFlow(deltas, previous, -1);
+        }
+
+        insert(created.values());
+        transactions.saveAll(updated);
+        incoming.values().forEach(transaction -> addFlow(deltas, transaction, 1));
+
+        deltas.forEach((key, delta) -> {
+            if ((delta[0] != 0 || delta[1] != 0 || delta[2] != 0)
+                    && flows.addToSummary(key.getAccountId(), key.getDay(), key.getCurrency(), delta[0], delta[1], delta[2]) == 0) {
+                flows.save(new DailyFlowSummary(key, delta[0], delta[1], delta[2]));
+            }
+        });
+
+        return new ArrayList<>(incoming.values());
+    }
+
+    public Map<String, List<BalanceSummary>> getBalanceSummary() {
+        logger.info("Getting balance summary from repository");
+
+        Map<String, List<BalanceSummary>> outcome = new HashMap<>();
+        Stream.of(Bank.values()).forEach(bank -> outcome.put(bank.toString(), balances.findByBankOrderByCurrencyAsc(bank)));
+        return outcome;
+    }
+
+    public Map<String, List<DailyFlowSummary>> getDailyFlows(String accountId, LocalDate from, LocalDate to) {
+        logger.info("Getting daily flows between {} and {} from repository", from, to);
+
+        List<DailyFlowSummary> days = accountId == null
+                ? flows.findByDayBetweenOrderByAccountIdAscDayAsc(from, to)
+                : flows.findByAccountIdAndDayBetweenOrderByDayAsc(accountId, from, to);
+
+        return days.stream().collect(Collectors.groupingBy(DailyFlowSummary::getAccountId, LinkedHashMap::new, Collectors.toList()));
+    }
+
+    // the second of two saves of one new row waits for the first and fails on the key; the next sync or the
+    // redelivery of the webhook then finds the row saved
+    private void insert(Collection<?> created) {
+        if (!created.isEmpty()) {
+            created.forEach(entityManager::persist);
+            entityManager.flush();
+        }
+    }
+
+    private static void addBalance(Map<BalanceSummaryKey, long[]> deltas, GeneralAccount account, int sign) {
+        if (account.getBalance() == null || account.getBank() == null) {
+            return;
+        }
+
+        long[] delta = deltas.computeIfAbsent(new BalanceSummaryKey(account.getBank(), account.getBalance().getCurrencyCode()),
+                key -> new long[2]);
+        delta[0] += sign * account.getBalance().getMinorUnits();
+        delta[1] += sign;
+    }
+
+    private static void addFlow(Map<DailyFlowSummaryKey, long[]> deltas, GeneralTransaction transaction, int sign) {
+        LocalDate day = dayOf(transaction);
+        if (transaction.getAmount() == null || transaction.getOrigin() == null || day == null) {
+            return;
+        }
+
+        long amount = transaction.getAmount().getMinorUnits();
+        long[] delta = deltas.computeIfAbsent(new DailyFlowSummaryKey(transaction.getOrigin(), day,
+                transaction.getAmount().getCurrencyCode()), key -> new long[3]);
+        delta[0] += sign * Math.max(amount, 0);
+        delta[1] += sign * Math.max(-amount, 0);
+        delta[2] += sign;
+    }
+
+    static LocalDate dayOf(GeneralTransaction transaction) {
+        // Deutsche reports a booking date, Revolut an ISO instant in UTC; both start with the date
+        String createdAt = transaction.getCreatedAt();
+        if (createdAt == null || createdAt.length() < ISO_DATE_LENGTH) {
+            return null;
+        }
+
+        try {
+            return LocalDate.parse(createdAt.substring(0, ISO_DATE_LENGTH));
+        } catch (DateTimeParseException exception) {
+            logger.warn("Transaction {} has an unreadable date {}", transaction.getTransactionId(), createdAt);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.j2020.model.Bank;
+import com.j2020.model.StoredToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps each bank's access token, its expiry and the latest refresh token in a local file encrypted with
+ * AES-GCM, so that a restart can reuse a token that is still valid and keeps a rotated refresh token.
+ * The file is rewritten through a temporary file and an atomic rename, so a crash leaves either the old or the
+ * new tokens, never a torn file. A stored entry is only used while the refresh token configured for the bank is
+ * the one it was issued for. The store is off while {@code tokenStore.key} is empty.
+ */
+@Service
+public class TokenStore {
+    public static final long MIN_REUSED_VALIDITY_MILLIS = 60_000;
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenStore.class);
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final byte[] ASSOCIATED_DATA = "j2020-token-store-v1".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JavaType storeType = mapper.getTypeFactory().constructMapType(HashMap.class, String.class, StoredToken.class);
+    private final SecureRandom random = new SecureRandom();
+    private SecretKeySpec secretKey;
+
+    @Value("${tokenStore.path}")
+    private String path;
+
+    @Value("${tokenStore.key:}")
+    private String key;
+
+    @PostConstruct
+    public void init() {
+        if (key == null || key.isEmpty()) {
+            logger.info("No tokenStore.key configured, access tokens are fetched on every start");
+            return;
+        }
+
+        byte[] keyBytes = Base64.getDecoder().decode(key);
+        if (keyBytes.length != 16 && keyBytes.length != 32) {
+            throw new IllegalStateException("tokenStore.key must be a base64 encoded 128 or 256 bit AES key");
+        }
+        secretKey = new SecretKeySpec(keyBytes, "AES");
+    }
+
+    public synchronized Optional<StoredToken> load(Bank bank, String configuredRefreshToken) {
+        if (secretKey == null) {
+            return Optional.empty();
+        }
+
+        StoredToken token = readAll().get(bank.toString());
+        if (token == null || !hash(configuredRefreshToken).equals(token.getConfiguredTokenHash())) {
+            return Optional.empty();
+        }
+        return Optional.of(token);
+    }
+
+    public synchronized void save(Bank bank, String configuredRefreshToken, StoredToken token) {
+        if (secretKey == null) {
+            return;
+        }
+
+        token.setConfiguredTokenHash(hash(configuredRefreshToken));
+        Map<String, StoredToken> tokens = readAll();
+        tokens.put(bank.toString(), token);
+
+        try {
+            writeAtomically(encrypt(mapper.writerFor(storeType).writeValueAsBytes(tokens)));
+        } catch (IOException | GeneralSecurityException exception) {
+            // the tokens still work from memory, the next start just fetches new ones
+            logger.error("Could not store the {} token", bank, exception);
+        }
+    }
+
+    private Map<String, StoredToken> readAll() {
+        Path file = Paths.get(path);
+        if (!Files.exists(file)) {
+            return new HashMap<>();
+        }
+
+        try {
+            return mapper.readValue(decrypt(Files.readAllBytes(file)), storeType);
+        } catch (IOException | GeneralSecurityException exception) {
+            // a different key or a damaged file, start over with fresh tokens
+            logger.warn("Ignoring unreadable token store {}", file, exception);
+            return new HashMap<>();
+        }
+    }
+
+    private byte[] encrypt(byte[] plain) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+
+        Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(ASSOCIATED_DATA);
+        byte[] sealed = cipher.doFinal(plain);
+
+        return ByteBuffer.allocate(IV_BYTES + sealed.length).put(iv).put(sealed).array();
+    }
+
+    private byte[] decrypt(byte[] stored) throws GeneralSecurityException {
+        if (stored.length < IV_BYTES) {
+            throw new GeneralSecurityException("Token store is truncated");
+        }
+
+        Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_BITS, stored, 0, IV_BYTES));
+        cipher.updateAAD(ASSOCIATED_DATA);
+        return cipher.doFinal(stored, IV_BYTES, stored.length - IV_BYTES);
+    }
+
+    private void writeAtomically(byte[] content) throws IOException {
+        Path file = Paths.get(path).toAbsolutePath();
+        Files.createDirectories(file.getParent());
+
+        // created readable by the owner only where the file system supports it
+        Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(content));
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(String.valueOf(token).getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
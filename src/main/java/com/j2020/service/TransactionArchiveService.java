@@ -0,0 +1,173 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.j2020.model.Bank;
+import com.j2020.model.GeneralTransaction;
+import com.j2020.model.TransactionArchiveChunk;
+import com.j2020.repository.TransactionArchiveRepository;
+import com.j2020.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves transactions booked more than {@code archive.horizonDays} ago out of the transaction table into one
+ * gzip compressed chunk per bank and day, so the table only holds the recent working set. The last archived day
+ * of a bank acts as a watermark: a sync drops anything the bank reports for a day up to it, as those days are
+ * settled and already counted in the daily flow summaries. Reads go to the archive only when the requested range
+ * reaches back to the watermark.
+ */
+@Service
+public class TransactionArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionArchiveService.class);
+    // sorts after every ISO date, for ranges open at the end
+    private static final String AFTER_ANY_DATE = "9";
+    private static final int ISO_DATE_LENGTH = 10;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JavaType chunkType = mapper.getTypeFactory().constructCollectionType(List.class, GeneralTransaction.class);
+    private TransactionRepository transactions;
+    private TransactionArchiveRepository archive;
+    private LeaderElectionService leadership;
+
+    @Value("${archive.horizonDays}")
+    private int horizonDays;
+
+    @Value("${archive.maxDaysPerRun}")
+    private int maxDaysPerRun;
+
+    public TransactionArchiveService(TransactionRepository transactions,
+                                     TransactionArchiveRepository archive,
+                                     LeaderElectionService leadership) {
+        this.transactions = transactions;
+        this.archive = archive;
+        this.leadership = leadership;
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${archive.intervalMillis}")
+    public void archiveOldTransactions() {
+        if (!leadership.isLeader()) {
+            return;
+        }
+
+        String cutoff = LocalDate.now(ZoneOffset.UTC).minusDays(horizonDays).toString();
+        int archivedDays = 0;
+        for (Bank bank : Bank.values()) {
+            String oldest;
+            while (archivedDays < maxDaysPerRun && (oldest = transactions.findFirstCreatedAtBefore(bank, cutoff)) != null) {
+                LocalDate day;
+                try {
+                    day = LocalDate.parse(oldest.substring(0, Math.min(ISO_DATE_LENGTH, oldest.length())));
+                } catch (DateTimeParseException exception) {
+                    logger.warn("Not archiving {} transactions before {}, they have no readable date", bank, oldest);
+                    break;
+                }
+
+                archiveDay(bank, day);
+                archivedDays++;
+            }
+        }
+    }
+
+    /**
+     * Transactions of the bank booked in the range, either bound may be open. Archived days are read only if
+     * the range reaches back to them.
+     */
+    public List<GeneralTransaction> findBetween(Bank bank, LocalDate from, LocalDate to) {
+        List<GeneralTransaction> outcome = new ArrayList<>();
+
+        LocalDate lastArchived = archive.findLastArchivedDay(bank);
+        if (lastArchived != null && (from == null || !from.isAfter(lastArchived))) {
+            LocalDate until = to == null || to.isAfter(lastArchived) ? lastArchived : to;
+            List<TransactionArchiveChunk> chunks = from == null
+                    ? archive.findByBankAndDayLessThanEqualOrderByDayAsc(bank, until)
+                    : archive.findByBankAndDayBetweenOrderByDayAsc(bank, from, until);
+            chunks.forEach(chunk -> outcome.addAll(read(chunk)));
+        }
+
+        outcome.addAll(transactions.findByBankAndCreatedAtGreaterThanEqualAndCreatedAtLessThan(bank,
+                from == null ? "" : from.toString(), to == null ? AFTER_ANY_DATE : to.plusDays(1).toString()));
+        return outcome;
+    }
+
+    public List<GeneralTransaction> withoutArchived(Bank bank, List<GeneralTransaction> fetched) {
+        LocalDate lastArchived = archive.findLastArchivedDay(bank);
+        if (lastArchived == null) {
+            return fetched;
+        }
+
+        return fetched.stream()
+                .filter(transaction -> {
+                    LocalDate day = SummaryService.dayOf(transaction);
+                    return day == null || day.isAfter(lastArchived);
+                })
+                .collect(Collectors.toList());
+    }
+
+    private void archiveDay(Bank bank, LocalDate day) {
+        List<GeneralTransaction> booked = transactions.findByBankAndCreatedAtGreaterThanEqualAndCreatedAtLessThan(
+                bank, day.toString(), day.plusDays(1).toString());
+
+        TransactionArchiveChunk chunk = archive.findByBankAndDay(bank, day).orElseGet(() -> {
+            TransactionArchiveChunk created = new TransactionArchiveChunk();
+            created.setBank(bank);
+            created.setDay(day);
+            return created;
+        });
+
+        // a day is archived again only for rows that were saved while it was being archived the first time
+        Map<String, GeneralTransaction> merged = new LinkedHashMap<>();
+        if (chunk.getPayload() != null) {
+            read(chunk).forEach(transaction -> merged.put(transaction.getTransactionId(), transaction));
+        }
+        booked.forEach(transaction -> merged.put(transaction.getTransactionId(), transaction));
+
+        chunk.setPayload(write(merged.values()));
+        chunk.setTransactionCount(merged.size());
+        chunk.setArchivedAt(Instant.now().toEpochMilli());
+        archive.save(chunk);
+        transactions.deleteInBatch(booked);
+
+        logger.info("Archived {} {} transactions of {} into {} bytes", booked.size(), bank, day, chunk.getPayload().length);
+    }
+
+    private List<GeneralTransaction> read(TransactionArchiveChunk chunk) {
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(chunk.getPayload()))) {
+            return mapper.readValue(input, chunkType);
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Unreadable archive chunk " + chunk, exception);
+        }
+    }
+
+    private byte[] write(Collection<GeneralTransaction> chunk) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream output = new GZIPOutputStream(bytes)) {
+            mapper.writerFor(chunkType).writeValue(output, new ArrayList<>(chunk));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return bytes.toByteArray();
+    }
+}
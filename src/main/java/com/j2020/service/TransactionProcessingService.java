@@ -5,6 +5,7 @@
 package com.j2020.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.j2020.Constants;
 import com.j2020.model.*;
 import com.j2020.model.exception.BankNotSupportedException;
 import com.j2020.model.exception.JsonProcessingExceptionLambdaWrapper;
@@ -22,15 +23,21 @@ import java.util.stream.Stream;
 public class TransactionProcessingService {
     private final BankingServiceFactory bankingService;
     private JmsTransactionProducer transactionProducer;
+    private PaymentValidationService validation;
+    private PaymentNettingService netting;
     private static final Logger logger = LoggerFactory.getLogger(TransactionProcessingService.class);
 
     public TransactionProcessingService(BankingServiceFactory bankingService,
-                                        JmsTransactionProducer transactionProducer) {
+                                        JmsTransactionProducer transactionProducer,
+                                        PaymentValidationService validation,
+                                        PaymentNettingService netting) {
         this.bankingService = bankingService;
         this.transactionProducer = transactionProducer;
+        this.validation = validation;
+        this.netting = netting;
     }
 
-    public BatchOfPaymentsMessage initiatePaymentRequests(Map<String, List<GeneralPayment>> params) {
+    public PaymentSubmissionReport initiatePaymentRequests(Map<String, List<GeneralPayment>> params) {
         if (params.isEmpty() || !Arrays.stream(params.keySet().toArray()).allMatch(bank -> EnumUtils.isValidEnum(Bank.class, bank.toString()))) {
             logger.error("Detected requests for bank services that are not supported");
             throw new BankNotSupportedException("Requested payments for services "
@@ -39,10 +46,38 @@ public class TransactionProcessingService {
                     + Arrays.toString(Bank.values()));
         }
 
+        PaymentSubmissionReport report = new PaymentSubmissionReport();
         List<GeneralPayment> merged = new ArrayList<>();
-        params.forEach((bank, generalPayments) -> merged.addAll(generalPayments));
+        params.forEach((bank, generalPayments) -> {
+            if (generalPayments == null) {
+                return;
+            }
+
+            Set<Long> invalidRows = new HashSet<>();
+            validation.validateAll(Bank.valueOf(bank), generalPayments).forEach(error -> {
+                invalidRows.add(error.getRow());
+                validation.reject(report, error);
+            });
+            for (int row = 0; row < generalPayments.size(); row++) {
+                if (!invalidRows.contains((long) row)) {
+                    // only once it is known to be a payment
+                    generalPayments.get(row).setBank(Bank.valueOf(bank));
+                    merged.add(generalPayments.get(row));
+                }
+            }
+        });
+
+        report.setAcceptedPayments(merged.size());
+        if (merged.isEmpty()) {
+            logger.warn("None of the {} requested payments are valid", report.getRejectedPayments());
+            report.setText(Constants.DISPLAY_PAYMENTS_REJECTED_TEXT);
+            return report;
+        }
 
-        return transactionProducer.sendPayments(merged);
+        BatchOfPaymentsMessage accepted = transactionProducer.sendPayments(netting.net(merged));
+        report.setText(accepted.getText());
+        report.setBatchId(accepted.getBatchId());
+        return report;
     }
 
     public Map<String, List<GeneralTransaction>> collectTransactionResponse() {
@@ -7,9 +7,12 @@ package com.j2020.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.j2020.model.Bank;
+import com.j2020.model.FailedPaymentResponse;
 import com.j2020.model.Payment;
 import com.j2020.model.PaymentResponse;
 import com.j2020.model.Transaction;
+import com.j2020.model.UnknownPaymentResponse;
 import com.j2020.model.deutsche.DeutschePayment;
 import com.j2020.service.deutsche.DeutscheMultiFactorService;
 import org.slf4j.Logger;
@@ -18,30 +21,47 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Random;
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 @Service
 public class TransactionRequestRetrievalService {
     private final DeutscheMultiFactorService deutscheMultiFactor;
+    private final PaymentIdentificationService identificationService;
     private static final Logger logger = LoggerFactory.getLogger(TransactionRequestRetrievalService.class);
+    private static final String INTERRUPTED_REASON = "Interrupted while waiting to push the payment";
+
+    private final Map<Bank, Semaphore> permits = new EnumMap<>(Bank.class);
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ExecutorService bankIoExecutor;
 
     @Qualifier("restTemplate")
     private RestTemplate restTemplate;
 
-    private Random random = new Random();
-
-    @Value("${revolutTransaction.maxReqIdLength}")
-    private int maxReqIdLength;
+    @Value("#{${bankIo.paymentConcurrency}}")
+    private Map<String, Integer> paymentConcurrency;
 
     public TransactionRequestRetrievalService(DeutscheMultiFactorService deutscheMultiFactor,
-                                              RestTemplate restTemplate) {
+                                              PaymentIdentificationService identificationService,
+                                              RestTemplate restTemplate,
+                                              @Qualifier("bankIoExecutor") ExecutorService bankIoExecutor) {
         this.deutscheMultiFactor = deutscheMultiFactor;
+        this.identificationService = identificationService;
         this.restTemplate = restTemplate;
+        this.bankIoExecutor = bankIoExecutor;
+    }
+
+    @PostConstruct
+    public void init() {
+        for (Bank bank : Bank.values()) {
+            permits.put(bank, new Semaphore(paymentConcurrency.get(bank.toString()), true));
+        }
     }
 
     public List<Transaction> retrieveTransactions(String token, String url, JavaType reference) throws JsonProcessingException {
@@ -59,43 +79,110 @@ public class TransactionRequestRetrievalService {
         return new ObjectMapper().readValue(builder.toString(), reference);
     }
 
-    public List<PaymentResponse> pushPayments(String token, String url, List<? extends Payment> payments, JavaType reference) throws JsonProcessingException {
+    public PaymentResponse retrievePaymentStatus(String token, String url, JavaType reference) throws JsonProcessingException {
         HttpHeaders headers = new HttpHeaders();
         headers.set("Authorization", "Bearer " + token);
-        headers.setContentType(MediaType.APPLICATION_JSON);
 
-        ResponseEntity<String> response;
-        List<PaymentResponse> responses = new ArrayList<>();
-        ObjectMapper mapper = new ObjectMapper();
+        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity(headers), String.class);
+        return mapper.readValue(response.getBody(), reference);
+    }
+
+    /**
+     * Pushes the payments to the bank at most {@code bankIo.paymentConcurrency} at a time per bank, counting every
+     * caller. Each payment is sent with headers of its own; the responses keep the order of the payments. Every payment
+     * gets a response of its own, whatever happens to the others: a payment that was turned down or never sent gets a
+     * {@link FailedPaymentResponse}, one that was sent without a readable answer an {@link UnknownPaymentResponse}.
+     */
+    public List<PaymentResponse> pushPayments(String token, String url, List<? extends Payment> payments, JavaType reference) {
+        if (payments.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Semaphore bankPermits = permits.get(payments.get(0) instanceof DeutschePayment ? Bank.DEUTSCHE : Bank.REVOLUT);
+        if (payments.size() == 1) {
+            if (!acquire(bankPermits)) {
+                return Collections.singletonList(new FailedPaymentResponse(INTERRUPTED_REASON));
+            }
+            try {
+                return Collections.singletonList(pushPayment(token, url, payments.get(0), reference));
+            } finally {
+                bankPermits.release();
+            }
+        }
 
+        List<CompletableFuture<PaymentResponse>> responses = new ArrayList<>(payments.size());
         for (Payment payment : payments) {
+            // taken here rather than on the pool, so a full bank holds the caller back instead of bank I/O threads
+            if (!acquire(bankPermits)) {
+                responses.add(CompletableFuture.completedFuture(new FailedPaymentResponse(INTERRUPTED_REASON)));
+                continue;
+            }
+            try {
+                responses.add(CompletableFuture.supplyAsync(() -> pushPayment(token, url, payment, reference), bankIoExecutor)
+                        .whenComplete((response, exception) -> bankPermits.release()));
+            } catch (RejectedExecutionException exception) {
+                bankPermits.release();
+                logger.error("Could not send {}: {}", payment, exception.getMessage());
+                responses.add(CompletableFuture.completedFuture(new FailedPaymentResponse(exception.getMessage())));
+            }
+        }
+
+        return responses.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    private PaymentResponse pushPayment(String token, String url, Payment payment, JavaType reference) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        try {
             if (payment instanceof DeutschePayment) {
                 Map<String, String> headerInfo = deutscheMultiFactor.prepareAuthorisation(token,
                         ((DeutschePayment) payment).getCreditorAccount().getIban(),
-                        ((DeutschePayment) payment).getInstructedAmount().getCurrencyCode(),
-                        ((DeutschePayment) payment).getInstructedAmount().getAmount());
+                        payment.getAmount());
                 headers.set("otp", headerInfo.get("otp"));
                 headers.set("idempotency-id", headerInfo.get("idempotency-id"));
+                if (((DeutschePayment) payment).getEndToEndIdentification() == null) {
+                    payment.setIdentifyingInformation(identificationService.generateIdentification());
+                }
             } else {
-                payment.setIdentifyingInformation(generateIdentification());
+                payment.setIdentifyingInformation(identificationService.generateIdentification());
             }
+        } catch (RuntimeException exception) {
+            logger.error("Could not prepare {}: {}", payment, exception.getMessage());
+            return new FailedPaymentResponse(exception.getMessage());
+        }
 
-            logger.info("Processing {}", payment);
+        logger.info("Processing {}", payment);
 
-            response = restTemplate.exchange(url, HttpMethod.POST, new HttpEntity<>(payment, headers), String.class);
-            responses.add(mapper.readValue(response.getBody(), reference));
+        ResponseEntity<String> response;
+        try {
+            response = restTemplate.exchange(url, HttpMethod.POST,
+                    new HttpEntity<>(payment, HttpHeaders.readOnlyHttpHeaders(headers)), String.class);
+        } catch (HttpClientErrorException | HttpServerErrorException exception) {
+            logger.error("The bank turned down {}: {}", payment, exception.getMessage());
+            return new FailedPaymentResponse(exception.getMessage());
+        } catch (RuntimeException exception) {
+            logger.error("No answer from the bank for {}: {}", payment, exception.getMessage());
+            return new UnknownPaymentResponse(exception.getMessage());
         }
 
-        return responses;
+        try {
+            return mapper.readValue(response.getBody(), reference);
+        } catch (JsonProcessingException exception) {
+            // the bank took the payment, but not in a way that tells which it is
+            logger.error("Unreadable answer from the bank for {}: {}", payment, exception.getMessage());
+            return new UnknownPaymentResponse(exception.getMessage());
+        }
     }
 
-    private String generateIdentification() {
-        StringBuilder builder = new StringBuilder();
-
-        while (builder.length() < maxReqIdLength) {
-            builder.append(Integer.toHexString(random.nextInt()));
+    private static boolean acquire(Semaphore bankPermits) {
+        try {
+            bankPermits.acquire();
+            return true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
         }
-
-        return builder.toString().substring(0, maxReqIdLength);
     }
 }
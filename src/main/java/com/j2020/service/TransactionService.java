@@ -17,5 +17,11 @@ public interface TransactionService {
 
     List<PaymentResponse> createPayments(List<GeneralPayment> payments) throws JsonProcessingException;
 
+    /**
+     * @param paymentId the bank's id of a payment pushed earlier
+     * @return the bank's current status of the payment
+     */
+    String retrievePaymentStatus(String paymentId) throws JsonProcessingException;
+
     boolean canProcessThisBank(Bank bankingService);
 }
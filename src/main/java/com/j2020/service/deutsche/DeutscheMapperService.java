@@ -7,11 +7,14 @@ package com.j2020.service.deutsche;
 import com.j2020.model.*;
 import com.j2020.model.deutsche.*;
 import com.j2020.model.exception.MissingPaymentRequestDataException;
+import com.j2020.service.upload.Pain001PaymentFileReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class DeutscheMapperService {
@@ -22,7 +25,7 @@ public class DeutscheMapperService {
         result.setTransactionId(transaction.getPaymentIdentification());
         result.setOrigin(transaction.getOriginIban());
         result.setCreditor(transaction.getCreditorId() != null ? transaction.getCreditorId() : transaction.getCounterPartyIban());
-        result.setAmount(transaction.getAmount());
+        result.setAmount(toMoney(transaction.getAmount(), transaction.getCurrencyCode(), transaction));
         result.setRequestId(transaction.getE2eReference());
         result.setReference(transaction.getPaymentReference());
         result.setCreatedAt(transaction.getBookingDate());
@@ -34,7 +37,7 @@ public class DeutscheMapperService {
     public GeneralAccount toGeneralAccount(DeutscheAccount account) {
         GeneralAccount result = new GeneralAccount();
         result.setAccountId(account.getAccountId());
-        result.setBalance(account.getCurrentBalance());
+        result.setBalance(toMoney(account.getCurrentBalance(), account.getCurrencyCode(), account));
         result.setCurrency(account.getCurrencyCode());
         result.setDescription(account.getProductDescription());
         result.setType(account.getAccountType());
@@ -43,35 +46,63 @@ public class DeutscheMapperService {
         return result;
     }
 
+    /**
+     * What the payment lacks for Deutsche Bank, phrased to follow "has"; empty when it can be paid.
+     */
+    public List<String> validate(GeneralPayment payment) {
+        List<String> problems = new ArrayList<>();
+        if (payment.getAmount() == null) {
+            problems.add("no amount specified");
+        }
+        if (payment.getSourceAccount() == null) {
+            problems.add("no source account specified");
+        }
+        if (payment.getDestinationAccount() == null) {
+            problems.add("no destination account specified");
+        }
+        if (payment.getCurrency() == null) {
+            problems.add("no currency specified");
+        }
+        if (payment.getAdditionalInfo() == null || payment.getAdditionalInfo().get("creditorName") == null) {
+            problems.add("no creditor name specified under 'additionalInfo'");
+        }
+
+        return problems;
+    }
+
     public DeutschePayment toDeutschePayment(GeneralPayment payment) {
         logger.info("Attempting to construct DeutschePayment out of {}", payment);
 
-        DeutschePayment result = new DeutschePayment();
-
-        Float amount = Optional.ofNullable(payment.getAmount())
-                .orElseThrow(() -> new MissingPaymentRequestDataException(payment + " has no amount specified"));
-        String source = Optional.ofNullable(payment.getSourceAccount())
-                .orElseThrow(() -> new MissingPaymentRequestDataException(payment + " has no source account specified"));
-        String destination = Optional.ofNullable(payment.getDestinationAccount())
-                .orElseThrow(() -> new MissingPaymentRequestDataException(payment + " has no destination account specified"));
-        String currency = Optional.ofNullable(payment.getCurrency())
-                .orElseThrow(() -> new MissingPaymentRequestDataException(payment + " has no currency specified"));
-
-        String creditorName;
-
-        if (payment.getAdditionalInfo() != null) {
-            creditorName = Optional.ofNullable(payment.getAdditionalInfo().get("creditorName"))
-                    .orElseThrow(() -> new MissingPaymentRequestDataException(payment + " has no creditor name specified under 'additionalInfo'"));
-        } else {
-            throw new MissingPaymentRequestDataException(payment + " has no creditor name specified under 'additionalInfo'");
+        List<String> problems = validate(payment);
+        if (!problems.isEmpty()) {
+            throw new MissingPaymentRequestDataException(payment + " has " + String.join(", ", problems));
         }
 
-        String adjustedAmountFormat = DeutscheSepaPaymentRequestData.formatValue(amount.toString());
+        return toValidatedDeutschePayment(payment);
+    }
+
+    /**
+     * For payments {@link #validate} has passed already, as every payment taken off the queue has.
+     */
+    public DeutschePayment toValidatedDeutschePayment(GeneralPayment payment) {
+        DeutschePayment result = new DeutschePayment();
+        result.setCreditorName(payment.getAdditionalInfo().get("creditorName"));
+        result.setDebtorAccount(new DeutscheSepaPaymentAccount(payment.getCurrency(), payment.getSourceAccount()));
+        result.setInstructedAmount(new DeutscheSepaPaymentAmount(payment.getAmount()));
+        result.setCreditorAccount(new DeutscheSepaPaymentAccount(payment.getCurrency(), payment.getDestinationAccount()));
+        // one from a payment file is kept, the others get theirs when pushed
+        result.setEndToEndIdentification(payment.getAdditionalInfo().get(Pain001PaymentFileReader.END_TO_END_ID));
+
+        return result;
+    }
 
-        result.setCreditorName(creditorName);
-        result.setDebtorAccount(new DeutscheSepaPaymentAccount(currency, source));
-        result.setInstructedAmount(new DeutscheSepaPaymentAmount(adjustedAmountFormat, currency));
-        result.setCreditorAccount(new DeutscheSepaPaymentAccount(currency, destination));
+    private static Money toMoney(BigDecimal amount, String currencyCode, Object row) {
+        Money result = Money.ofReported(amount, currencyCode);
+        if (result == null && amount != null) {
+            logger.warn("Leaving out the amount {} {} of {}", amount, currencyCode, row);
+        } else if (result != null && result.toBigDecimal().compareTo(amount) != 0) {
+            logger.warn("Rounded the amount {} {} of {} to {}", amount, currencyCode, row, result);
+        }
 
         return result;
     }
@@ -4,6 +4,7 @@
 
 package com.j2020.service.deutsche;
 
+import com.j2020.model.Money;
 import com.j2020.model.deutsche.DeutscheOneTimePassword;
 import com.j2020.model.deutsche.DeutschePhototanChallengeResponse;
 import com.j2020.model.deutsche.DeutschePhototanResponse;
@@ -51,14 +52,14 @@ public class DeutscheMultiFactorService {
         return otpValue.toString();
     }
 
-    public Map<String, String> prepareAuthorisation(String token, String targetIban, String currency, String amount) {
+    public Map<String, String> prepareAuthorisation(String token, String targetIban, Money amount) {
         logger.info("Negotiating OTP for target account {}", targetIban);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.set("Authorization", "Bearer " + token);
 
-        DeutscheSepaPaymentRequest sepaRequest = new DeutscheSepaPaymentRequest(targetIban, currency, amount);
+        DeutscheSepaPaymentRequest sepaRequest = new DeutscheSepaPaymentRequest(targetIban, amount);
         HttpEntity<DeutscheSepaPaymentRequest> entity = new HttpEntity<>(sepaRequest, headers);
 
         DeutschePhototanResponse sepaAnswer = restTemplate.postForObject(oneTimePassUrl, entity, DeutschePhototanResponse.class);
@@ -8,10 +8,13 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.j2020.model.exception.TokenFetchException;
+import com.j2020.model.Bank;
+import com.j2020.model.StoredToken;
 import com.j2020.model.TokenRenewalResponse;
 import com.j2020.model.deutsche.DeutscheTokenRenewalResponse;
 import com.j2020.service.TokenRequestRetrievalService;
 import com.j2020.service.TokenService;
+import com.j2020.service.TokenStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,15 +24,15 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.HttpClientErrorException;
 
 import javax.annotation.PostConstruct;
-import java.time.LocalDateTime;
+import java.util.Optional;
 
 @Service
 public class DeutscheTokenService implements TokenService {
     private final TokenRequestRetrievalService tokenRetrieval;
-    private String currentToken;
-    private LocalDateTime lastRefreshDayTime;
-    private long tokenValidFor;
-    private final MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+    private final TokenStore tokenStore;
+    // replaced whole on every renewal and read without the lock, so the access token, its expiry and the refresh
+    // token it came with are always seen together
+    private volatile StoredToken current;
 
     @Value("${deutscheTokenRenewal.deutTokenRenewalUri}")
     private String deutTokenRenewalUri;
@@ -45,41 +48,71 @@ public class DeutscheTokenService implements TokenService {
 
     private static final Logger logger = LoggerFactory.getLogger(DeutscheTokenService.class);
 
-    public DeutscheTokenService(TokenRequestRetrievalService tokenRetrieval) {
+    public DeutscheTokenService(TokenRequestRetrievalService tokenRetrieval, TokenStore tokenStore) {
         this.tokenRetrieval = tokenRetrieval;
+        this.tokenStore = tokenStore;
     }
 
     public String getToken() {
-        if (lastRefreshDayTime.plusSeconds(tokenValidFor).isBefore(LocalDateTime.now())) {
-            logger.info("Refreshing Deutsche Bank access token");
-            refreshToken();
+        StoredToken token = current;
+        if (isExpired(token)) {
+            synchronized (this) {
+                // renewed by another thread while this one waited; its refresh token was spent on that renewal
+                token = current;
+                if (isExpired(token)) {
+                    logger.info("Refreshing Deutsche Bank access token");
+                    token = renew(token.getRefreshToken());
+                }
+            }
         }
-        return currentToken;
+        return token.getAccessToken();
     }
 
-    public void refreshToken() {
+    public synchronized void refreshToken() {
+        renew(current == null ? oAuthToken : current.getRefreshToken());
+    }
+
+    private StoredToken renew(String refreshToken) {
         JavaType type = new ObjectMapper().getTypeFactory().constructType(DeutscheTokenRenewalResponse.class);
         TokenRenewalResponse renewalResponse;
 
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("client_id", deutClientId);
+        params.add("client_secret", deutClientSecret);
+        params.add("grant_type", "refresh_token");
+        params.add("refresh_token", refreshToken);
         try {
             renewalResponse = tokenRetrieval.retrieveToken(params, deutTokenRenewalUri, type);
         } catch (HttpClientErrorException | JsonProcessingException exception) {
             throw new TokenFetchException("Could not fetch token for Deutsche Bank. " + exception.getMessage());
         }
 
-        currentToken = renewalResponse.getAccessToken();
-        tokenValidFor = renewalResponse.getSecondsUntilExpiring();
-        lastRefreshDayTime = LocalDateTime.now();
+        // Deutsche Bank rotates the refresh token on every renewal
+        String rotated = ((DeutscheTokenRenewalResponse) renewalResponse).getRefreshToken();
+        StoredToken renewed = new StoredToken(renewalResponse.getAccessToken(),
+                System.currentTimeMillis() + renewalResponse.getSecondsUntilExpiring() * 1000,
+                rotated != null ? rotated : refreshToken);
+        // saved first, the store sets a field of the token it keeps
+        tokenStore.save(Bank.DEUTSCHE, oAuthToken, renewed);
+        current = renewed;
+        return renewed;
+    }
+
+    private static boolean isExpired(StoredToken token) {
+        return token.getExpiresAt() < System.currentTimeMillis();
     }
 
     @PostConstruct
-    private void init() {
-        params.add("client_id", deutClientId);
-        params.add("client_id", deutClientId);
-        params.add("client_secret", deutClientSecret);
-        params.add("grant_type", "refresh_token");
-        params.add("refresh_token", oAuthToken);
+    private synchronized void init() {
+        Optional<StoredToken> stored = tokenStore.load(Bank.DEUTSCHE, oAuthToken);
+        String refreshToken = stored.map(StoredToken::getRefreshToken).orElse(oAuthToken);
+        long remainingMillis = stored.map(token -> token.getExpiresAt() - System.currentTimeMillis()).orElse(0L);
+        if (remainingMillis > TokenStore.MIN_REUSED_VALIDITY_MILLIS) {
+            logger.info("Reusing the stored Deutsche Bank access token");
+            current = new StoredToken(stored.get().getAccessToken(), stored.get().getExpiresAt(), refreshToken);
+            return;
+        }
 
-        refreshToken();
+        renew(refreshToken);
     }
 }
@@ -7,26 +7,30 @@ package com.j2020.service.deutsche;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.j2020.Constants;
 import com.j2020.model.*;
 import com.j2020.model.deutsche.DeutschePayment;
 import com.j2020.model.deutsche.DeutschePaymentResponse;
 import com.j2020.model.deutsche.DeutscheTransaction;
 import com.j2020.model.exception.JsonProcessingExceptionLambdaWrapper;
+import com.j2020.model.exception.PaymentNotSentException;
 import com.j2020.repository.TransactionsForBatchRepository;
+import com.j2020.service.BatchProgressService;
+import com.j2020.service.PaymentNettingService;
 import com.j2020.service.TransactionRequestRetrievalService;
 import com.j2020.service.TransactionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,6 +40,8 @@ public class DeutscheTransactionService implements TransactionService {
     private final TransactionRequestRetrievalService transactionRetrieval;
     private final DeutscheMapperService deutscheMapper;
     private TransactionsForBatchRepository transactions;
+    private BatchProgressService progress;
+    private ExecutorService bankIoExecutor;
 
     @Value("${deutscheTransaction.ibanAvailableUrlPrepend}")
     private String ibanOnUrlPrepend;
@@ -46,14 +52,24 @@ public class DeutscheTransactionService implements TransactionService {
     @Value("${deutscheTransaction.paymentUrl}")
     private String paymentUrl;
 
+    @Value("${deutscheTransaction.paymentStatusUrl}")
+    private String paymentStatusUrl;
+
+    @Value("${statusPoll.firstDelayMillis}")
+    private long firstPollDelayMillis;
+
     public DeutscheTransactionService(DeutscheTokenService tokenRenewal,
                                       TransactionRequestRetrievalService transactionRetrieval,
                                       DeutscheMapperService deutscheMapper,
-                                      TransactionsForBatchRepository transactions) {
+                                      TransactionsForBatchRepository transactions,
+                                      BatchProgressService progress,
+                                      @Qualifier("bankIoExecutor") ExecutorService bankIoExecutor) {
         this.tokenRenewal = tokenRenewal;
         this.transactionRetrieval = transactionRetrieval;
         this.deutscheMapper = deutscheMapper;
         this.transactions = transactions;
+        this.progress = progress;
+        this.bankIoExecutor = bankIoExecutor;
     }
 
     @Override
@@ -65,21 +81,33 @@ public class DeutscheTransactionService implements TransactionService {
         String accessToken = tokenRenewal.getToken();
         JavaType type = new ObjectMapper().getTypeFactory().constructCollectionType(List.class, DeutscheTransaction.class);
 
-        logger.info("Constructing and validating Deutsche Bank transactions");
-        return ibans.stream()
-                .flatMap(current -> {
+        // one request per IBAN, all in flight at once; results keep the order of the IBANs
+        List<CompletableFuture<List<Transaction>>> responses = ibans.stream()
+                .map(current -> CompletableFuture.supplyAsync(() -> {
                     try {
-                        return transactionRetrieval
-                                .retrieveTransactions(accessToken, UriComponentsBuilder
-                                        .fromUriString(transactionUrl)
-                                        .queryParam("iban", current)
-                                        .toUriString(), type)
-                                .stream()
-                                .map(transaction -> deutscheMapper.toGeneralTransaction((DeutscheTransaction) transaction));
+                        return transactionRetrieval.retrieveTransactions(accessToken, UriComponentsBuilder
+                                .fromUriString(transactionUrl)
+                                .queryParam("iban", current)
+                                .toUriString(), type);
                     } catch (JsonProcessingException exception) {
                         throw new JsonProcessingExceptionLambdaWrapper(exception.getMessage());
                     }
+                }, bankIoExecutor))
+                .collect(Collectors.toList());
+
+        logger.info("Constructing and validating Deutsche Bank transactions");
+        return responses.stream()
+                .flatMap(response -> {
+                    try {
+                        return response.join().stream();
+                    } catch (CompletionException exception) {
+                        if (exception.getCause() instanceof RuntimeException) {
+                            throw (RuntimeException) exception.getCause();
+                        }
+                        throw exception;
+                    }
                 })
+                .map(transaction -> deutscheMapper.toGeneralTransaction((DeutscheTransaction) transaction))
                 .collect(Collectors.toList());
     }
 
@@ -91,52 +119,67 @@ public class DeutscheTransactionService implements TransactionService {
         }
 
         List<DeutschePayment> parsedPayments = new ArrayList<>();
-
-        logger.info("Constructing and validating Deutsche Bank payments");
-        payments.forEach(payment -> parsedPayments.add(deutscheMapper.toDeutschePayment(payment)));
-
-        List<PaymentResponse> responses;
-
+        String token;
         try {
-            responses = transactionRetrieval.pushPayments(
-                    tokenRenewal.getToken(),
-                    paymentUrl,
-                    parsedPayments,
-                    new ObjectMapper().getTypeFactory().constructType(DeutschePaymentResponse.class));
-        } catch (HttpClientErrorException | HttpServerErrorException exception) {
-            logger.error("An HTTP error caused payment failure");
-            saveFailedStatus(payments.get(0));
-            return new ArrayList<>();
+            // checked before they were enqueued
+            logger.info("Constructing Deutsche Bank payments");
+            payments.forEach(payment -> parsedPayments.add(deutscheMapper.toValidatedDeutschePayment(payment)));
+            token = tokenRenewal.getToken();
+        } catch (RuntimeException exception) {
+            throw new PaymentNotSentException("The " + payments.size() + " Deutsche Bank payments were not sent: "
+                    + exception.getMessage(), exception);
         }
 
-        TransactionStatusCheck status = new TransactionStatusCheck();
-        status.setPaymentId(responses.get(0).getPaymentId());
-        status.setTransactionStatus(responses.get(0).getStatus());
-        status.setBatchId(payments.get(0).getBatchId());
-        status.setBank(Bank.DEUTSCHE);
-        status.setSourceAccount(payments.get(0).getSourceAccount());
-        status.setDestinationAccount(payments.get(0).getDestinationAccount());
-        status.setAmount(payments.get(0).getAmount());
+        // one response per payment, the ones the bank accepted keep their ids whatever happened to the others
+        List<PaymentResponse> responses = transactionRetrieval.pushPayments(
+                token,
+                paymentUrl,
+                parsedPayments,
+                new ObjectMapper().getTypeFactory().constructType(DeutschePaymentResponse.class));
+
+        List<TransactionStatusCheck> statuses = new ArrayList<>(payments.size());
+        for (int index = 0; index < payments.size(); index++) {
+            statuses.addAll(PaymentNettingService.statusesOf(
+                    toStatus(payments.get(index), parsedPayments.get(index), responses.get(index)), payments.get(index)));
+        }
 
-        logger.info("Saving the new payment identification and status");
-        transactions.save(status);
+        logger.info("Saving the identification and status of {} payments", statuses.size());
+        transactions.saveAll(statuses);
+        statuses.forEach(progress::recordStatus);
 
-        return new ArrayList<>();
+        return responses;
     }
 
-    private void saveFailedStatus(GeneralPayment payment) {
-        logger.warn("Saving an entry for a Deutsche Bank payment that failed");
+    @Override
+    public String retrievePaymentStatus(String paymentId) throws JsonProcessingException {
+        return transactionRetrieval.retrievePaymentStatus(tokenRenewal.getToken(),
+                UriComponentsBuilder.fromUriString(paymentStatusUrl).buildAndExpand(paymentId).toUriString(),
+                new ObjectMapper().getTypeFactory().constructType(DeutschePaymentResponse.class)).getStatus();
+    }
 
+    private TransactionStatusCheck toStatus(GeneralPayment payment, DeutschePayment parsedPayment, PaymentResponse response) {
         TransactionStatusCheck status = new TransactionStatusCheck();
-        status.setPaymentId(Constants.DISPLAY_FAILED_PAYMENT_ID + Instant.now().toEpochMilli());
-        status.setTransactionStatus(Constants.DISPLAY_FAILED_PAYMENT_STATUS);
+        status.setPaymentId(response.getPaymentId());
+        status.setTransactionStatus(response.getStatus());
         status.setBatchId(payment.getBatchId());
         status.setBank(Bank.DEUTSCHE);
         status.setSourceAccount(payment.getSourceAccount());
         status.setDestinationAccount(payment.getDestinationAccount());
         status.setAmount(payment.getAmount());
 
-        transactions.save(status);
+        if (response instanceof FailedPaymentResponse) {
+            logger.warn("Saving an entry for a Deutsche Bank payment that failed");
+        } else {
+            status.setRequestId(parsedPayment.getEndToEndIdentification());
+            status.setSubmittedAt(Instant.now().toEpochMilli());
+            // without the bank's id there is nothing to look up; a sync reconciles it by its request id
+            if (response instanceof UnknownPaymentResponse) {
+                logger.warn("Saving an entry for a Deutsche Bank payment the bank didn't answer");
+            } else {
+                status.setNextPollAt(status.getSubmittedAt() + firstPollDelayMillis);
+            }
+        }
+        return status;
     }
 
     @Override
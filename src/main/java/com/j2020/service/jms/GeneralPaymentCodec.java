@@ -0,0 +1,262 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service.jms;
+
+import com.j2020.model.Bank;
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.Money;
+import com.j2020.model.PaymentPriority;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Binary form of a {@link GeneralPayment} for {@code BytesMessage} bodies. The first byte is the format version;
+ * readers accept every version up to {@link #VERSION}, so nodes are upgraded before any of them writes a newer one.
+ *
+ * <p>Version 1: a varint bit set of the fields present, then those fields in the order of the bits. Strings are a
+ * varint length and UTF-8 bytes, numbers are varints (amounts zigzag encoded, in minor units). The amount's currency
+ * is only written when it differs from the payment's. The {@code additionalInfo} keys the banks read are written as
+ * one byte tags, any other key as a string.
+ *
+ * <p>Version 2 adds netted payments: nested payments, each prefixed with its length. Only a transfer that carries them
+ * is written as version 2, so a node that reads up to version 1 refuses it instead of delivering the transfer without
+ * the payments it settles; every other payment stays version 1.
+ */
+public final class GeneralPaymentCodec {
+    public static final byte VERSION = 2;
+
+    private static final byte NETTED_VERSION = 2;
+
+    private static final int SOURCE_ACCOUNT = 1;
+    private static final int DESTINATION_ACCOUNT = 1 << 1;
+    private static final int CURRENCY = 1 << 2;
+    private static final int AMOUNT = 1 << 3;
+    private static final int AMOUNT_CURRENCY = 1 << 4;
+    private static final int BATCH_ID = 1 << 5;
+    private static final int BANK = 1 << 6;
+    private static final int SEQUENCE = 1 << 7;
+    private static final int ADDITIONAL_INFO = 1 << 8;
+    // written last, so a reader that doesn't know it yet only leaves trailing bytes unread
+    private static final int PRIORITY = 1 << 9;
+    private static final int NETTED_PAYMENTS = 1 << 10;
+
+    // tag 0 is a key written out as a string; new keys are only ever appended
+    private static final String[] KNOWN_KEYS = {null, "reference", "counterparty", "creditorName"};
+
+    private GeneralPaymentCodec() {
+    }
+
+    public static byte[] encode(GeneralPayment payment) {
+        Money amount = payment.getAmount();
+        int fields = (payment.getSourceAccount() != null ? SOURCE_ACCOUNT : 0)
+                | (payment.getDestinationAccount() != null ? DESTINATION_ACCOUNT : 0)
+                | (payment.getCurrency() != null ? CURRENCY : 0)
+                | (amount != null ? AMOUNT : 0)
+                | (amount != null && !amount.getCurrencyCode().equals(payment.getCurrency()) ? AMOUNT_CURRENCY : 0)
+                | (payment.getBatchId() != null ? BATCH_ID : 0)
+                | (payment.getBank() != null ? BANK : 0)
+                | (payment.getSequence() != null ? SEQUENCE : 0)
+                | (payment.getAdditionalInfo() != null ? ADDITIONAL_INFO : 0)
+                | (payment.getPriority() != null ? PRIORITY : 0)
+                | (payment.getNettedPayments() != null ? NETTED_PAYMENTS : 0);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(96);
+        output.write((fields & NETTED_PAYMENTS) != 0 ? NETTED_VERSION : 1);
+        writeVarLong(output, fields);
+        if ((fields & SOURCE_ACCOUNT) != 0) {
+            writeString(output, payment.getSourceAccount());
+        }
+        if ((fields & DESTINATION_ACCOUNT) != 0) {
+            writeString(output, payment.getDestinationAccount());
+        }
+        if ((fields & CURRENCY) != 0) {
+            writeString(output, payment.getCurrency());
+        }
+        if ((fields & AMOUNT) != 0) {
+            writeVarLong(output, (amount.getMinorUnits() << 1) ^ (amount.getMinorUnits() >> 63));
+        }
+        if ((fields & AMOUNT_CURRENCY) != 0) {
+            writeString(output, amount.getCurrencyCode());
+        }
+        if ((fields & BATCH_ID) != 0) {
+            writeVarLong(output, payment.getBatchId());
+        }
+        if ((fields & BANK) != 0) {
+            // by name, so reordering the enum doesn't change the meaning of queued messages
+            writeString(output, payment.getBank().name());
+        }
+        if ((fields & SEQUENCE) != 0) {
+            writeVarLong(output, payment.getSequence());
+        }
+        if ((fields & ADDITIONAL_INFO) != 0) {
+            // a key without a value reads the same as a missing key
+            writeVarLong(output, payment.getAdditionalInfo().values().stream().filter(Objects::nonNull).count());
+            for (Map.Entry<String, String> entry : payment.getAdditionalInfo().entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                int tag = tagOf(entry.getKey());
+                output.write(tag);
+                if (tag == 0) {
+                    writeString(output, entry.getKey());
+                }
+                writeString(output, entry.getValue());
+            }
+        }
+        if ((fields & PRIORITY) != 0) {
+            writeString(output, payment.getPriority().name());
+        }
+        if ((fields & NETTED_PAYMENTS) != 0) {
+            writeVarLong(output, payment.getNettedPayments().size());
+            for (GeneralPayment netted : payment.getNettedPayments()) {
+                byte[] encoded = encode(netted);
+                writeVarLong(output, encoded.length);
+                output.write(encoded, 0, encoded.length);
+            }
+        }
+
+        return output.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a payment of a version this node can read
+     */
+    public static GeneralPayment decode(byte[] encoded) {
+        return decode(encoded, VERSION);
+    }
+
+    /**
+     * Reads the bytes as a node that reads up to {@code newestVersion} would.
+     *
+     * @throws IllegalArgumentException if the bytes are not a payment of a version up to {@code newestVersion}
+     */
+    public static GeneralPayment decode(byte[] encoded, int newestVersion) {
+        ByteBuffer input = ByteBuffer.wrap(encoded);
+        try {
+            byte version = input.get();
+            if (version < 1 || version > newestVersion || version > VERSION) {
+                throw new IllegalArgumentException("Payment format version " + version + " is not supported, "
+                        + "this node reads up to version " + Math.min(newestVersion, VERSION));
+            }
+
+            int fields = (int) readVarLong(input);
+            if (version < NETTED_VERSION && (fields & NETTED_PAYMENTS) != 0) {
+                throw new IllegalArgumentException("Payment format version " + version + " has no netted payments");
+            }
+            GeneralPayment payment = new GeneralPayment();
+            if ((fields & SOURCE_ACCOUNT) != 0) {
+                payment.setSourceAccount(readString(input));
+            }
+            if ((fields & DESTINATION_ACCOUNT) != 0) {
+                payment.setDestinationAccount(readString(input));
+            }
+            String currency = (fields & CURRENCY) != 0 ? readString(input) : null;
+            if ((fields & AMOUNT) != 0) {
+                long zigzag = readVarLong(input);
+                long minorUnits = (zigzag >>> 1) ^ -(zigzag & 1);
+                payment.setAmount(Money.ofMinor(minorUnits, (fields & AMOUNT_CURRENCY) != 0 ? readString(input) : currency));
+            }
+            // after the amount, which sets the currency to its own
+            payment.setCurrency(currency);
+            if ((fields & BATCH_ID) != 0) {
+                payment.setBatchId(readVarLong(input));
+            }
+            if ((fields & BANK) != 0) {
+                payment.setBank(Bank.valueOf(readString(input)));
+            }
+            if ((fields & SEQUENCE) != 0) {
+                payment.setSequence((int) readVarLong(input));
+            }
+            if ((fields & ADDITIONAL_INFO) != 0) {
+                int size = (int) readVarLong(input);
+                Map<String, String> additionalInfo = new HashMap<>();
+                for (int index = 0; index < size; index++) {
+                    int tag = input.get();
+                    if (tag < 0 || tag >= KNOWN_KEYS.length) {
+                        throw new IllegalArgumentException("Unknown additionalInfo key tag " + tag);
+                    }
+                    String key = tag == 0 ? readString(input) : KNOWN_KEYS[tag];
+                    additionalInfo.put(key, readString(input));
+                }
+                payment.setAdditionalInfo(additionalInfo);
+            }
+            if ((fields & PRIORITY) != 0) {
+                payment.setPriority(PaymentPriority.valueOf(readString(input)));
+            }
+            if ((fields & NETTED_PAYMENTS) != 0) {
+                int size = (int) readVarLong(input);
+                List<GeneralPayment> nettedPayments = new ArrayList<>();
+                for (int index = 0; index < size; index++) {
+                    int length = (int) readVarLong(input);
+                    if (length < 0 || length > input.remaining()) {
+                        throw new BufferUnderflowException();
+                    }
+                    nettedPayments.add(decode(Arrays.copyOfRange(encoded, input.position(), input.position() + length),
+                            newestVersion));
+                    input.position(input.position() + length);
+                }
+                payment.setNettedPayments(nettedPayments);
+            }
+
+            return payment;
+        } catch (BufferUnderflowException exception) {
+            throw new IllegalArgumentException("Payment of " + encoded.length + " bytes is truncated");
+        }
+    }
+
+    private static int tagOf(String key) {
+        for (int tag = 1; tag < KNOWN_KEYS.length; tag++) {
+            if (KNOWN_KEYS[tag].equals(key)) {
+                return tag;
+            }
+        }
+        return 0;
+    }
+
+    private static void writeString(ByteArrayOutputStream output, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(output, bytes.length);
+        output.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer input) {
+        int length = (int) readVarLong(input);
+        if (length < 0 || length > input.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(input.array(), input.position(), length, StandardCharsets.UTF_8);
+        input.position(input.position() + length);
+        return value;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream output, long value) {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer input) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte current = input.get();
+            value |= (long) (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable length number");
+    }
+}
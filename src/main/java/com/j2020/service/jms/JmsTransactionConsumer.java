@@ -6,42 +6,115 @@ package com.j2020.service.jms;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.j2020.Constants;
-import com.j2020.model.BatchOfPayments;
-import com.j2020.model.GeneralPayment;
+import com.j2020.model.*;
+import com.j2020.model.exception.PaymentNotSentException;
 import com.j2020.repository.PaymentBatchRepository;
 import com.j2020.repository.TransactionsForBatchRepository;
 import com.j2020.service.BankingServiceFactory;
+import com.j2020.service.BatchProgressService;
+import com.j2020.service.PaymentNettingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.annotation.JmsListener;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
+/**
+ * Pushes queued payments to their banks, one message at a time. A payment is claimed before the push so that a
+ * repeated message doesn't pay it twice. If nothing reached the bank the claim is given up and the message rolled back
+ * for the broker to deliver again, up to {@code jms.maxDeliveries} times; after that, or when the bank may have the
+ * payment, it gets a status of its own so that its batch still completes.
+ */
 @Service
 public class JmsTransactionConsumer {
+    private static final String DELIVERY_COUNT_PROPERTY = "JMSXDeliveryCount";
     private final Logger logger = LoggerFactory.getLogger(JmsTransactionConsumer.class);
     private BankingServiceFactory serviceFactory;
     private PaymentBatchRepository batchRepository;
     private TransactionsForBatchRepository transactions;
+    private BatchProgressService progress;
+    private PaymentDeduplicationService deduplication;
+    private LaneLatencyService latency;
+
+    @Value("${jms.maxDeliveries}")
+    private int maxDeliveries;
 
     public JmsTransactionConsumer(BankingServiceFactory serviceFactory,
                                   PaymentBatchRepository batchRepository,
-                                  TransactionsForBatchRepository transactions) {
+                                  TransactionsForBatchRepository transactions,
+                                  BatchProgressService progress,
+                                  PaymentDeduplicationService deduplication,
+                                  LaneLatencyService latency) {
         this.serviceFactory = serviceFactory;
         this.batchRepository = batchRepository;
         this.transactions = transactions;
+        this.progress = progress;
+        this.deduplication = deduplication;
+        this.latency = latency;
+    }
+
+    @JmsListener(destination = Constants.JMS_URGENT_TRANSACTION_QUEUE, concurrency = "${lanes.urgentConcurrency}")
+    public void onUrgentMessage(GeneralPayment payment,
+                                @Header(name = OutboxRelayService.OUTBOX_ENTRY_PROPERTY, required = false) Long outboxEntryId,
+                                @Header(name = OutboxRelayService.SUBMITTED_AT_PROPERTY, required = false) Long submittedAt,
+                                @Header(name = DELIVERY_COUNT_PROPERTY, required = false) Integer deliveryCount) {
+        process(payment, PaymentPriority.URGENT, outboxEntryId, submittedAt, deliveryCount);
     }
 
+    // with the listener concurrency of spring.jms.listener, like before there were lanes
     @JmsListener(destination = Constants.JMS_TRANSACTION_QUEUE)
-    public void onMessage(GeneralPayment payment) {
+    public void onMessage(GeneralPayment payment,
+                          @Header(name = OutboxRelayService.OUTBOX_ENTRY_PROPERTY, required = false) Long outboxEntryId,
+                          @Header(name = OutboxRelayService.SUBMITTED_AT_PROPERTY, required = false) Long submittedAt,
+                          @Header(name = DELIVERY_COUNT_PROPERTY, required = false) Integer deliveryCount) {
+        process(payment, PaymentPriority.NORMAL, outboxEntryId, submittedAt, deliveryCount);
+    }
+
+    @JmsListener(destination = Constants.JMS_BULK_TRANSACTION_QUEUE, concurrency = "${lanes.bulkConcurrency}")
+    public void onBulkMessage(GeneralPayment payment,
+                              @Header(name = OutboxRelayService.OUTBOX_ENTRY_PROPERTY, required = false) Long outboxEntryId,
+                              @Header(name = OutboxRelayService.SUBMITTED_AT_PROPERTY, required = false) Long submittedAt,
+                              @Header(name = DELIVERY_COUNT_PROPERTY, required = false) Integer deliveryCount) {
+        process(payment, PaymentPriority.BULK, outboxEntryId, submittedAt, deliveryCount);
+    }
+
+    private void process(GeneralPayment payment, PaymentPriority lane, Long outboxEntryId, Long submittedAt, Integer deliveryCount) {
         List<GeneralPayment> toProcess = new ArrayList<>();
         toProcess.add(payment);
         try {
-            logger.info("Consumer received: {}", payment);
-            serviceFactory.retrieveTransactionService(payment.getBank()).createPayments(toProcess);
+            logger.info("Consumer received from the {} lane: {}", lane, payment);
+            if (!deduplication.claim(payment, outboxEntryId)) {
+                logger.warn("Skipping a payment that was already pushed to the bank: {}", payment);
+                return;
+            }
+
+            try {
+                serviceFactory.retrieveTransactionService(payment.getBank()).createPayments(toProcess);
+            } catch (PaymentNotSentException exception) {
+                // the first delivery carries no count
+                int deliveries = deliveryCount == null ? 1 : deliveryCount;
+                if (deliveries < maxDeliveries) {
+                    logger.warn("Delivery {} of {} didn't reach the bank, it is delivered again: {}",
+                            deliveries, payment, exception.getMessage());
+                    deduplication.release(payment);
+                    throw exception;
+                }
+                logger.error("Giving up on {} after {} deliveries: {}", payment, deliveries, exception.getMessage());
+                saveStatus(payment, new FailedPaymentResponse(exception.getMessage()));
+            } catch (RuntimeException exception) {
+                // the bank may have the payment, so it keeps its claim and is left to reconciliation
+                logger.error("Could not record the outcome of {}: {}", payment, exception.getMessage());
+                saveStatus(payment, new UnknownPaymentResponse(exception.getMessage()));
+            }
+
+            if (submittedAt != null) {
+                latency.record(lane, Instant.now().toEpochMilli() - submittedAt);
+            }
 
             updateBatchCounters(payment.getBatchId());
 
@@ -51,15 +124,29 @@ public class JmsTransactionConsumer {
     }
 
     public void updateBatchCounters(Long batchId) {
-        Optional<BatchOfPayments> batch = batchRepository.findById(batchId);
-        if (batch.isPresent()) {
-            BatchOfPayments batchObject = batch.get();
-            int size = transactions.findAllByBatchId(batchObject.getId()).size();
-            batchObject.setCountOfProcessedPayments(size);
-
+        // only the processed counter is written, a batch still being uploaded gets its total in parallel
+        if (batchRepository.updateCountOfProcessedPayments(batchId, (int) transactions.countByBatchId(batchId)) > 0) {
             logger.info("Updated processed payments counter");
+            batchRepository.findById(batchId).ifPresent(progress::publish);
+        }
+    }
 
-            batchRepository.save(batchObject);
+    private void saveStatus(GeneralPayment payment, PaymentResponse response) {
+        TransactionStatusCheck status = new TransactionStatusCheck();
+        status.setPaymentId(response.getPaymentId());
+        status.setTransactionStatus(response.getStatus());
+        status.setBatchId(payment.getBatchId());
+        status.setBank(payment.getBank());
+        status.setSourceAccount(payment.getSourceAccount());
+        status.setDestinationAccount(payment.getDestinationAccount());
+        status.setAmount(payment.getAmount());
+        if (response instanceof UnknownPaymentResponse) {
+            // matched by accounts and amount once synced
+            status.setSubmittedAt(Instant.now().toEpochMilli());
         }
+
+        List<TransactionStatusCheck> statuses = PaymentNettingService.statusesOf(status, payment);
+        transactions.saveAll(statuses);
+        statuses.forEach(progress::recordStatus);
     }
 }
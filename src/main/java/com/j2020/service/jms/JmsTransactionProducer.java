@@ -4,49 +4,124 @@
 
 package com.j2020.service.jms;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.j2020.Constants;
 import com.j2020.model.BatchOfPayments;
 import com.j2020.model.BatchOfPaymentsMessage;
 import com.j2020.model.GeneralPayment;
+import com.j2020.model.PaymentOutboxEntry;
+import com.j2020.model.PaymentPriority;
+import com.j2020.model.exception.JsonProcessingExceptionLambdaWrapper;
 import com.j2020.repository.PaymentBatchRepository;
+import com.j2020.repository.PaymentOutboxRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.jms.core.JmsTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Records payments in the outbox within the same database transaction as their batch.
+ * {@link OutboxRelayService} moves them to the broker once that transaction has committed. Payments are stored as
+ * JSON, or in the {@link GeneralPaymentCodec} format with {@code jms.binaryPayloads}.
+ */
 @Service
 public class JmsTransactionProducer {
     private static final Logger logger = LoggerFactory.getLogger(JmsTransactionProducer.class);
+    private final ObjectMapper mapper = new ObjectMapper();
     private PaymentBatchRepository batchRepository;
-    private JmsTemplate jmsTemplate;
+    private PaymentOutboxRepository outboxRepository;
+
+    @Value("${jms.binaryPayloads}")
+    private boolean binaryPayloads;
 
-    public JmsTransactionProducer(JmsTemplate jmsTemplate, PaymentBatchRepository batchRepository) {
-        this.jmsTemplate = jmsTemplate;
+    public JmsTransactionProducer(PaymentBatchRepository batchRepository, PaymentOutboxRepository outboxRepository) {
         this.batchRepository = batchRepository;
+        this.outboxRepository = outboxRepository;
     }
 
+    @Transactional
     public BatchOfPaymentsMessage sendPayments(List<GeneralPayment> payments) {
         BatchOfPayments newBatch = new BatchOfPayments();
-        newBatch.setCountOfAllPayments(payments.size());
+        newBatch.setCountOfAllPayments(countOf(payments));
         newBatch.setCountOfProcessedPayments(0);
         BatchOfPayments current = batchRepository.save(newBatch);
 
-        logger.info("Sending to queue {} payments with BOP id {}", payments.size(), current.getId());
-
-        payments.forEach(payment -> {
-            payment.setBatchId(current.getId());
-            logger.info("Producer sending: {}", payment);
-            jmsTemplate.convertAndSend(Constants.JMS_TRANSACTION_QUEUE, payment);
-        });
-
-        logger.info("Returning. All payments are now in queue.");
+        logger.info("Writing {} transfers with BOP id {} to the outbox", payments.size(), current.getId());
+        writeOutbox(current.getId(), payments, 0);
 
         BatchOfPaymentsMessage response = new BatchOfPaymentsMessage();
-        response.setText("Payments are being processed. Check their status with the following batch id.");
+        response.setText(Constants.DISPLAY_BATCH_ACCEPTED_TEXT);
         response.setBatchId(current.getId());
 
         return response;
     }
+
+    /**
+     * Starts a batch whose payments are appended in several transactions. Its total stays unset, so the batch
+     * can't look complete, until {@link #closeBatch} records it.
+     */
+    @Transactional
+    public Long openBatch() {
+        BatchOfPayments newBatch = new BatchOfPayments();
+        newBatch.setCountOfProcessedPayments(0);
+        return batchRepository.save(newBatch).getId();
+    }
+
+    @Transactional
+    public void appendPayments(Long batchId, List<GeneralPayment> payments, int firstSequence) {
+        logger.info("Appending {} payments to BOP id {} in the outbox", payments.size(), batchId);
+        writeOutbox(batchId, payments, firstSequence);
+    }
+
+    @Transactional
+    public Optional<BatchOfPayments> closeBatch(Long batchId, int countOfAllPayments) {
+        batchRepository.updateCountOfAllPayments(batchId, countOfAllPayments);
+        return batchRepository.findById(batchId);
+    }
+
+    private void writeOutbox(Long batchId, List<GeneralPayment> payments, int firstSequence) {
+        long now = Instant.now().toEpochMilli();
+        List<PaymentOutboxEntry> entries = new ArrayList<>(payments.size());
+        for (int index = 0; index < payments.size(); index++) {
+            GeneralPayment payment = payments.get(index);
+            payment.setBatchId(batchId);
+            payment.setSequence(firstSequence + index);
+
+            PaymentOutboxEntry entry = new PaymentOutboxEntry();
+            entry.setBatchId(batchId);
+            entry.setPriority(PaymentPriority.orNormal(payment.getPriority()));
+            if (binaryPayloads) {
+                entry.setBinaryPayload(GeneralPaymentCodec.encode(payment));
+            } else {
+                entry.setPayload(toPayload(payment));
+            }
+            entry.setCreatedAt(now);
+            entries.add(entry);
+        }
+        outboxRepository.saveAll(entries);
+    }
+
+    /**
+     * @return how many payments the transfers stand for, each netted one counting for the payments it was merged from
+     */
+    public static int countOf(List<GeneralPayment> transfers) {
+        return transfers.stream()
+                .mapToInt(transfer -> transfer.getNettedPayments() == null ? 1 : transfer.getNettedPayments().size())
+                .sum();
+    }
+
+    private String toPayload(GeneralPayment payment) {
+        try {
+            return mapper.writeValueAsString(payment);
+        } catch (JsonProcessingException exception) {
+            throw new JsonProcessingExceptionLambdaWrapper(exception.getMessage());
+        }
+    }
 }
@@ -0,0 +1,28 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service.jms;
+
+import com.j2020.Constants;
+import com.j2020.model.revolut.RevolutWebhookEvent;
+import com.j2020.service.revolut.RevolutWebhookService;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Service;
+
+@Service
+public class JmsWebhookConsumer {
+    private RevolutWebhookService revolutWebhooks;
+
+    public JmsWebhookConsumer(RevolutWebhookService revolutWebhooks) {
+        this.revolutWebhooks = revolutWebhooks;
+    }
+
+    // a failed event is redelivered; the other events of its transaction wait for it, see JMSXGroupID
+    @JmsListener(destination = Constants.JMS_REVOLUT_WEBHOOK_QUEUE, concurrency = "${webhooks.concurrency}")
+    public void onRevolutEvent(RevolutWebhookEvent event,
+                               @Header(name = RevolutWebhookService.EVENT_ID_PROPERTY) String eventId) {
+        revolutWebhooks.apply(event, eventId);
+    }
+}
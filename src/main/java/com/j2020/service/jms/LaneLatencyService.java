@@ -0,0 +1,92 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service.jms;
+
+import com.j2020.model.PaymentLaneStatus;
+import com.j2020.model.PaymentPriority;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Measures, per lane, how long payments take from being accepted to being pushed to their bank, against the lane's
+ * {@code lanes.sloMillis}. Counts cover everything this node's consumers processed since it started; percentiles
+ * cover the last {@code lanes.latencySamples} payments of the lane.
+ */
+@Service
+public class LaneLatencyService {
+    private final Map<PaymentPriority, LaneRecorder> recorders = new EnumMap<>(PaymentPriority.class);
+
+    @Value("#{${lanes.sloMillis}}")
+    private Map<String, Long> sloMillis;
+
+    @Value("${lanes.latencySamples}")
+    private int latencySamples;
+
+    @PostConstruct
+    public void init() {
+        for (PaymentPriority lane : PaymentPriority.values()) {
+            recorders.put(lane, new LaneRecorder(latencySamples, sloMillis.get(lane.toString())));
+        }
+    }
+
+    public void record(PaymentPriority lane, long latencyMillis) {
+        recorders.get(lane).record(Math.max(0, latencyMillis));
+    }
+
+    public Map<String, PaymentLaneStatus> getLaneStatuses() {
+        Map<String, PaymentLaneStatus> statuses = new TreeMap<>();
+        recorders.forEach((lane, recorder) -> statuses.put(lane.toString(), recorder.status(lane)));
+        return statuses;
+    }
+
+    private static class LaneRecorder {
+        private final long[] window;
+        private final Long sloMillis;
+        private long payments;
+        private long breaches;
+
+        LaneRecorder(int size, Long sloMillis) {
+            this.window = new long[size];
+            this.sloMillis = sloMillis;
+        }
+
+        synchronized void record(long latencyMillis) {
+            window[(int) (payments % window.length)] = latencyMillis;
+            payments++;
+            if (sloMillis != null && latencyMillis > sloMillis) {
+                breaches++;
+            }
+        }
+
+        synchronized PaymentLaneStatus status(PaymentPriority lane) {
+            PaymentLaneStatus status = new PaymentLaneStatus(lane, sloMillis);
+            status.setPayments(payments);
+            status.setSloBreaches(breaches);
+
+            int sampled = (int) Math.min(payments, window.length);
+            status.setSampledPayments(sampled);
+            if (sampled > 0) {
+                long[] sorted = Arrays.copyOf(window, sampled);
+                Arrays.sort(sorted);
+                status.setP50Millis(percentile(sorted, 0.50));
+                status.setP95Millis(percentile(sorted, 0.95));
+                status.setP99Millis(percentile(sorted, 0.99));
+                status.setMaxMillis(sorted[sampled - 1]);
+            }
+            return status;
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+}
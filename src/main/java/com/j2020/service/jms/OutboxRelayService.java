@@ -0,0 +1,132 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service.jms;
+
+import com.j2020.Constants;
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.PaymentOutboxEntry;
+import com.j2020.model.PaymentPriority;
+import com.j2020.repository.PaymentOutboxRepository;
+import com.j2020.service.LeaderElectionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.jms.BytesMessage;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the payment outbox to the broker. Each chunk goes out in one transacted JMS session, so a chunk is
+ * either fully enqueued or not at all, and is then marked dispatched with a single update. A crash between the
+ * two re-sends the chunk; the outbox entry id travels with every message so consumers can tell repeats apart.
+ * Only the leader node relays, so two nodes never send the same chunk; the consumers compete on every node.
+ * Each payment goes to the queue of its {@link PaymentPriority} lane, the most urgent lanes first.
+ */
+@Service
+public class OutboxRelayService {
+    public static final String OUTBOX_ENTRY_PROPERTY = "outboxEntryId";
+    public static final String SUBMITTED_AT_PROPERTY = "submittedAt";
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelayService.class);
+    private PaymentOutboxRepository outboxRepository;
+    private JmsTemplate jmsTemplate;
+    private LeaderElectionService leadership;
+
+    @Value("${outbox.relayChunkSize}")
+    private int chunkSize;
+
+    @Value("${outbox.retentionHours}")
+    private long retentionHours;
+
+    public OutboxRelayService(PaymentOutboxRepository outboxRepository,
+                              @Qualifier("outboxJmsTemplate") JmsTemplate jmsTemplate,
+                              LeaderElectionService leadership) {
+        this.outboxRepository = outboxRepository;
+        this.jmsTemplate = jmsTemplate;
+        this.leadership = leadership;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relayIntervalMillis}")
+    public void relay() {
+        if (!leadership.isLeader()) {
+            return;
+        }
+
+        List<PaymentOutboxEntry> entries;
+        do {
+            entries = outboxRepository.findByDispatchedFalseOrderByPriorityAscIdAsc(PageRequest.of(0, chunkSize));
+            if (!entries.isEmpty()) {
+                dispatch(entries);
+            }
+        } while (entries.size() == chunkSize);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.cleanupIntervalMillis}")
+    public void removeDispatched() {
+        if (!leadership.isLeader()) {
+            return;
+        }
+
+        int removed = outboxRepository.deleteDispatchedBefore(Instant.now().minus(retentionHours, ChronoUnit.HOURS).toEpochMilli());
+        if (removed > 0) {
+            logger.info("Removed {} dispatched outbox entries", removed);
+        }
+    }
+
+    private void dispatch(List<PaymentOutboxEntry> entries) {
+        jmsTemplate.execute(session -> {
+            Map<PaymentPriority, MessageProducer> producers = new EnumMap<>(PaymentPriority.class);
+            try {
+                for (PaymentOutboxEntry entry : entries) {
+                    PaymentPriority lane = PaymentPriority.orNormal(entry.getPriority());
+                    MessageProducer producer = producers.get(lane);
+                    if (producer == null) {
+                        producer = session.createProducer(session.createQueue(lane.getQueue()));
+                        producers.put(lane, producer);
+                    }
+
+                    Message message;
+                    if (entry.getBinaryPayload() != null) {
+                        BytesMessage bytesMessage = session.createBytesMessage();
+                        bytesMessage.writeBytes(entry.getBinaryPayload());
+                        message = bytesMessage;
+                    } else {
+                        message = session.createTextMessage(entry.getPayload());
+                    }
+                    message.setStringProperty(Constants.JMS_TYPE_ID_PROPERTY, GeneralPayment.class.getName());
+                    message.setLongProperty(OUTBOX_ENTRY_PROPERTY, entry.getId());
+                    message.setLongProperty(SUBMITTED_AT_PROPERTY, entry.getCreatedAt());
+                    producer.send(message);
+                }
+                session.commit();
+            } catch (Exception exception) {
+                session.rollback();
+                throw exception;
+            } finally {
+                for (MessageProducer producer : producers.values()) {
+                    producer.close();
+                }
+            }
+            return null;
+        }, true);
+
+        outboxRepository.markDispatched(entries.stream().map(PaymentOutboxEntry::getId).collect(Collectors.toList()),
+                Instant.now().toEpochMilli());
+
+        logger.info("Relayed {} payments from the outbox", entries.size());
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service.jms;
+
+import com.j2020.model.GeneralPayment;
+import com.j2020.repository.PaymentFingerprintRepository;
+import com.j2020.service.BloomFilter;
+import com.j2020.service.LeaderElectionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Makes sure a payment is pushed to a bank once, even when its message is delivered again, e.g. after a crash
+ * between the push and the acknowledgement or to another node. Before the push the consumer claims the payment by
+ * inserting its fingerprint together with the id of the outbox entry that carried it; the primary key and the unique
+ * entry id let exactly one claim succeed on any node, and every later delivery is dropped. A Bloom filter of the
+ * payments this node claimed answers its own redeliveries without a failing insert; it is seeded from the table on
+ * start-up and rebuilt when expired fingerprints are removed.
+ */
+@Service
+public class PaymentDeduplicationService {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentDeduplicationService.class);
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int FINGERPRINT_BYTES = 16;
+
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(PaymentDeduplicationService::newDigest);
+    private PaymentFingerprintRepository fingerprints;
+    private LeaderElectionService leadership;
+    private volatile BloomFilter filter;
+
+    @Value("${dedup.expectedPayments}")
+    private long expectedPayments;
+
+    @Value("${dedup.falsePositiveRate}")
+    private double falsePositiveRate;
+
+    @Value("${dedup.retentionHours}")
+    private long retentionHours;
+
+    public PaymentDeduplicationService(PaymentFingerprintRepository fingerprints, LeaderElectionService leadership) {
+        this.fingerprints = fingerprints;
+        this.leadership = leadership;
+    }
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * @param outboxEntryId the entry the relay sent the payment from, null for messages sent without the outbox
+     * @return false when the payment was claimed before, by this node or another, and must not be pushed
+     */
+    public boolean claim(GeneralPayment payment, Long outboxEntryId) {
+        byte[] fingerprint = fingerprint(payment);
+        String key = toHex(fingerprint);
+        if (filter.mightContain(firstHash(fingerprint), secondHash(fingerprint)) && fingerprints.existsById(key)) {
+            return false;
+        }
+
+        try {
+            fingerprints.claim(key, payment.getBatchId(), outboxEntryId, Instant.now().toEpochMilli());
+        } catch (DataIntegrityViolationException exception) {
+            return false;
+        }
+
+        filter.put(firstHash(fingerprint), secondHash(fingerprint));
+        return true;
+    }
+
+    /**
+     * Gives up the claim of a payment that never reached the bank, so that its next delivery pushes it. The filter
+     * keeps the payment, which only costs that delivery a lookup.
+     */
+    public void release(GeneralPayment payment) {
+        fingerprints.release(toHex(fingerprint(payment)));
+    }
+
+    @Scheduled(fixedDelayString = "${dedup.cleanupIntervalMillis}", initialDelayString = "${dedup.cleanupIntervalMillis}")
+    public void removeExpired() {
+        if (!leadership.isLeader()) {
+            // the leader deletes the expired fingerprints, the other nodes only drop them from their filters
+            rebuild();
+            return;
+        }
+
+        int removed = fingerprints.deleteCreatedBefore(Instant.now().minus(retentionHours, ChronoUnit.HOURS).toEpochMilli());
+        if (removed > 0) {
+            logger.info("Removed {} expired payment fingerprints, rebuilding the filter", removed);
+            rebuild();
+        }
+    }
+
+    private synchronized void rebuild() {
+        long startedAt = Instant.now().toEpochMilli();
+        BloomFilter fresh = new BloomFilter(expectedPayments, falsePositiveRate);
+        load(fresh, Instant.now().minus(retentionHours, ChronoUnit.HOURS).toEpochMilli());
+
+        filter = fresh;
+        // anything claimed into the previous filter while loading
+        load(fresh, startedAt);
+    }
+
+    private void load(BloomFilter target, long since) {
+        for (String fingerprint : fingerprints.findFingerprintsCreatedSince(since)) {
+            target.put(Long.parseUnsignedLong(fingerprint.substring(0, 16), 16),
+                    Long.parseUnsignedLong(fingerprint.substring(16, 32), 16));
+        }
+    }
+
+    private byte[] fingerprint(GeneralPayment payment) {
+        String canonical = payment.getBatchId() + "|" + payment.getSourceAccount() + "|" + payment.getDestinationAccount()
+                + "|" + payment.getAmount() + "|" + payment.getCurrency() + "|" + payment.getSequence();
+
+        MessageDigest digest = digests.get();
+        digest.reset();
+        return digest.digest(canonical.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long firstHash(byte[] fingerprint) {
+        return readLong(fingerprint, 0);
+    }
+
+    private static long secondHash(byte[] fingerprint) {
+        return readLong(fingerprint, 8);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int index = offset; index < offset + 8; index++) {
+            value = (value << 8) | (bytes[index] & 0xFF);
+        }
+        return value;
+    }
+
+    private static String toHex(byte[] fingerprint) {
+        char[] hex = new char[FINGERPRINT_BYTES * 2];
+        for (int index = 0; index < FINGERPRINT_BYTES; index++) {
+            hex[index * 2] = HEX_DIGITS[(fingerprint[index] >> 4) & 0xF];
+            hex[index * 2 + 1] = HEX_DIGITS[fingerprint[index] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service.jms;
+
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+/**
+ * Reads payments in either format on the queue: {@link GeneralPaymentCodec} bytes from a {@code BytesMessage}, and
+ * everything else through the JSON converter. Writing always goes through the JSON converter; the outbox relay
+ * builds the binary messages itself.
+ */
+public class PaymentMessageConverter implements MessageConverter {
+    private final MessageConverter jsonConverter;
+
+    public PaymentMessageConverter(MessageConverter jsonConverter) {
+        this.jsonConverter = jsonConverter;
+    }
+
+    @Override
+    public Message toMessage(Object object, Session session) throws JMSException {
+        return jsonConverter.toMessage(object, session);
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException {
+        if (!(message instanceof BytesMessage)) {
+            return jsonConverter.fromMessage(message);
+        }
+
+        BytesMessage bytesMessage = (BytesMessage) message;
+        byte[] body = new byte[(int) bytesMessage.getBodyLength()];
+        bytesMessage.readBytes(body);
+        try {
+            return GeneralPaymentCodec.decode(body);
+        } catch (IllegalArgumentException exception) {
+            throw new MessageConversionException("Unreadable payment message " + message.getJMSMessageID(), exception);
+        }
+    }
+}
@@ -7,6 +7,7 @@ package com.j2020.service.revolut;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.j2020.ExecutorConfiguration;
 import com.j2020.model.Account;
 import com.j2020.model.Bank;
 import com.j2020.model.GeneralAccount;
@@ -15,11 +16,13 @@ import com.j2020.service.AccountRequestRetrievalService;
 import com.j2020.service.AccountService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 @Service
 public class RevolutAccountService implements AccountService {
@@ -27,16 +30,19 @@ public class RevolutAccountService implements AccountService {
     private final RevolutTokenService tokenRenewal;
     private final AccountRequestRetrievalService accountRetrieval;
     private final RevolutMapperService revolutMapper;
+    private final ExecutorService bankIoExecutor;
 
     @Value("${revolutAccount.accountUrl}")
     private String accountUrl;
 
     public RevolutAccountService(RevolutTokenService tokenRenewal,
                                  AccountRequestRetrievalService accountRetrieval,
-                                 RevolutMapperService revolutMapper) {
+                                 RevolutMapperService revolutMapper,
+                                 @Qualifier("bankIoExecutor") ExecutorService bankIoExecutor) {
         this.tokenRenewal = tokenRenewal;
         this.accountRetrieval = accountRetrieval;
         this.revolutMapper = revolutMapper;
+        this.bankIoExecutor = bankIoExecutor;
     }
 
     @Override
@@ -45,7 +51,8 @@ public class RevolutAccountService implements AccountService {
         String oauthToken = tokenRenewal.getToken();
         JavaType type = new ObjectMapper().getTypeFactory().constructCollectionType(List.class, RevolutAccount.class);
 
-        List<Account> response = accountRetrieval.retrieveAccounts(oauthToken, accountUrl, type);
+        List<Account> response = ExecutorConfiguration.callOn(bankIoExecutor,
+                () -> accountRetrieval.retrieveAccounts(oauthToken, accountUrl, type));
         List<GeneralAccount> parsedAccounts = new ArrayList<>();
 
         logger.info("Constructing and validating Revolut accounts");
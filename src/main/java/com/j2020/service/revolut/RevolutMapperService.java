@@ -9,23 +9,29 @@ import com.j2020.model.exception.MissingPaymentRequestDataException;
 import com.j2020.model.revolut.RevolutAccount;
 import com.j2020.model.revolut.RevolutPayment;
 import com.j2020.model.revolut.RevolutTransaction;
+import com.j2020.model.revolut.RevolutTransactionLeg;
 import com.j2020.model.revolut.RevolutTransactionLegCounterparty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class RevolutMapperService {
     private static final Logger logger = LoggerFactory.getLogger(RevolutMapperService.class);
 
     public GeneralTransaction toGeneralTransaction(RevolutTransaction transaction) {
+        RevolutTransactionLeg leg = transaction.getRevolutLegs().get(0);
+
         GeneralTransaction result = new GeneralTransaction();
         result.setTransactionId(transaction.getId());
-        result.setOrigin(transaction.getRevolutLegs().get(0).getAccountId());
-        result.setCreditor(transaction.getRevolutLegs().get(0).getCounterparty() != null ? transaction.getRevolutLegs().get(0).getCounterparty().getAccountId() : null);
-        result.setAmount(transaction.getRevolutLegs().get(0).getAmount());
+        result.setOrigin(leg.getAccountId());
+        result.setCreditor(leg.getCounterparty() != null ? leg.getCounterparty().getAccountId() : null);
+        result.setAmount(toMoney(leg.getAmount(), leg.getCurrency(), transaction));
         result.setType(transaction.getType());
         result.setState(transaction.getState());
         result.setRequestId(transaction.getRequestId());
@@ -39,7 +45,7 @@ public class RevolutMapperService {
     public GeneralAccount toGeneralAccount(RevolutAccount account) {
         GeneralAccount result = new GeneralAccount();
         result.setAccountId(account.getAccountId());
-        result.setBalance(account.getBalance());
+        result.setBalance(toMoney(account.getBalance(), account.getCurrency(), account));
         result.setCurrency(account.getCurrency());
         result.setDescription(account.getName());
         result.setType(account.getState());
@@ -48,42 +54,72 @@ public class RevolutMapperService {
         return result;
     }
 
+    /**
+     * What the payment lacks for Revolut, phrased to follow "has"; empty when it can be paid.
+     */
+    public List<String> validate(GeneralPayment payment) {
+        List<String> problems = new ArrayList<>();
+        if (payment.getAmount() == null) {
+            problems.add("no amount specified");
+        }
+        if (payment.getSourceAccount() == null) {
+            problems.add("no source account specified");
+        }
+        if (payment.getDestinationAccount() == null) {
+            problems.add("no destination account specified");
+        }
+        if (payment.getCurrency() == null) {
+            problems.add("no currency specified");
+        }
+
+        Map<String, String> additionalInfo = payment.getAdditionalInfo();
+        if (additionalInfo == null || additionalInfo.get("reference") == null) {
+            problems.add("no reference specified under 'additionalInfo'");
+        }
+        if (additionalInfo == null || additionalInfo.get("counterparty") == null) {
+            problems.add("no counterparty specified under 'additionalInfo'");
+        }
+
+        return problems;
+    }
+
     public RevolutPayment toRevolutPayment(GeneralPayment payment) {
         logger.info("Attempting to construct RevolutPayment out of {}", payment);
 
-        RevolutPayment result = new RevolutPayment();
-
-        Float amount = Optional.ofNullable(payment.getAmount())
-                .orElseThrow(() -> new MissingPaymentRequestDataException(payment + " has no amount specified"));
-        String source = Optional.ofNullable(payment.getSourceAccount())
-                .orElseThrow(() -> new MissingPaymentRequestDataException(payment + " has no source account specified"));
-        String destination = Optional.ofNullable(payment.getDestinationAccount())
-                .orElseThrow(() -> new MissingPaymentRequestDataException(payment + " has no destination account specified"));
-        String currency = Optional.ofNullable(payment.getCurrency())
-                .orElseThrow(() -> new MissingPaymentRequestDataException(payment + " has no currency specified"));
-
-        String reference;
-        String counterparty;
-
-        if (payment.getAdditionalInfo() != null) {
-            reference = Optional.ofNullable(payment.getAdditionalInfo().get("reference"))
-                    .orElseThrow(() -> new MissingPaymentRequestDataException(payment + " has no reference specified under 'additionalInfo'"));
-            counterparty = Optional.ofNullable(payment.getAdditionalInfo().get("counterparty"))
-                    .orElseThrow(() -> new MissingPaymentRequestDataException(payment + " has no counterparty specified under 'additionalInfo'"));
-        } else {
-            throw new MissingPaymentRequestDataException(payment + " has no reference and counterparty specified under 'additionalInfo'");
+        List<String> problems = validate(payment);
+        if (!problems.isEmpty()) {
+            throw new MissingPaymentRequestDataException(payment + " has " + String.join(", ", problems));
         }
 
+        return toValidatedRevolutPayment(payment);
+    }
+
+    /**
+     * For payments {@link #validate} has passed already, as every payment taken off the queue has.
+     */
+    public RevolutPayment toValidatedRevolutPayment(GeneralPayment payment) {
         RevolutTransactionLegCounterparty receiver = new RevolutTransactionLegCounterparty();
-        receiver.setAccountId(destination);
-        receiver.setCounterpartyId(counterparty);
+        receiver.setAccountId(payment.getDestinationAccount());
+        receiver.setCounterpartyId(payment.getAdditionalInfo().get("counterparty"));
 
-        result.setAccountId(source);
-        result.setReference(reference);
-        result.setAmount(amount);
-        result.setCurrency(currency);
+        RevolutPayment result = new RevolutPayment();
+        result.setAccountId(payment.getSourceAccount());
+        result.setReference(payment.getAdditionalInfo().get("reference"));
+        result.setAmount(payment.getAmount());
+        result.setCurrency(payment.getCurrency());
         result.setReceiver(receiver);
 
         return result;
     }
+
+    private static Money toMoney(BigDecimal amount, String currencyCode, Object row) {
+        Money result = Money.ofReported(amount, currencyCode);
+        if (result == null && amount != null) {
+            logger.warn("Leaving out the amount {} {} of {}", amount, currencyCode, row);
+        } else if (result != null && result.toBigDecimal().compareTo(amount) != 0) {
+            logger.warn("Rounded the amount {} {} of {} to {}", amount, currencyCode, row, result);
+        }
+
+        return result;
+    }
 }
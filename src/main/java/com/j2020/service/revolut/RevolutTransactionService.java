@@ -7,24 +7,28 @@ package com.j2020.service.revolut;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.j2020.Constants;
+import com.j2020.ExecutorConfiguration;
 import com.j2020.model.*;
+import com.j2020.model.exception.PaymentNotSentException;
 import com.j2020.model.revolut.RevolutPayment;
 import com.j2020.model.revolut.RevolutPaymentResponse;
 import com.j2020.model.revolut.RevolutTransaction;
 import com.j2020.repository.TransactionsForBatchRepository;
+import com.j2020.service.BatchProgressService;
+import com.j2020.service.PaymentNettingService;
 import com.j2020.service.TransactionRequestRetrievalService;
 import com.j2020.service.TransactionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 @Service
 public class RevolutTransactionService implements TransactionService {
@@ -33,6 +37,8 @@ public class RevolutTransactionService implements TransactionService {
     private final TransactionRequestRetrievalService transactionRetrieval;
     private final RevolutMapperService revolutMapper;
     private TransactionsForBatchRepository transactions;
+    private BatchProgressService progress;
+    private ExecutorService bankIoExecutor;
 
     @Value("${revolutTransaction.transactionUrl}")
     private String transactionUrl;
@@ -40,14 +46,24 @@ public class RevolutTransactionService implements TransactionService {
     @Value("${revolutTransaction.paymentUrl}")
     private String paymentUrl;
 
+    @Value("${revolutTransaction.paymentStatusUrl}")
+    private String paymentStatusUrl;
+
+    @Value("${statusPoll.firstDelayMillis}")
+    private long firstPollDelayMillis;
+
     public RevolutTransactionService(RevolutTokenService tokenRenewal,
                                      TransactionRequestRetrievalService transactionRetrieval,
                                      RevolutMapperService revolutMapper,
-                                     TransactionsForBatchRepository transactions) {
+                                     TransactionsForBatchRepository transactions,
+                                     BatchProgressService progress,
+                                     @Qualifier("bankIoExecutor") ExecutorService bankIoExecutor) {
         this.tokenRenewal = tokenRenewal;
         this.transactionRetrieval = transactionRetrieval;
         this.revolutMapper = revolutMapper;
         this.transactions = transactions;
+        this.progress = progress;
+        this.bankIoExecutor = bankIoExecutor;
     }
 
     @Override
@@ -55,7 +71,8 @@ public class RevolutTransactionService implements TransactionService {
         String oauthToken = tokenRenewal.getToken();
         JavaType type = new ObjectMapper().getTypeFactory().constructCollectionType(List.class, RevolutTransaction.class);
 
-        List<Transaction> response = transactionRetrieval.retrieveTransactions(oauthToken, transactionUrl, type);
+        List<Transaction> response = ExecutorConfiguration.callOn(bankIoExecutor,
+                () -> transactionRetrieval.retrieveTransactions(oauthToken, transactionUrl, type));
         List<GeneralTransaction> parsedTransactions = new ArrayList<>();
 
         logger.info("Constructing and validating Revolut transactions");
@@ -72,52 +89,69 @@ public class RevolutTransactionService implements TransactionService {
         }
 
         List<RevolutPayment> parsedPayments = new ArrayList<>();
-
-        logger.info("Constructing and validating Revolut payments");
-        payments.forEach(payment -> parsedPayments.add(revolutMapper.toRevolutPayment(payment)));
-
-        List<PaymentResponse> responses;
-
+        String token;
         try {
-            responses = transactionRetrieval.pushPayments(
-                    tokenRenewal.getToken(),
-                    paymentUrl,
-                    parsedPayments,
-                    new ObjectMapper().getTypeFactory().constructType(RevolutPaymentResponse.class));
-        } catch (HttpClientErrorException | HttpServerErrorException exception) {
-            logger.error("An HTTP error caused payment failure");
-            saveFailedStatus(payments.get(0));
-            return new ArrayList<>();
+            // checked before they were enqueued
+            logger.info("Constructing Revolut payments");
+            payments.forEach(payment -> parsedPayments.add(revolutMapper.toValidatedRevolutPayment(payment)));
+            token = tokenRenewal.getToken();
+        } catch (RuntimeException exception) {
+            throw new PaymentNotSentException("The " + payments.size() + " Revolut payments were not sent: "
+                    + exception.getMessage(), exception);
         }
 
-        TransactionStatusCheck status = new TransactionStatusCheck();
-        status.setPaymentId(responses.get(0).getPaymentId());
-        status.setTransactionStatus(responses.get(0).getStatus());
-        status.setBatchId(payments.get(0).getBatchId());
-        status.setBank(Bank.REVOLUT);
-        status.setSourceAccount(payments.get(0).getSourceAccount());
-        status.setDestinationAccount(payments.get(0).getDestinationAccount());
-        status.setAmount(payments.get(0).getAmount());
+        // one response per payment, the ones the bank accepted keep their ids whatever happened to the others
+        List<PaymentResponse> responses = transactionRetrieval.pushPayments(
+                token,
+                paymentUrl,
+                parsedPayments,
+                new ObjectMapper().getTypeFactory().constructType(RevolutPaymentResponse.class));
+
+        List<TransactionStatusCheck> statuses = new ArrayList<>(payments.size());
+        for (int index = 0; index < payments.size(); index++) {
+            statuses.addAll(PaymentNettingService.statusesOf(
+                    toStatus(payments.get(index), parsedPayments.get(index), responses.get(index)), payments.get(index)));
+        }
 
-        logger.info("Saving the new payment identification and status");
-        transactions.save(status);
+        logger.info("Saving the identification and status of {} payments", statuses.size());
+        transactions.saveAll(statuses);
+        statuses.forEach(progress::recordStatus);
 
-        return new ArrayList<>();
+        return responses;
     }
 
-    private void saveFailedStatus(GeneralPayment payment) {
-        logger.warn("Saving an entry for a Revolut payment that failed");
+    @Override
+    public String retrievePaymentStatus(String paymentId) throws JsonProcessingException {
+        JavaType type = new ObjectMapper().getTypeFactory().constructCollectionType(List.class, RevolutTransaction.class);
+        List<Transaction> response = transactionRetrieval.retrieveTransactions(tokenRenewal.getToken(),
+                UriComponentsBuilder.fromUriString(paymentStatusUrl).buildAndExpand(paymentId).toUriString(), type);
 
+        return response.isEmpty() ? null : ((RevolutTransaction) response.get(0)).getState();
+    }
+
+    private TransactionStatusCheck toStatus(GeneralPayment payment, RevolutPayment parsedPayment, PaymentResponse response) {
         TransactionStatusCheck status = new TransactionStatusCheck();
-        status.setPaymentId(Constants.DISPLAY_FAILED_PAYMENT_ID + Instant.now().toEpochMilli());
-        status.setTransactionStatus(Constants.DISPLAY_FAILED_PAYMENT_STATUS);
+        status.setPaymentId(response.getPaymentId());
+        status.setTransactionStatus(response.getStatus());
         status.setBatchId(payment.getBatchId());
-        status.setBank(Bank.DEUTSCHE);
+        status.setBank(Bank.REVOLUT);
         status.setSourceAccount(payment.getSourceAccount());
         status.setDestinationAccount(payment.getDestinationAccount());
         status.setAmount(payment.getAmount());
 
-        transactions.save(status);
+        if (response instanceof FailedPaymentResponse) {
+            logger.warn("Saving an entry for a Revolut payment that failed");
+        } else {
+            status.setRequestId(parsedPayment.getRequestId());
+            status.setSubmittedAt(Instant.now().toEpochMilli());
+            // without the bank's id there is nothing to look up; a sync reconciles it by its request id
+            if (response instanceof UnknownPaymentResponse) {
+                logger.warn("Saving an entry for a Revolut payment the bank didn't answer");
+            } else {
+                status.setNextPollAt(status.getSubmittedAt() + firstPollDelayMillis);
+            }
+        }
+        return status;
     }
 
     @Override
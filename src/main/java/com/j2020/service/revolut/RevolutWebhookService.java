@@ -0,0 +1,309 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service.revolut;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.j2020.Constants;
+import com.j2020.model.Bank;
+import com.j2020.model.BatchOfPayments;
+import com.j2020.model.GeneralTransaction;
+import com.j2020.model.TransactionStatusCheck;
+import com.j2020.model.WebhookEvent;
+import com.j2020.model.exception.WebhookEventFormatException;
+import com.j2020.model.exception.WebhookSignatureException;
+import com.j2020.model.revolut.RevolutWebhookEvent;
+import com.j2020.model.revolut.RevolutWebhookTransaction;
+import com.j2020.repository.PaymentBatchRepository;
+import com.j2020.repository.TransactionRepository;
+import com.j2020.repository.WebhookEventRepository;
+import com.j2020.service.BatchProgressService;
+import com.j2020.service.LeaderElectionService;
+import com.j2020.service.ReconciliationService;
+import com.j2020.service.SummaryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.jms.TextMessage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Takes the webhook calls Revolut makes when a transaction is created or changes state, so that payment statuses
+ * follow the bank without waiting for a sync or a status lookup. A call is accepted only when it is signed with
+ * {@code webhooks.revolut.signingSecret} no longer than {@code webhooks.revolut.toleranceMillis} ago, and it is only
+ * queued, so Revolut gets its answer at once. The queue groups events by transaction id, so the events of one
+ * transaction are applied one at a time in the order they came. An event is applied once, and not at all when a later
+ * event of its transaction was applied before it.
+ */
+@Service
+public class RevolutWebhookService {
+    public static final String EVENT_ID_PROPERTY = "webhookEventId";
+
+    private static final Logger logger = LoggerFactory.getLogger(RevolutWebhookService.class);
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final String JMS_GROUP_PROPERTY = "JMSXGroupID";
+    private static final String SIGNATURE_VERSION = "v1";
+    private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+
+    private final ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final JmsTemplate jmsTemplate;
+    private final WebhookEventRepository events;
+    private final TransactionRepository transactions;
+    private final RevolutMapperService mapperService;
+    private final SummaryService summaries;
+    private final ReconciliationService reconciliation;
+    private final PaymentBatchRepository batchRepository;
+    private final BatchProgressService progress;
+    private final LeaderElectionService leadership;
+
+    @Value("${webhooks.revolut.signingSecret}")
+    private String signingSecret;
+
+    @Value("${webhooks.revolut.toleranceMillis}")
+    private long toleranceMillis;
+
+    @Value("${webhooks.retentionHours}")
+    private long retentionHours;
+
+    public RevolutWebhookService(@Qualifier("outboxJmsTemplate") JmsTemplate jmsTemplate,
+                                 WebhookEventRepository events,
+                                 TransactionRepository transactions,
+                                 RevolutMapperService mapperService,
+                                 SummaryService summaries,
+                                 ReconciliationService reconciliation,
+                                 PaymentBatchRepository batchRepository,
+                                 BatchProgressService progress,
+                                 LeaderElectionService leadership) {
+        this.jmsTemplate = jmsTemplate;
+        this.events = events;
+        this.transactions = transactions;
+        this.mapperService = mapperService;
+        this.summaries = summaries;
+        this.reconciliation = reconciliation;
+        this.batchRepository = batchRepository;
+        this.progress = progress;
+        this.leadership = leadership;
+    }
+
+    /**
+     * @param body the request body exactly as received, the signature is made over its bytes
+     * @return whether the event was queued; events of other kinds and repeated deliveries are not
+     */
+    public boolean receive(byte[] body, String timestamp, String signature) {
+        verify(body, timestamp, signature);
+
+        RevolutWebhookEvent event;
+        try {
+            event = mapper.readValue(body, RevolutWebhookEvent.class);
+        } catch (IOException exception) {
+            throw new WebhookEventFormatException("Unreadable webhook event: " + exception.getMessage());
+        }
+
+        if (!RevolutWebhookEvent.TRANSACTION_CREATED.equals(event.getEvent())
+                && !RevolutWebhookEvent.TRANSACTION_STATE_CHANGED.equals(event.getEvent())) {
+            logger.info("Ignoring Revolut webhook event {}", event.getEvent());
+            return false;
+        }
+        if (event.getData() == null || event.getData().getId() == null) {
+            throw new WebhookEventFormatException("Webhook event " + event.getEvent() + " names no transaction");
+        }
+        eventAtOf(event);
+
+        String eventId = eventIdOf(body);
+        if (events.existsById(eventId)) {
+            logger.info("Revolut delivered {} again", event);
+            return false;
+        }
+
+        jmsTemplate.send(Constants.JMS_REVOLUT_WEBHOOK_QUEUE, session -> {
+            TextMessage message = session.createTextMessage(new String(body, StandardCharsets.UTF_8));
+            message.setStringProperty(Constants.JMS_TYPE_ID_PROPERTY, RevolutWebhookEvent.class.getName());
+            message.setStringProperty(JMS_GROUP_PROPERTY, event.getData().getId());
+            message.setStringProperty(EVENT_ID_PROPERTY, eventId);
+            return message;
+        });
+
+        return true;
+    }
+
+    /**
+     * @return the statuses that were reconciled or whose state changed
+     */
+    @Transactional
+    public List<TransactionStatusCheck> apply(RevolutWebhookEvent event, String eventId) {
+        if (events.existsById(eventId)) {
+            logger.info("Skipping {}, it was applied already", event);
+            return new ArrayList<>();
+        }
+
+        WebhookEvent applied = new WebhookEvent();
+        applied.setEventId(eventId);
+        applied.setTransactionId(event.getData().getId());
+        applied.setEventAt(eventAtOf(event));
+        applied.setReceivedAt(Instant.now().toEpochMilli());
+        // Revolut doesn't promise to deliver in order, the queue only keeps the order of arrival
+        boolean outdated = events.existsByTransactionIdAndEventAtGreaterThan(applied.getTransactionId(), applied.getEventAt());
+        events.save(applied);
+        if (outdated) {
+            logger.info("Skipping {}, a later event of the transaction was applied", event);
+            return new ArrayList<>();
+        }
+
+        GeneralTransaction transaction = toGeneralTransaction(event.getData());
+        if (transaction.getAmount() != null) {
+            summaries.saveTransactions(Collections.singletonList(transaction));
+        }
+
+        List<TransactionStatusCheck> updated = reconciliation.reconcileByIdentity(Collections.singletonList(transaction));
+        List<BatchOfPayments> batches = updated.stream()
+                .map(TransactionStatusCheck::getBatchId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .map(batchRepository::findById)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
+        // subscribers read the statuses when notified, so the notice waits for them to be committed
+        afterCommit(() -> {
+            updated.forEach(progress::recordStatus);
+            batches.forEach(progress::publish);
+        });
+
+        return updated;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${webhooks.cleanupIntervalMillis}")
+    public void removeExpired() {
+        if (!leadership.isLeader()) {
+            return;
+        }
+
+        int removed = events.deleteReceivedBefore(Instant.now().minus(retentionHours, ChronoUnit.HOURS).toEpochMilli());
+        if (removed > 0) {
+            logger.info("Removed {} applied webhook events", removed);
+        }
+    }
+
+    /**
+     * @return the value of the {@code Revolut-Signature} header for the body signed at the given time
+     */
+    public static String sign(String secret, String timestamp, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), SIGNATURE_ALGORITHM));
+            mac.update((SIGNATURE_VERSION + "." + timestamp + ".").getBytes(StandardCharsets.UTF_8));
+            return SIGNATURE_VERSION + "=" + toHex(mac.doFinal(body));
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private void verify(byte[] body, String timestamp, String signature) {
+        if (signingSecret == null || signingSecret.isEmpty()) {
+            throw new WebhookSignatureException("Revolut webhooks are not enabled, set webhooks.revolut.signingSecret");
+        }
+        if (timestamp == null || signature == null) {
+            throw new WebhookSignatureException("The webhook call is not signed");
+        }
+
+        long signedAt;
+        try {
+            signedAt = Long.parseLong(timestamp);
+        } catch (NumberFormatException exception) {
+            throw new WebhookSignatureException("Signature timestamp " + timestamp + " is not a number");
+        }
+        // an old call replayed word for word still has a valid signature
+        if (Math.abs(Instant.now().toEpochMilli() - signedAt) > toleranceMillis) {
+            throw new WebhookSignatureException("The webhook call was signed too long ago");
+        }
+
+        byte[] expected = sign(signingSecret, timestamp, body).getBytes(StandardCharsets.UTF_8);
+        // while the secret is being rotated Revolut signs with both
+        for (String candidate : signature.split(",")) {
+            if (MessageDigest.isEqual(expected, candidate.trim().getBytes(StandardCharsets.UTF_8))) {
+                return;
+            }
+        }
+
+        throw new WebhookSignatureException("The webhook signature does not match");
+    }
+
+    private GeneralTransaction toGeneralTransaction(RevolutWebhookTransaction data) {
+        String state = data.getNewState() != null ? data.getNewState() : data.getState();
+        if (data.getRevolutLegs() != null && !data.getRevolutLegs().isEmpty()) {
+            GeneralTransaction created = mapperService.toGeneralTransaction(data);
+            created.setState(state);
+            return created;
+        }
+
+        // a state change names the transaction only; without a mirror of it, it is reconciled but not stored
+        GeneralTransaction transaction = transactions.findById(data.getId()).orElseGet(() -> {
+            GeneralTransaction unknown = new GeneralTransaction();
+            unknown.setTransactionId(data.getId());
+            unknown.setRequestId(data.getRequestId());
+            unknown.setBank(Bank.REVOLUT);
+            return unknown;
+        });
+        transaction.setState(state);
+        return transaction;
+    }
+
+    private static long eventAtOf(RevolutWebhookEvent event) {
+        try {
+            return Instant.parse(event.getTimestamp()).toEpochMilli();
+        } catch (DateTimeParseException | NullPointerException exception) {
+            throw new WebhookEventFormatException("Webhook event timestamp " + event.getTimestamp() + " is not an ISO instant");
+        }
+    }
+
+    private static String eventIdOf(byte[] body) {
+        // Revolut sends no event id, but a redelivery repeats the body byte for byte
+        try {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int index = 0; index < bytes.length; index++) {
+            hex[index * 2] = HEX_DIGITS[(bytes[index] >> 4) & 0xF];
+            hex[index * 2 + 1] = HEX_DIGITS[bytes[index] & 0xF];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service.upload;
+
+import com.j2020.model.exception.PaymentFileFormatException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Comma or semicolon separated values with a header row, quoted as in RFC 4180. Header names matching a
+ * {@link com.j2020.model.GeneralPayment} field (in any case) fill that field, other columns go to
+ * {@code additionalInfo} under their header name. Row numbers count lines of the file, the header being row 1.
+ */
+public class CsvPaymentFileReader implements PaymentFileReader {
+    private static final List<String> FIELDS = Arrays.asList(BANK, SOURCE_ACCOUNT, DESTINATION_ACCOUNT, AMOUNT, CURRENCY);
+    private static final int MAX_HEADER_LENGTH = 8192;
+
+    private final BufferedReader reader;
+    private final char delimiter;
+    private final List<String> header = new ArrayList<>();
+    private long rowNumber;
+    private long lineNumber;
+
+    public CsvPaymentFileReader(InputStream content) throws IOException {
+        reader = new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8));
+        delimiter = detectDelimiter();
+
+        List<String> names = readRecord();
+        if (names == null) {
+            throw new PaymentFileFormatException("The payment file is empty");
+        }
+        for (String name : names) {
+            String trimmed = name.replace("\uFEFF", "").trim();
+            header.add(FIELDS.stream().filter(field -> field.equalsIgnoreCase(trimmed)).findFirst().orElse(trimmed));
+        }
+    }
+
+    @Override
+    public Map<String, String> nextRow() throws IOException {
+        List<String> values;
+        do {
+            values = readRecord();
+            if (values == null) {
+                return null;
+            }
+        } while (values.size() == 1 && values.get(0).trim().isEmpty());
+
+        Map<String, String> row = new LinkedHashMap<>();
+        for (int column = 0; column < values.size() && column < header.size(); column++) {
+            String value = values.get(column).trim();
+            if (!value.isEmpty()) {
+                row.put(header.get(column), value);
+            }
+        }
+        return row;
+    }
+
+    @Override
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private char detectDelimiter() throws IOException {
+        reader.mark(MAX_HEADER_LENGTH);
+        String firstLine = reader.readLine();
+        reader.reset();
+
+        return firstLine != null && firstLine.indexOf(';') >= 0 && firstLine.indexOf(',') < 0 ? ';' : ',';
+    }
+
+    private List<String> readRecord() throws IOException {
+        rowNumber = lineNumber + 1;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean read = false;
+
+        int next;
+        while ((next = reader.read()) != -1) {
+            read = true;
+            char current = (char) next;
+            if (quoted) {
+                if (current == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    if (current == '\n') {
+                        lineNumber++;
+                    }
+                    field.append(current);
+                }
+            } else if (current == '"') {
+                quoted = true;
+            } else if (current == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (current == '\n') {
+                break;
+            } else if (current != '\r') {
+                field.append(current);
+            }
+        }
+
+        if (!read) {
+            return null;
+        }
+        if (quoted) {
+            throw new PaymentFileFormatException("Row " + rowNumber + " has a quoted value that is never closed");
+        }
+        lineNumber++;
+        fields.add(field.toString());
+        return fields;
+    }
+}
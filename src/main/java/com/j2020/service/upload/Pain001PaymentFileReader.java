@@ -0,0 +1,143 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service.upload;
+
+import com.j2020.model.exception.PaymentFileFormatException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SEPA credit transfer initiation (pain.001) files, any version, read with StAX so only the current credit
+ * transfer is held. Every {@code CdtTrfTxInf} is a row paid from the debtor IBAN of its {@code PmtInf}; the creditor
+ * name, the unstructured remittance information and the creditor's other id become {@code creditorName},
+ * {@code reference} and {@code counterparty}. Row numbers count credit transfers from 1. Files carrying a DTD are
+ * rejected.
+ */
+public class Pain001PaymentFileReader implements PaymentFileReader {
+    public static final String CREDITOR_NAME = "creditorName";
+    public static final String REFERENCE = "reference";
+    public static final String COUNTERPARTY = "counterparty";
+    public static final String END_TO_END_ID = "endToEndId";
+
+    private final XMLStreamReader reader;
+    private final List<String> path = new ArrayList<>();
+    private String debtorIban;
+    private long rowNumber;
+
+    public Pain001PaymentFileReader(InputStream content) {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            reader = factory.createXMLStreamReader(content);
+        } catch (XMLStreamException exception) {
+            throw new PaymentFileFormatException("The payment file is not readable XML: " + exception.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, String> nextRow() {
+        Map<String, String> row = null;
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    path.add(reader.getLocalName());
+                    if (at("CdtTrfTxInf")) {
+                        rowNumber++;
+                        row = new LinkedHashMap<>();
+                        if (debtorIban != null) {
+                            row.put(SOURCE_ACCOUNT, debtorIban);
+                        }
+                    } else if (at("DbtrAcct", "Id", "IBAN")) {
+                        debtorIban = text();
+                    } else if (row != null) {
+                        readField(row);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = path.remove(path.size() - 1);
+                    if (name.equals("PmtInf")) {
+                        debtorIban = null;
+                    } else if (name.equals("CdtTrfTxInf") && row != null) {
+                        return row;
+                    }
+                }
+            }
+            return null;
+        } catch (XMLStreamException exception) {
+            throw new PaymentFileFormatException("Credit transfer " + Math.max(rowNumber, 1) + " is not readable XML: "
+                    + exception.getMessage());
+        }
+    }
+
+    @Override
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    private void readField(Map<String, String> row) throws XMLStreamException {
+        if (at("Amt", "InstdAmt")) {
+            String currency = reader.getAttributeValue(null, "Ccy");
+            if (currency != null) {
+                row.put(CURRENCY, currency.trim());
+            }
+            putText(row, AMOUNT);
+        } else if (at("CdtrAcct", "Id", "IBAN")) {
+            putText(row, DESTINATION_ACCOUNT);
+        } else if (at("Cdtr", "Nm")) {
+            putText(row, CREDITOR_NAME);
+        } else if (at("RmtInf", "Ustrd")) {
+            putText(row, REFERENCE);
+        } else if (at("PmtId", "EndToEndId")) {
+            putText(row, END_TO_END_ID);
+        } else if (at("Othr", "Id") && path.contains("Cdtr")) {
+            putText(row, COUNTERPARTY);
+        }
+    }
+
+    private void putText(Map<String, String> row, String key) throws XMLStreamException {
+        String value = text();
+        if (!value.isEmpty()) {
+            row.putIfAbsent(key, value);
+        }
+    }
+
+    // leaves the reader on the element's end tag, which therefore is popped here
+    private String text() throws XMLStreamException {
+        String value = reader.getElementText().trim();
+        path.remove(path.size() - 1);
+        return value;
+    }
+
+    private boolean at(String... names) {
+        if (path.size() < names.length) {
+            return false;
+        }
+        for (int index = 0; index < names.length; index++) {
+            if (!names[index].equals(path.get(path.size() - names.length + index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service.upload;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Reads a payment file one row at a time. A row maps the {@link com.j2020.model.GeneralPayment} field names below
+ * to their values; any other key belongs under {@code additionalInfo}. Values absent from the file are left out.
+ */
+public interface PaymentFileReader extends Closeable {
+    String BANK = "bank";
+    String SOURCE_ACCOUNT = "sourceAccount";
+    String DESTINATION_ACCOUNT = "destinationAccount";
+    String AMOUNT = "amount";
+    String CURRENCY = "currency";
+    String PRIORITY = "priority";
+
+    /**
+     * @return the next row, or null once the file is exhausted
+     * @throws com.j2020.model.exception.PaymentFileFormatException if the file can't be read any further
+     */
+    Map<String, String> nextRow() throws IOException;
+
+    /**
+     * Position of the row last returned, as a person looking at the file would count it.
+     */
+    long getRowNumber();
+}
@@ -0,0 +1,200 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package com.j2020.service.upload;
+
+import com.j2020.Constants;
+import com.j2020.model.Bank;
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.PaymentPriority;
+import com.j2020.model.PaymentSubmissionReport;
+import com.j2020.model.PaymentRowError;
+import com.j2020.model.exception.PaymentFileFormatException;
+import com.j2020.service.BankSyncService;
+import com.j2020.service.BatchProgressService;
+import com.j2020.service.PaymentNettingService;
+import com.j2020.service.PaymentValidationService;
+import com.j2020.service.jms.JmsTransactionProducer;
+import org.apache.commons.lang3.EnumUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Submits the payments of an uploaded CSV or pain.001 file while it is being read. Each row is checked by
+ * {@link PaymentValidationService}, and valid rows go to the outbox {@code paymentFile.chunkSize} at a time, each chunk
+ * in its own transaction, so neither the file nor the batch is ever held whole. The relay may start sending a
+ * batch before its upload is through; the batch total is only set at the end, so it doesn't look complete early.
+ */
+@Service
+public class PaymentFileService {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentFileService.class);
+    private JmsTransactionProducer transactionProducer;
+    private PaymentValidationService validation;
+    private BatchProgressService progress;
+    private BankSyncService syncService;
+    private PaymentNettingService netting;
+
+    @Value("${paymentFile.chunkSize}")
+    private int chunkSize;
+
+    public PaymentFileService(JmsTransactionProducer transactionProducer,
+                              PaymentValidationService validation,
+                              BatchProgressService progress,
+                              BankSyncService syncService,
+                              PaymentNettingService netting) {
+        this.transactionProducer = transactionProducer;
+        this.validation = validation;
+        this.progress = progress;
+        this.syncService = syncService;
+        this.netting = netting;
+    }
+
+    /**
+     * @param bank the bank of rows that don't name one; pain.001 files never do
+     * @param priority the lane of rows that don't name one, {@link PaymentPriority#NORMAL} when null
+     */
+    public PaymentSubmissionReport submitFile(MultipartFile file, Bank bank, PaymentPriority priority) {
+        logger.info("Reading payment file {} of {} bytes", file.getOriginalFilename(), file.getSize());
+
+        PaymentSubmissionReport report = new PaymentSubmissionReport();
+        Set<Bank> banks = EnumSet.noneOf(Bank.class);
+        List<GeneralPayment> chunk = new ArrayList<>(chunkSize);
+        Long batchId = null;
+        int accepted = 0;
+
+        try (InputStream content = file.getInputStream(); PaymentFileReader reader = openReader(file, content)) {
+            Map<String, String> row;
+            while ((row = reader.nextRow()) != null) {
+                GeneralPayment payment;
+                try {
+                    payment = toPayment(row, bank, priority);
+                } catch (IllegalArgumentException exception) {
+                    validation.reject(report, new PaymentRowError(null, reader.getRowNumber(), exception.getMessage()));
+                    continue;
+                }
+
+                List<String> problems = validation.validate(payment.getBank(), payment);
+                if (!problems.isEmpty()) {
+                    validation.reject(report, new PaymentRowError(payment.getBank(), reader.getRowNumber(), String.join(", ", problems)));
+                    continue;
+                }
+
+                chunk.add(payment);
+                banks.add(payment.getBank());
+                if (chunk.size() == chunkSize) {
+                    batchId = batchId == null ? transactionProducer.openBatch() : batchId;
+                    enqueue(batchId, chunk, accepted);
+                    accepted += chunk.size();
+                    chunk.clear();
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                batchId = batchId == null ? transactionProducer.openBatch() : batchId;
+                enqueue(batchId, chunk, accepted);
+                accepted += chunk.size();
+            }
+        } catch (IOException | PaymentFileFormatException exception) {
+            if (batchId == null) {
+                throw exception instanceof PaymentFileFormatException ? (PaymentFileFormatException) exception
+                        : new PaymentFileFormatException("The payment file could not be read: " + exception.getMessage());
+            }
+
+            // what was enqueued is on its way to the banks already, so the batch is closed with it
+            closeBatch(batchId, accepted);
+            throw new PaymentFileFormatException(exception.getMessage() + ". The " + accepted
+                    + " payments read before it were submitted under batch " + batchId);
+        } catch (RuntimeException exception) {
+            // a failure to enqueue, e.g. of the database; the batch is closed with the chunks that made it
+            if (batchId != null) {
+                try {
+                    closeBatch(batchId, accepted);
+                } catch (RuntimeException closeFailure) {
+                    exception.addSuppressed(closeFailure);
+                }
+            }
+            throw exception;
+        }
+
+        report.setAcceptedPayments(accepted);
+        report.setBatchId(batchId);
+        if (batchId == null) {
+            report.setText(Constants.DISPLAY_PAYMENTS_REJECTED_TEXT);
+            return report;
+        }
+
+        closeBatch(batchId, accepted);
+        report.setText(Constants.DISPLAY_BATCH_ACCEPTED_TEXT);
+        logger.info("Submitted {} payments from {} under batch {}, rejected {}",
+                accepted, file.getOriginalFilename(), batchId, report.getRejectedPayments());
+
+        banks.forEach(syncService::requestSync);
+        return report;
+    }
+
+    private PaymentFileReader openReader(MultipartFile file, InputStream content) throws IOException {
+        String name = String.valueOf(file.getOriginalFilename()).toLowerCase(Locale.ROOT);
+        String type = String.valueOf(file.getContentType()).toLowerCase(Locale.ROOT);
+
+        return name.endsWith(".xml") || type.contains("xml")
+                ? new Pain001PaymentFileReader(content)
+                : new CsvPaymentFileReader(content);
+    }
+
+    private GeneralPayment toPayment(Map<String, String> row, Bank defaultBank, PaymentPriority defaultPriority) {
+        Map<String, String> additionalInfo = new HashMap<>(row);
+        String bankName = additionalInfo.remove(PaymentFileReader.BANK);
+        String amount = additionalInfo.remove(PaymentFileReader.AMOUNT);
+        String currency = additionalInfo.remove(PaymentFileReader.CURRENCY);
+        String priorityName = additionalInfo.remove(PaymentFileReader.PRIORITY);
+
+        Bank bank = bankName == null ? defaultBank : EnumUtils.getEnum(Bank.class, bankName.toUpperCase(Locale.ROOT));
+        if (bank == null) {
+            throw new IllegalArgumentException(bankName == null
+                    ? "No bank specified, neither in the row nor for the file"
+                    : "Bank " + bankName + " is not one of " + Arrays.toString(Bank.values()));
+        }
+
+        PaymentPriority priority = defaultPriority;
+        if (priorityName != null && !priorityName.isEmpty()) {
+            priority = EnumUtils.getEnum(PaymentPriority.class, priorityName.toUpperCase(Locale.ROOT));
+            if (priority == null) {
+                throw new IllegalArgumentException("Priority " + priorityName + " is not one of " + Arrays.toString(PaymentPriority.values()));
+            }
+        }
+
+        BigDecimal decimal;
+        try {
+            decimal = amount == null ? null : new BigDecimal(amount);
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Amount " + amount + " is not a number");
+        }
+
+        GeneralPayment payment = new GeneralPayment(decimal, currency);
+        payment.setBank(bank);
+        payment.setPriority(priority);
+        payment.setSourceAccount(additionalInfo.remove(PaymentFileReader.SOURCE_ACCOUNT));
+        payment.setDestinationAccount(additionalInfo.remove(PaymentFileReader.DESTINATION_ACCOUNT));
+        payment.setAdditionalInfo(additionalInfo);
+        return payment;
+    }
+
+    private void enqueue(Long batchId, List<GeneralPayment> chunk, int firstSequence) {
+        // payments are only netted within their chunk; fewer transfers than payments leaves the sequences unique
+        transactionProducer.appendPayments(batchId, netting.net(chunk), firstSequence);
+    }
+
+    private void closeBatch(Long batchId, int accepted) {
+        // the consumers may have processed every payment before the total was known
+        transactionProducer.closeBatch(batchId, accepted).ifPresent(progress::publish);
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package cluster;
+
+import org.apache.activemq.broker.BrokerService;
+import org.h2.tools.Server;
+import simulator.BankSimulator;
+import simulator.SimulatorProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+/**
+ * Runs what the {@code cluster} profile expects next to the nodes: a standalone ActiveMQ broker on port 61616
+ * and an H2 server on port 9092 serving the databases under the working directory. Meant for trying out
+ * several nodes on one machine; the broker keeps its messages in memory only. With
+ * {@code -Dcluster.simulatorProfile=<profile>} a {@link BankSimulator} is started too, and the arguments that
+ * point a node at it are logged.
+ */
+public class LocalClusterInfrastructure {
+    private static final Logger logger = LoggerFactory.getLogger(LocalClusterInfrastructure.class);
+
+    public static void main(String[] args) throws Exception {
+        Server database = Server.createTcpServer("-tcpPort", "9092", "-tcpAllowOthers", "-ifNotExists", "-baseDir", ".");
+        database.start();
+
+        BrokerService broker = new BrokerService();
+        broker.setBrokerName("j2020");
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.addConnector("tcp://0.0.0.0:61616");
+        broker.start();
+
+        String simulatorProfile = System.getProperty("cluster.simulatorProfile");
+        BankSimulator simulator = simulatorProfile == null || simulatorProfile.isEmpty()
+                ? null : new BankSimulator(SimulatorProfile.named(simulatorProfile));
+        if (simulator != null) {
+            simulator.start();
+            logger.info("Start every node with {}", simulator.applicationProperties().entrySet().stream()
+                    .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                    .collect(Collectors.joining(" ")));
+        }
+
+        logger.info("Database at {}, broker at tcp://localhost:61616, Ctrl+C to stop", database.getURL());
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                broker.stop();
+            } catch (Exception exception) {
+                logger.warn("Broker did not stop cleanly", exception);
+            }
+            database.stop();
+            if (simulator != null) {
+                simulator.stop();
+            }
+            stopped.countDown();
+        }));
+        stopped.await();
+    }
+}
@@ -16,6 +16,7 @@ import com.j2020.model.revolut.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -24,7 +25,7 @@ public class TestDataHelper {
 
     public static List<TransactionStatusCheck> generateTransactionStatusChecks() {
         TransactionStatusCheck statusOne = new TransactionStatusCheck();
-        statusOne.setAmount(1.0f);
+        statusOne.setAmount(Money.parse("1.00", Constants.TEST_CURRENCY_CODE));
         statusOne.setDestinationAccount(Constants.TEST_ANY_ACCOUNT);
         statusOne.setSourceAccount(Constants.TEST_ANY_ACCOUNT);
         statusOne.setBank(Bank.REVOLUT);
@@ -33,7 +34,7 @@ public class TestDataHelper {
         statusOne.setBatchId(1L);
 
         TransactionStatusCheck statusTwo = new TransactionStatusCheck();
-        statusTwo.setAmount(1.0f);
+        statusTwo.setAmount(Money.parse("1.00", Constants.TEST_CURRENCY_CODE));
         statusTwo.setDestinationAccount(Constants.TEST_ANY_ACCOUNT);
         statusTwo.setSourceAccount(Constants.TEST_ANY_ACCOUNT);
         statusTwo.setBank(Bank.DEUTSCHE);
@@ -88,7 +89,7 @@ public class TestDataHelper {
 
     public static GeneralPayment generateValidGeneralPaymentForDeutsche() {
         GeneralPayment payment = new GeneralPayment();
-        payment.setAmount(10f);
+        payment.setAmount(Money.parse("10", Constants.TEST_CURRENCY_CODE));
         payment.setSourceAccount(Constants.TEST_ANY_ACCOUNT);
         payment.setDestinationAccount(Constants.TEST_ANY_ACCOUNT);
         payment.setCurrency(Constants.TEST_CURRENCY_CODE);
@@ -102,7 +103,7 @@ public class TestDataHelper {
 
     public static GeneralPayment generateValidGeneralPaymentForRevolut() {
         GeneralPayment payment = new GeneralPayment();
-        payment.setAmount(10f);
+        payment.setAmount(Money.parse("10", Constants.TEST_CURRENCY_CODE));
         payment.setSourceAccount(Constants.TEST_ANY_ACCOUNT);
         payment.setDestinationAccount(Constants.TEST_ANY_ACCOUNT);
         payment.setCurrency(Constants.TEST_CURRENCY_CODE);
@@ -137,7 +138,7 @@ public class TestDataHelper {
 
         revolutLeg.setLegId("9954e25a451f4c870d");
         revolutLeg.setAccountId("REVOACCOUNTID");
-        revolutLeg.setAmount(500f);
+        revolutLeg.setAmount(new BigDecimal("500"));
         revolutLeg.setCurrency(Constants.TEST_CURRENCY_CODE);
 
         revolutLegCounterparty.setCounterpartyId("oftenOptional");
@@ -157,7 +158,7 @@ public class TestDataHelper {
         RevolutAccount demoResponseAccountOne = new RevolutAccount();
         demoResponseAccountOne.setAccountId("800");
         demoResponseAccountOne.setName("savings");
-        demoResponseAccountOne.setBalance(500.1f);
+        demoResponseAccountOne.setBalance(new BigDecimal("500.1"));
         demoResponseAccountOne.setCurrency(Constants.TEST_CURRENCY_CODE);
         demoResponseAccountOne.setState("active");
         demoResponseAccountOne.setPublic(false);
@@ -167,7 +168,7 @@ public class TestDataHelper {
         RevolutAccount demoResponseAccountTwo = new RevolutAccount();
         demoResponseAccountTwo.setAccountId("801");
         demoResponseAccountTwo.setName("business");
-        demoResponseAccountTwo.setBalance(3700f);
+        demoResponseAccountTwo.setBalance(new BigDecimal("3700"));
         demoResponseAccountTwo.setCurrency(Constants.TEST_CURRENCY_CODE);
         demoResponseAccountTwo.setState("active");
         demoResponseAccountTwo.setPublic(true);
@@ -182,7 +183,7 @@ public class TestDataHelper {
 
     public static GeneralPayment generateInvalidGeneralPayment() {
         GeneralPayment payment = new GeneralPayment();
-        payment.setAmount(100f);
+        payment.setAmount(Money.parse("100", Constants.TEST_CURRENCY_CODE));
         payment.setSourceAccount(Constants.TEST_ANY_ACCOUNT);
         payment.setDestinationAccount(Constants.TEST_ANY_ACCOUNT);
         payment.setCurrency(Constants.TEST_CURRENCY_CODE);
@@ -197,7 +198,7 @@ public class TestDataHelper {
         demoResponseAccount.setAccountId("DE0001");
         demoResponseAccount.setBic("BIC = code");
         demoResponseAccount.setCurrencyCode(Constants.TEST_CURRENCY_CODE);
-        demoResponseAccount.setCurrentBalance(80000f);
+        demoResponseAccount.setCurrentBalance(new BigDecimal("80000"));
         demoResponseAccount.setAccountType("public");
 
         accounts.add(demoResponseAccount);
@@ -215,7 +216,7 @@ public class TestDataHelper {
         firstTransaction.setCreatedAt(LocalDateTime.now().toString());
         firstTransaction.setOrigin(Constants.TEST_ANY_ACCOUNT);
         firstTransaction.setCreditor(Constants.TEST_ANY_ACCOUNT);
-        firstTransaction.setAmount(151.40f);
+        firstTransaction.setAmount(Money.parse("151.40", Constants.TEST_CURRENCY_CODE));
         firstTransaction.setBank(bankingService);
 
         GeneralTransaction secondTransaction = new GeneralTransaction();
@@ -225,7 +226,7 @@ public class TestDataHelper {
         secondTransaction.setCreatedAt(LocalDateTime.now().toString());
         secondTransaction.setOrigin(Constants.TEST_ANY_ACCOUNT);
         secondTransaction.setCreditor(Constants.TEST_ANY_ACCOUNT);
-        secondTransaction.setAmount(1.51f);
+        secondTransaction.setAmount(Money.parse("1.51", Constants.TEST_CURRENCY_CODE));
         secondTransaction.setBank(bankingService);
 
         output.add(firstTransaction);
@@ -239,14 +240,14 @@ public class TestDataHelper {
 
         DeutscheTransaction demoTransactionOne = new DeutscheTransaction();
         demoTransactionOne.setOriginIban(Constants.TEST_DEUTSCHE_DUMMY_SOURCE_IBAN);
-        demoTransactionOne.setAmount(905.28f);
+        demoTransactionOne.setAmount(new BigDecimal("905.28"));
         demoTransactionOne.setCounterPartyIban("DE00200400");
         demoTransactionOne.setCurrencyCode(Constants.TEST_CURRENCY_CODE);
         demoTransactionOne.setPaymentIdentification("DB-A001/01");
 
         DeutscheTransaction demoTransactionTwo = new DeutscheTransaction();
         demoTransactionTwo.setOriginIban(Constants.TEST_DEUTSCHE_DUMMY_SOURCE_IBAN);
-        demoTransactionTwo.setAmount(0.99f);
+        demoTransactionTwo.setAmount(new BigDecimal("0.99"));
         demoTransactionTwo.setCounterPartyIban("DE00400500");
         demoTransactionTwo.setCurrencyCode(Constants.TEST_CURRENCY_CODE);
         demoTransactionTwo.setPaymentIdentification("DB-A952/41");
@@ -30,6 +30,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -66,7 +67,7 @@ public class AccountServicesTest {
         account.setAccountId(Constants.REVOLUT_CLIENT_ID);
         account.setName("test");
         account.setCurrency("EUR");
-        account.setBalance(10f);
+        account.setBalance(new BigDecimal("10"));
         ResponseEntity<String> response = new ResponseEntity<>(new ObjectMapper().writeValueAsString(account), HttpStatus.OK);
 
         List<Account> expected = new ArrayList<>();
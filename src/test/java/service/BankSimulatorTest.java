@@ -0,0 +1,204 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.j2020.Constants;
+import com.j2020.ExecutorConfiguration;
+import com.j2020.model.GeneralAccount;
+import com.j2020.model.GeneralTransaction;
+import com.j2020.model.PaymentResponse;
+import com.j2020.model.deutsche.DeutschePayment;
+import com.j2020.model.deutsche.DeutschePaymentResponse;
+import com.j2020.repository.TransactionsForBatchRepository;
+import com.j2020.service.AccountRequestRetrievalService;
+import com.j2020.service.BatchProgressService;
+import com.j2020.service.PaymentIdentificationService;
+import com.j2020.service.TokenRequestRetrievalService;
+import com.j2020.service.TokenStore;
+import com.j2020.service.TransactionRequestRetrievalService;
+import com.j2020.service.deutsche.*;
+import com.j2020.service.revolut.RevolutAccountService;
+import com.j2020.service.revolut.RevolutMapperService;
+import com.j2020.service.revolut.RevolutTokenService;
+import com.j2020.service.revolut.RevolutTransactionService;
+import com.j2020.service.revolut.RevolutWebhookService;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+import com.warrenstrange.googleauth.GoogleAuthenticator;
+import helper.TestDataHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RestTemplate;
+import simulator.BankSimulator;
+import simulator.SimulatorProfile;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.util.ReflectionTestUtils.invokeMethod;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class BankSimulatorTest {
+    private BankSimulator simulator;
+    private Map<String, Object> urls;
+    private TransactionRequestRetrievalService transactionRetrieval;
+    private ExecutorService bankIoExecutor;
+    private DeutscheMultiFactorService multiFactorService;
+
+    @Before
+    public void setUp() throws IOException {
+        simulator = new BankSimulator(SimulatorProfile.named("instant"));
+        simulator.start();
+        urls = simulator.applicationProperties();
+
+        RestTemplate restTemplate = new RestTemplate();
+        multiFactorService = new DeutscheMultiFactorService(new GoogleAuthenticator(),
+                new RestTemplate(new HttpComponentsClientHttpRequestFactory()));
+        setField(multiFactorService, "twoFactorSecret", BankSimulator.TWO_FACTOR_SECRET);
+        setField(multiFactorService, "oneTimePassUrl", urls.get("deutscheTransaction.oneTimePassUrl"));
+
+        PaymentIdentificationService identificationService = new PaymentIdentificationService();
+        setField(identificationService, "maxReqIdLength", 40);
+        setField(identificationService, "nodeId", "0");
+        identificationService.init();
+
+        bankIoExecutor = ExecutorConfiguration.newBoundedPool("test-bank-io-", 4, 100);
+        transactionRetrieval = new TransactionRequestRetrievalService(multiFactorService, identificationService, restTemplate,
+                bankIoExecutor);
+        Map<String, Integer> paymentConcurrency = new HashMap<>();
+        paymentConcurrency.put("REVOLUT", 4);
+        paymentConcurrency.put("DEUTSCHE", 4);
+        setField(transactionRetrieval, "paymentConcurrency", paymentConcurrency);
+        transactionRetrieval.init();
+    }
+
+    @After
+    public void tearDown() {
+        simulator.stop();
+        bankIoExecutor.shutdownNow();
+    }
+
+    @Test
+    public void revolutAdaptersTalkToSimulator() throws JsonProcessingException {
+        // GIVEN
+        RestTemplate restTemplate = new RestTemplate();
+        RevolutTokenService tokenService = new RevolutTokenService(new TokenRequestRetrievalService(restTemplate), new TokenStore());
+        setField(tokenService, "revoTokenRenewalUri", urls.get("revolutTokenRenewal.revoTokenRenewalUri"));
+        invokeMethod(tokenService, "init");
+
+        RevolutAccountService accountService = new RevolutAccountService(tokenService,
+                new AccountRequestRetrievalService(restTemplate), new RevolutMapperService(), bankIoExecutor);
+        setField(accountService, "accountUrl", urls.get("revolutAccount.accountUrl"));
+
+        RevolutTransactionService transactionService = new RevolutTransactionService(tokenService, transactionRetrieval,
+                new RevolutMapperService(), mock(TransactionsForBatchRepository.class), mock(BatchProgressService.class),
+                bankIoExecutor);
+        setField(transactionService, "transactionUrl", urls.get("revolutTransaction.transactionUrl"));
+
+        // WHEN
+        List<GeneralAccount> accounts = accountService.retrieveAccountData();
+        List<GeneralTransaction> transactions = transactionService.retrieveTransactionData(null);
+
+        // THEN
+        assertEquals(SimulatorProfile.named("instant").getAccountCount(), accounts.size());
+        assertEquals(SimulatorProfile.named("instant").getTransactionCount(), transactions.size());
+    }
+
+    @Test
+    public void revolutPaymentSettlesInSimulator() throws JsonProcessingException {
+        // GIVEN
+        RevolutTokenService tokenService = new RevolutTokenService(new TokenRequestRetrievalService(new RestTemplate()), new TokenStore());
+        setField(tokenService, "revoTokenRenewalUri", urls.get("revolutTokenRenewal.revoTokenRenewalUri"));
+        invokeMethod(tokenService, "init");
+
+        RevolutTransactionService transactionService = new RevolutTransactionService(tokenService, transactionRetrieval,
+                new RevolutMapperService(), mock(TransactionsForBatchRepository.class), mock(BatchProgressService.class),
+                bankIoExecutor);
+        setField(transactionService, "paymentUrl", urls.get("revolutTransaction.paymentUrl"));
+        setField(transactionService, "paymentStatusUrl", urls.get("revolutTransaction.paymentStatusUrl"));
+
+        // WHEN
+        List<PaymentResponse> responses = transactionService.createPayments(
+                Collections.singletonList(TestDataHelper.generateValidGeneralPaymentForRevolut()));
+
+        // THEN
+        assertEquals("pending", responses.get(0).getStatus());
+        assertEquals("completed", transactionService.retrievePaymentStatus(responses.get(0).getPaymentId()));
+        assertEquals(1, simulator.getStatusLookups());
+    }
+
+    @Test
+    public void settledRevolutPaymentIsAnnouncedBySignedWebhook() throws IOException, InterruptedException {
+        // GIVEN
+        BlockingQueue<Headers> headers = new ArrayBlockingQueue<>(2);
+        BlockingQueue<byte[]> bodies = new ArrayBlockingQueue<>(2);
+        HttpServer receiver = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        receiver.createContext("/webhooks/revolut", exchange -> {
+            bodies.add(StreamUtils.copyToByteArray(exchange.getRequestBody()));
+            headers.add(exchange.getRequestHeaders());
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        receiver.start();
+        simulator.sendWebhooksTo("http://localhost:" + receiver.getAddress().getPort() + "/webhooks/revolut", "secret");
+
+        RevolutTokenService tokenService = new RevolutTokenService(new TokenRequestRetrievalService(new RestTemplate()), new TokenStore());
+        setField(tokenService, "revoTokenRenewalUri", urls.get("revolutTokenRenewal.revoTokenRenewalUri"));
+        invokeMethod(tokenService, "init");
+        RevolutTransactionService transactionService = new RevolutTransactionService(tokenService, transactionRetrieval,
+                new RevolutMapperService(), mock(TransactionsForBatchRepository.class), mock(BatchProgressService.class),
+                bankIoExecutor);
+        setField(transactionService, "paymentUrl", urls.get("revolutTransaction.paymentUrl"));
+
+        // WHEN
+        List<PaymentResponse> responses = transactionService.createPayments(
+                Collections.singletonList(TestDataHelper.generateValidGeneralPaymentForRevolut()));
+        byte[] body = bodies.poll(5, TimeUnit.SECONDS);
+        Headers received = headers.poll(1, TimeUnit.SECONDS);
+        receiver.stop(0);
+
+        // THEN
+        assertNotNull(body);
+        String timestamp = received.getFirst(Constants.REVOLUT_WEBHOOK_TIMESTAMP_HEADER);
+        assertEquals(RevolutWebhookService.sign("secret", timestamp, body), received.getFirst(Constants.REVOLUT_WEBHOOK_SIGNATURE_HEADER));
+        assertTrue(new String(body, StandardCharsets.UTF_8).contains("\"id\":\"" + responses.get(0).getPaymentId() + "\""));
+        assertEquals(1, simulator.getWebhookCalls());
+    }
+
+    @Test
+    public void deutschePaymentNegotiatesOtpWithSimulator() throws JsonProcessingException {
+        // GIVEN
+        DeutschePayment payment = new DeutscheMapperService().toDeutschePayment(TestDataHelper.generateValidGeneralPaymentForDeutsche());
+
+        // WHEN
+        List<PaymentResponse> responses = transactionRetrieval.pushPayments("simulated",
+                (String) urls.get("deutscheTransaction.paymentUrl"),
+                Collections.singletonList(payment),
+                new ObjectMapper().getTypeFactory().constructType(DeutschePaymentResponse.class));
+
+        // THEN
+        assertEquals(1, responses.size());
+        assertNotNull(responses.get(0).getPaymentId());
+        assertEquals(1, simulator.getDeutschePayments());
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.j2020.model.Bank;
+import com.j2020.model.BankSyncStatus;
+import com.j2020.model.GeneralAccount;
+import com.j2020.model.GeneralTransaction;
+import com.j2020.service.*;
+import helper.TestDataHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class BankSyncServiceTest {
+    private static final long INTERVAL = 60000;
+
+    private AccountService accountService;
+    private TransactionService transactionService;
+    private SummaryService summaries;
+    private ReconciliationService reconciliation;
+    private LeaderElectionService leadership;
+    private TransactionArchiveService archive;
+    private LegacyAmountMigrationService legacyAmounts;
+    private BankSyncService syncService;
+
+    @Before
+    public void setUp() {
+        BankingServiceFactory bankingService = Mockito.mock(BankingServiceFactory.class);
+        accountService = Mockito.mock(AccountService.class);
+        transactionService = Mockito.mock(TransactionService.class);
+        summaries = Mockito.mock(SummaryService.class);
+        reconciliation = Mockito.mock(ReconciliationService.class);
+        leadership = Mockito.mock(LeaderElectionService.class);
+        when(leadership.isLeader()).thenReturn(true);
+        archive = Mockito.mock(TransactionArchiveService.class);
+        when(archive.withoutArchived(any(), anyList())).thenAnswer(invocation -> invocation.getArgument(1));
+        legacyAmounts = Mockito.mock(LegacyAmountMigrationService.class);
+        when(bankingService.retrieveAccountService(any())).thenReturn(accountService);
+        when(bankingService.retrieveTransactionService(any())).thenReturn(transactionService);
+
+        Map<String, Long> intervals = new HashMap<>();
+        intervals.put(Bank.REVOLUT.toString(), INTERVAL);
+        intervals.put(Bank.DEUTSCHE.toString(), INTERVAL);
+
+        syncService = new BankSyncService(bankingService, summaries, reconciliation, leadership, archive, legacyAmounts);
+        setField(syncService, "intervalMillis", intervals);
+        setField(syncService, "jitterRatio", 0.1);
+    }
+
+    @After
+    public void tearDown() {
+        syncService.shutdown();
+    }
+
+    @Test
+    public void syncSavesAccountsAndReconcilesChangedTransactions() throws Exception {
+        // GIVEN
+        GeneralAccount account = new GeneralAccount();
+        account.setAccountId("account");
+        List<GeneralTransaction> transactions = TestDataHelper.generateGeneralTransactionsUnder(Bank.REVOLUT);
+        when(accountService.retrieveAccountData()).thenReturn(Collections.singletonList(account));
+        when(transactionService.retrieveTransactionData(Collections.singletonList("account"))).thenReturn(transactions);
+        when(summaries.saveTransactions(transactions)).thenReturn(transactions.subList(0, 1));
+
+        // WHEN
+        BankSyncStatus actual = syncService.requestSync(Bank.REVOLUT).get(5, TimeUnit.SECONDS);
+
+        // THEN
+        verify(summaries).saveAccounts(Collections.singletonList(account));
+        verify(reconciliation).reconcile(transactions.subList(0, 1));
+        assertEquals(transactions.size(), actual.getTransactions());
+        assertNull(actual.getLastError());
+        assertEquals(actual.getLastCompletedAt(), actual.getLastSuccessAt());
+        long delay = actual.getNextSyncAt() - actual.getLastCompletedAt();
+        assertTrue(delay >= INTERVAL * 0.9 && delay <= INTERVAL * 1.1);
+        assertSame(actual, syncService.getSyncStatuses().get(Bank.REVOLUT.toString()));
+    }
+
+    @Test
+    public void concurrentRequestsShareOneSync() throws Exception {
+        // GIVEN
+        CountDownLatch release = new CountDownLatch(1);
+        when(accountService.retrieveAccountData()).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Collections.emptyList();
+        });
+
+        // WHEN
+        CompletableFuture<BankSyncStatus> first = syncService.requestSync(Bank.DEUTSCHE);
+        CompletableFuture<BankSyncStatus> second = syncService.requestSync(Bank.DEUTSCHE);
+        syncService.syncDueBanks();
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        syncService.requestSync(Bank.DEUTSCHE).get(5, TimeUnit.SECONDS);
+
+        // THEN
+        assertSame(first, second);
+        // the Deutsche sync twice and the due Revolut sync started by the tick
+        verify(accountService, timeout(5000).times(3)).retrieveAccountData();
+    }
+
+    @Test
+    public void failedSyncKeepsLastSuccess() throws Exception {
+        // GIVEN
+        when(accountService.retrieveAccountData()).thenReturn(Collections.emptyList());
+        when(transactionService.retrieveTransactionData(anyList()))
+                .thenReturn(Collections.emptyList())
+                .thenThrow(new JsonProcessingException("Unreadable") {
+                });
+        Long lastSuccess = syncService.requestSync(Bank.REVOLUT).get(5, TimeUnit.SECONDS).getLastSuccessAt();
+
+        // WHEN
+        BankSyncStatus actual = syncService.requestSync(Bank.REVOLUT).get(5, TimeUnit.SECONDS);
+
+        // THEN
+        assertEquals("Unreadable", actual.getLastError());
+        assertEquals(lastSuccess, actual.getLastSuccessAt());
+        assertNotNull(actual.getNextSyncAt());
+    }
+
+    @Test
+    public void onlyLeaderSyncs() throws Exception {
+        // GIVEN
+        when(leadership.isLeader()).thenReturn(false);
+
+        // WHEN
+        syncService.syncDueBanks();
+        BankSyncStatus actual = syncService.requestSync(Bank.REVOLUT).get(5, TimeUnit.SECONDS);
+
+        // THEN
+        verifyNoInteractions(accountService, summaries);
+        assertNull(actual.getLastStartedAt());
+    }
+
+    @Test
+    public void leaderConvertsAmountsAndBuildsMissingSummariesOnce() throws Exception {
+        // GIVEN
+        when(accountService.retrieveAccountData()).thenReturn(Collections.emptyList());
+
+        // WHEN
+        syncService.syncDueBanks();
+        syncService.syncDueBanks();
+
+        // THEN
+        InOrder order = inOrder(legacyAmounts, summaries);
+        order.verify(legacyAmounts, times(1)).migrateLegacyAmounts();
+        order.verify(summaries, times(1)).buildMissingSummaries();
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.j2020.Constants;
+import com.j2020.model.BatchOfPayments;
+import com.j2020.model.BatchProgressNotice;
+import com.j2020.model.TransactionStatusCheck;
+import com.j2020.model.exception.BatchNotFoundException;
+import com.j2020.repository.PaymentBatchRepository;
+import com.j2020.repository.TransactionsForBatchRepository;
+import com.j2020.service.BatchProgressService;
+import helper.TestDataHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.util.ReflectionTestUtils.getField;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class BatchProgressServiceTest {
+    private PaymentBatchRepository batchRepository;
+    private TransactionsForBatchRepository transactions;
+    private List<BatchProgressService> nodes;
+    private BatchProgressService progressService;
+
+    @Before
+    public void setUp() {
+        batchRepository = Mockito.mock(PaymentBatchRepository.class);
+        transactions = Mockito.mock(TransactionsForBatchRepository.class);
+        nodes = new ArrayList<>();
+        progressService = newNode();
+    }
+
+    @Test
+    public void subscribingToMissingBatchFails() {
+        // WHEN
+        when(batchRepository.existsById(1L)).thenReturn(false);
+
+        // THEN
+        assertThrows(BatchNotFoundException.class, () -> progressService.subscribe(1L));
+    }
+
+    @Test
+    public void unwatchedBatchIsNotReadBack() {
+        // GIVEN
+        TransactionStatusCheck status = TestDataHelper.generateTransactionStatusChecks().get(0);
+
+        // WHEN
+        progressService.recordStatus(status);
+        progressService.publish(generateBatch(2, 1));
+
+        // THEN
+        assertTrue(pendingPaymentIds(progressService).isEmpty());
+        verify(batchRepository, never()).findById(anyLong());
+        verify(transactions, never()).findAllById(any());
+        verify(transactions, never()).countByBatchIdAndTransactionStatus(anyLong(), anyString());
+    }
+
+    @Test
+    public void statusDeltasAreDrainedOnPublish() {
+        // GIVEN
+        BatchOfPayments batch = generateBatch(2, 0);
+        TransactionStatusCheck status = TestDataHelper.generateTransactionStatusChecks().get(0);
+        when(batchRepository.existsById(1L)).thenReturn(true);
+        when(batchRepository.findById(1L)).thenReturn(Optional.of(batch));
+
+        // WHEN
+        SseEmitter emitter = progressService.subscribe(1L);
+        progressService.recordStatus(status);
+        batch.setCountOfProcessedPayments(1);
+        progressService.publish(batch);
+
+        // THEN
+        assertNotNull(emitter);
+        assertFalse(pendingPaymentIds(progressService).containsKey(1L));
+        verify(transactions).findAllById(Collections.singletonList(status.getPaymentId()));
+        assertEquals(1, emitters(progressService).get(1L).size());
+    }
+
+    @Test
+    public void subscribersAreReleasedWhenBatchCompletes() {
+        // GIVEN
+        BatchOfPayments batch = generateBatch(2, 1);
+        TransactionStatusCheck status = TestDataHelper.generateTransactionStatusChecks().get(1);
+        when(batchRepository.existsById(1L)).thenReturn(true);
+        when(batchRepository.findById(1L)).thenReturn(Optional.of(batch));
+        when(transactions.countByBatchIdAndTransactionStatus(1L, Constants.DISPLAY_FAILED_PAYMENT_STATUS)).thenReturn(1L);
+
+        // WHEN
+        progressService.subscribe(1L);
+        progressService.recordStatus(status);
+        batch.setCountOfProcessedPayments(2);
+        progressService.publish(batch);
+
+        // THEN
+        assertFalse(emitters(progressService).containsKey(1L));
+        assertFalse(pendingPaymentIds(progressService).containsKey(1L));
+    }
+
+    @Test
+    public void subscriberOnAnotherNodeGetsProgress() {
+        // GIVEN
+        BatchProgressService consumingNode = newNode();
+        BatchOfPayments batch = generateBatch(2, 0);
+        TransactionStatusCheck status = TestDataHelper.generateTransactionStatusChecks().get(0);
+        when(batchRepository.existsById(1L)).thenReturn(true);
+        when(batchRepository.findById(1L)).thenReturn(Optional.of(batch));
+        progressService.subscribe(1L);
+
+        // WHEN
+        consumingNode.recordStatus(status);
+        batch.setCountOfProcessedPayments(2);
+        consumingNode.publish(batch);
+
+        // THEN
+        verify(transactions, times(1)).findAllById(Collections.singletonList(status.getPaymentId()));
+        assertFalse(emitters(progressService).containsKey(1L));
+    }
+
+    private BatchProgressService newNode() {
+        // a topic: every node gets every notice
+        JmsTemplate topic = Mockito.mock(JmsTemplate.class);
+        doAnswer(invocation -> {
+            nodes.forEach(node -> node.onProgress(invocation.getArgument(1)));
+            return null;
+        }).when(topic).convertAndSend(eq(Constants.JMS_BATCH_PROGRESS_TOPIC), any(BatchProgressNotice.class));
+
+        BatchProgressService node = new BatchProgressService(batchRepository, transactions, topic);
+        setField(node, "emitterTimeoutMillis", 1000L);
+        nodes.add(node);
+        return node;
+    }
+
+    private static BatchOfPayments generateBatch(int total, int processed) {
+        BatchOfPayments batch = new BatchOfPayments();
+        batch.setId(1L);
+        batch.setCountOfAllPayments(total);
+        batch.setCountOfProcessedPayments(processed);
+        return batch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Long, List<SseEmitter>> emitters(BatchProgressService node) {
+        return (Map<Long, List<SseEmitter>>) getField(node, "emitters");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Long, Queue<String>> pendingPaymentIds(BatchProgressService node) {
+        return (Map<Long, Queue<String>>) getField(node, "pendingPaymentIds");
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.j2020.J2020Application;
+import com.j2020.model.BatchOfPayments;
+import com.j2020.model.BatchStatusPage;
+import com.j2020.model.TransactionStatusCheck;
+import com.j2020.model.exception.BatchNotFoundException;
+import com.j2020.repository.ChangeSequenceRepository;
+import com.j2020.repository.PaymentBatchRepository;
+import com.j2020.repository.TransactionsForBatchRepository;
+import com.j2020.service.BatchRetrievalService;
+import com.j2020.service.ChangeSequenceService;
+import com.j2020.service.LeaderElectionService;
+import helper.TestDataHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@DataJpaTest
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = J2020Application.class)
+public class BatchRetrievalServiceTest {
+    private static final int STATUS_COUNT = 5;
+
+    @Autowired
+    private PaymentBatchRepository batchRepository;
+
+    @Autowired
+    private TransactionsForBatchRepository transactions;
+
+    @Autowired
+    private ChangeSequenceRepository sequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private BatchRetrievalService batchService;
+    private ChangeSequenceService sequenceService;
+    private Long batchId;
+
+    @Before
+    public void setUp() {
+        batchService = new BatchRetrievalService(batchRepository, transactions);
+        setField(batchService, "maxPageSize", 3);
+        sequenceService = new ChangeSequenceService(sequenceRepository, transactions,
+                Mockito.mock(LeaderElectionService.class), transactionManager);
+        setField(sequenceService, "chunkSize", 2);
+
+        BatchOfPayments batch = new BatchOfPayments();
+        batch.setCountOfAllPayments(STATUS_COUNT);
+        batch.setCountOfProcessedPayments(STATUS_COUNT);
+        batchId = batchRepository.save(batch).getId();
+
+        for (int index = 0; index < STATUS_COUNT; index++) {
+            TransactionStatusCheck status = TestDataHelper.generateTransactionStatusChecks().get(index % 2);
+            status.setPaymentId("paged-" + batchId + "-" + index);
+            status.setBatchId(batchId);
+            transactions.save(status);
+        }
+        transactions.flush();
+        while (sequenceService.stamp() > 0) {
+            // numbered two at a time
+        }
+    }
+
+    @Test
+    public void pagesFollowChangeSequence() {
+        // WHEN
+        BatchStatusPage first = batchService.getBatchPage(batchId, 0L, 2, false);
+        BatchStatusPage second = batchService.getBatchPage(batchId, first.getNextSince(), 2, false);
+        BatchStatusPage third = batchService.getBatchPage(batchId, second.getNextSince(), 2, false);
+
+        // THEN
+        assertEquals(2, first.getStatuses().size());
+        assertTrue(first.isHasMore());
+        assertEquals(2, second.getStatuses().size());
+        assertTrue(second.getStatuses().get(0).getChangeSequence() > first.getNextSince());
+        assertEquals(1, third.getStatuses().size());
+        assertFalse(third.isHasMore());
+    }
+
+    @Test
+    public void onlyChangedRowsAreReturnedSinceLastPoll() {
+        // GIVEN
+        BatchStatusPage polled = batchService.getBatchPage(batchId, 0L, 3, false);
+        polled = batchService.getBatchPage(batchId, polled.getNextSince(), 3, false);
+        TransactionStatusCheck changed = transactions.findById("paged-" + batchId + "-0").get();
+        changed.setTransactionStatus("completed");
+        transactions.saveAndFlush(changed);
+        List<TransactionStatusCheck> beforeNumbering = batchService.getBatchPage(batchId, polled.getNextSince(), 3, false).getStatuses();
+        sequenceService.stamp();
+
+        // WHEN
+        List<TransactionStatusCheck> actual = batchService.getBatchPage(batchId, polled.getNextSince(), 3, false).getStatuses();
+
+        // THEN
+        assertTrue(beforeNumbering.isEmpty());
+        assertEquals(1, actual.size());
+        assertEquals("completed", actual.get(0).getTransactionStatus());
+        assertTrue(actual.get(0).getChangeSequence() > polled.getNextSince());
+    }
+
+    @Test
+    public void pageSizeIsCappedByConfiguration() {
+        // WHEN
+        BatchStatusPage actual = batchService.getBatchPage(batchId, 0L, 100, false);
+
+        // THEN
+        assertEquals(3, actual.getStatuses().size());
+        assertTrue(actual.isHasMore());
+    }
+
+    @Test
+    public void summaryOmitsStatusRows() {
+        // WHEN
+        BatchStatusPage actual = batchService.getBatchPage(batchId, 0L, null, true);
+
+        // THEN
+        assertTrue(actual.getStatuses().isEmpty());
+        assertEquals(STATUS_COUNT, actual.getTotalPayments());
+        assertEquals(STATUS_COUNT, actual.getFailedPayments());
+    }
+
+    @Test
+    public void missingBatchIsReported() {
+        // THEN
+        assertThrows(BatchNotFoundException.class, () -> batchService.getBatchPage(-1L, 0L, null, false));
+    }
+}
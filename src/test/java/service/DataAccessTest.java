@@ -4,7 +4,6 @@
 
 package service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.j2020.J2020Application;
 import com.j2020.model.*;
 import com.j2020.model.deutsche.DeutscheAccount;
@@ -13,8 +12,10 @@ import com.j2020.model.revolut.RevolutAccount;
 import com.j2020.model.revolut.RevolutTransaction;
 import com.j2020.repository.AccountRepository;
 import com.j2020.repository.TransactionRepository;
-import com.j2020.service.AccountProcessingService;
+import com.j2020.service.BankSyncService;
+import com.j2020.service.IdempotencyService;
 import com.j2020.service.PersistenceManagerService;
+import com.j2020.service.TransactionArchiveService;
 import com.j2020.service.TransactionProcessingService;
 import com.j2020.service.deutsche.DeutscheMapperService;
 import com.j2020.service.revolut.RevolutMapperService;
@@ -33,10 +34,18 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @DataJpaTest
@@ -50,8 +59,9 @@ public class DataAccessTest {
     private TransactionRepository transactionRepository;
 
     private TransactionProcessingService transactionService;
-    private AccountProcessingService accountService;
+    private BankSyncService syncService;
     private PersistenceManagerService persistence;
+    private IdempotencyService idempotency;
     private RevolutMapperService revolutMapper;
     private DeutscheMapperService deutscheMapper;
 
@@ -75,10 +85,12 @@ public class DataAccessTest {
     @Before
     public void setUp() {
         transactionService = Mockito.mock(TransactionProcessingService.class);
-        accountService = Mockito.mock(AccountProcessingService.class);
+        syncService = Mockito.mock(BankSyncService.class);
         revolutMapper = new RevolutMapperService();
         deutscheMapper = new DeutscheMapperService();
-        persistence = new PersistenceManagerService(transactionService, accountService, accountRepository, transactionRepository);
+        idempotency = Mockito.mock(IdempotencyService.class);
+        persistence = new PersistenceManagerService(transactionService, accountRepository, transactionRepository,
+                idempotency, syncService, Mockito.mock(TransactionArchiveService.class));
     }
 
     @Test
@@ -94,7 +106,7 @@ public class DataAccessTest {
     @Test
     public void getAllTransactions() {
         // GIVEN
-        Map<String, List<GeneralTransaction>> transactions = persistence.returnTransactions();
+        Map<String, List<GeneralTransaction>> transactions = persistence.returnTransactions(null, null);
 
         // THEN
         assertEquals(1, transactions.get(Bank.REVOLUT.toString()).size());
@@ -102,33 +114,61 @@ public class DataAccessTest {
     }
 
     @Test
-    public void processAndUpdateTransactions() throws JsonProcessingException {
+    public void processAndUpdateTransactionsRequestsSyncOfPaidBanks() {
         // GIVEN
-        Map<String, List<GeneralTransaction>> addedTransactions = new HashMap<>();
-        addedTransactions.put(Bank.REVOLUT.toString(), TestDataHelper.generateGeneralTransactionsUnder(Bank.REVOLUT));
-        addedTransactions.put(Bank.DEUTSCHE.toString(), TestDataHelper.generateGeneralTransactionsUnder(Bank.DEUTSCHE));
-
         Map<String, List<GeneralPayment>> payments = new HashMap<>();
         List<GeneralPayment> generalPayments = new ArrayList<>();
         generalPayments.add(new GeneralPayment());
         payments.put(Bank.REVOLUT.toString(), generalPayments);
-        payments.put(Bank.DEUTSCHE.toString(), generalPayments);
 
-        Map<String, List<GeneralAccount>> accounts = new HashMap<>();
-        accounts.put(Bank.REVOLUT.toString(), TestDataHelper.generateRevolutAccounts().stream()
-                .map(account -> revolutMapper.toGeneralAccount((RevolutAccount) account)).collect(Collectors.toList()));
-        accounts.put(Bank.DEUTSCHE.toString(), TestDataHelper.generateDeutscheAccounts().stream()
-                .map(account -> deutscheMapper.toGeneralAccount((DeutscheAccount) account)).collect(Collectors.toList()));
+        PaymentSubmissionReport response = new PaymentSubmissionReport();
+        response.setBatchId(1L);
+        when(transactionService.initiatePaymentRequests(anyMap())).thenReturn(response);
+
+        // WHEN
+        persistence.processAndUpdateTransactions(payments, null);
+
+        // THEN
+        verify(syncService).requestSync(Bank.REVOLUT);
+        verify(syncService, never()).requestSync(Bank.DEUTSCHE);
+    }
+
+    @Test
+    public void requestWithoutValidPaymentsIsNotRemembered() {
+        // GIVEN
+        Map<String, List<GeneralPayment>> payments = new HashMap<>();
+        payments.put(Bank.REVOLUT.toString(), null);
+
+        when(idempotency.hashRequest(anyMap())).thenReturn("someHash");
+        when(idempotency.findResponse("key", "someHash")).thenReturn(Optional.empty());
+        when(transactionService.initiatePaymentRequests(anyMap())).thenReturn(new PaymentSubmissionReport());
+
+        // WHEN
+        BatchOfPaymentsMessage actual = persistence.processAndUpdateTransactions(payments, "key");
+
+        // THEN
+        assertNull(actual.getBatchId());
+        verify(idempotency, never()).remember(anyString(), anyString(), any());
+        verifyNoInteractions(syncService);
+    }
+
+    @Test
+    public void repeatedIdempotencyKeyReplaysBatchWithoutProcessing() {
+        // GIVEN
+        Map<String, List<GeneralPayment>> payments = new HashMap<>();
+        payments.put(Bank.REVOLUT.toString(), new ArrayList<>());
 
-        when(transactionService.initiatePaymentRequests(anyMap())).thenReturn(new BatchOfPaymentsMessage());
-        when(transactionService.collectTransactionResponse()).thenReturn(addedTransactions);
-        when(accountService.collectAccountResponse()).thenReturn(accounts);
+        when(idempotency.hashRequest(anyMap())).thenReturn("someHash");
+        PaymentSubmissionReport original = new PaymentSubmissionReport();
+        original.setBatchId(7L);
+        original.setAcceptedPayments(2);
+        when(idempotency.findResponse("key", "someHash")).thenReturn(Optional.of(original));
 
         // WHEN
-        persistence.processAndUpdateTransactions(payments);
+        BatchOfPaymentsMessage actual = persistence.processAndUpdateTransactions(payments, "key");
 
         // THEN
-        assertEquals(3, transactionRepository.findByBank(Bank.REVOLUT).size());
-        assertEquals(4, transactionRepository.findByBank(Bank.DEUTSCHE).size());
+        assertSame(original, actual);
+        verifyNoInteractions(transactionService, syncService);
     }
 }
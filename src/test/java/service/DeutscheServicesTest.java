@@ -8,6 +8,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.j2020.Constants;
+import com.j2020.ExecutorConfiguration;
 import com.j2020.J2020Application;
 import com.j2020.model.*;
 import com.j2020.model.deutsche.*;
@@ -15,8 +16,10 @@ import com.j2020.model.exception.JsonProcessingExceptionLambdaWrapper;
 import com.j2020.model.exception.MissingPaymentRequestDataException;
 import com.j2020.repository.TransactionsForBatchRepository;
 import com.j2020.service.AccountRequestRetrievalService;
+import com.j2020.service.BatchProgressService;
 import com.j2020.service.TransactionRequestRetrievalService;
 import com.j2020.service.deutsche.*;
+import com.j2020.service.upload.Pain001PaymentFileReader;
 import com.warrenstrange.googleauth.GoogleAuthenticator;
 import helper.TestDataHelper;
 import org.junit.Before;
@@ -31,10 +34,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
-import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -77,7 +81,8 @@ public class DeutscheServicesTest {
         accountRetrieval = Mockito.mock(AccountRequestRetrievalService.class);
         accountService = new DeutscheAccountService(tokenService, accountRetrieval, mapper);
         transactionRetrieval = Mockito.mock(TransactionRequestRetrievalService.class);
-        transactionService = new DeutscheTransactionService(tokenService, transactionRetrieval, mapper, transactions);
+        transactionService = new DeutscheTransactionService(tokenService, transactionRetrieval, mapper, transactions,
+                Mockito.mock(BatchProgressService.class), ExecutorConfiguration.newBoundedPool("test-io-", 4, 16));
 
         setField(accountService, "accountUrl", Constants.DEUTSCHE_ACCOUNT_URL);
         setField(transactionService, "transactionUrl", Constants.DEUTSCHE_TRANSACTION_URL);
@@ -153,7 +158,7 @@ public class DeutscheServicesTest {
                 anyString(),
                 eq(Constants.DEUTSCHE_PAYMENT_URL),
                 anyList(),
-                eq(type))).thenThrow(HttpServerErrorException.class);
+                eq(type))).thenReturn(Collections.singletonList(new FailedPaymentResponse("500 Internal Server Error")));
         when(tokenService.getToken()).thenReturn("someToken");
 
         transactionService.createPayments(payments);
@@ -184,7 +189,29 @@ public class DeutscheServicesTest {
         List<PaymentResponse> actual = transactionService.createPayments(payments);
 
         // THEN
-        assertEquals(new ArrayList<>(), actual);
+        assertEquals(responses, actual);
+    }
+
+    @Test
+    public void statusKeepsEndToEndReference() throws JsonProcessingException {
+        // GIVEN
+        GeneralPayment payment = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+        payment.getAdditionalInfo().put(Pain001PaymentFileReader.END_TO_END_ID, "E2E-036");
+        List<PaymentResponse> responses = new ArrayList<>();
+        responses.add(TestDataHelper.generateDeutschePaymentResponse());
+
+        when(transactionRetrieval.pushPayments(
+                anyString(),
+                eq(Constants.DEUTSCHE_PAYMENT_URL),
+                anyList(),
+                any(JavaType.class))).thenReturn(responses);
+        when(tokenService.getToken()).thenReturn("someToken");
+
+        // WHEN
+        transactionService.createPayments(Collections.singletonList(payment));
+
+        // THEN
+        assertTrue(transactions.findAll().stream().anyMatch(status -> "E2E-036".equals(status.getRequestId())));
     }
 
     @Test
@@ -233,17 +260,42 @@ public class DeutscheServicesTest {
         assertEquals(parsedTransactions, actual);
     }
 
+    @Test
+    public void transactionsOfSeveralIbansKeepIbanOrder() throws JsonProcessingException {
+        // GIVEN
+        List<Transaction> transactions = TestDataHelper.generateDeutscheTransactions();
+        List<String> ibans = new ArrayList<>();
+        ibans.add("first");
+        ibans.add("second");
+
+        when(transactionRetrieval.retrieveTransactions(anyString(), contains("first"), any())).thenAnswer(invocation -> {
+            Thread.sleep(100);
+            return transactions.subList(0, 1);
+        });
+        when(transactionRetrieval.retrieveTransactions(anyString(), contains("second"), any()))
+                .thenReturn(transactions.subList(1, 2));
+        when(tokenService.getToken()).thenReturn("someToken");
+
+        // WHEN
+        List<GeneralTransaction> actual = transactionService.retrieveTransactionData(ibans);
+
+        // THEN
+        assertEquals(2, actual.size());
+        assertEquals(((DeutscheTransaction) transactions.get(0)).getPaymentIdentification(), actual.get(0).getTransactionId());
+        assertEquals(((DeutscheTransaction) transactions.get(1)).getPaymentIdentification(), actual.get(1).getTransactionId());
+    }
+
     @Test
     public void stripTrailingNullDecimals() {
         // GIVEN
         GeneralPayment general = TestDataHelper.generateValidGeneralPaymentForDeutsche();
-        Float specifiedAmount = general.getAmount();
+        Money specifiedAmount = general.getAmount();
 
         // WHEN
         DeutschePayment payment = mapper.toDeutschePayment(general);
 
         // THEN
-        assertEquals("10.0", Float.toString(specifiedAmount));
+        assertEquals("10.00", specifiedAmount.toPlainString());
         assertEquals("10", payment.getInstructedAmount().getAmount());
     }
 
@@ -251,15 +303,16 @@ public class DeutscheServicesTest {
     public void retainActualDecimalPart() {
         // GIVEN
         GeneralPayment general = TestDataHelper.generateValidGeneralPaymentForDeutsche();
-        Float specifiedAmount = 10.01f;
+        Money specifiedAmount = Money.parse("10.01", Constants.TEST_CURRENCY_CODE);
         general.setAmount(specifiedAmount);
 
         // WHEN
         DeutschePayment payment = mapper.toDeutschePayment(general);
 
         // THEN
-        assertEquals("10.01", Float.toString(specifiedAmount));
+        assertEquals("10.01", specifiedAmount.toPlainString());
         assertEquals("10.01", payment.getInstructedAmount().getAmount());
+        assertEquals(specifiedAmount, payment.getAmount());
     }
 
     @Test
@@ -270,4 +323,45 @@ public class DeutscheServicesTest {
         // THEN
         assertThrows(MissingPaymentRequestDataException.class, () -> mapper.toDeutschePayment(payment));
     }
+
+    @Test
+    public void mapTransactionWithoutAmount() {
+        // GIVEN
+        DeutscheTransaction transaction = (DeutscheTransaction) TestDataHelper.generateDeutscheTransactions().get(0);
+        transaction.setAmount(null);
+
+        // WHEN
+        GeneralTransaction actual = mapper.toGeneralTransaction(transaction);
+
+        // THEN
+        assertNull(actual.getAmount());
+        assertEquals("DB-A001/01", actual.getTransactionId());
+    }
+
+    @Test
+    public void mapAccountWithUnknownCurrency() {
+        // GIVEN
+        DeutscheAccount account = (DeutscheAccount) TestDataHelper.generateDeutscheAccounts().get(0);
+        account.setCurrencyCode("EURO");
+
+        // WHEN
+        GeneralAccount actual = mapper.toGeneralAccount(account);
+
+        // THEN
+        assertNull(actual.getBalance());
+        assertEquals("EURO", actual.getCurrency());
+    }
+
+    @Test
+    public void roundAmountFinerThanTheCurrency() {
+        // GIVEN
+        DeutscheTransaction transaction = (DeutscheTransaction) TestDataHelper.generateDeutscheTransactions().get(0);
+        transaction.setAmount(new BigDecimal("905.285"));
+
+        // WHEN
+        GeneralTransaction actual = mapper.toGeneralTransaction(transaction);
+
+        // THEN
+        assertEquals(Money.parse("905.28", Constants.TEST_CURRENCY_CODE), actual.getAmount());
+    }
 }
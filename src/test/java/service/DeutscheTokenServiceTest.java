@@ -8,31 +8,53 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.j2020.Constants;
+import com.j2020.model.StoredToken;
 import com.j2020.model.exception.TokenFetchException;
 import com.j2020.model.deutsche.DeutscheTokenRenewalResponse;
 import com.j2020.service.TokenRequestRetrievalService;
+import com.j2020.service.TokenStore;
 import com.j2020.service.deutsche.DeutscheTokenService;
 import helper.TestDataHelper;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.HttpClientErrorException;
 
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.getField;
+import static org.springframework.test.util.ReflectionTestUtils.invokeMethod;
 import static org.springframework.test.util.ReflectionTestUtils.setField;
 
 public class DeutscheTokenServiceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private DeutscheTokenService tokenService;
     private TokenRequestRetrievalService retrievalService;
 
     @Before
     public void setUp() {
         retrievalService = Mockito.mock(TokenRequestRetrievalService.class);
-        tokenService = new DeutscheTokenService(retrievalService);
+        tokenService = new DeutscheTokenService(retrievalService, new TokenStore());
 
         setField(tokenService, "deutTokenRenewalUri", Constants.DEUTSCHE_TOKEN_RENEWAL_URL);
         setField(tokenService, "deutClientId", Constants.DEUTSCHE_CLIENT_ID);
@@ -72,4 +94,78 @@ public class DeutscheTokenServiceTest {
         // THEN
         assertThrows(TokenFetchException.class, () -> tokenService.refreshToken());
     }
+
+    @Test
+    public void restartReusesStoredTokenAndRotatedRefreshToken() throws Exception {
+        // GIVEN
+        JavaType type = new ObjectMapper().getTypeFactory().constructType(DeutscheTokenRenewalResponse.class);
+        DeutscheTokenRenewalResponse renewalResponse = TestDataHelper.generateExpiredDeutscheTokenResponse();
+        renewalResponse.setSecondsUntilExpiring(600);
+        when(retrievalService.retrieveToken(notNull(), eq(Constants.DEUTSCHE_TOKEN_RENEWAL_URL), eq(type)))
+                .thenReturn(renewalResponse);
+        TokenStore tokenStore = new TokenStore();
+        setField(tokenStore, "path", folder.newFolder().toPath().resolve("tokens.bin").toString());
+        setField(tokenStore, "key", Base64.getEncoder().encodeToString(new byte[32]));
+        tokenStore.init();
+        invokeMethod(withConfiguration(new DeutscheTokenService(retrievalService, tokenStore)), "init");
+
+        // WHEN
+        DeutscheTokenService restarted = withConfiguration(new DeutscheTokenService(retrievalService, tokenStore));
+        invokeMethod(restarted, "init");
+
+        // THEN
+        verify(retrievalService, times(1)).retrieveToken(notNull(), any(), any());
+        assertEquals(Constants.TEST_ACCESS_TOKEN, restarted.getToken());
+        assertEquals("validRefreshToken", ((StoredToken) getField(restarted, "current")).getRefreshToken());
+    }
+
+    @Test
+    public void concurrentCallersRenewAnExpiredTokenOnce() throws Exception {
+        // GIVEN
+        when(retrievalService.retrieveToken(notNull(), any(), any()))
+                .thenReturn(TestDataHelper.generateExpiredDeutscheTokenResponse());
+        tokenService.refreshToken();
+        DeutscheTokenRenewalResponse renewed = TestDataHelper.generateExpiredDeutscheTokenResponse();
+        renewed.setAccessToken("renewed");
+        renewed.setSecondsUntilExpiring(600);
+        renewed.setRefreshToken("rotatedAgain");
+        List<String> spentRefreshTokens = Collections.synchronizedList(new ArrayList<>());
+        when(retrievalService.retrieveToken(notNull(), any(), any())).thenAnswer(invocation -> {
+            spentRefreshTokens.add(invocation.<MultiValueMap<String, String>>getArgument(0).getFirst("refresh_token"));
+            // slow enough for the other callers to find the token expired too
+            Thread.sleep(100);
+            return renewed;
+        });
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        List<CompletableFuture<String>> tokens = new ArrayList<>();
+        for (int caller = 0; caller < 4; caller++) {
+            tokens.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                return tokenService.getToken();
+            }, callers));
+        }
+
+        // WHEN
+        start.countDown();
+
+        // THEN
+        for (CompletableFuture<String> token : tokens) {
+            assertEquals("renewed", token.get());
+        }
+        callers.shutdown();
+        assertEquals(Collections.singletonList("validRefreshToken"), spentRefreshTokens);
+    }
+
+    private static DeutscheTokenService withConfiguration(DeutscheTokenService service) {
+        setField(service, "deutTokenRenewalUri", Constants.DEUTSCHE_TOKEN_RENEWAL_URL);
+        setField(service, "deutClientId", Constants.DEUTSCHE_CLIENT_ID);
+        setField(service, "deutClientSecret", Constants.DEUTSCHE_CLIENT_SECRET);
+        setField(service, "oAuthToken", Constants.DEUTSCHE_OAUTHTOKEN);
+        return service;
+    }
 }
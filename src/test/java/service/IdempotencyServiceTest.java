@@ -0,0 +1,134 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.j2020.Constants;
+import com.j2020.J2020Application;
+import com.j2020.model.Bank;
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.IdempotencyRecord;
+import com.j2020.model.PaymentRowError;
+import com.j2020.model.PaymentSubmissionReport;
+import com.j2020.model.exception.IdempotencyKeyReusedException;
+import com.j2020.repository.IdempotencyRecordRepository;
+import com.j2020.repository.LeaderLeaseRepository;
+import com.j2020.service.IdempotencyService;
+import com.j2020.service.LeaderElectionService;
+import helper.TestDataHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@DataJpaTest
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = J2020Application.class)
+public class IdempotencyServiceTest {
+    @Autowired
+    private IdempotencyRecordRepository records;
+
+    @Autowired
+    private LeaderLeaseRepository leases;
+
+    private IdempotencyService idempotency;
+
+    @Before
+    public void setUp() {
+        idempotency = new IdempotencyService(records, new LeaderElectionService(leases));
+        setField(idempotency, "retentionHours", 24L);
+        setField(idempotency, "cacheSize", 1);
+    }
+
+    @Test
+    public void repeatedRequestFindsOriginalResponse() {
+        // GIVEN
+        String hash = idempotency.hashRequest(generateRequest(false));
+        PaymentSubmissionReport response = generateResponse(42L);
+        response.setRejectedPayments(1);
+        response.getErrors().add(new PaymentRowError(Bank.REVOLUT, 3, "Amount is missing"));
+
+        // WHEN
+        Optional<PaymentSubmissionReport> first = idempotency.findResponse("key-1", hash);
+        idempotency.remember("key-1", hash, response);
+        PaymentSubmissionReport actual = idempotency.findResponse("key-1", hash).get();
+
+        // THEN
+        assertFalse(first.isPresent());
+        assertEquals(42L, actual.getBatchId());
+        assertEquals(response.getText(), actual.getText());
+        assertEquals(2, actual.getAcceptedPayments());
+        assertEquals(1, actual.getRejectedPayments());
+        assertEquals(Bank.REVOLUT, actual.getErrors().get(0).getBank());
+        assertEquals(3, actual.getErrors().get(0).getRow());
+        assertEquals("Amount is missing", actual.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    public void requestHashDoesNotDependOnMapOrder() {
+        // WHEN
+        String expected = idempotency.hashRequest(generateRequest(false));
+        String actual = idempotency.hashRequest(generateRequest(true));
+
+        // THEN
+        assertEquals(expected, actual);
+        assertEquals(64, actual.length());
+    }
+
+    @Test
+    public void reusedKeyWithDifferentRequestIsRejected() {
+        // GIVEN
+        idempotency.remember("key-2", "someHash", generateResponse(1L));
+
+        // THEN
+        assertThrows(IdempotencyKeyReusedException.class, () -> idempotency.findResponse("key-2", "otherHash"));
+    }
+
+    @Test
+    public void expiredKeysAreIgnoredAndRemoved() {
+        // GIVEN
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setIdempotencyKey("key-3");
+        record.setRequestHash("someHash");
+        record.setBatchId(3L);
+        record.setCreatedAt(Instant.now().minus(25, ChronoUnit.HOURS).toEpochMilli());
+        records.save(record);
+
+        // WHEN
+        Optional<PaymentSubmissionReport> actual = idempotency.findResponse("key-3", "someHash");
+        idempotency.removeExpired();
+
+        // THEN
+        assertFalse(actual.isPresent());
+        assertFalse(records.findById("key-3").isPresent());
+    }
+
+    private static PaymentSubmissionReport generateResponse(Long batchId) {
+        PaymentSubmissionReport response = new PaymentSubmissionReport();
+        response.setText(Constants.DISPLAY_BATCH_ACCEPTED_TEXT);
+        response.setBatchId(batchId);
+        response.setAcceptedPayments(2);
+        return response;
+    }
+
+    private static Map<String, List<GeneralPayment>> generateRequest(boolean reversed) {
+        Map<String, List<GeneralPayment>> request = new LinkedHashMap<>();
+        List<String> banks = Arrays.asList(Bank.REVOLUT.toString(), Bank.DEUTSCHE.toString());
+        if (reversed) {
+            Collections.reverse(banks);
+        }
+        banks.forEach(bank -> request.put(bank, Collections.singletonList(TestDataHelper.generateValidGeneralPaymentForDeutsche())));
+        return request;
+    }
+}
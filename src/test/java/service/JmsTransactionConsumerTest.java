@@ -0,0 +1,119 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.j2020.Constants;
+import com.j2020.model.Bank;
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.TransactionStatusCheck;
+import com.j2020.model.exception.PaymentNotSentException;
+import com.j2020.model.exception.TokenFetchException;
+import com.j2020.repository.PaymentBatchRepository;
+import com.j2020.repository.TransactionsForBatchRepository;
+import com.j2020.service.BankingServiceFactory;
+import com.j2020.service.BatchProgressService;
+import com.j2020.service.TransactionService;
+import com.j2020.service.jms.JmsTransactionConsumer;
+import com.j2020.service.jms.LaneLatencyService;
+import com.j2020.service.jms.PaymentDeduplicationService;
+import helper.TestDataHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class JmsTransactionConsumerTest {
+    private TransactionService transactionService;
+    private PaymentBatchRepository batchRepository;
+    private TransactionsForBatchRepository transactions;
+    private PaymentDeduplicationService deduplication;
+    private JmsTransactionConsumer consumer;
+    private GeneralPayment payment;
+
+    @Before
+    public void setUp() {
+        BankingServiceFactory serviceFactory = Mockito.mock(BankingServiceFactory.class);
+        transactionService = Mockito.mock(TransactionService.class);
+        batchRepository = Mockito.mock(PaymentBatchRepository.class);
+        transactions = Mockito.mock(TransactionsForBatchRepository.class);
+        deduplication = Mockito.mock(PaymentDeduplicationService.class);
+        consumer = new JmsTransactionConsumer(serviceFactory, batchRepository, transactions,
+                Mockito.mock(BatchProgressService.class), deduplication, Mockito.mock(LaneLatencyService.class));
+        setField(consumer, "maxDeliveries", 3);
+
+        payment = TestDataHelper.generateValidGeneralPaymentForRevolut();
+        payment.setBank(Bank.REVOLUT);
+        payment.setBatchId(5L);
+        when(serviceFactory.retrieveTransactionService(Bank.REVOLUT)).thenReturn(transactionService);
+        when(deduplication.claim(any(), any())).thenReturn(true);
+    }
+
+    @Test
+    public void paymentThatDidNotReachTheBankIsDeliveredAgain() throws JsonProcessingException {
+        // GIVEN
+        when(transactionService.createPayments(anyList()))
+                .thenThrow(new PaymentNotSentException("not sent", new TokenFetchException("no token")));
+
+        // THEN
+        assertThrows(PaymentNotSentException.class, () -> consumer.onMessage(payment, 1L, null, null));
+        assertThrows(PaymentNotSentException.class, () -> consumer.onMessage(payment, 1L, null, 2));
+        verify(deduplication, times(2)).release(payment);
+        verify(transactions, never()).saveAll(anyList());
+        verify(batchRepository, never()).updateCountOfProcessedPayments(any(), any());
+    }
+
+    @Test
+    public void lastDeliveryIsRecordedAsFailed() throws JsonProcessingException {
+        // GIVEN
+        when(transactionService.createPayments(anyList()))
+                .thenThrow(new PaymentNotSentException("not sent", new TokenFetchException("no token")));
+        when(transactions.countByBatchId(5L)).thenReturn(1L);
+
+        // WHEN
+        consumer.onMessage(payment, 1L, null, 3);
+
+        // THEN
+        verify(deduplication, never()).release(any());
+        assertEquals(Constants.DISPLAY_FAILED_PAYMENT_STATUS, savedStatus().getTransactionStatus());
+        verify(batchRepository).updateCountOfProcessedPayments(5L, 1);
+    }
+
+    @Test
+    public void paymentTheBankMayHaveKeepsItsClaim() throws JsonProcessingException {
+        // GIVEN
+        when(transactionService.createPayments(anyList())).thenThrow(new IllegalStateException("connection lost"));
+        when(transactions.countByBatchId(5L)).thenReturn(1L);
+
+        // WHEN
+        consumer.onMessage(payment, 1L, null, null);
+
+        // THEN
+        verify(deduplication, never()).release(any());
+        TransactionStatusCheck actual = savedStatus();
+        assertEquals(Constants.DISPLAY_UNKNOWN_PAYMENT_STATUS, actual.getTransactionStatus());
+        assertEquals(5L, actual.getBatchId());
+        assertEquals(payment.getAmount(), actual.getAmount());
+        assertNotNull(actual.getSubmittedAt());
+        verify(batchRepository).updateCountOfProcessedPayments(eq(5L), eq(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private TransactionStatusCheck savedStatus() {
+        ArgumentCaptor<List<TransactionStatusCheck>> saved = ArgumentCaptor.forClass(List.class);
+        verify(transactions).saveAll(saved.capture());
+        assertEquals(1, saved.getValue().size());
+        return saved.getValue().get(0);
+    }
+}
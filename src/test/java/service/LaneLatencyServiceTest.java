@@ -0,0 +1,60 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.j2020.model.PaymentLaneStatus;
+import com.j2020.model.PaymentPriority;
+import com.j2020.service.jms.LaneLatencyService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class LaneLatencyServiceTest {
+    private LaneLatencyService latency;
+
+    @Before
+    public void setUp() {
+        Map<String, Long> sloMillis = new HashMap<>();
+        sloMillis.put("URGENT", 100L);
+        sloMillis.put("NORMAL", 1000L);
+        sloMillis.put("BULK", 10000L);
+
+        latency = new LaneLatencyService();
+        setField(latency, "sloMillis", sloMillis);
+        setField(latency, "latencySamples", 100);
+        latency.init();
+    }
+
+    @Test
+    public void lanesAreMeasuredAgainstTheirOwnSlo() {
+        // GIVEN
+        for (long millis = 1; millis <= 200; millis++) {
+            latency.record(PaymentPriority.URGENT, millis);
+        }
+        latency.record(PaymentPriority.BULK, 5000);
+
+        // WHEN
+        Map<String, PaymentLaneStatus> statuses = latency.getLaneStatuses();
+
+        // THEN
+        PaymentLaneStatus urgent = statuses.get("URGENT");
+        assertEquals(200L, (long) urgent.getPayments());
+        assertEquals(100L, (long) urgent.getSloBreaches());
+        assertEquals(100, (int) urgent.getSampledPayments());
+        assertEquals(150L, (long) urgent.getP50Millis());
+        assertEquals(199L, (long) urgent.getP99Millis());
+        assertEquals(200L, (long) urgent.getMaxMillis());
+
+        assertEquals(0L, (long) statuses.get("BULK").getSloBreaches());
+        assertEquals(5000L, (long) statuses.get("BULK").getP95Millis());
+        assertEquals(0L, (long) statuses.get("NORMAL").getPayments());
+        assertNull(statuses.get("NORMAL").getP50Millis());
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.j2020.J2020Application;
+import com.j2020.model.LeaderLease;
+import com.j2020.repository.LeaderLeaseRepository;
+import com.j2020.service.LeaderElectionService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@DataJpaTest
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = J2020Application.class)
+public class LeaderElectionServiceTest {
+    @Autowired
+    private LeaderLeaseRepository leases;
+
+    private LeaderElectionService first;
+    private LeaderElectionService second;
+
+    @Before
+    public void setUp() {
+        leases.deleteAll();
+        first = newNode();
+        second = newNode();
+    }
+
+    @Test
+    public void onlyOneNodeLeads() {
+        // WHEN
+        first.renew();
+        second.renew();
+        first.renew();
+
+        // THEN
+        assertTrue(first.isLeader());
+        assertFalse(second.isLeader());
+        assertEquals(first.getNodeName(), leases.findById(LeaderElectionService.SCHEDULER_LEASE).get().getHolder());
+    }
+
+    @Test
+    public void expiredLeaseIsTakenOver() {
+        // GIVEN
+        first.renew();
+        LeaderLease lease = leases.findById(LeaderElectionService.SCHEDULER_LEASE).get();
+        lease.setExpiresAt(System.currentTimeMillis() - 1);
+        leases.saveAndFlush(lease);
+
+        // WHEN
+        second.renew();
+        first.renew();
+
+        // THEN
+        assertTrue(second.isLeader());
+        assertFalse(first.isLeader());
+    }
+
+    @Test
+    public void releasedLeaseIsTakenOverRightAway() {
+        // GIVEN
+        first.renew();
+
+        // WHEN
+        first.release();
+        second.renew();
+
+        // THEN
+        assertFalse(first.isLeader());
+        assertTrue(second.isLeader());
+    }
+
+    @Test
+    public void singleNodeAlwaysLeads() {
+        // GIVEN
+        LeaderElectionService single = new LeaderElectionService(leases);
+
+        // WHEN
+        single.renew();
+
+        // THEN
+        assertTrue(single.isLeader());
+        assertEquals(0, leases.count());
+    }
+
+    private LeaderElectionService newNode() {
+        LeaderElectionService node = new LeaderElectionService(leases);
+        setField(node, "enabled", true);
+        setField(node, "leaseMillis", 15000L);
+        setField(node, "renewIntervalMillis", 5000L);
+        return node;
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.j2020.J2020Application;
+import com.j2020.model.Money;
+import com.j2020.repository.AccountRepository;
+import com.j2020.repository.TransactionRepository;
+import com.j2020.repository.TransactionsForBatchRepository;
+import com.j2020.service.LegacyAmountMigrationService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.persistence.EntityManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DataJpaTest
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = J2020Application.class)
+public class LegacyAmountMigrationTest {
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionsForBatchRepository statusRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private LegacyAmountMigrationService migration;
+
+    @Before
+    public void setUp() {
+        // the float columns of a database saved before amounts were Money
+        execute("alter table general_account add column balance double");
+        execute("alter table general_transaction add column amount double");
+        execute("alter table transaction_status_check add column amount double");
+        migration = new LegacyAmountMigrationService(entityManager);
+    }
+
+    @After
+    public void tearDown() {
+        // H2 commits the test's transaction with the DDL, so its rows are removed rather than rolled back
+        execute("delete from general_account where account_id in ('legacy', 'synced')");
+        execute("delete from general_transaction where transaction_id = 'legacy'");
+        execute("delete from transaction_status_check where payment_id in ('legacy', 'deutsche', 'revolut')");
+        execute("alter table general_account drop column balance");
+        execute("alter table general_transaction drop column amount");
+        execute("alter table transaction_status_check drop column amount");
+    }
+
+    @Test
+    public void floatAmountsAreConvertedInTheCurrencyOfTheirAccount() {
+        // GIVEN
+        execute("insert into general_account (account_id, balance, currency, bank) values ('legacy', 3253.27001953125, 'GBP', 0)");
+        execute("insert into general_transaction (transaction_id, amount, origin, bank) values ('legacy', -1.100000023841858, 'legacy', 0)");
+        execute("insert into transaction_status_check (payment_id, amount, source_account, bank) values ('legacy', 0.10000000149011612, 'legacy', 0)");
+
+        // WHEN
+        migration.migrateLegacyAmounts();
+        entityManager.clear();
+
+        // THEN
+        assertEquals(Money.parse("3253.27", "GBP"), accountRepository.findById("legacy").get().getBalance());
+        assertEquals(Money.parse("-1.10", "GBP"), transactionRepository.findById("legacy").get().getAmount());
+        assertEquals(Money.parse("0.10", "GBP"), statusRepository.findById("legacy").get().getAmount());
+    }
+
+    @Test
+    public void deutscheAmountsOfUnknownAccountsAreEuros() {
+        // GIVEN
+        execute("insert into transaction_status_check (payment_id, amount, source_account, bank) values ('deutsche', 12.5, 'DE10010000000000005771', 1)");
+        execute("insert into transaction_status_check (payment_id, amount, source_account, bank) values ('revolut', 12.5, 'unknown', 0)");
+
+        // WHEN
+        migration.migrateLegacyAmounts();
+        entityManager.clear();
+
+        // THEN
+        assertEquals(Money.parse("12.50", "EUR"), statusRepository.findById("deutsche").get().getAmount());
+        assertNull(statusRepository.findById("revolut").get().getAmount());
+    }
+
+    @Test
+    public void convertedAmountsAreNotOverwritten() {
+        // GIVEN
+        execute("insert into general_account (account_id, balance, currency, bank, balance_minor_units, balance_currency) "
+                + "values ('synced', 1.5, 'EUR', 0, 200, 'EUR')");
+
+        // WHEN
+        migration.migrateLegacyAmounts();
+        entityManager.clear();
+
+        // THEN
+        assertEquals(Money.parse("2.00", "EUR"), accountRepository.findById("synced").get().getBalance());
+    }
+
+    private void execute(String statement) {
+        entityManager.createNativeQuery(statement).executeUpdate();
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.ValueInstantiationException;
+import com.j2020.Constants;
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.Money;
+import com.j2020.model.revolut.RevolutPayment;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void formatsWithoutFloatingPointError() {
+        // GIVEN
+        Money sum = Money.ofMinor(0, Constants.TEST_CURRENCY_CODE);
+
+        // WHEN
+        for (int index = 0; index < 10; index++) {
+            sum = sum.plus(Money.parse("0.10", Constants.TEST_CURRENCY_CODE));
+        }
+
+        // THEN
+        assertEquals(100, sum.getMinorUnits());
+        assertEquals("1.00", sum.toPlainString());
+        assertEquals("1", sum.toCompactString());
+        assertEquals("-0.5", Money.parse("-0.50", Constants.TEST_CURRENCY_CODE).toCompactString());
+        assertEquals("1500", Money.parse("1500", "JPY").toPlainString());
+        assertEquals(String.valueOf(Long.MIN_VALUE), Money.ofMinor(Long.MIN_VALUE, "JPY").toPlainString());
+    }
+
+    @Test
+    public void rejectsAmountsFinerThanTheCurrency() {
+        // WHEN & THEN
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("10.001", Constants.TEST_CURRENCY_CODE));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("1.5", "JPY"));
+        assertThrows(IllegalArgumentException.class,
+                () -> Money.ofMinor(1, Constants.TEST_CURRENCY_CODE).plus(Money.ofMinor(1, "GBP")));
+    }
+
+    @Test
+    public void paymentJsonRoundTripKeepsExactAmount() throws IOException {
+        // GIVEN
+        String json = "{\"sourceAccount\":\"a\",\"destinationAccount\":\"b\",\"currency\":\"EUR\",\"amount\":0.3}";
+
+        // WHEN
+        GeneralPayment payment = mapper.readValue(json, GeneralPayment.class);
+        GeneralPayment copy = mapper.readValue(mapper.writeValueAsString(payment), GeneralPayment.class);
+
+        // THEN
+        assertEquals(30, payment.getAmount().getMinorUnits());
+        assertEquals(payment.getAmount(), copy.getAmount());
+        assertTrue(mapper.writeValueAsString(payment).contains("\"amount\":0.30"));
+        assertThrows(ValueInstantiationException.class, () -> mapper.readValue(json.replace("0.3", "0.305"), GeneralPayment.class));
+    }
+
+    @Test
+    public void revolutPaymentCarriesFullScaleDecimal() throws IOException {
+        // GIVEN
+        RevolutPayment payment = new RevolutPayment();
+        payment.setAmount(Money.parse("10", Constants.TEST_CURRENCY_CODE));
+        payment.setCurrency(Constants.TEST_CURRENCY_CODE);
+
+        // WHEN
+        String actual = mapper.writeValueAsString(payment);
+
+        // THEN
+        assertTrue(actual.contains("\"amount\":10.00"));
+    }
+}
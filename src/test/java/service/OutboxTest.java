@@ -0,0 +1,207 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.j2020.Constants;
+import com.j2020.J2020Application;
+import com.j2020.model.BatchOfPaymentsMessage;
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.PaymentOutboxEntry;
+import com.j2020.model.PaymentPriority;
+import com.j2020.repository.LeaderLeaseRepository;
+import com.j2020.repository.PaymentBatchRepository;
+import com.j2020.repository.PaymentFingerprintRepository;
+import com.j2020.repository.PaymentOutboxRepository;
+import com.j2020.service.LeaderElectionService;
+import com.j2020.service.jms.GeneralPaymentCodec;
+import com.j2020.service.jms.JmsTransactionProducer;
+import com.j2020.service.jms.OutboxRelayService;
+import com.j2020.service.jms.PaymentDeduplicationService;
+import helper.TestDataHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.SessionCallback;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.jms.*;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@DataJpaTest
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = J2020Application.class)
+public class OutboxTest {
+    @Autowired
+    private PaymentBatchRepository batchRepository;
+
+    @Autowired
+    private PaymentOutboxRepository outboxRepository;
+
+    @Autowired
+    private LeaderLeaseRepository leases;
+
+    @Autowired
+    private PaymentFingerprintRepository fingerprints;
+
+    private JmsTransactionProducer transactionProducer;
+    private OutboxRelayService relayService;
+    private JmsTemplate jmsTemplate;
+    private Session session;
+    private MessageProducer messageProducer;
+
+    @Before
+    public void setUp() throws JMSException {
+        outboxRepository.deleteAll();
+        jmsTemplate = Mockito.mock(JmsTemplate.class);
+        session = Mockito.mock(Session.class);
+        messageProducer = Mockito.mock(MessageProducer.class);
+        transactionProducer = new JmsTransactionProducer(batchRepository, outboxRepository);
+        relayService = new OutboxRelayService(outboxRepository, jmsTemplate, new LeaderElectionService(leases));
+
+        setField(relayService, "chunkSize", 2);
+
+        when(session.createProducer(any())).thenReturn(messageProducer);
+        when(session.createTextMessage(anyString())).thenAnswer(invocation -> Mockito.mock(TextMessage.class));
+        when(jmsTemplate.execute(any(SessionCallback.class), eq(true)))
+                .thenAnswer(invocation -> ((SessionCallback<?>) invocation.getArgument(0)).doInJms(session));
+    }
+
+    @Test
+    public void paymentsAreWrittenToOutboxWithoutTouchingBroker() throws IOException {
+        // WHEN
+        BatchOfPaymentsMessage response = transactionProducer.sendPayments(generatePayments(3));
+        List<PaymentOutboxEntry> entries = outboxRepository.findAll();
+
+        // THEN
+        assertEquals(3, entries.size());
+        assertTrue(entries.stream().noneMatch(PaymentOutboxEntry::isDispatched));
+        assertEquals(response.getBatchId(), new ObjectMapper().readValue(entries.get(0).getPayload(), GeneralPayment.class).getBatchId());
+        verifyNoInteractions(jmsTemplate);
+    }
+
+    @Test
+    public void relayCommitsOneSessionPerChunk() throws JMSException {
+        // GIVEN
+        transactionProducer.sendPayments(generatePayments(3));
+
+        // WHEN
+        relayService.relay();
+
+        // THEN
+        verify(messageProducer, times(3)).send(any(Message.class));
+        verify(session, times(2)).commit();
+        assertTrue(outboxRepository.findAll().stream().allMatch(PaymentOutboxEntry::isDispatched));
+    }
+
+    @Test
+    public void failedChunkStaysInOutbox() throws JMSException {
+        // GIVEN
+        transactionProducer.sendPayments(generatePayments(2));
+        doThrow(new JMSException("broker down")).when(messageProducer).send(any(Message.class));
+
+        // WHEN
+        assertThrows(JMSException.class, relayService::relay);
+
+        // THEN
+        verify(session).rollback();
+        verify(session, never()).commit();
+        assertTrue(outboxRepository.findAll().stream().noneMatch(PaymentOutboxEntry::isDispatched));
+    }
+
+    @Test
+    public void binaryPayloadsAreRelayedAsBytesMessages() throws JMSException {
+        // GIVEN
+        setField(transactionProducer, "binaryPayloads", true);
+        BytesMessage message = Mockito.mock(BytesMessage.class);
+        when(session.createBytesMessage()).thenReturn(message);
+        transactionProducer.sendPayments(generatePayments(1));
+        PaymentOutboxEntry entry = outboxRepository.findAll().get(0);
+
+        // WHEN
+        relayService.relay();
+
+        // THEN
+        assertNull(entry.getPayload());
+        assertEquals(entry.getBatchId(), GeneralPaymentCodec.decode(entry.getBinaryPayload()).getBatchId());
+        verify(message).writeBytes(entry.getBinaryPayload());
+        verify(messageProducer).send(message);
+        verify(session, never()).createTextMessage(anyString());
+    }
+
+    @Test
+    public void urgentPaymentsAreRelayedFirstToTheirOwnQueue() throws JMSException {
+        // GIVEN
+        setField(relayService, "chunkSize", 10);
+        Queue urgentQueue = Mockito.mock(Queue.class);
+        Queue normalQueue = Mockito.mock(Queue.class);
+        MessageProducer urgentProducer = Mockito.mock(MessageProducer.class);
+        when(session.createQueue(Constants.JMS_URGENT_TRANSACTION_QUEUE)).thenReturn(urgentQueue);
+        when(session.createQueue(Constants.JMS_TRANSACTION_QUEUE)).thenReturn(normalQueue);
+        when(session.createProducer(urgentQueue)).thenReturn(urgentProducer);
+        when(session.createProducer(normalQueue)).thenReturn(messageProducer);
+
+        transactionProducer.sendPayments(generatePayments(2));
+        List<GeneralPayment> urgent = generatePayments(1);
+        urgent.get(0).setPriority(PaymentPriority.URGENT);
+        transactionProducer.sendPayments(urgent);
+
+        // WHEN
+        relayService.relay();
+
+        // THEN
+        InOrder order = inOrder(urgentProducer, messageProducer);
+        order.verify(urgentProducer).send(any(Message.class));
+        order.verify(messageProducer, times(2)).send(any(Message.class));
+        verify(urgentProducer).close();
+        verify(messageProducer).close();
+    }
+
+    @Test
+    public void resentEntryIsClaimedOnce() throws JMSException {
+        // GIVEN
+        transactionProducer.sendPayments(generatePayments(1));
+        relayService.relay();
+        Long entryId = outboxRepository.findAll().get(0).getId();
+        PaymentDeduplicationService deduplication = new PaymentDeduplicationService(fingerprints, new LeaderElectionService(leases));
+        setField(deduplication, "expectedPayments", 1_000L);
+        setField(deduplication, "falsePositiveRate", 0.001);
+        setField(deduplication, "retentionHours", 72L);
+        deduplication.init();
+        GeneralPayment first = generatePayments(1).get(0);
+        GeneralPayment resent = generatePayments(1).get(0);
+        resent.setSequence(1);
+
+        // WHEN
+        boolean firstClaimed = deduplication.claim(first, entryId);
+        boolean resentClaimed = deduplication.claim(resent, entryId);
+
+        // THEN
+        assertTrue(firstClaimed);
+        assertFalse(resentClaimed);
+    }
+
+    private static List<GeneralPayment> generatePayments(int count) {
+        return Arrays.stream(new int[count])
+                .mapToObj(index -> TestDataHelper.generateValidGeneralPaymentForDeutsche())
+                .collect(Collectors.toList());
+    }
+}
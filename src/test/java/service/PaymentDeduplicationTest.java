@@ -0,0 +1,175 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.j2020.model.GeneralPayment;
+import com.j2020.repository.LeaderLeaseRepository;
+import com.j2020.repository.PaymentFingerprintRepository;
+import com.j2020.service.BloomFilter;
+import com.j2020.service.LeaderElectionService;
+import com.j2020.service.jms.PaymentDeduplicationService;
+import helper.TestDataHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Collections;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class PaymentDeduplicationTest {
+    private PaymentFingerprintRepository fingerprints;
+    private PaymentDeduplicationService deduplication;
+
+    @Before
+    public void setUp() {
+        fingerprints = Mockito.mock(PaymentFingerprintRepository.class);
+        deduplication = newService(fingerprints);
+    }
+
+    @Test
+    public void bloomFilterHasNoFalseNegatives() {
+        // GIVEN
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        SplittableRandom random = new SplittableRandom(1);
+        long[][] keys = new long[10_000][2];
+
+        // WHEN
+        for (long[] key : keys) {
+            key[0] = random.nextLong();
+            key[1] = random.nextLong();
+            filter.put(key[0], key[1]);
+        }
+
+        // THEN
+        for (long[] key : keys) {
+            assertTrue(filter.mightContain(key[0], key[1]));
+        }
+    }
+
+    @Test
+    public void bloomFilterFalsePositiveRateStaysNearTarget() {
+        // GIVEN
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        SplittableRandom random = new SplittableRandom(2);
+        int falsePositives = 0;
+
+        // WHEN
+        for (int index = 0; index < 10_000; index++) {
+            filter.put(random.nextLong(), random.nextLong());
+        }
+        for (int index = 0; index < 100_000; index++) {
+            if (filter.mightContain(random.nextLong(), random.nextLong())) {
+                falsePositives++;
+            }
+        }
+
+        // THEN
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    public void unseenPaymentIsClaimedWithoutLookup() {
+        // WHEN
+        boolean actual = deduplication.claim(generatePayment(0), 10L);
+
+        // THEN
+        assertTrue(actual);
+        verify(fingerprints, never()).existsById(anyString());
+        verify(fingerprints).claim(anyString(), eq(1L), eq(10L), anyLong());
+    }
+
+    @Test
+    public void claimedPaymentIsConfirmedAgainstTable() {
+        // GIVEN
+        GeneralPayment payment = generatePayment(0);
+        ArgumentCaptor<String> claimed = ArgumentCaptor.forClass(String.class);
+        deduplication.claim(payment, 11L);
+        verify(fingerprints).claim(claimed.capture(), anyLong(), anyLong(), anyLong());
+        when(fingerprints.existsById(claimed.getValue())).thenReturn(true);
+
+        // WHEN
+        boolean actual = deduplication.claim(payment, 12L);
+
+        // THEN
+        assertFalse(actual);
+        verify(fingerprints, times(1)).claim(anyString(), anyLong(), anyLong(), anyLong());
+        assertTrue(deduplication.claim(generatePayment(1), 13L));
+    }
+
+    @Test
+    public void paymentClaimedByAnotherNodeIsRejectedByTable() {
+        // GIVEN
+        when(fingerprints.claim(anyString(), anyLong(), anyLong(), anyLong())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        // WHEN
+        boolean actual = deduplication.claim(generatePayment(2), 14L);
+
+        // THEN
+        assertFalse(actual);
+    }
+
+    @Test
+    public void releasedPaymentIsClaimedAgain() {
+        // GIVEN
+        GeneralPayment payment = generatePayment(4);
+        ArgumentCaptor<String> claimed = ArgumentCaptor.forClass(String.class);
+        deduplication.claim(payment, 16L);
+        verify(fingerprints).claim(claimed.capture(), anyLong(), anyLong(), anyLong());
+
+        // WHEN
+        deduplication.release(payment);
+        boolean actual = deduplication.claim(payment, 16L);
+
+        // THEN
+        verify(fingerprints).release(claimed.getValue());
+        assertTrue(actual);
+        verify(fingerprints, times(2)).claim(eq(claimed.getValue()), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void restartedNodeIsSeededFromTable() {
+        // GIVEN
+        GeneralPayment payment = generatePayment(3);
+        ArgumentCaptor<String> claimed = ArgumentCaptor.forClass(String.class);
+        deduplication.claim(payment, 11L);
+        verify(fingerprints).claim(claimed.capture(), anyLong(), anyLong(), anyLong());
+        String fingerprint = claimed.getValue();
+
+        when(fingerprints.findFingerprintsCreatedSince(anyLong())).thenReturn(Collections.singletonList(fingerprint));
+        when(fingerprints.existsById(fingerprint)).thenReturn(true);
+
+        // WHEN
+        PaymentDeduplicationService restarted = newService(fingerprints);
+
+        // THEN
+        assertFalse(restarted.claim(payment, 15L));
+        verify(fingerprints, times(1)).claim(anyString(), anyLong(), anyLong(), anyLong());
+    }
+
+    private static GeneralPayment generatePayment(int sequence) {
+        GeneralPayment payment = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+        payment.setBatchId(1L);
+        payment.setSequence(sequence);
+        return payment;
+    }
+
+    private static PaymentDeduplicationService newService(PaymentFingerprintRepository fingerprints) {
+        PaymentDeduplicationService service = new PaymentDeduplicationService(fingerprints, new LeaderElectionService(Mockito.mock(LeaderLeaseRepository.class)));
+        setField(service, "expectedPayments", 10_000L);
+        setField(service, "falsePositiveRate", 0.001);
+        setField(service, "retentionHours", 72L);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.j2020.J2020Application;
+import com.j2020.model.Bank;
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.Money;
+import com.j2020.model.PaymentSubmissionReport;
+import com.j2020.model.PaymentOutboxEntry;
+import com.j2020.model.PaymentPriority;
+import com.j2020.model.exception.PaymentFileFormatException;
+import com.j2020.repository.PaymentBatchRepository;
+import com.j2020.repository.PaymentOutboxRepository;
+import com.j2020.service.BankSyncService;
+import com.j2020.service.BatchProgressService;
+import com.j2020.service.PaymentNettingService;
+import com.j2020.service.PaymentValidationService;
+import com.j2020.service.deutsche.DeutscheMapperService;
+import com.j2020.service.jms.JmsTransactionProducer;
+import com.j2020.service.revolut.RevolutMapperService;
+import com.j2020.service.upload.PaymentFileService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@DataJpaTest
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = J2020Application.class)
+public class PaymentFileServiceTest {
+    private static final String CSV_HEADER = "Bank,sourceAccount,destinationAccount,amount,currency,reference,counterparty,creditorName\n";
+
+    @Autowired
+    private PaymentBatchRepository batchRepository;
+
+    @Autowired
+    private PaymentOutboxRepository outboxRepository;
+
+    private PaymentFileService paymentFiles;
+    private BankSyncService syncService;
+
+    @Before
+    public void setUp() {
+        outboxRepository.deleteAll();
+        syncService = Mockito.mock(BankSyncService.class);
+        PaymentValidationService validation = new PaymentValidationService(new RevolutMapperService(), new DeutscheMapperService());
+        setField(validation, "parallelThreshold", 1000);
+        setField(validation, "maxReportedErrors", 1);
+        paymentFiles = new PaymentFileService(new JmsTransactionProducer(batchRepository, outboxRepository),
+                validation, Mockito.mock(BatchProgressService.class), syncService, new PaymentNettingService());
+        setField(paymentFiles, "chunkSize", 2);
+    }
+
+    @Test
+    public void csvRowsAreValidatedAndEnqueuedInChunks() throws IOException {
+        // GIVEN
+        String csv = CSV_HEADER
+                + "REVOLUT,src,dst,1.50,EUR,\"Rent, March\",cp-1,\n"
+                + "DEUTSCHE,DE01,DE02,2,EUR,,,\"The \"\"Best\"\" GmbH\"\n"
+                + "\n"
+                + "DEUTSCHE,DE01,DE02,3,EUR,,,\n"
+                + "REVOLUT,src,dst,1.005,EUR,ref,cp-1,\n"
+                + "deutsche,DE01,DE02,4,EUR,,,Creditor\n";
+
+        // WHEN
+        PaymentSubmissionReport report = paymentFiles.submitFile(csv("payments.csv", csv), null, null);
+
+        // THEN
+        List<GeneralPayment> enqueued = enqueuedPayments();
+        assertEquals(3, enqueued.size());
+        assertEquals(Arrays.asList(0, 1, 2), Arrays.asList(enqueued.get(0).getSequence(), enqueued.get(1).getSequence(), enqueued.get(2).getSequence()));
+        assertEquals("Rent, March", enqueued.get(0).getAdditionalInfo().get("reference"));
+        assertEquals("The \"Best\" GmbH", enqueued.get(1).getAdditionalInfo().get("creditorName"));
+        assertEquals(Money.parse("4", "EUR"), enqueued.get(2).getAmount());
+        assertEquals(Bank.DEUTSCHE, enqueued.get(2).getBank());
+
+        assertEquals(3, report.getAcceptedPayments());
+        assertEquals(2, report.getRejectedPayments());
+        assertEquals(1, report.getErrors().size());
+        assertEquals(5, report.getErrors().get(0).getRow());
+        assertEquals(3, (int) batchRepository.findById(report.getBatchId()).get().getCountOfAllPayments());
+        verify(syncService).requestSync(Bank.REVOLUT);
+        verify(syncService).requestSync(Bank.DEUTSCHE);
+    }
+
+    @Test
+    public void pain001TransfersArePaidFromTheirPaymentInformationAccount() throws IOException {
+        // GIVEN
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<Document xmlns=\"urn:iso:std:iso:20022:tech:xsd:pain.001.001.03\"><CstmrCdtTrfInitn>"
+                + "<GrpHdr><MsgId>payroll</MsgId><NbOfTxs>3</NbOfTxs><InitgPty><Nm>Employer</Nm></InitgPty></GrpHdr>"
+                + "<PmtInf><PmtInfId>1</PmtInfId><Dbtr><Nm>Employer</Nm></Dbtr>"
+                + "<DbtrAcct><Id><IBAN>DE10010000000000005772</IBAN></Id></DbtrAcct>"
+                + transfer("E2E-1", "100.00", "Jane", "DE10010000000000005771")
+                + transfer("E2E-2", "", "John", "DE10010000000000005773")
+                + "</PmtInf>"
+                + "<PmtInf><PmtInfId>2</PmtInfId><DbtrAcct><Id><IBAN>DE10010000000000005779</IBAN></Id></DbtrAcct>"
+                + transfer("E2E-3", "7.25", "Joan", "DE10010000000000005774")
+                + "</PmtInf></CstmrCdtTrfInitn></Document>";
+
+        // WHEN
+        PaymentSubmissionReport report = paymentFiles.submitFile(
+                new MockMultipartFile("file", "payroll.xml", "application/xml", xml.getBytes(StandardCharsets.UTF_8)),
+                Bank.DEUTSCHE, PaymentPriority.BULK);
+
+        // THEN
+        List<GeneralPayment> enqueued = enqueuedPayments();
+        assertEquals(2, enqueued.size());
+        assertEquals("DE10010000000000005772", enqueued.get(0).getSourceAccount());
+        assertEquals("DE10010000000000005771", enqueued.get(0).getDestinationAccount());
+        assertEquals("Jane", enqueued.get(0).getAdditionalInfo().get("creditorName"));
+        assertEquals("E2E-1", enqueued.get(0).getAdditionalInfo().get("endToEndId"));
+        assertEquals(Money.parse("100", "EUR"), enqueued.get(0).getAmount());
+        assertEquals("DE10010000000000005779", enqueued.get(1).getSourceAccount());
+        assertEquals(PaymentPriority.BULK, enqueued.get(1).getPriority());
+        assertTrue(outboxRepository.findAll().stream().allMatch(entry -> entry.getPriority() == PaymentPriority.BULK));
+        assertEquals(2, report.getErrors().get(0).getRow());
+    }
+
+    @Test
+    public void priorityColumnOverridesTheFilePriority() throws IOException {
+        // GIVEN
+        String csv = "bank,sourceAccount,destinationAccount,amount,currency,creditorName,priority\n"
+                + "DEUTSCHE,DE01,DE02,1,EUR,Creditor,urgent\n"
+                + "DEUTSCHE,DE01,DE02,2,EUR,Creditor,\n"
+                + "DEUTSCHE,DE01,DE02,3,EUR,Creditor,asap\n";
+
+        // WHEN
+        PaymentSubmissionReport report = paymentFiles.submitFile(csv("payments.csv", csv), null, PaymentPriority.BULK);
+
+        // THEN
+        List<GeneralPayment> enqueued = enqueuedPayments();
+        assertEquals(PaymentPriority.URGENT, enqueued.get(0).getPriority());
+        assertEquals(PaymentPriority.BULK, enqueued.get(1).getPriority());
+        assertFalse(enqueued.get(0).getAdditionalInfo().containsKey("priority"));
+        assertEquals(4, report.getErrors().get(0).getRow());
+    }
+
+    @Test
+    public void fileWithoutValidRowsCreatesNoBatch() throws IOException {
+        // GIVEN
+        long batches = batchRepository.count();
+
+        // WHEN
+        PaymentSubmissionReport report = paymentFiles.submitFile(csv("payments.csv", CSV_HEADER + "REVOLUT,src,dst,1,EUR,,,\n"), null, null);
+
+        // THEN
+        assertNull(report.getBatchId());
+        assertEquals(1, report.getRejectedPayments());
+        assertEquals(batches, batchRepository.count());
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    public void brokenFileKeepsTheChunksAlreadySubmitted() throws IOException {
+        // GIVEN
+        String csv = CSV_HEADER
+                + "DEUTSCHE,DE01,DE02,1,EUR,,,Creditor\n"
+                + "DEUTSCHE,DE01,DE02,2,EUR,,,Creditor\n"
+                + "DEUTSCHE,DE01,DE02,3,EUR,,,\"Creditor\n";
+
+        // WHEN
+        PaymentFileFormatException exception = assertThrows(PaymentFileFormatException.class,
+                () -> paymentFiles.submitFile(csv("payments.csv", csv), null, null));
+
+        // THEN
+        assertEquals(2, outboxRepository.count());
+        Long batchId = enqueuedPayments().get(0).getBatchId();
+        assertEquals(2, (int) batchRepository.findById(batchId).get().getCountOfAllPayments());
+        assertTrue(exception.getMessage().contains("batch " + batchId));
+    }
+
+    @Test
+    public void failedEnqueueClosesTheBatchWithTheChunksAlreadySubmitted() throws IOException {
+        // GIVEN
+        JmsTransactionProducer producer = Mockito.spy(new JmsTransactionProducer(batchRepository, outboxRepository));
+        doCallRealMethod().doThrow(new IllegalStateException("outbox unavailable"))
+                .when(producer).appendPayments(anyLong(), anyList(), anyInt());
+        setField(paymentFiles, "transactionProducer", producer);
+        String csv = CSV_HEADER
+                + "DEUTSCHE,DE01,DE02,1,EUR,,,Creditor\n"
+                + "DEUTSCHE,DE01,DE02,2,EUR,,,Creditor\n"
+                + "DEUTSCHE,DE01,DE03,3,EUR,,,Creditor\n";
+
+        // WHEN
+        assertThrows(IllegalStateException.class, () -> paymentFiles.submitFile(csv("payments.csv", csv), null, null));
+
+        // THEN
+        assertEquals(2, outboxRepository.count());
+        Long batchId = enqueuedPayments().get(0).getBatchId();
+        assertEquals(2, (int) batchRepository.findById(batchId).get().getCountOfAllPayments());
+    }
+
+    private static String transfer(String endToEndId, String amount, String creditor, String iban) {
+        return "<CdtTrfTxInf><PmtId><EndToEndId>" + endToEndId + "</EndToEndId></PmtId>"
+                + "<Amt><InstdAmt Ccy=\"EUR\">" + amount + "</InstdAmt></Amt>"
+                + "<Cdtr><Nm>" + creditor + "</Nm></Cdtr>"
+                + "<CdtrAcct><Id><IBAN>" + iban + "</IBAN></Id></CdtrAcct>"
+                + "<RmtInf><Ustrd>Salary</Ustrd></RmtInf></CdtTrfTxInf>";
+    }
+
+    private static MockMultipartFile csv(String name, String content) {
+        return new MockMultipartFile("file", name, "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<GeneralPayment> enqueuedPayments() throws IOException {
+        List<PaymentOutboxEntry> entries = new ArrayList<>(outboxRepository.findAll());
+        entries.sort((first, second) -> Long.compare(first.getId(), second.getId()));
+
+        List<GeneralPayment> payments = new ArrayList<>();
+        for (PaymentOutboxEntry entry : entries) {
+            payments.add(new ObjectMapper().readValue(entry.getPayload(), GeneralPayment.class));
+        }
+        return payments;
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.j2020.service.PaymentIdentificationService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class PaymentIdentificationServiceTest {
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 125_000;
+
+    private PaymentIdentificationService identificationService;
+
+    @Before
+    public void setUp() {
+        identificationService = newNode("1");
+    }
+
+    @Test
+    public void identificationHasConfiguredLengthAndIsHex() {
+        // WHEN
+        String actual = identificationService.generateIdentification();
+
+        // THEN
+        assertEquals(40, actual.length());
+        assertTrue(actual.matches("[0-9a-f]+"));
+        assertEquals("0001", actual.substring(12, 16));
+    }
+
+    @Test
+    public void noCollisionsAcrossConcurrentThreads() throws InterruptedException, ExecutionException {
+        // GIVEN
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        Set<String> unique = ConcurrentHashMap.newKeySet();
+
+        // WHEN
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                List<String> generated = new ArrayList<>(IDS_PER_THREAD);
+                for (int index = 0; index < IDS_PER_THREAD; index++) {
+                    generated.add(identificationService.generateIdentification());
+                }
+                return generated;
+            }));
+        }
+        for (Future<List<String>> future : futures) {
+            unique.addAll(future.get());
+        }
+        executor.shutdown();
+
+        // THEN
+        assertEquals(THREADS * IDS_PER_THREAD, unique.size());
+    }
+
+    @Test
+    public void uniquePrefixDiffersBetweenNodes() {
+        // GIVEN
+        PaymentIdentificationService otherNode = newNode("2");
+        Set<String> prefixes = new ConcurrentSkipListSet<>();
+
+        // WHEN
+        for (int index = 0; index < 100_000; index++) {
+            prefixes.add(identificationService.generateIdentification().substring(0, PaymentIdentificationService.UNIQUE_PREFIX_LENGTH));
+            prefixes.add(otherNode.generateIdentification().substring(0, PaymentIdentificationService.UNIQUE_PREFIX_LENGTH));
+        }
+
+        // THEN
+        assertEquals(200_000, prefixes.size());
+    }
+
+    @Test
+    public void tooShortIdentificationIsRejected() {
+        // GIVEN
+        PaymentIdentificationService service = new PaymentIdentificationService();
+        setField(service, "maxReqIdLength", 16);
+
+        // WHEN THEN
+        assertThrows(IllegalStateException.class, service::init);
+    }
+
+    @Test
+    public void nodeIdOutsideItsDigitsIsRejected() {
+        // GIVEN
+        List<String> invalid = new ArrayList<>();
+        invalid.add(null);
+        invalid.add("");
+        invalid.add("first");
+        invalid.add("-1");
+        invalid.add("65537");
+
+        // WHEN THEN
+        for (String nodeId : invalid) {
+            assertThrows(IllegalStateException.class, () -> newNode(nodeId), String.valueOf(nodeId));
+        }
+        assertEquals("ffff", newNode("65535").generateIdentification().substring(12, 16));
+    }
+
+    private static PaymentIdentificationService newNode(String nodeId) {
+        PaymentIdentificationService service = new PaymentIdentificationService();
+        setField(service, "maxReqIdLength", 40);
+        setField(service, "nodeId", nodeId);
+        service.init();
+        return service;
+    }
+}
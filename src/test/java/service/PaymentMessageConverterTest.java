@@ -0,0 +1,161 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.j2020.model.Bank;
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.Money;
+import com.j2020.model.PaymentPriority;
+import com.j2020.service.jms.GeneralPaymentCodec;
+import com.j2020.service.jms.PaymentMessageConverter;
+import helper.TestDataHelper;
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import javax.jms.JMSException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+public class PaymentMessageConverterTest {
+    private MessageConverter jsonConverter;
+    private PaymentMessageConverter converter;
+
+    @Before
+    public void setUp() {
+        jsonConverter = Mockito.mock(MessageConverter.class);
+        converter = new PaymentMessageConverter(jsonConverter);
+    }
+
+    @Test
+    public void binaryPaymentsKeepEveryField() throws JMSException {
+        // GIVEN
+        GeneralPayment payment = TestDataHelper.generateValidGeneralPaymentForRevolut();
+        payment.getAdditionalInfo().put("endToEndId", "E2E-ü-1");
+        payment.setAmount(Money.parse("-1234567.89", "EUR"));
+        payment.setBatchId(1L << 40);
+        payment.setBank(Bank.REVOLUT);
+        payment.setSequence(300);
+        payment.setPriority(PaymentPriority.URGENT);
+
+        // WHEN
+        GeneralPayment actual = (GeneralPayment) converter.fromMessage(bytesMessage(GeneralPaymentCodec.encode(payment)));
+
+        // THEN
+        assertEquals(payment.toString(), actual.toString());
+        assertEquals(payment.getAdditionalInfo(), actual.getAdditionalInfo());
+    }
+
+    @Test
+    public void missingFieldsStayMissing() throws JMSException {
+        // GIVEN
+        GeneralPayment payment = new GeneralPayment();
+        payment.setAmount(Money.parse("5", "JPY"));
+        payment.setCurrency("EUR");
+
+        // WHEN
+        GeneralPayment actual = (GeneralPayment) converter.fromMessage(bytesMessage(GeneralPaymentCodec.encode(payment)));
+
+        // THEN
+        assertNull(actual.getSourceAccount());
+        assertNull(actual.getAdditionalInfo());
+        assertNull(actual.getBatchId());
+        assertNull(actual.getPriority());
+        assertNull(actual.getNettedPayments());
+        assertEquals(Money.parse("5", "JPY"), actual.getAmount());
+        assertEquals("EUR", actual.getCurrency());
+    }
+
+    @Test
+    public void nettedPaymentsTravelWithTheirTransfer() throws JMSException {
+        // GIVEN
+        GeneralPayment first = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+        GeneralPayment second = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+        second.getAdditionalInfo().put("endToEndId", "E2E-2");
+        GeneralPayment transfer = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+        transfer.setAmount(Money.parse("20", transfer.getCurrency()));
+        transfer.setNettedPayments(Arrays.asList(first, second));
+
+        // WHEN
+        GeneralPayment actual = (GeneralPayment) converter.fromMessage(bytesMessage(GeneralPaymentCodec.encode(transfer)));
+
+        // THEN
+        assertEquals(transfer.toString(), actual.toString());
+        assertEquals(2, actual.getNettedPayments().size());
+        assertEquals("E2E-2", actual.getNettedPayments().get(1).getAdditionalInfo().get("endToEndId"));
+        assertEquals(first.getAmount(), actual.getNettedPayments().get(0).getAmount());
+    }
+
+    @Test
+    public void onlyNettedTransfersNeedTheNewerFormat() {
+        // GIVEN
+        GeneralPayment payment = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+        GeneralPayment transfer = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+        transfer.setNettedPayments(Arrays.asList(payment, TestDataHelper.generateValidGeneralPaymentForDeutsche()));
+
+        // WHEN
+        byte[] plain = GeneralPaymentCodec.encode(payment);
+        byte[] netted = GeneralPaymentCodec.encode(transfer);
+
+        // THEN
+        assertEquals(1, plain[0]);
+        assertEquals(payment.toString(), GeneralPaymentCodec.decode(plain, 1).toString());
+        assertEquals(GeneralPaymentCodec.VERSION, netted[0]);
+        assertThrows(IllegalArgumentException.class, () -> GeneralPaymentCodec.decode(netted, 1));
+    }
+
+    @Test
+    public void nettedPaymentsOfAnOlderFormatAreRejected() throws JMSException {
+        // GIVEN
+        GeneralPayment transfer = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+        transfer.setNettedPayments(Arrays.asList(TestDataHelper.generateValidGeneralPaymentForDeutsche()));
+        byte[] older = GeneralPaymentCodec.encode(transfer);
+        older[0] = 1;
+
+        // THEN
+        assertThrows(MessageConversionException.class, () -> converter.fromMessage(bytesMessage(older)));
+    }
+
+    @Test
+    public void textMessagesAreReadAsJson() throws JMSException {
+        // GIVEN
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        GeneralPayment payment = new GeneralPayment();
+        when(jsonConverter.fromMessage(message)).thenReturn(payment);
+
+        // WHEN
+        Object actual = converter.fromMessage(message);
+
+        // THEN
+        assertSame(payment, actual);
+    }
+
+    @Test
+    public void newerOrDamagedFormatsAreRejected() throws JMSException {
+        // GIVEN
+        byte[] encoded = GeneralPaymentCodec.encode(TestDataHelper.generateValidGeneralPaymentForDeutsche());
+        byte[] newer = encoded.clone();
+        newer[0] = GeneralPaymentCodec.VERSION + 1;
+        byte[] truncated = new byte[encoded.length - 3];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+
+        // THEN
+        assertThrows(MessageConversionException.class, () -> converter.fromMessage(bytesMessage(newer)));
+        assertThrows(MessageConversionException.class, () -> converter.fromMessage(bytesMessage(truncated)));
+    }
+
+    private static ActiveMQBytesMessage bytesMessage(byte[] body) throws JMSException {
+        ActiveMQBytesMessage message = new ActiveMQBytesMessage();
+        message.writeBytes(body);
+        message.reset();
+        return message;
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.j2020.J2020Application;
+import com.j2020.model.Bank;
+import com.j2020.model.Money;
+import com.j2020.model.TransactionStatusCheck;
+import com.j2020.repository.PaymentBatchRepository;
+import com.j2020.repository.TransactionsForBatchRepository;
+import com.j2020.service.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@DataJpaTest
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = J2020Application.class)
+public class PaymentStatusPollServiceTest {
+    private static final long MINUTE = 60000;
+
+    @Autowired
+    private TransactionsForBatchRepository statusRepository;
+
+    @Autowired
+    private PaymentBatchRepository batchRepository;
+
+    private TransactionService transactionService;
+    private BatchProgressService progress;
+    private BankingServiceFactory bankingService;
+    private PaymentStatusPollService poller;
+
+    @Before
+    public void setUp() {
+        statusRepository.deleteAll();
+        bankingService = Mockito.mock(BankingServiceFactory.class);
+        transactionService = Mockito.mock(TransactionService.class);
+        when(bankingService.retrieveTransactionService(Bank.REVOLUT)).thenReturn(transactionService);
+        progress = Mockito.mock(BatchProgressService.class);
+        poller = poller(statusRepository);
+    }
+
+    @Test
+    public void duePaymentsAreLookedUpUntilTheirStatusIsFinal() throws JsonProcessingException {
+        // GIVEN
+        long now = System.currentTimeMillis();
+        TransactionStatusCheck firstMember = status("transfer.1", now - 4 * MINUTE, now - MINUTE);
+        firstMember.setNettedPaymentId("transfer");
+        TransactionStatusCheck secondMember = status("transfer.2", now - 4 * MINUTE, now - MINUTE);
+        secondMember.setNettedPaymentId("transfer");
+        statusRepository.saveAll(Arrays.asList(firstMember, secondMember,
+                status("settling", now - 2 * MINUTE, now - 2 * MINUTE),
+                status("young", now - 2000, now - 1000),
+                status("later", now, now + MINUTE),
+                status("overBudget", now - 2 * MINUTE, now)));
+        when(transactionService.retrievePaymentStatus("transfer")).thenReturn("completed");
+        when(transactionService.retrievePaymentStatus("settling")).thenReturn("pending");
+        when(transactionService.retrievePaymentStatus("young")).thenReturn("declined");
+
+        // WHEN
+        List<TransactionStatusCheck> actual = poller.poll(Bank.REVOLUT);
+
+        // THEN
+        verify(transactionService, times(3)).retrievePaymentStatus(anyString());
+        assertEquals(3, actual.size());
+        assertEquals("completed", statusRepository.findById("transfer.2").get().getTransactionStatus());
+        assertNull(statusRepository.findById("transfer.1").get().getNextPollAt());
+        assertNull(statusRepository.findById("young").get().getNextPollAt());
+
+        TransactionStatusCheck settling = statusRepository.findById("settling").get();
+        assertEquals("pending", settling.getTransactionStatus());
+        assertEquals(1, (int) settling.getPollAttempts());
+        assertTrue(settling.getNextPollAt() >= now + MINUTE && settling.getNextPollAt() < now + 2 * MINUTE);
+        assertEquals(now, (long) statusRepository.findById("overBudget").get().getNextPollAt());
+        verify(progress, times(3)).recordStatus(any());
+    }
+
+    @Test
+    public void failedLookupsBackOffAndGiveUp() throws JsonProcessingException {
+        // GIVEN
+        long now = System.currentTimeMillis();
+        TransactionStatusCheck status = status("unknown", now - 30 * MINUTE, now);
+        status.setPollAttempts(1);
+        statusRepository.save(status);
+        when(transactionService.retrievePaymentStatus("unknown")).thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        // WHEN
+        List<TransactionStatusCheck> actual = poller.poll(Bank.REVOLUT);
+        long retryAt = statusRepository.findById("unknown").get().getNextPollAt();
+        statusRepository.save(withNextPollAt(statusRepository.findById("unknown").get(), now));
+        poller.poll(Bank.REVOLUT);
+
+        // THEN
+        assertTrue(actual.isEmpty());
+        assertTrue(retryAt >= now + 10 * MINUTE);
+        assertEquals("pending", statusRepository.findById("unknown").get().getTransactionStatus());
+        assertNull(statusRepository.findById("unknown").get().getNextPollAt());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void reconcileDuringTheLookupIsKept() throws JsonProcessingException {
+        // GIVEN
+        long now = System.currentTimeMillis();
+        statusRepository.save(status("payment", now - 2 * MINUTE, now - MINUTE));
+        when(transactionService.retrievePaymentStatus("payment")).thenReturn("pending");
+        TransactionsForBatchRepository racing = mock(TransactionsForBatchRepository.class, delegatesTo(statusRepository));
+        doAnswer(invocation -> {
+            List<TransactionStatusCheck> found = statusRepository.findByNettedPaymentIdIn(invocation.getArgument(0));
+            // a sync reconciles the payment after the poller read it again
+            TransactionStatusCheck reconciled = statusRepository.findById("payment").get();
+            reconciled.setReconciledTransactionId("booked");
+            reconciled.setTransactionStatus("completed");
+            reconciled.setNextPollAt(null);
+            statusRepository.save(reconciled);
+            return found;
+        }).when(racing).findByNettedPaymentIdIn(any());
+        PaymentStatusPollService racingPoller = poller(racing);
+
+        try {
+            // WHEN
+            List<TransactionStatusCheck> actual = racingPoller.poll(Bank.REVOLUT);
+
+            // THEN
+            TransactionStatusCheck kept = statusRepository.findById("payment").get();
+            assertTrue(actual.isEmpty());
+            assertEquals("booked", kept.getReconciledTransactionId());
+            assertEquals("completed", kept.getTransactionStatus());
+            assertNull(kept.getNextPollAt());
+        } finally {
+            statusRepository.deleteAll();
+        }
+    }
+
+    private PaymentStatusPollService poller(TransactionsForBatchRepository statuses) {
+        PaymentStatusPollService poller = new PaymentStatusPollService(bankingService, statuses, batchRepository, progress,
+                Mockito.mock(LeaderElectionService.class));
+        Map<String, Integer> lookupsPerRound = new HashMap<>();
+        lookupsPerRound.put("REVOLUT", 4);
+        lookupsPerRound.put("DEUTSCHE", 3);
+        setField(poller, "lookupsPerRound", lookupsPerRound);
+        setField(poller, "ageRatio", 0.5);
+        setField(poller, "minDelayMillis", 1000L);
+        setField(poller, "maxDelayMillis", 10 * MINUTE);
+        setField(poller, "maxAttempts", 3);
+        setField(poller, "finalStatuses", new String[]{"completed", "declined"});
+        return poller;
+    }
+
+    private static TransactionStatusCheck withNextPollAt(TransactionStatusCheck status, long nextPollAt) {
+        status.setNextPollAt(nextPollAt);
+        return status;
+    }
+
+    private static TransactionStatusCheck status(String paymentId, long submittedAt, long nextPollAt) {
+        TransactionStatusCheck status = new TransactionStatusCheck();
+        status.setPaymentId(paymentId);
+        status.setTransactionStatus("pending");
+        status.setBank(Bank.REVOLUT);
+        status.setAmount(Money.parse("10", "EUR"));
+        status.setBatchId(1L);
+        status.setSubmittedAt(submittedAt);
+        status.setNextPollAt(nextPollAt);
+        return status;
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.j2020.J2020Application;
+import com.j2020.model.Bank;
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.GeneralTransaction;
+import com.j2020.model.Money;
+import com.j2020.model.TransactionStatusCheck;
+import com.j2020.repository.AccountRepository;
+import com.j2020.repository.BalanceSummaryRepository;
+import com.j2020.repository.DailyFlowSummaryRepository;
+import com.j2020.repository.TransactionRepository;
+import com.j2020.repository.TransactionsForBatchRepository;
+import com.j2020.service.PaymentNettingService;
+import com.j2020.service.ReconciliationService;
+import com.j2020.service.SummaryService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@DataJpaTest
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = J2020Application.class)
+public class ReconciliationServiceTest {
+    private static final Instant SUBMITTED = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    @Autowired
+    private TransactionsForBatchRepository statusRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BalanceSummaryRepository balanceRepository;
+
+    @Autowired
+    private DailyFlowSummaryRepository flowRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private ReconciliationService reconciliation;
+
+    @Before
+    public void setUp() {
+        statusRepository.deleteAll();
+        reconciliation = new ReconciliationService(statusRepository);
+        setField(reconciliation, "matchWindowHours", 48L);
+    }
+
+    @Test
+    public void statusesAreMatchedByPaymentAndRequestId() {
+        // GIVEN
+        statusRepository.saveAll(Arrays.asList(
+                status("payment", null, "source", "destination", "10.00"),
+                status("other", "request", "source", "destination", "10.00")));
+
+        // WHEN
+        List<TransactionStatusCheck> actual = reconciliation.reconcile(Arrays.asList(
+                transaction("payment", null, "source", "elsewhere", "-3.00", SUBMITTED.toString()),
+                transaction("booked", "request", "source", "destination", "-10.00", SUBMITTED.toString())));
+
+        // THEN
+        assertEquals(2, actual.size());
+        assertEquals("payment", statusRepository.findById("payment").get().getReconciledTransactionId());
+        assertEquals("completed", statusRepository.findById("payment").get().getTransactionStatus());
+        assertEquals("booked", statusRepository.findById("other").get().getReconciledTransactionId());
+    }
+
+    @Test
+    public void fallbackMatchesBookingsWithinWindow() {
+        // GIVEN
+        statusRepository.saveAll(Arrays.asList(
+                status("first", null, "source", "destination", "10.00"),
+                status("second", null, "source", "destination", "10.00")));
+
+        // WHEN
+        reconciliation.reconcile(Arrays.asList(
+                transaction("late", null, "source", "destination", "-10.00", SUBMITTED.plus(3, ChronoUnit.DAYS).toString()),
+                transaction("close", null, "source", "destination", "-10.00", SUBMITTED.plusSeconds(5).toString()),
+                transaction("booked", null, "source", "destination", "-10.00",
+                        SUBMITTED.plus(1, ChronoUnit.DAYS).toString().substring(0, 10))));
+
+        // THEN
+        Set<String> actual = statusRepository.findAll().stream()
+                .map(TransactionStatusCheck::getReconciledTransactionId)
+                .collect(Collectors.toSet());
+        assertEquals(new HashSet<>(Arrays.asList("close", "booked")), actual);
+    }
+
+    @Test
+    public void reconciledTransactionIsNotClaimedTwice() {
+        // GIVEN
+        statusRepository.saveAll(Arrays.asList(
+                status("first", null, "source", "destination", "10.00"),
+                status("second", null, "source", "destination", "10.00")));
+        GeneralTransaction booked = transaction("booked", null, "source", "destination", "-10.00", SUBMITTED.toString());
+        reconciliation.reconcile(Collections.singletonList(booked));
+
+        // WHEN
+        booked.setState("reverted");
+        List<TransactionStatusCheck> actual = reconciliation.reconcile(Collections.singletonList(booked));
+
+        // THEN
+        assertEquals(1, actual.size());
+        assertEquals("reverted", actual.get(0).getTransactionStatus());
+        assertNull(statusRepository.findById("second").get().getReconciledTransactionId());
+    }
+
+    @Test
+    public void syncedStateChangeReachesReconciledStatus() {
+        // GIVEN
+        SummaryService summaries = new SummaryService(accountRepository, transactionRepository, balanceRepository,
+                flowRepository, entityManager);
+        statusRepository.save(status("payment", null, "source", "destination", "10.00"));
+        GeneralTransaction booked = transaction("payment", null, "source", "destination", "-10.00", SUBMITTED.toString());
+        booked.setState("pending");
+        reconciliation.reconcile(summaries.saveTransactions(Collections.singletonList(booked)));
+
+        // WHEN
+        GeneralTransaction settled = transaction("payment", null, "source", "destination", "-10.00", SUBMITTED.toString());
+        List<TransactionStatusCheck> actual = reconciliation.reconcile(summaries.saveTransactions(Collections.singletonList(settled)));
+
+        // THEN
+        assertEquals(1, actual.size());
+        assertEquals("completed", statusRepository.findById("payment").get().getTransactionStatus());
+        assertNull(statusRepository.findById("payment").get().getNextPollAt());
+    }
+
+    @Test
+    public void nettedPaymentsShareTheMatchOfTheirTransfer() {
+        // GIVEN
+        GeneralPayment sent = new GeneralPayment();
+        sent.setNettedPayments(Arrays.asList(payment("4.00"), payment("6.00")));
+        statusRepository.saveAll(PaymentNettingService.statusesOf(
+                status("transfer", null, "source", "destination", "10.00"), sent));
+
+        // WHEN
+        List<TransactionStatusCheck> actual = reconciliation.reconcile(Collections.singletonList(
+                transaction("transfer", null, "source", "destination", "-10.00", SUBMITTED.toString())));
+
+        // THEN
+        assertEquals(2, actual.size());
+        assertEquals("transfer", statusRepository.findById("transfer.1").get().getReconciledTransactionId());
+        assertEquals("transfer", statusRepository.findById("transfer.2").get().getReconciledTransactionId());
+        assertEquals(Money.parse("6.00", "EUR"), statusRepository.findById("transfer.2").get().getAmount());
+    }
+
+    @Test
+    public void unrelatedTransactionsLeaveStatusesPending() {
+        // GIVEN
+        statusRepository.save(status("payment", null, "source", "destination", "10.00"));
+
+        // WHEN
+        List<TransactionStatusCheck> actual = reconciliation.reconcile(Arrays.asList(
+                transaction("amount", null, "source", "destination", "-10.01", SUBMITTED.toString()),
+                transaction("account", null, "source", "someone", "-10.00", SUBMITTED.toString())));
+
+        // THEN
+        assertEquals(0, actual.size());
+        assertNull(statusRepository.findById("payment").get().getReconciledTransactionId());
+    }
+
+    private static TransactionStatusCheck status(String paymentId, String requestId, String source, String destination, String amount) {
+        TransactionStatusCheck status = new TransactionStatusCheck();
+        status.setPaymentId(paymentId);
+        status.setRequestId(requestId);
+        status.setTransactionStatus("pending");
+        status.setBank(Bank.REVOLUT);
+        status.setSourceAccount(source);
+        status.setDestinationAccount(destination);
+        status.setAmount(Money.parse(amount, "EUR"));
+        status.setSubmittedAt(SUBMITTED.toEpochMilli());
+        return status;
+    }
+
+    private static GeneralPayment payment(String amount) {
+        GeneralPayment payment = new GeneralPayment();
+        payment.setSourceAccount("source");
+        payment.setDestinationAccount("destination");
+        payment.setAmount(Money.parse(amount, "EUR"));
+        return payment;
+    }
+
+    private static GeneralTransaction transaction(String id, String requestId, String origin, String creditor,
+                                                  String amount, String createdAt) {
+        GeneralTransaction transaction = new GeneralTransaction();
+        transaction.setTransactionId(id);
+        transaction.setRequestId(requestId);
+        transaction.setOrigin(origin);
+        transaction.setCreditor(creditor);
+        transaction.setAmount(Money.parse(amount, "EUR"));
+        transaction.setState("completed");
+        transaction.setCreatedAt(createdAt);
+        transaction.setBank(Bank.REVOLUT);
+        return transaction;
+    }
+}
@@ -8,6 +8,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.j2020.Constants;
+import com.j2020.ExecutorConfiguration;
 import com.j2020.J2020Application;
 import com.j2020.model.*;
 import com.j2020.model.deutsche.DeutscheAccount;
@@ -20,6 +21,7 @@ import com.j2020.model.revolut.RevolutPaymentResponse;
 import com.j2020.model.revolut.RevolutTransaction;
 import com.j2020.repository.TransactionsForBatchRepository;
 import com.j2020.service.AccountRequestRetrievalService;
+import com.j2020.service.BatchProgressService;
 import com.j2020.service.TransactionRequestRetrievalService;
 import com.j2020.service.revolut.RevolutAccountService;
 import com.j2020.service.revolut.RevolutMapperService;
@@ -36,9 +38,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
-import org.springframework.web.client.HttpServerErrorException;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -77,14 +81,15 @@ public class RevolutServicesTest {
         mapper = new RevolutMapperService();
         tokenService = Mockito.mock(RevolutTokenService.class);
         accountRetrieval = Mockito.mock(AccountRequestRetrievalService.class);
-        accountService = new RevolutAccountService(tokenService, accountRetrieval, mapper);
+        accountService = new RevolutAccountService(tokenService, accountRetrieval, mapper,
+                ExecutorConfiguration.newBoundedPool("test-io-", 4, 16));
         transactionRetrieval = Mockito.mock(TransactionRequestRetrievalService.class);
-        transactionService = new RevolutTransactionService(tokenService, transactionRetrieval, mapper, transactions);
+        transactionService = new RevolutTransactionService(tokenService, transactionRetrieval, mapper, transactions,
+                Mockito.mock(BatchProgressService.class), ExecutorConfiguration.newBoundedPool("test-io-", 4, 16));
 
         setField(accountService, "accountUrl", Constants.REVOLUT_ACCOUNT_URL);
         setField(transactionService, "transactionUrl", Constants.REVOLUT_TRANSACTION_URL);
         setField(transactionService, "paymentUrl", Constants.REVOLUT_PAYMENT_URL);
-        setField(transactionRetrieval, "maxReqIdLength", 40);
     }
 
     @Test
@@ -130,13 +135,74 @@ public class RevolutServicesTest {
                 anyString(),
                 eq(Constants.REVOLUT_PAYMENT_URL),
                 anyList(),
-                eq(type))).thenThrow(HttpServerErrorException.class);
+                eq(type))).thenReturn(Collections.singletonList(new FailedPaymentResponse("500 Internal Server Error")));
         when(tokenService.getToken()).thenReturn("someToken");
 
         transactionService.createPayments(payments);
 
         // THEN
         assertEquals(3, transactions.findAll().size());
+        assertEquals(2, transactions.findAll().stream().filter(status -> status.getBank() == Bank.REVOLUT).count());
+    }
+
+    @Test
+    public void everyPaymentOfACallGetsItsOwnStatus() throws JsonProcessingException {
+        // GIVEN
+        List<GeneralPayment> payments = new ArrayList<>();
+        for (int index = 0; index < 3; index++) {
+            GeneralPayment payment = TestDataHelper.generateValidGeneralPaymentForRevolut();
+            payment.setDestinationAccount("destination-" + index);
+            payment.setBatchId(7L);
+            payments.add(payment);
+        }
+
+        RevolutPaymentResponse first = new RevolutPaymentResponse();
+        first.setId("first");
+        first.setState("pending");
+        RevolutPaymentResponse third = new RevolutPaymentResponse();
+        third.setId("third");
+        third.setState("completed");
+        List<PaymentResponse> responses = Arrays.asList(first, new FailedPaymentResponse("422 Unprocessable Entity"), third);
+
+        when(transactionRetrieval.pushPayments(anyString(), eq(Constants.REVOLUT_PAYMENT_URL), anyList(), any())).thenReturn(responses);
+        when(tokenService.getToken()).thenReturn("someToken");
+
+        // WHEN
+        List<PaymentResponse> actual = transactionService.createPayments(payments);
+
+        // THEN
+        assertEquals(responses, actual);
+        List<TransactionStatusCheck> statuses = transactions.findAll().stream()
+                .filter(status -> Long.valueOf(7L).equals(status.getBatchId()))
+                .collect(Collectors.toList());
+        assertEquals(3, statuses.size());
+        assertEquals("destination-0", transactions.findById("first").get().getDestinationAccount());
+        assertEquals("completed", transactions.findById("third").get().getTransactionStatus());
+        TransactionStatusCheck failed = transactions.findById(responses.get(1).getPaymentId()).get();
+        assertEquals(Constants.DISPLAY_FAILED_PAYMENT_STATUS, failed.getTransactionStatus());
+        assertEquals("destination-1", failed.getDestinationAccount());
+        assertEquals(Bank.REVOLUT, failed.getBank());
+    }
+
+    @Test
+    public void unansweredPaymentIsLeftToReconciliation() throws JsonProcessingException {
+        // GIVEN
+        GeneralPayment payment = TestDataHelper.generateValidGeneralPaymentForRevolut();
+        payment.setBatchId(8L);
+        UnknownPaymentResponse response = new UnknownPaymentResponse("Read timed out");
+
+        when(transactionRetrieval.pushPayments(anyString(), eq(Constants.REVOLUT_PAYMENT_URL), anyList(), any()))
+                .thenReturn(Collections.singletonList(response));
+        when(tokenService.getToken()).thenReturn("someToken");
+
+        // WHEN
+        transactionService.createPayments(Collections.singletonList(payment));
+
+        // THEN
+        TransactionStatusCheck actual = transactions.findById(response.getPaymentId()).get();
+        assertEquals(Constants.DISPLAY_UNKNOWN_PAYMENT_STATUS, actual.getTransactionStatus());
+        assertNotNull(actual.getSubmittedAt());
+        assertNull(actual.getNextPollAt());
     }
 
     @Test
@@ -161,7 +227,7 @@ public class RevolutServicesTest {
         List<PaymentResponse> actual = transactionService.createPayments(payments);
 
         // THEN
-        assertEquals(new ArrayList<>(), actual);
+        assertEquals(responses, actual);
     }
 
     @Test
@@ -232,4 +298,45 @@ public class RevolutServicesTest {
         // THEN
         assertEquals("testedValue", revolutPayment.getReceiver().getCounterpartyId());
     }
+
+    @Test
+    public void mapTransactionWithoutCurrency() {
+        // GIVEN
+        RevolutTransaction transaction = (RevolutTransaction) TestDataHelper.generateRevolutTransactions().get(0);
+        transaction.getRevolutLegs().get(0).setCurrency(null);
+
+        // WHEN
+        GeneralTransaction actual = mapper.toGeneralTransaction(transaction);
+
+        // THEN
+        assertNull(actual.getAmount());
+        assertEquals("6a7ce85-00c3c11-daf", actual.getTransactionId());
+    }
+
+    @Test
+    public void mapAccountWithUnknownCurrency() {
+        // GIVEN
+        RevolutAccount account = (RevolutAccount) TestDataHelper.generateRevolutAccounts().get(0);
+        account.setCurrency("XYZ");
+
+        // WHEN
+        GeneralAccount actual = mapper.toGeneralAccount(account);
+
+        // THEN
+        assertNull(actual.getBalance());
+        assertEquals("800", actual.getAccountId());
+    }
+
+    @Test
+    public void roundAmountFinerThanTheCurrency() {
+        // GIVEN
+        RevolutAccount account = (RevolutAccount) TestDataHelper.generateRevolutAccounts().get(0);
+        account.setBalance(new BigDecimal("500.125"));
+
+        // WHEN
+        GeneralAccount actual = mapper.toGeneralAccount(account);
+
+        // THEN
+        assertEquals(Money.parse("500.12", Constants.TEST_CURRENCY_CODE), actual.getBalance());
+    }
 }
@@ -11,6 +11,7 @@ import com.j2020.Constants;
 import com.j2020.model.exception.TokenFetchException;
 import com.j2020.model.revolut.RevolutTokenRenewalResponse;
 import com.j2020.service.TokenRequestRetrievalService;
+import com.j2020.service.TokenStore;
 import com.j2020.service.revolut.RevolutTokenService;
 import helper.TestDataHelper;
 import org.junit.Before;
@@ -32,7 +33,7 @@ public class RevolutTokenServiceTest {
     @Before
     public void setUp() {
         retrievalService = Mockito.mock(TokenRequestRetrievalService.class);
-        tokenService = new RevolutTokenService(retrievalService);
+        tokenService = new RevolutTokenService(retrievalService, new TokenStore());
 
         setField(tokenService, "revoTokenRenewalUri", Constants.REVOLUT_TOKEN_RENEWAL_URL);
         setField(tokenService, "revoRefreshToken", Constants.REVOLUT_REFRESH_TOKEN);
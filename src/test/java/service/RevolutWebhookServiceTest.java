@@ -0,0 +1,219 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.j2020.Constants;
+import com.j2020.J2020Application;
+import com.j2020.model.Bank;
+import com.j2020.model.BatchOfPayments;
+import com.j2020.model.GeneralTransaction;
+import com.j2020.model.Money;
+import com.j2020.model.TransactionStatusCheck;
+import com.j2020.model.exception.WebhookSignatureException;
+import com.j2020.model.revolut.RevolutWebhookEvent;
+import com.j2020.repository.*;
+import com.j2020.service.BatchProgressService;
+import com.j2020.service.LeaderElectionService;
+import com.j2020.service.ReconciliationService;
+import com.j2020.service.SummaryService;
+import com.j2020.service.revolut.RevolutMapperService;
+import com.j2020.service.revolut.RevolutWebhookService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessageCreator;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@DataJpaTest
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = J2020Application.class)
+public class RevolutWebhookServiceTest {
+    private static final String SECRET = "whsec";
+
+    @Autowired
+    private WebhookEventRepository eventRepository;
+
+    @Autowired
+    private TransactionsForBatchRepository statusRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private BalanceSummaryRepository balanceRepository;
+
+    @Autowired
+    private DailyFlowSummaryRepository flowRepository;
+
+    @Autowired
+    private PaymentBatchRepository batchRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JmsTemplate jmsTemplate;
+    private BatchProgressService progress;
+    private RevolutWebhookService webhooks;
+
+    @Before
+    public void setUp() {
+        statusRepository.deleteAll();
+        jmsTemplate = Mockito.mock(JmsTemplate.class);
+        progress = Mockito.mock(BatchProgressService.class);
+        ReconciliationService reconciliation = new ReconciliationService(statusRepository);
+        setField(reconciliation, "matchWindowHours", 48L);
+
+        webhooks = new RevolutWebhookService(jmsTemplate, eventRepository, transactionRepository, new RevolutMapperService(),
+                new SummaryService(accountRepository, transactionRepository, balanceRepository, flowRepository, entityManager),
+                reconciliation, batchRepository, progress, Mockito.mock(LeaderElectionService.class));
+        setField(webhooks, "signingSecret", SECRET);
+        setField(webhooks, "toleranceMillis", 60000L);
+    }
+
+    @Test
+    public void onlySignedCallsAreQueued() {
+        // GIVEN
+        byte[] body = stateChanged("payment", "pending", "completed", Instant.now()).getBytes(StandardCharsets.UTF_8);
+        String now = String.valueOf(System.currentTimeMillis());
+        String hourAgo = String.valueOf(System.currentTimeMillis() - 3600000);
+        byte[] otherEvent = "{\"event\": \"PayoutLinkCreated\", \"timestamp\": \"2020-03-01T10:00:00Z\"}".getBytes(StandardCharsets.UTF_8);
+
+        // WHEN
+        boolean queued = webhooks.receive(body, now, "v1=rotated, " + RevolutWebhookService.sign(SECRET, now, body));
+        boolean ignored = webhooks.receive(otherEvent, now, RevolutWebhookService.sign(SECRET, now, otherEvent));
+
+        // THEN
+        assertTrue(queued);
+        assertFalse(ignored);
+        assertThrows(WebhookSignatureException.class, () -> webhooks.receive(body, null, null));
+        assertThrows(WebhookSignatureException.class, () -> webhooks.receive(body, now, RevolutWebhookService.sign("guess", now, body)));
+        assertThrows(WebhookSignatureException.class, () -> webhooks.receive(body, hourAgo, RevolutWebhookService.sign(SECRET, hourAgo, body)));
+        verify(jmsTemplate, times(1)).send(eq(Constants.JMS_REVOLUT_WEBHOOK_QUEUE), any(MessageCreator.class));
+    }
+
+    @Test
+    public void eventsAreAppliedOnceAndNeverOverALaterOne() throws IOException {
+        // GIVEN
+        statusRepository.save(pending("payment"));
+        Instant settledAt = Instant.now();
+
+        // WHEN
+        List<TransactionStatusCheck> actual = webhooks.apply(
+                event(stateChanged("payment", "pending", "completed", settledAt)), "settled");
+        List<TransactionStatusCheck> repeated = webhooks.apply(
+                event(stateChanged("payment", "pending", "completed", settledAt)), "settled");
+        List<TransactionStatusCheck> late = webhooks.apply(
+                event(stateChanged("payment", "created", "pending", settledAt.minusSeconds(5))), "pending");
+
+        // THEN
+        assertEquals(1, actual.size());
+        assertTrue(repeated.isEmpty());
+        assertTrue(late.isEmpty());
+        TransactionStatusCheck applied = statusRepository.findById("payment").get();
+        assertEquals("completed", applied.getTransactionStatus());
+        assertEquals("payment", applied.getReconciledTransactionId());
+        assertNull(applied.getNextPollAt());
+        assertEquals(2, eventRepository.count());
+        assertFalse(transactionRepository.existsById("payment"));
+    }
+
+    @Test
+    public void createdTransactionsAreMirroredAndFollowTheirState() throws IOException {
+        // GIVEN
+        String created = "{\"event\": \"TransactionCreated\", \"timestamp\": \"2020-03-01T10:00:00Z\", \"data\": {"
+                + "\"id\": \"transfer\", \"type\": \"transfer\", \"request_id\": \"request\", \"state\": \"pending\","
+                + "\"created_at\": \"2020-03-01T10:00:00Z\", \"legs\": [{\"leg_id\": \"leg\", \"account_id\": \"source\","
+                + "\"counterparty\": {\"account_id\": \"destination\"}, \"amount\": -12.5, \"currency\": \"EUR\", \"balance\": 100}]}}";
+
+        // WHEN
+        webhooks.apply(event(created), "created");
+        webhooks.apply(event(stateChanged("transfer", "pending", "completed", Instant.parse("2020-03-01T10:00:05Z"))), "completed");
+
+        // THEN
+        GeneralTransaction actual = transactionRepository.findById("transfer").get();
+        assertEquals("completed", actual.getState());
+        assertEquals("request", actual.getRequestId());
+        assertEquals(Money.parse("-12.5", "EUR"), actual.getAmount());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void progressIsPublishedOnceTheStatusIsCommitted() throws IOException {
+        // GIVEN
+        BatchOfPayments batch = batchRepository.save(new BatchOfPayments());
+        TransactionStatusCheck status = pending("payment");
+        status.setBatchId(batch.getId());
+        statusRepository.save(status);
+        List<String> statusesSeenBySubscribers = new ArrayList<>();
+        doAnswer(invocation -> statusesSeenBySubscribers.add(CompletableFuture.supplyAsync(
+                () -> statusRepository.findById("payment").get().getTransactionStatus()).join()))
+                .when(progress).publish(any());
+        RevolutWebhookEvent settled = event(stateChanged("payment", "pending", "completed", Instant.now()));
+
+        try {
+            // WHEN
+            new TransactionTemplate(transactionManager).execute(transaction -> webhooks.apply(settled, "settled"));
+
+            // THEN
+            assertEquals(Collections.singletonList("completed"), statusesSeenBySubscribers);
+            verify(progress).recordStatus(any());
+        } finally {
+            eventRepository.deleteAll();
+            statusRepository.deleteAll();
+            batchRepository.delete(batch);
+        }
+    }
+
+    private static TransactionStatusCheck pending(String paymentId) {
+        TransactionStatusCheck status = new TransactionStatusCheck();
+        status.setPaymentId(paymentId);
+        status.setTransactionStatus("pending");
+        status.setBank(Bank.REVOLUT);
+        status.setAmount(Money.parse("10", "EUR"));
+        status.setSubmittedAt(System.currentTimeMillis());
+        status.setNextPollAt(System.currentTimeMillis() + 10000);
+        return status;
+    }
+
+    private static String stateChanged(String id, String oldState, String newState, Instant at) {
+        return "{\"event\": \"TransactionStateChanged\", \"timestamp\": \"" + at + "\", \"data\": {\"id\": \"" + id
+                + "\", \"old_state\": \"" + oldState + "\", \"new_state\": \"" + newState + "\"}}";
+    }
+
+    private static RevolutWebhookEvent event(String json) throws IOException {
+        return new ObjectMapper().readValue(json, RevolutWebhookEvent.class);
+    }
+}
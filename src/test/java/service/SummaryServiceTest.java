@@ -0,0 +1,203 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.j2020.J2020Application;
+import com.j2020.model.*;
+import com.j2020.repository.AccountRepository;
+import com.j2020.repository.BalanceSummaryRepository;
+import com.j2020.repository.DailyFlowSummaryRepository;
+import com.j2020.repository.TransactionRepository;
+import com.j2020.service.SummaryService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = J2020Application.class)
+public class SummaryServiceTest {
+    private static final LocalDate DAY = LocalDate.of(2020, 2, 10);
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BalanceSummaryRepository balanceRepository;
+
+    @Autowired
+    private DailyFlowSummaryRepository flowRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SummaryService summaries;
+
+    @Before
+    public void setUp() {
+        accountRepository.deleteAll();
+        transactionRepository.deleteAll();
+        balanceRepository.deleteAll();
+        flowRepository.deleteAll();
+        summaries = new SummaryService(accountRepository, transactionRepository, balanceRepository, flowRepository, entityManager);
+    }
+
+    @Test
+    public void balancesFollowSavedAccounts() {
+        // GIVEN
+        summaries.saveAccounts(Arrays.asList(
+                account("first", "100.10", "EUR"),
+                account("second", "50.00", "EUR"),
+                account("third", "7", "GBP")));
+
+        // WHEN
+        summaries.saveAccounts(Arrays.asList(account("first", "90.10", "EUR"), account("second", "50.00", "EUR")));
+        summaries.saveAccounts(Collections.singletonList(account("first", "90.10", "EUR")));
+
+        // THEN
+        List<BalanceSummary> actual = summaries.getBalanceSummary().get(Bank.REVOLUT.toString());
+        assertEquals(2, actual.size());
+        assertEquals("EUR", actual.get(0).getCurrency());
+        assertEquals(Money.parse("140.10", "EUR"), actual.get(0).getTotal());
+        assertEquals(2, actual.get(0).getAccountCount());
+        assertEquals(Money.parse("7", "GBP"), actual.get(1).getTotal());
+    }
+
+    @Test
+    public void repeatedTransactionUpsertsAreCountedOnce() {
+        // GIVEN
+        List<GeneralTransaction> fetched = Arrays.asList(
+                transaction("t1", "first", "-10.00", DAY + "T09:15:00Z"),
+                transaction("t2", "first", "5.50", DAY.toString()),
+                transaction("t3", "first", "-1.00", DAY.plusDays(1) + "T23:59:59Z"),
+                transaction("t4", "second", "-2.00", DAY.toString()));
+
+        // WHEN
+        summaries.saveTransactions(fetched);
+        summaries.saveTransactions(fetched);
+
+        // THEN
+        Map<String, List<DailyFlowSummary>> actual = summaries.getDailyFlows("first", DAY, DAY.plusDays(1));
+        List<DailyFlowSummary> days = actual.get("first");
+        assertEquals(1, actual.size());
+        assertEquals(2, days.size());
+        assertEquals(DAY, days.get(0).getDay());
+        assertEquals(Money.parse("5.50", "EUR"), days.get(0).getInflow());
+        assertEquals(Money.parse("10.00", "EUR"), days.get(0).getOutflow());
+        assertEquals(Money.parse("-4.50", "EUR"), days.get(0).getNet());
+        assertEquals(2, days.get(0).getTransactionCount());
+        assertEquals(2, summaries.getDailyFlows(null, DAY, DAY).size());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void newTransactionSavedByTwoSyncsAtOnceIsCountedOnce() {
+        // GIVEN
+        TransactionTemplate inTransaction = new TransactionTemplate(transactionManager);
+        List<GeneralTransaction> fetched = Collections.singletonList(transaction("t1", "first", "-10.00", DAY.toString()));
+        TransactionRepository racing = mock(TransactionRepository.class, delegatesTo(transactionRepository));
+        doAnswer(invocation -> {
+            List<GeneralTransaction> found = transactionRepository.findAllById(invocation.getArgument(0));
+            // the other save commits the transaction after this one found it missing
+            CompletableFuture.runAsync(() -> inTransaction.execute(status -> summaries.saveTransactions(fetched))).join();
+            return found;
+        }).when(racing).findAllById(any());
+        SummaryService concurrent = new SummaryService(accountRepository, racing, balanceRepository, flowRepository, entityManager);
+
+        try {
+            // WHEN
+            assertThrows(PersistenceException.class, () -> inTransaction.execute(status -> concurrent.saveTransactions(fetched)));
+
+            // THEN
+            List<DailyFlowSummary> days = summaries.getDailyFlows("first", DAY, DAY).get("first");
+            assertEquals(1, days.get(0).getTransactionCount());
+            assertEquals(Money.parse("10.00", "EUR"), days.get(0).getOutflow());
+        } finally {
+            transactionRepository.deleteAll();
+            flowRepository.deleteAll();
+        }
+    }
+
+    @Test
+    public void correctedTransactionMovesBetweenDays() {
+        // GIVEN
+        summaries.saveTransactions(Collections.singletonList(transaction("t1", "first", "-10.00", DAY.toString())));
+
+        // WHEN
+        summaries.saveTransactions(Collections.singletonList(transaction("t1", "first", "-12.00", DAY.plusDays(1).toString())));
+
+        // THEN
+        List<DailyFlowSummary> days = summaries.getDailyFlows("first", DAY, DAY.plusDays(1)).get("first");
+        assertEquals(0, days.get(0).getTransactionCount());
+        assertEquals(0, days.get(0).getOutflowMinorUnits());
+        assertEquals(Money.parse("12.00", "EUR"), days.get(1).getOutflow());
+    }
+
+    @Test
+    public void existingDataIsSummarisedOnStart() {
+        // GIVEN
+        accountRepository.saveAll(Arrays.asList(account("first", "1.25", "EUR"), account("second", "2.00", "EUR")));
+        transactionRepository.save(transaction("t1", "first", "3.00", DAY.toString()));
+
+        // WHEN
+        summaries.buildMissingSummaries();
+
+        // THEN
+        assertEquals(Money.parse("3.25", "EUR"), summaries.getBalanceSummary().get(Bank.REVOLUT.toString()).get(0).getTotal());
+        assertTrue(summaries.getBalanceSummary().get(Bank.DEUTSCHE.toString()).isEmpty());
+        assertEquals(Money.parse("3.00", "EUR"), summaries.getDailyFlows("first", DAY, DAY).get("first").get(0).getInflow());
+    }
+
+    private static GeneralAccount account(String id, String balance, String currency) {
+        GeneralAccount account = new GeneralAccount();
+        account.setAccountId(id);
+        account.setBalance(Money.parse(balance, currency));
+        account.setCurrency(currency);
+        account.setBank(Bank.REVOLUT);
+        return account;
+    }
+
+    private static GeneralTransaction transaction(String id, String origin, String amount, String createdAt) {
+        GeneralTransaction transaction = new GeneralTransaction();
+        transaction.setTransactionId(id);
+        transaction.setOrigin(origin);
+        transaction.setCreditor("counterparty");
+        transaction.setAmount(Money.parse(amount, "EUR"));
+        transaction.setCreatedAt(createdAt);
+        transaction.setBank(Bank.REVOLUT);
+        return transaction;
+    }
+}
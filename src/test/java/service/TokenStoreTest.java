@@ -0,0 +1,108 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.j2020.model.Bank;
+import com.j2020.model.StoredToken;
+import com.j2020.service.TokenStore;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class TokenStoreTest {
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private TokenStore store;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "tokens.bin");
+        store = newStore(KEY);
+    }
+
+    @Test
+    public void tokensSurviveRestartEncrypted() throws Exception {
+        // GIVEN
+        store.save(Bank.REVOLUT, "configured", new StoredToken("access-1", 1000L, "configured"));
+        store.save(Bank.DEUTSCHE, "configured", new StoredToken("access-2", 2000L, "rotated"));
+
+        // WHEN
+        StoredToken actual = newStore(KEY).load(Bank.DEUTSCHE, "configured").get();
+
+        // THEN
+        assertEquals("access-2", actual.getAccessToken());
+        assertEquals(2000L, actual.getExpiresAt());
+        assertEquals("rotated", actual.getRefreshToken());
+        assertEquals("access-1", store.load(Bank.REVOLUT, "configured").get().getAccessToken());
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+        assertFalse(content.contains("access-2") || content.contains("rotated"));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void newlyConfiguredRefreshTokenIgnoresStoredOne() {
+        // GIVEN
+        store.save(Bank.DEUTSCHE, "configured", new StoredToken("access", 2000L, "rotated"));
+
+        // WHEN
+        Optional<StoredToken> actual = store.load(Bank.DEUTSCHE, "reauthorised");
+
+        // THEN
+        assertFalse(actual.isPresent());
+    }
+
+    @Test
+    public void unreadableStoreIsIgnored() throws Exception {
+        // GIVEN
+        store.save(Bank.DEUTSCHE, "configured", new StoredToken("access", 2000L, "rotated"));
+        byte[] sealed = Files.readAllBytes(file.toPath());
+        sealed[sealed.length - 1] ^= 1;
+        TokenStore otherKey = newStore(Base64.getEncoder().encodeToString(new byte[16]));
+
+        // WHEN
+        Optional<StoredToken> wrongKey = otherKey.load(Bank.DEUTSCHE, "configured");
+        Files.write(file.toPath(), sealed);
+        Optional<StoredToken> tampered = store.load(Bank.DEUTSCHE, "configured");
+
+        // THEN
+        assertFalse(wrongKey.isPresent());
+        assertFalse(tampered.isPresent());
+    }
+
+    @Test
+    public void storeWithoutKeyKeepsNothing() {
+        // GIVEN
+        TokenStore disabled = newStore("");
+
+        // WHEN
+        disabled.save(Bank.REVOLUT, "configured", new StoredToken("access", 1000L, "configured"));
+
+        // THEN
+        assertFalse(disabled.load(Bank.REVOLUT, "configured").isPresent());
+        assertFalse(file.exists());
+    }
+
+    private TokenStore newStore(String key) {
+        TokenStore tokenStore = new TokenStore();
+        setField(tokenStore, "path", file.getPath());
+        setField(tokenStore, "key", key);
+        tokenStore.init();
+        return tokenStore;
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package service;
+
+import com.j2020.J2020Application;
+import com.j2020.model.Bank;
+import com.j2020.model.GeneralTransaction;
+import com.j2020.model.Money;
+import com.j2020.model.TransactionArchiveChunk;
+import com.j2020.repository.LeaderLeaseRepository;
+import com.j2020.repository.TransactionArchiveRepository;
+import com.j2020.repository.TransactionRepository;
+import com.j2020.service.LeaderElectionService;
+import com.j2020.service.TransactionArchiveService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@DataJpaTest
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = J2020Application.class)
+public class TransactionArchiveServiceTest {
+    private static final LocalDate TODAY = LocalDate.now(ZoneOffset.UTC);
+    private static final LocalDate OLD = TODAY.minusDays(400);
+    private static final LocalDate RECENT = TODAY.minusDays(10);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionArchiveRepository archiveRepository;
+
+    @Autowired
+    private LeaderLeaseRepository leases;
+
+    private TransactionArchiveService archive;
+
+    @Before
+    public void setUp() {
+        transactionRepository.deleteAll();
+        archiveRepository.deleteAll();
+        archive = new TransactionArchiveService(transactionRepository, archiveRepository, new LeaderElectionService(leases));
+        setField(archive, "horizonDays", 365);
+        setField(archive, "maxDaysPerRun", 31);
+    }
+
+    @Test
+    public void oldTransactionsMoveToDailyChunks() {
+        // GIVEN
+        transactionRepository.saveAll(Arrays.asList(
+                transaction("old-1", OLD + "T10:00:00.000Z", "1.50"),
+                transaction("old-2", OLD + "T23:59:59.999Z", "-2.25"),
+                transaction("older", OLD.minusDays(1).toString(), "3.00"),
+                transaction("recent", RECENT + "T08:00:00.000Z", "4.00")));
+
+        // WHEN
+        archive.archiveOldTransactions();
+
+        // THEN
+        assertEquals(Collections.singletonList("recent"), ids(transactionRepository.findAll()));
+        TransactionArchiveChunk chunk = archiveRepository.findByBankAndDay(Bank.REVOLUT, OLD).get();
+        assertEquals(2, chunk.getTransactionCount());
+        assertEquals(2, archiveRepository.count());
+    }
+
+    @Test
+    public void rangesReachIntoTheArchiveOnlyWhenNeeded() {
+        // GIVEN
+        transactionRepository.saveAll(Arrays.asList(
+                transaction("old", OLD + "T10:00:00.000Z", "1.50"),
+                transaction("recent", RECENT + "T08:00:00.000Z", "4.00")));
+        archive.archiveOldTransactions();
+
+        // WHEN
+        List<GeneralTransaction> everything = archive.findBetween(Bank.REVOLUT, null, null);
+        List<GeneralTransaction> oldDay = archive.findBetween(Bank.REVOLUT, OLD, OLD);
+        List<GeneralTransaction> lastMonth = archive.findBetween(Bank.REVOLUT, TODAY.minusDays(30), null);
+
+        // THEN
+        assertEquals(Arrays.asList("old", "recent"), ids(everything));
+        assertEquals(Money.parse("1.50", "EUR"), oldDay.get(0).getAmount());
+        assertEquals(OLD + "T10:00:00.000Z", oldDay.get(0).getCreatedAt());
+        assertEquals(Collections.singletonList("recent"), ids(lastMonth));
+        assertEquals(Collections.emptyList(), archive.findBetween(Bank.DEUTSCHE, null, null));
+    }
+
+    @Test
+    public void syncedTransactionsOfArchivedDaysAreDropped() {
+        // GIVEN
+        transactionRepository.save(transaction("old", OLD + "T10:00:00.000Z", "1.50"));
+        archive.archiveOldTransactions();
+        List<GeneralTransaction> fetched = Arrays.asList(
+                transaction("old", OLD + "T10:00:00.000Z", "1.50"),
+                transaction("older", OLD.minusDays(3).toString(), "2.00"),
+                transaction("recent", RECENT.toString(), "4.00"));
+
+        // WHEN
+        List<GeneralTransaction> actual = archive.withoutArchived(Bank.REVOLUT, fetched);
+
+        // THEN
+        assertEquals(Collections.singletonList("recent"), ids(actual));
+        assertEquals(fetched, archive.withoutArchived(Bank.DEUTSCHE, fetched));
+    }
+
+    @Test
+    public void lateRowsOfAnArchivedDayAreMergedIntoItsChunk() {
+        // GIVEN
+        transactionRepository.save(transaction("first", OLD + "T10:00:00.000Z", "1.50"));
+        archive.archiveOldTransactions();
+        transactionRepository.save(transaction("late", OLD + "T11:00:00.000Z", "2.50"));
+
+        // WHEN
+        archive.archiveOldTransactions();
+
+        // THEN
+        assertEquals(2, archiveRepository.findByBankAndDay(Bank.REVOLUT, OLD).get().getTransactionCount());
+        assertEquals(Arrays.asList("first", "late"), ids(archive.findBetween(Bank.REVOLUT, OLD, OLD)));
+        assertEquals(0, transactionRepository.count());
+    }
+
+    private static List<String> ids(List<GeneralTransaction> transactions) {
+        return transactions.stream().map(GeneralTransaction::getTransactionId).sorted().collect(Collectors.toList());
+    }
+
+    private static GeneralTransaction transaction(String id, String createdAt, String amount) {
+        GeneralTransaction transaction = new GeneralTransaction();
+        transaction.setTransactionId(id);
+        transaction.setOrigin("origin");
+        transaction.setCreditor("counterparty");
+        transaction.setAmount(Money.parse(amount, "EUR"));
+        transaction.setCreatedAt(createdAt);
+        transaction.setBank(Bank.REVOLUT);
+        return transaction;
+    }
+}
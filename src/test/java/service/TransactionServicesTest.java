@@ -8,6 +8,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.j2020.Constants;
+import com.j2020.ExecutorConfiguration;
 import com.j2020.model.*;
 import com.j2020.model.deutsche.DeutscheAccount;
 import com.j2020.model.deutsche.DeutschePayment;
@@ -15,9 +16,13 @@ import com.j2020.model.deutsche.DeutschePaymentResponse;
 import com.j2020.model.deutsche.DeutscheTransaction;
 import com.j2020.model.exception.BankNotSupportedException;
 import com.j2020.model.exception.JsonProcessingExceptionLambdaWrapper;
+import com.j2020.model.exception.TokenFetchException;
 import com.j2020.model.revolut.RevolutPayment;
 import com.j2020.model.revolut.RevolutTransaction;
 import com.j2020.service.BankingServiceFactory;
+import com.j2020.service.PaymentIdentificationService;
+import com.j2020.service.PaymentNettingService;
+import com.j2020.service.PaymentValidationService;
 import com.j2020.service.TransactionProcessingService;
 import com.j2020.service.TransactionRequestRetrievalService;
 import com.j2020.service.deutsche.DeutscheAccountService;
@@ -31,21 +36,33 @@ import helper.TestDataHelper;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.util.ReflectionTestUtils.setField;
 
@@ -57,8 +74,11 @@ public class TransactionServicesTest {
     private DeutscheAccountService deutscheAccountService;
     private DeutscheMultiFactorService multiFactorService;
     private TransactionRequestRetrievalService retrievalService;
+    private PaymentIdentificationService identificationService;
     private RestTemplate restTemplate;
     private JmsTransactionProducer transactionProducer;
+    private PaymentValidationService validation;
+    private PaymentNettingService netting;
 
     @Before
     public void setUp() {
@@ -69,10 +89,24 @@ public class TransactionServicesTest {
         deutscheTransactionService = Mockito.mock(DeutscheTransactionService.class);
         deutscheAccountService = Mockito.mock(DeutscheAccountService.class);
         transactionProducer = Mockito.mock(JmsTransactionProducer.class);
-        processingService = new TransactionProcessingService(serviceFactory, transactionProducer);
-        retrievalService = new TransactionRequestRetrievalService(multiFactorService, restTemplate);
+        validation = new PaymentValidationService(new RevolutMapperService(), new DeutscheMapperService());
+        netting = new PaymentNettingService();
+        processingService = new TransactionProcessingService(serviceFactory, transactionProducer, validation, netting);
+        identificationService = new PaymentIdentificationService();
+        retrievalService = new TransactionRequestRetrievalService(multiFactorService, identificationService, restTemplate,
+                ExecutorConfiguration.newBoundedPool("test-bank-io-", 8, 100));
 
-        setField(retrievalService, "maxReqIdLength", 40);
+        setField(validation, "parallelThreshold", 1000);
+        setField(validation, "maxReportedErrors", 100);
+        setField(identificationService, "maxReqIdLength", 40);
+        setField(identificationService, "nodeId", "0");
+        identificationService.init();
+
+        Map<String, Integer> paymentConcurrency = new HashMap<>();
+        paymentConcurrency.put("REVOLUT", 3);
+        paymentConcurrency.put("DEUTSCHE", 3);
+        setField(retrievalService, "paymentConcurrency", paymentConcurrency);
+        retrievalService.init();
     }
 
     @Test
@@ -92,6 +126,89 @@ public class TransactionServicesTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void paymentListsArePushedInParallelInOrder() throws JsonProcessingException {
+        // GIVEN
+        List<DeutschePayment> payments = new ArrayList<>();
+        for (int index = 0; index < 12; index++) {
+            GeneralPayment payment = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+            payment.setDestinationAccount("DE" + index);
+            payments.add(new DeutscheMapperService().toDeutschePayment(payment));
+        }
+        when(multiFactorService.prepareAuthorisation(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            Map<String, String> headerInfo = new HashMap<>();
+            headerInfo.put("otp", "otp-" + invocation.getArgument(1));
+            headerInfo.put("idempotency-id", "id-" + invocation.getArgument(1));
+            return headerInfo;
+        });
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger mostInFlight = new AtomicInteger();
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), notNull(), eq(String.class))).thenAnswer(invocation -> {
+            mostInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            HttpEntity<?> request = invocation.getArgument(2);
+            String iban = ((DeutschePayment) request.getBody()).getCreditorAccount().getIban();
+            assertEquals("otp-" + iban, request.getHeaders().getFirst("otp"));
+            Thread.sleep(20L * (12 - Integer.parseInt(iban.substring(2))) % 70);
+            inFlight.decrementAndGet();
+
+            return new ResponseEntity<>("{\"paymentId\": \"payment-" + iban + "\", \"transactionStatus\": \"PDNG\"}", HttpStatus.CREATED);
+        });
+
+        // WHEN
+        List<PaymentResponse> actual = retrievalService.pushPayments(Constants.TEST_ACCESS_TOKEN, Constants.DEUTSCHE_PAYMENT_URL,
+                payments, new ObjectMapper().getTypeFactory().constructType(DeutschePaymentResponse.class));
+
+        // THEN
+        assertEquals(12, actual.size());
+        for (int index = 0; index < actual.size(); index++) {
+            assertEquals("payment-DE" + index, actual.get(index).getPaymentId());
+        }
+        assertEquals(3, mostInFlight.get());
+    }
+
+    @Test
+    public void everyPaymentOfAListGetsItsOwnOutcome() {
+        // GIVEN
+        List<DeutschePayment> payments = new ArrayList<>();
+        for (int index = 0; index < 4; index++) {
+            GeneralPayment payment = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+            payment.setDestinationAccount("DE" + index);
+            payments.add(new DeutscheMapperService().toDeutschePayment(payment));
+        }
+        when(multiFactorService.prepareAuthorisation(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            if ("DE1".equals(invocation.getArgument(1))) {
+                throw new TokenFetchException("No one-time password");
+            }
+            Map<String, String> headerInfo = new HashMap<>();
+            headerInfo.put("otp", "otp");
+            headerInfo.put("idempotency-id", "id");
+            return headerInfo;
+        });
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), notNull(), eq(String.class))).thenAnswer(invocation -> {
+            HttpEntity<?> request = invocation.getArgument(2);
+            String iban = ((DeutschePayment) request.getBody()).getCreditorAccount().getIban();
+            if ("DE2".equals(iban)) {
+                throw new ResourceAccessException("Read timed out");
+            }
+            if ("DE3".equals(iban)) {
+                throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+            }
+            return new ResponseEntity<>("{\"paymentId\": \"payment-" + iban + "\", \"transactionStatus\": \"PDNG\"}", HttpStatus.CREATED);
+        });
+
+        // WHEN
+        List<PaymentResponse> actual = retrievalService.pushPayments(Constants.TEST_ACCESS_TOKEN, Constants.DEUTSCHE_PAYMENT_URL,
+                payments, new ObjectMapper().getTypeFactory().constructType(DeutschePaymentResponse.class));
+
+        // THEN
+        assertEquals(4, actual.size());
+        assertEquals("payment-DE0", actual.get(0).getPaymentId());
+        assertTrue(actual.get(1) instanceof FailedPaymentResponse);
+        assertTrue(actual.get(2) instanceof UnknownPaymentResponse);
+        assertTrue(actual.get(3) instanceof FailedPaymentResponse);
+    }
+
     @Test
     public void initiatingWithInvalidParams() {
         // THEN
@@ -122,6 +239,136 @@ public class TransactionServicesTest {
         assertEquals(response.getBatchId(), actual.getBatchId());
     }
 
+    @Test
+    public void onlyValidPaymentsAreEnqueued() {
+        // GIVEN
+        GeneralPayment missingCreditor = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+        missingCreditor.setAdditionalInfo(null);
+        GeneralPayment missingAccounts = TestDataHelper.generateValidGeneralPaymentForRevolut();
+        missingAccounts.setSourceAccount(null);
+        missingAccounts.setDestinationAccount(null);
+
+        Map<String, List<GeneralPayment>> params = new HashMap<>();
+        params.put(Bank.DEUTSCHE.toString(), Arrays.asList(TestDataHelper.generateValidGeneralPaymentForDeutsche(), missingCreditor));
+        params.put(Bank.REVOLUT.toString(), Arrays.asList(missingAccounts, TestDataHelper.generateValidGeneralPaymentForRevolut()));
+
+        BatchOfPaymentsMessage response = new BatchOfPaymentsMessage();
+        response.setBatchId(1L);
+        when(transactionProducer.sendPayments(anyList())).thenReturn(response);
+
+        // WHEN
+        PaymentSubmissionReport actual = processingService.initiatePaymentRequests(params);
+
+        // THEN
+        verify(transactionProducer).sendPayments(argThat(payments -> payments.size() == 2
+                && payments.contains(params.get(Bank.DEUTSCHE.toString()).get(0))
+                && payments.contains(params.get(Bank.REVOLUT.toString()).get(1))));
+        assertEquals(1L, actual.getBatchId());
+        assertEquals(2, actual.getAcceptedPayments());
+        assertEquals(2, actual.getRejectedPayments());
+        assertEquals(Bank.DEUTSCHE, params.get(Bank.DEUTSCHE.toString()).get(0).getBank());
+
+        PaymentRowError deutscheError = actual.getErrors().stream().filter(error -> error.getBank() == Bank.DEUTSCHE).findFirst().get();
+        assertEquals(1, deutscheError.getRow());
+        assertEquals("no creditor name specified under 'additionalInfo'", deutscheError.getMessage());
+        PaymentRowError revolutError = actual.getErrors().stream().filter(error -> error.getBank() == Bank.REVOLUT).findFirst().get();
+        assertEquals(0, revolutError.getRow());
+        assertEquals("no source account specified, no destination account specified", revolutError.getMessage());
+    }
+
+    @Test
+    public void sameRoutePaymentsAreNettedIntoOneTransfer() {
+        // GIVEN
+        setField(netting, "enabled", true);
+        setField(netting, "minPayments", 2);
+        List<GeneralPayment> payments = new ArrayList<>();
+        for (int index = 0; index < 3; index++) {
+            GeneralPayment payment = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+            payment.setAmount(Money.parse("1.10", "EUR"));
+            payment.getAdditionalInfo().put("endToEndId", "E2E-" + index);
+            payments.add(payment);
+        }
+        GeneralPayment otherRoute = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+        otherRoute.setDestinationAccount("DE10010000000000009999");
+        payments.add(1, otherRoute);
+
+        Map<String, List<GeneralPayment>> params = new HashMap<>();
+        params.put(Bank.DEUTSCHE.toString(), payments);
+        payments.forEach(payment -> payment.setBank(Bank.DEUTSCHE));
+        when(transactionProducer.sendPayments(anyList())).thenReturn(new BatchOfPaymentsMessage());
+
+        // WHEN
+        PaymentSubmissionReport actual = processingService.initiatePaymentRequests(params);
+
+        // THEN
+        ArgumentCaptor<List<GeneralPayment>> captor = ArgumentCaptor.forClass(List.class);
+        verify(transactionProducer).sendPayments(captor.capture());
+        List<GeneralPayment> transfers = captor.getValue();
+        assertEquals(2, transfers.size());
+        assertEquals(Money.parse("3.30", "EUR"), transfers.get(0).getAmount());
+        assertEquals(Arrays.asList(payments.get(0), payments.get(2), payments.get(3)), transfers.get(0).getNettedPayments());
+        assertFalse(transfers.get(0).getAdditionalInfo().containsKey("endToEndId"));
+        assertEquals(payments.get(0).getAdditionalInfo().get("creditorName"), transfers.get(0).getAdditionalInfo().get("creditorName"));
+        assertEquals(otherRoute, transfers.get(1));
+        assertEquals(4, JmsTransactionProducer.countOf(transfers));
+        assertEquals(4, actual.getAcceptedPayments());
+    }
+
+    @Test
+    public void largeRequestsAreValidatedInParallelInOrder() {
+        // GIVEN
+        setField(validation, "parallelThreshold", 2);
+        List<GeneralPayment> payments = new ArrayList<>();
+        for (int row = 0; row < 500; row++) {
+            GeneralPayment payment = TestDataHelper.generateValidGeneralPaymentForDeutsche();
+            if (row % 3 == 0) {
+                payment.setCurrency(null);
+            }
+            payments.add(payment);
+        }
+
+        // WHEN
+        List<PaymentRowError> actual = validation.validateAll(Bank.DEUTSCHE, payments);
+
+        // THEN
+        assertEquals(167, actual.size());
+        for (int index = 0; index < actual.size(); index++) {
+            assertEquals(index * 3L, actual.get(index).getRow());
+        }
+    }
+
+    @Test
+    public void nothingIsEnqueuedWithoutValidPayments() {
+        // GIVEN
+        Map<String, List<GeneralPayment>> params = new HashMap<>();
+        params.put(Bank.REVOLUT.toString(), Collections.singletonList(new GeneralPayment()));
+
+        // WHEN
+        BatchOfPaymentsMessage actual = processingService.initiatePaymentRequests(params);
+
+        // THEN
+        assertNull(actual.getBatchId());
+        assertEquals(Constants.DISPLAY_PAYMENTS_REJECTED_TEXT, actual.getText());
+        verifyNoInteractions(transactionProducer);
+    }
+
+    @Test
+    public void missingPaymentsAreRejectedRows() {
+        // GIVEN
+        Map<String, List<GeneralPayment>> params = new HashMap<>();
+        params.put(Bank.DEUTSCHE.toString(), Arrays.asList(null, new GeneralPayment()));
+        params.put(Bank.REVOLUT.toString(), null);
+
+        // WHEN
+        PaymentSubmissionReport actual = processingService.initiatePaymentRequests(params);
+
+        // THEN
+        assertNull(actual.getBatchId());
+        assertEquals(2, actual.getRejectedPayments());
+        assertEquals("no payment specified", actual.getErrors().get(0).getMessage());
+        verifyNoInteractions(transactionProducer);
+    }
+
     @Test
     public void throwsWithFailedMapping() throws JsonProcessingException {
         // WHEN
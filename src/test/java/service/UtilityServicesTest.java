@@ -7,6 +7,7 @@ package service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.j2020.Constants;
 import com.j2020.model.Bank;
+import com.j2020.model.Money;
 import com.j2020.model.deutsche.DeutscheOneTimePassword;
 import com.j2020.model.deutsche.DeutschePhototanResponse;
 import com.j2020.model.exception.JsonProcessingExceptionLambdaWrapper;
@@ -104,8 +105,7 @@ public class UtilityServicesTest {
         Map<String, String> actual = multiFactorService.prepareAuthorisation(
                 Constants.TEST_ACCESS_TOKEN,
                 Constants.TEST_ANY_ACCOUNT,
-                Constants.TEST_CURRENCY_CODE,
-                "0.0");
+                Money.ofMinor(0, Constants.TEST_CURRENCY_CODE));
 
         // THEN
         assertEquals(expected, actual);
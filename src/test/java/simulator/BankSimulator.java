@@ -0,0 +1,420 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package simulator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.j2020.Constants;
+import com.j2020.model.deutsche.*;
+import com.j2020.model.revolut.*;
+import com.j2020.service.revolut.RevolutWebhookService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-JVM stand-in for the Revolut and Deutsche Bank sandboxes. Implements the token, account, transaction,
+ * OTP challenge, payment and payment status endpoints the adapters call, with latency, error rate and payload size
+ * taken from a {@link SimulatorProfile}. Errors are only injected on the payment path so that startup syncs succeed.
+ * Payments stay pending for the profile's settlement time and are reported settled after it. Once
+ * {@link #sendWebhooksTo} was called, a settled Revolut payment is also announced by a signed
+ * {@code TransactionStateChanged} webhook call, delivered twice at the profile's error rate like a retried delivery.
+ */
+public class BankSimulator {
+    private static final Logger logger = LoggerFactory.getLogger(BankSimulator.class);
+    public static final String TWO_FACTOR_SECRET = "JBSWY3DPEHPK3PXP";
+
+    private final SimulatorProfile profile;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong revolutPayments = new AtomicLong();
+    private final AtomicLong deutschePayments = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong statusLookups = new AtomicLong();
+    private final AtomicLong webhookCalls = new AtomicLong();
+    private final Map<String, Long> paymentsCreatedAt = new ConcurrentHashMap<>();
+    private final List<String> revolutAccountIds = new ArrayList<>();
+    private final List<String> deutscheIbans = new ArrayList<>();
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private ScheduledExecutorService webhookScheduler;
+    private volatile String webhookUrl;
+    private volatile String webhookSecret;
+    private byte[] revolutAccounts;
+    private byte[] revolutTransactions;
+    private byte[] deutscheAccounts;
+    private byte[] deutscheTransactions;
+
+    public BankSimulator(SimulatorProfile profile) {
+        this.profile = profile;
+    }
+
+    public void start() throws IOException {
+        preparePayloads();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        webhookScheduler = Executors.newScheduledThreadPool(2);
+        server.createContext("/revolut", this::handleRevolut);
+        server.createContext("/deutsche", this::handleDeutsche);
+        server.start();
+
+        logger.info("Bank simulator listening on {} with {}", getBaseUrl(), profile);
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        webhookScheduler.shutdownNow();
+    }
+
+    public void sendWebhooksTo(String url, String signingSecret) {
+        this.webhookSecret = signingSecret;
+        this.webhookUrl = url;
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public Map<String, Object> applicationProperties() {
+        String base = getBaseUrl();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("revolutTokenRenewal.revoTokenRenewalUri", base + "/revolut/auth/token");
+        properties.put("revolutAccount.accountUrl", base + "/revolut/accounts");
+        properties.put("revolutTransaction.transactionUrl", base + "/revolut/transactions");
+        properties.put("revolutTransaction.paymentUrl", base + "/revolut/pay");
+        properties.put("revolutTransaction.paymentStatusUrl", base + "/revolut/transaction/{paymentId}");
+        properties.put("deutscheTokenRenewal.deutTokenRenewalUri", base + "/deutsche/oidc/token");
+        properties.put("deutscheAccount.accountUrl", base + "/deutsche/cashAccounts");
+        properties.put("deutscheTransaction.transactionUrl", base + "/deutsche/transactions");
+        properties.put("deutscheTransaction.oneTimePassUrl", base + "/deutsche/onetimepasswords");
+        properties.put("deutscheTransaction.paymentUrl", base + "/deutsche/instantSepaCreditTransfers");
+        properties.put("deutscheTransaction.paymentStatusUrl", base + "/deutsche/instantSepaCreditTransfers/{paymentId}/status");
+        properties.put("deutscheTransaction.twoFactorSecret", TWO_FACTOR_SECRET);
+        return properties;
+    }
+
+    public List<String> getRevolutAccountIds() {
+        return revolutAccountIds;
+    }
+
+    public List<String> getDeutscheIbans() {
+        return deutscheIbans;
+    }
+
+    public long getRevolutPayments() {
+        return revolutPayments.get();
+    }
+
+    public long getDeutschePayments() {
+        return deutschePayments.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public long getStatusLookups() {
+        return statusLookups.get();
+    }
+
+    public long getWebhookCalls() {
+        return webhookCalls.get();
+    }
+
+    private void handleRevolut(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+
+        try {
+            simulateLatency();
+
+            if (method.equals("POST") && path.equals("/revolut/auth/token")) {
+                RevolutTokenRenewalResponse token = new RevolutTokenRenewalResponse();
+                token.setAccessToken("sim-revolut-" + UUID.randomUUID());
+                token.setTokenType("bearer");
+                token.setSecondsUntilExpiring(2399);
+                respond(exchange, 200, mapper.writeValueAsBytes(token));
+            } else if (method.equals("GET") && path.equals("/revolut/accounts")) {
+                respond(exchange, 200, revolutAccounts);
+            } else if (method.equals("GET") && path.equals("/revolut/transactions")) {
+                respond(exchange, 200, revolutTransactions);
+            } else if (method.equals("POST") && path.equals("/revolut/pay")) {
+                drain(exchange.getRequestBody());
+                if (injectError(exchange)) {
+                    return;
+                }
+                // response DTOs serialise through PaymentResponse getters, so the wire format is written by hand
+                Map<String, String> response = new LinkedHashMap<>();
+                response.put("id", UUID.randomUUID().toString());
+                response.put("state", "pending");
+                response.put("created_at", Instant.now().toString());
+                paymentsCreatedAt.put(response.get("id"), System.currentTimeMillis());
+                revolutPayments.incrementAndGet();
+                if (webhookUrl != null) {
+                    String id = response.get("id");
+                    webhookScheduler.schedule(() -> announceSettlement(id), profile.getSettlementMillis(), TimeUnit.MILLISECONDS);
+                }
+                respond(exchange, 200, mapper.writeValueAsBytes(response));
+            } else if (method.equals("GET") && path.startsWith("/revolut/transaction/")) {
+                statusLookups.incrementAndGet();
+                String id = path.substring("/revolut/transaction/".length());
+                if (!paymentsCreatedAt.containsKey(id)) {
+                    respond(exchange, 404, new byte[0]);
+                    return;
+                }
+                RevolutTransaction transaction = new RevolutTransaction();
+                transaction.setId(id);
+                transaction.setType("transfer");
+                transaction.setState(isSettled(id) ? "completed" : "pending");
+                transaction.setDateOfCreating(Instant.ofEpochMilli(paymentsCreatedAt.get(id)).toString());
+                respond(exchange, 200, mapper.writeValueAsBytes(transaction));
+            } else {
+                respond(exchange, 404, new byte[0]);
+            }
+        } catch (RuntimeException exception) {
+            logger.error("Simulator failed on {} {}", method, path, exception);
+            respond(exchange, 500, new byte[0]);
+        }
+    }
+
+    private void handleDeutsche(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+
+        try {
+            simulateLatency();
+
+            if (method.equals("POST") && path.equals("/deutsche/oidc/token")) {
+                DeutscheTokenRenewalResponse token = new DeutscheTokenRenewalResponse();
+                token.setAccessToken("sim-deutsche-" + UUID.randomUUID());
+                token.setTokenType("Bearer");
+                token.setSecondsUntilExpiring(599);
+                token.setRefreshToken("sim-refresh-" + UUID.randomUUID());
+                respond(exchange, 200, mapper.writeValueAsBytes(token));
+            } else if (method.equals("GET") && path.equals("/deutsche/cashAccounts")) {
+                respond(exchange, 200, deutscheAccounts);
+            } else if (method.equals("GET") && path.equals("/deutsche/transactions")) {
+                respond(exchange, 200, deutscheTransactions);
+            } else if (method.equals("POST") && path.equals("/deutsche/onetimepasswords")) {
+                drain(exchange.getRequestBody());
+                if (injectError(exchange)) {
+                    return;
+                }
+                DeutschePhototanChallenge challenge = new DeutschePhototanChallenge();
+                challenge.setType(Constants.DEUTSCHE_SEPA_PAYMENT_REQUEST_METHOD);
+                challenge.setImageBase64("");
+                DeutschePhototanResponse response = new DeutschePhototanResponse();
+                response.setId(UUID.randomUUID().toString());
+                response.setMethod(Constants.DEUTSCHE_SEPA_PAYMENT_REQUEST_METHOD);
+                response.setChallenge(challenge);
+                respond(exchange, 201, mapper.writeValueAsBytes(response));
+            } else if (method.equals("PATCH") && path.startsWith("/deutsche/onetimepasswords/")) {
+                drain(exchange.getRequestBody());
+                respond(exchange, 200, mapper.writeValueAsBytes(new DeutscheOneTimePassword(UUID.randomUUID().toString())));
+            } else if (method.equals("POST") && path.equals("/deutsche/instantSepaCreditTransfers")) {
+                drain(exchange.getRequestBody());
+                if (injectError(exchange)) {
+                    return;
+                }
+                Map<String, String> response = new LinkedHashMap<>();
+                response.put("paymentId", "RTE" + UUID.randomUUID());
+                response.put("transactionStatus", "PDNG");
+                paymentsCreatedAt.put(response.get("paymentId"), System.currentTimeMillis());
+                deutschePayments.incrementAndGet();
+                respond(exchange, 201, mapper.writeValueAsBytes(response));
+            } else if (method.equals("GET") && path.startsWith("/deutsche/instantSepaCreditTransfers/") && path.endsWith("/status")) {
+                statusLookups.incrementAndGet();
+                String id = path.substring("/deutsche/instantSepaCreditTransfers/".length(), path.length() - "/status".length());
+                if (!paymentsCreatedAt.containsKey(id)) {
+                    respond(exchange, 404, new byte[0]);
+                    return;
+                }
+                Map<String, String> response = new LinkedHashMap<>();
+                response.put("paymentId", id);
+                response.put("transactionStatus", isSettled(id) ? "ACSC" : "PDNG");
+                respond(exchange, 200, mapper.writeValueAsBytes(response));
+            } else {
+                respond(exchange, 404, new byte[0]);
+            }
+        } catch (RuntimeException exception) {
+            logger.error("Simulator failed on {} {}", method, path, exception);
+            respond(exchange, 500, new byte[0]);
+        }
+    }
+
+    private void preparePayloads() throws IOException {
+        List<RevolutAccount> revolut = new ArrayList<>();
+        List<DeutscheAccount> deutsche = new ArrayList<>();
+        for (int index = 0; index < profile.getAccountCount(); index++) {
+            RevolutAccount account = new RevolutAccount();
+            account.setAccountId(UUID.randomUUID().toString());
+            account.setName("Simulated " + index);
+            account.setBalance(BigDecimal.valueOf(10000 + index));
+            account.setCurrency(index % 2 == 0 ? "EUR" : "GBP");
+            account.setState("active");
+            account.setPublic(false);
+            account.setDateOfCreating(Instant.now().toString());
+            account.setDateOfUpdating(Instant.now().toString());
+            revolut.add(account);
+            revolutAccountIds.add(account.getAccountId());
+
+            DeutscheAccount cashAccount = new DeutscheAccount();
+            cashAccount.setAccountId(String.format("DE100100000000000%05d", index));
+            cashAccount.setCurrencyCode("EUR");
+            cashAccount.setBic("DEUTDEDBBER");
+            cashAccount.setAccountType("CURRENT_ACCOUNT");
+            cashAccount.setCurrentBalance(BigDecimal.valueOf(50000 + index));
+            cashAccount.setProductDescription("Simulated " + index);
+            deutsche.add(cashAccount);
+            deutscheIbans.add(cashAccount.getAccountId());
+        }
+
+        List<RevolutTransaction> revolutHistory = new ArrayList<>();
+        List<DeutscheTransaction> deutscheHistory = new ArrayList<>();
+        for (int index = 0; index < profile.getTransactionCount(); index++) {
+            RevolutTransactionLegCounterparty counterparty = new RevolutTransactionLegCounterparty();
+            counterparty.setAccountId(revolutAccountIds.get((index + 1) % revolutAccountIds.size()));
+            RevolutTransactionLeg leg = new RevolutTransactionLeg();
+            leg.setLegId(UUID.randomUUID().toString());
+            leg.setAccountId(revolutAccountIds.get(index % revolutAccountIds.size()));
+            leg.setAmount(BigDecimal.valueOf(-(index % 500) * 100 - 50, 2));
+            leg.setCurrency("EUR");
+            leg.setCounterparty(counterparty);
+            RevolutTransaction transaction = new RevolutTransaction();
+            transaction.setId(UUID.randomUUID().toString());
+            transaction.setType("transfer");
+            transaction.setState("completed");
+            transaction.setRequestId(UUID.randomUUID().toString());
+            transaction.setReference("Simulated " + index);
+            transaction.setDateOfCreating(Instant.now().minusSeconds(3600L * index).toString());
+            transaction.setRevolutLegs(Collections.singletonList(leg));
+            revolutHistory.add(transaction);
+
+            DeutscheTransaction booking = new DeutscheTransaction();
+            booking.setOriginIban(deutscheIbans.get(index % deutscheIbans.size()));
+            booking.setCounterPartyIban(deutscheIbans.get((index + 1) % deutscheIbans.size()));
+            booking.setCounterPartyName("Simulated " + index);
+            booking.setAmount(BigDecimal.valueOf(-(index % 500) * 100 - 25, 2));
+            booking.setCurrencyCode("EUR");
+            booking.setPaymentReference("Simulated " + index);
+            booking.setBookingDate(LocalDate.now().minusDays(index).toString());
+            booking.setE2eReference(UUID.randomUUID().toString());
+            booking.setPaymentIdentification("DB-SIM/" + index);
+            deutscheHistory.add(booking);
+        }
+
+        revolutAccounts = mapper.writeValueAsBytes(revolut);
+        deutscheAccounts = mapper.writeValueAsBytes(deutsche);
+        revolutTransactions = mapper.writeValueAsBytes(revolutHistory);
+        deutscheTransactions = mapper.writeValueAsBytes(deutscheHistory);
+    }
+
+    private void announceSettlement(String paymentId) {
+        Map<String, String> data = new LinkedHashMap<>();
+        data.put("id", paymentId);
+        data.put("old_state", "pending");
+        data.put("new_state", "completed");
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("event", RevolutWebhookEvent.TRANSACTION_STATE_CHANGED);
+        event.put("timestamp", Instant.now().toString());
+        event.put("data", data);
+
+        try {
+            byte[] body = mapper.writeValueAsBytes(event);
+            int deliveries = ThreadLocalRandom.current().nextDouble() < profile.getErrorRate() ? 2 : 1;
+            for (int delivery = 0; delivery < deliveries; delivery++) {
+                String timestamp = String.valueOf(System.currentTimeMillis());
+                HttpURLConnection connection = (HttpURLConnection) new URL(webhookUrl).openConnection();
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setRequestProperty(Constants.REVOLUT_WEBHOOK_TIMESTAMP_HEADER, timestamp);
+                connection.setRequestProperty(Constants.REVOLUT_WEBHOOK_SIGNATURE_HEADER,
+                        RevolutWebhookService.sign(webhookSecret, timestamp, body));
+                try (OutputStream output = connection.getOutputStream()) {
+                    output.write(body);
+                }
+                if (connection.getResponseCode() / 100 == 2) {
+                    webhookCalls.incrementAndGet();
+                } else {
+                    logger.warn("Webhook for {} was answered with {}", paymentId, connection.getResponseCode());
+                }
+                connection.disconnect();
+            }
+        } catch (IOException exception) {
+            logger.warn("Webhook for {} could not be delivered: {}", paymentId, exception.getMessage());
+        }
+    }
+
+    private boolean isSettled(String paymentId) {
+        return System.currentTimeMillis() - paymentsCreatedAt.get(paymentId) >= profile.getSettlementMillis();
+    }
+
+    private void simulateLatency() {
+        long delay = profile.getLatencyMillis();
+        if (profile.getLatencyJitterMillis() > 0) {
+            delay += ThreadLocalRandom.current().nextLong(profile.getLatencyJitterMillis());
+        }
+        if (delay <= 0) {
+            return;
+        }
+
+        try {
+            TimeUnit.MILLISECONDS.sleep(delay);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean injectError(HttpExchange exchange) throws IOException {
+        if (ThreadLocalRandom.current().nextDouble() >= profile.getErrorRate()) {
+            return false;
+        }
+
+        injectedErrors.incrementAndGet();
+        respond(exchange, 503, "{\"code\":503,\"message\":\"Simulated outage\"}".getBytes(StandardCharsets.UTF_8));
+        return true;
+    }
+
+    private static void drain(InputStream body) throws IOException {
+        byte[] buffer = new byte[4096];
+        while (body.read(buffer) != -1) {
+            // request bodies are not inspected
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+        exchange.close();
+    }
+}
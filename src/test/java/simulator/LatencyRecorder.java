@@ -0,0 +1,55 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package simulator;
+
+import java.util.Arrays;
+
+public class LatencyRecorder {
+    private final String name;
+    private long[] samples = new long[1024];
+    private int count;
+    private int failures;
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    public synchronized void recordFailure(long nanos) {
+        failures++;
+        record(nanos);
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized String summary() {
+        if (count == 0) {
+            return String.format("%-22s no requests", name);
+        }
+
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return String.format("%-22s requests=%-7d failures=%-5d p50=%8.2fms p99=%8.2fms max=%8.2fms",
+                name, count, failures, millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                millis(sorted[sorted.length - 1]));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package simulator;
+
+import com.j2020.J2020Application;
+import com.j2020.model.Bank;
+import com.j2020.model.BatchOfPaymentsMessage;
+import com.j2020.model.GeneralPayment;
+import com.j2020.model.Money;
+import com.j2020.model.PaymentLaneStatus;
+import com.j2020.model.PaymentPriority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Boots the application against a {@link BankSimulator} and drives an open-loop mix of {@code POST /transactions}
+ * and the read endpoints at a fixed target rate. Latency is measured from the scheduled start of each request,
+ * so a stalled service shows up in the percentiles instead of silently lowering the offered load.
+ * <p>
+ * Tunables (system properties): load.rate, load.duration, load.paymentsPerRequest, load.postShare,
+ * load.urgentShare, load.profile, load.consumers, load.drainSeconds, load.webhooks.
+ */
+public class LoadTestRunner {
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private final RestTemplate client = new RestTemplate();
+    private final BankSimulator simulator;
+    private final String baseUrl;
+    private final int paymentsPerRequest;
+    private final double urgentShare;
+    private final LatencyRecorder postRecorder = new LatencyRecorder("POST /transactions");
+    private final LatencyRecorder accountsRecorder = new LatencyRecorder("GET /accounts");
+    private final LatencyRecorder transactionsRecorder = new LatencyRecorder("GET /transactions");
+    private final LatencyRecorder statusRecorder = new LatencyRecorder("GET /statuses/{id}");
+    private final Queue<Long> batchIds = new ConcurrentLinkedQueue<>();
+    private final AtomicLong submittedPayments = new AtomicLong();
+
+    public LoadTestRunner(BankSimulator simulator, String baseUrl, int paymentsPerRequest, double urgentShare) {
+        this.simulator = simulator;
+        this.baseUrl = baseUrl;
+        this.paymentsPerRequest = paymentsPerRequest;
+        this.urgentShare = urgentShare;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rate = Integer.getInteger("load.rate", 20);
+        int durationSeconds = Integer.getInteger("load.duration", 30);
+        int paymentsPerRequest = Integer.getInteger("load.paymentsPerRequest", 10);
+        double postShare = Double.parseDouble(System.getProperty("load.postShare", "0.25"));
+        double urgentShare = Double.parseDouble(System.getProperty("load.urgentShare", "0.1"));
+        String consumers = System.getProperty("load.consumers", "1-4");
+        int drainSeconds = Integer.getInteger("load.drainSeconds", 120);
+        boolean webhooks = Boolean.getBoolean("load.webhooks");
+        SimulatorProfile profile = SimulatorProfile.named(System.getProperty("load.profile", "realistic"));
+
+        BankSimulator simulator = new BankSimulator(profile);
+        simulator.start();
+
+        Map<String, Object> properties = simulator.applicationProperties();
+        properties.put("server.port", "0");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        properties.put("spring.jms.listener.concurrency", consumers.split("-")[0]);
+        properties.put("spring.jms.listener.max-concurrency", consumers.split("-")[consumers.split("-").length - 1]);
+        properties.put("logging.level.com.j2020", "WARN");
+        properties.put("logging.level.org.springframework.transaction.interceptor", "WARN");
+        String signingSecret = UUID.randomUUID().toString();
+        if (webhooks) {
+            properties.put("webhooks.revolut.signingSecret", signingSecret);
+        }
+
+        // command line arguments take precedence over application.properties, builder defaults would not
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        properties.forEach((key, value) -> arguments.add("--" + key + "=" + value));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(J2020Application.class)
+                .run(arguments.toArray(new String[0]));
+
+        try {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            if (webhooks) {
+                simulator.sendWebhooksTo(baseUrl + "/webhooks/revolut", signingSecret);
+            }
+            LoadTestRunner runner = new LoadTestRunner(simulator, baseUrl, paymentsPerRequest, urgentShare);
+            runner.run(rate, durationSeconds, postShare, drainSeconds);
+        } finally {
+            context.close();
+            simulator.stop();
+        }
+    }
+
+    public void run(int rate, int durationSeconds, double postShare, int drainSeconds) throws InterruptedException {
+        logger.warn("Driving {} requests/s for {}s ({}% POST, {} payments each)",
+                rate, durationSeconds, Math.round(postShare * 100), paymentsPerRequest);
+
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService workers = Executors.newCachedThreadPool();
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        ticker.scheduleAtFixedRate(() -> {
+            long scheduledAt = System.nanoTime();
+            if (scheduledAt >= end) {
+                return;
+            }
+            double draw = ThreadLocalRandom.current().nextDouble();
+            workers.execute(() -> issue(draw, postShare, scheduledAt));
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        TimeUnit.NANOSECONDS.sleep(end - start);
+        ticker.shutdownNow();
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+
+        long completedAt = awaitProcessing(TimeUnit.SECONDS.toNanos(drainSeconds));
+        report(start, end, completedAt);
+    }
+
+    private void issue(double draw, double postShare, long scheduledAt) {
+        double readShare = (1.0 - postShare) / 3;
+
+        if (draw < postShare) {
+            timed(postRecorder, scheduledAt, this::submitPayments);
+        } else if (draw < postShare + readShare) {
+            timed(accountsRecorder, scheduledAt, () -> client.getForObject(baseUrl + "/accounts", String.class));
+        } else if (draw < postShare + 2 * readShare) {
+            timed(transactionsRecorder, scheduledAt, () -> client.getForObject(baseUrl + "/transactions", String.class));
+        } else {
+            Long batchId = batchIds.peek();
+            if (batchId != null) {
+                timed(statusRecorder, scheduledAt, () -> client.getForObject(baseUrl + "/statuses/" + batchId, String.class));
+            }
+        }
+    }
+
+    private void submitPayments() {
+        Map<String, List<GeneralPayment>> request = new HashMap<>();
+        List<GeneralPayment> revolut = new ArrayList<>();
+        List<GeneralPayment> deutsche = new ArrayList<>();
+
+        for (int index = 0; index < paymentsPerRequest; index++) {
+            if (index % 2 == 0) {
+                revolut.add(revolutPayment(index));
+            } else {
+                deutsche.add(deutschePayment(index));
+            }
+        }
+        if (ThreadLocalRandom.current().nextDouble() < urgentShare) {
+            revolut.forEach(payment -> payment.setPriority(PaymentPriority.URGENT));
+            deutsche.forEach(payment -> payment.setPriority(PaymentPriority.URGENT));
+        }
+        request.put(Bank.REVOLUT.toString(), revolut);
+        request.put(Bank.DEUTSCHE.toString(), deutsche);
+
+        BatchOfPaymentsMessage response = client.postForObject(baseUrl + "/transactions", request, BatchOfPaymentsMessage.class);
+        if (response != null && response.getBatchId() != null) {
+            batchIds.add(response.getBatchId());
+            submittedPayments.addAndGet(paymentsPerRequest);
+        }
+    }
+
+    private GeneralPayment revolutPayment(int index) {
+        List<String> accounts = simulator.getRevolutAccountIds();
+        GeneralPayment payment = new GeneralPayment();
+        payment.setSourceAccount(accounts.get(index % accounts.size()));
+        payment.setDestinationAccount(accounts.get((index + 1) % accounts.size()));
+        payment.setCurrency("EUR");
+        payment.setAmount(Money.ofMinor(100L * (index + 1), "EUR"));
+
+        Map<String, String> additionalInfo = new HashMap<>();
+        additionalInfo.put("reference", "Load test " + index);
+        additionalInfo.put("counterparty", UUID.randomUUID().toString());
+        payment.setAdditionalInfo(additionalInfo);
+
+        return payment;
+    }
+
+    private GeneralPayment deutschePayment(int index) {
+        List<String> ibans = simulator.getDeutscheIbans();
+        GeneralPayment payment = new GeneralPayment();
+        payment.setSourceAccount(ibans.get(index % ibans.size()));
+        payment.setDestinationAccount(ibans.get((index + 1) % ibans.size()));
+        payment.setCurrency("EUR");
+        payment.setAmount(Money.ofMinor(100L * (index + 1), "EUR"));
+
+        Map<String, String> additionalInfo = new HashMap<>();
+        additionalInfo.put("creditorName", "Load test receiver");
+        payment.setAdditionalInfo(additionalInfo);
+
+        return payment;
+    }
+
+    @SuppressWarnings("unchecked")
+    private long awaitProcessing(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        List<Long> pending = new ArrayList<>(batchIds);
+
+        while (!pending.isEmpty() && System.nanoTime() < deadline) {
+            Iterator<Long> iterator = pending.iterator();
+            while (iterator.hasNext()) {
+                Map<String, Object> batch = client.getForObject(baseUrl + "/statuses/" + iterator.next(), Map.class);
+                if (batch != null && ((Number) batch.get("Processed payments")).intValue()
+                        >= ((Number) batch.get("Total payments")).intValue()) {
+                    iterator.remove();
+                }
+            }
+            if (!pending.isEmpty()) {
+                TimeUnit.MILLISECONDS.sleep(250);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            logger.warn("{} batches were still being processed when the drain timeout expired", pending.size());
+        }
+        return System.nanoTime();
+    }
+
+    private void report(long start, long end, long completedAt) {
+        long processed = simulator.getRevolutPayments() + simulator.getDeutschePayments();
+        double offeredSeconds = (end - start) / 1e9;
+        double processingSeconds = (completedAt - start) / 1e9;
+
+        StringBuilder report = new StringBuilder("\n==== Load test report ====\n");
+        for (LatencyRecorder recorder : Arrays.asList(postRecorder, accountsRecorder, transactionsRecorder, statusRecorder)) {
+            report.append(recorder.summary()).append('\n');
+        }
+        report.append(String.format("payments accepted      %d (%.1f payments/s over %.1fs)%n",
+                submittedPayments.get(), submittedPayments.get() / offeredSeconds, offeredSeconds));
+        report.append(String.format("payments pushed to bank %d (%.1f payments/s until drained after %.1fs)%n",
+                processed, processed / processingSeconds, processingSeconds));
+        report.append(String.format("simulated bank errors  %d%n", simulator.getInjectedErrors()));
+        report.append(String.format("payment status lookups %d%n", simulator.getStatusLookups()));
+        report.append(String.format("webhook calls accepted %d%n", simulator.getWebhookCalls()));
+        client.exchange(baseUrl + "/transactions/lanes", HttpMethod.GET, null,
+                new ParameterizedTypeReference<Map<String, PaymentLaneStatus>>() {
+                }).getBody().values().forEach(lane -> report.append(String.format(
+                "lane %-17s payments=%-7d p50=%6dms p99=%6dms slo=%dms breaches=%d%n",
+                lane.getLane(), lane.getPayments(), orZero(lane.getP50Millis()), orZero(lane.getP99Millis()),
+                lane.getSloMillis(), lane.getSloBreaches())));
+
+        logger.warn(report.toString());
+    }
+
+    private static long orZero(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private static void timed(LatencyRecorder recorder, long scheduledAt, Runnable request) {
+        try {
+            request.run();
+            recorder.record(System.nanoTime() - scheduledAt);
+        } catch (RuntimeException exception) {
+            recorder.recordFailure(System.nanoTime() - scheduledAt);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * @author Paulius Staisiunas
+ */
+
+package simulator;
+
+public class SimulatorProfile {
+    private long latencyMillis;
+    private long latencyJitterMillis;
+    private double errorRate;
+    private int accountCount;
+    private int transactionCount;
+    private long settlementMillis;
+
+    public SimulatorProfile() {
+    }
+
+    public SimulatorProfile(long latencyMillis, long latencyJitterMillis, double errorRate,
+                            int accountCount, int transactionCount, long settlementMillis) {
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = latencyJitterMillis;
+        this.errorRate = errorRate;
+        this.accountCount = accountCount;
+        this.transactionCount = transactionCount;
+        this.settlementMillis = settlementMillis;
+    }
+
+    public static SimulatorProfile named(String name) {
+        switch (name) {
+            case "instant":
+                return new SimulatorProfile(0, 0, 0.0, 2, 10, 0);
+            case "realistic":
+                return new SimulatorProfile(80, 40, 0.01, 5, 200, 15000);
+            case "slow":
+                return new SimulatorProfile(400, 200, 0.02, 5, 200, 60000);
+            case "flaky":
+                return new SimulatorProfile(80, 40, 0.15, 5, 200, 15000);
+            case "large":
+                return new SimulatorProfile(80, 40, 0.01, 50, 10000, 15000);
+            default:
+                throw new IllegalArgumentException("Unknown simulator profile " + name);
+        }
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public long getLatencyJitterMillis() {
+        return latencyJitterMillis;
+    }
+
+    public void setLatencyJitterMillis(long latencyJitterMillis) {
+        this.latencyJitterMillis = latencyJitterMillis;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public int getAccountCount() {
+        return accountCount;
+    }
+
+    public void setAccountCount(int accountCount) {
+        this.accountCount = accountCount;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(int transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public long getSettlementMillis() {
+        return settlementMillis;
+    }
+
+    public void setSettlementMillis(long settlementMillis) {
+        this.settlementMillis = settlementMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SimulatorProfile{" +
+                "latencyMillis=" + latencyMillis +
+                ", latencyJitterMillis=" + latencyJitterMillis +
+                ", errorRate=" + errorRate +
+                ", accountCount=" + accountCount +
+                ", transactionCount=" + transactionCount +
+                ", settlementMillis=" + settlementMillis +
+                '}';
+    }
+}